@@ -0,0 +1,120 @@
+package me.selim.mesh.benchmark;
+
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.generator.GeneratedMesh;
+import me.selim.mesh.generator.MeshGenerator;
+import me.selim.mesh.generator.MeshShape;
+import me.selim.mesh.generator.MeshSpec;
+import me.selim.mesh.infrastructure.ConnectionIndex;
+import me.selim.mesh.infrastructure.GraphEventBus;
+import me.selim.mesh.infrastructure.GraphEventHandler;
+import me.selim.mesh.infrastructure.GraphProjection;
+import me.selim.mesh.infrastructure.InMemoryNodeRepository;
+import me.selim.mesh.service.InMemoryNodeIdGenerator;
+import me.selim.mesh.service.LockContention;
+import me.selim.mesh.service.NodeServiceImpl;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * A graph of the benchmarks, generated by the {@link MeshGenerator} from a seed so every run measures the same nodes
+ * and connections.
+ * <p>
+ * The nodes are saved to an {@link InMemoryNodeRepository} whose event bus applies the connection index, so the
+ * mutations measured by the benchmarks pay for the projection as in the application.
+ */
+public final class BenchmarkGraph implements AutoCloseable {
+
+    private final DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+    private final InMemoryNodeIdGenerator idGenerator = new InMemoryNodeIdGenerator();
+    private final GraphEventBus eventBus;
+    private final InMemoryNodeRepository repository;
+    private final NodeServiceImpl nodeService;
+    private final List<Node> nodes = new ArrayList<>();
+
+    private BenchmarkGraph() {
+        eventBus = new GraphEventBus(beans.getBeanProvider(GraphProjection.class),
+                beans.getBeanProvider(GraphEventHandler.class));
+        repository = new InMemoryNodeRepository(idGenerator, eventBus);
+        beans.registerSingleton("connectionIndex", new ConnectionIndex(repository));
+        eventBus.afterSingletonsInstantiated();
+        nodeService = new NodeServiceImpl(repository, eventBus, new LockContention());
+    }
+
+    /**
+     * @param size  the number of nodes.
+     * @param shape how the nodes are connected.
+     * @param seed  the seed of the mesh.
+     */
+    public static BenchmarkGraph build(int size, MeshShape shape, long seed) {
+        BenchmarkGraph graph = new BenchmarkGraph();
+        GeneratedMesh mesh = new MeshGenerator(graph.repository, graph.nodeService, graph.idGenerator)
+                .generate(MeshSpec.of(size, shape, seed));
+        for (int index = 0; index < mesh.nodes(); index++) {
+            graph.nodes.add(graph.repository.findById(mesh.nodeId(index)).orElseThrow());
+        }
+        return graph;
+    }
+
+    /**
+     * Adds nodes without connections.
+     *
+     * @return the added nodes.
+     */
+    public List<Node> addNodes(int count) {
+        List<Node> added = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Node node = repository.save(new Node("Added " + i));
+            nodes.add(node);
+            added.add(node);
+        }
+        return added;
+    }
+
+    public InMemoryNodeRepository repository() {
+        return repository;
+    }
+
+    public GraphEventBus eventBus() {
+        return eventBus;
+    }
+
+    public NodeServiceImpl nodeService() {
+        return nodeService;
+    }
+
+    /**
+     * @return the nodes, in the order of the mesh indexes then the added nodes.
+     */
+    public List<Node> nodes() {
+        return nodes;
+    }
+
+    public Node node(int index) {
+        return nodes.get(index);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * @return {@code count} random node indexes, the same for the same seed.
+     */
+    public int[] sample(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] sample = new int[count];
+        for (int i = 0; i < count; i++) {
+            sample[i] = random.nextInt(nodes.size());
+        }
+        return sample;
+    }
+
+    @Override
+    public void close() {
+        eventBus.destroy();
+    }
+}
@@ -0,0 +1,58 @@
+package me.selim.mesh.benchmark;
+
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.generator.MeshShape;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The graph shared by the threads of a benchmark, parameterized by its size and shape, with a fixed sample of nodes
+ * the benchmarks pick their arguments from.
+ */
+@State(Scope.Benchmark)
+public class GraphState {
+    public static final long SEED = 42;
+    static final int SAMPLE_SIZE = 4096;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"GRID", "GEOMETRIC", "RING_OF_CLUSTERS", "SCALE_FREE"})
+    public MeshShape shape;
+
+    public BenchmarkGraph graph;
+    public Node[] sample;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        graph = BenchmarkGraph.build(size, shape, SEED);
+        int[] indexes = graph.sample(SAMPLE_SIZE, SEED);
+        sample = new Node[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            sample[i] = graph.node(indexes[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        graph.close();
+    }
+
+    /**
+     * The position of a thread in the sample, so the threads walk the sample independently.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+
+        public Node next(GraphState state) {
+            Node node = state.sample[position];
+            position = (position + 1) & (SAMPLE_SIZE - 1);
+            return node;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package me.selim.mesh.domain;
+
+import me.selim.mesh.benchmark.GraphState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The connection accessors of a node, called for every node a route search settles and for every mutation, and the
+ * name comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NodeBenchmark {
+
+    @Benchmark
+    public List<Connection> getConnections(GraphState state, GraphState.Cursor cursor) {
+        return cursor.next(state).getConnections();
+    }
+
+    @Benchmark
+    public int compareTo(GraphState state, GraphState.Cursor cursor) {
+        // the comparison of the name index and of the sorters, on the precomputed sort keys of the names
+        return cursor.next(state).compareTo(cursor.next(state));
+    }
+
+    @Benchmark
+    public boolean isConnectedTo(GraphState state, GraphState.Cursor cursor) {
+        // mostly unconnected pairs, the common case of a connect
+        return cursor.next(state).isConnectedTo(cursor.next(state));
+    }
+}
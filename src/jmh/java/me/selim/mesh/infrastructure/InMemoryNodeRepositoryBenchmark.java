@@ -0,0 +1,39 @@
+package me.selim.mesh.infrastructure;
+
+import me.selim.mesh.benchmark.GraphState;
+import me.selim.mesh.domain.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Look ups of the repository, the base of every request and of every step of a route search, and the name prefix
+ * search of the autocomplete.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InMemoryNodeRepositoryBenchmark {
+
+    @Benchmark
+    public Optional<Node> findById(GraphState state, GraphState.Cursor cursor) {
+        return state.graph.repository().findById(cursor.next(state).getId());
+    }
+
+    @Benchmark
+    public List<Node> findPageByNamePrefix(GraphState state, GraphState.Cursor cursor) {
+        // an autocomplete of the name without its last digit: up to 10 nodes
+        String name = cursor.next(state).getName();
+        return state.graph.repository().findPageByNamePrefix(name.substring(0, name.length() - 1), null, null, 10);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Node> findAll(GraphState state) {
+        return state.graph.repository().findAll();
+    }
+}
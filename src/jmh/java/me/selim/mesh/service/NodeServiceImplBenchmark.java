@@ -0,0 +1,99 @@
+package me.selim.mesh.service;
+
+import me.selim.mesh.benchmark.GraphState;
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.domain.Node;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connects and drops connections between a set of hot nodes from several threads, so the mutations contend for the
+ * node locks. Every call takes a random hot node and either connects it to another random hot node or drops one of its
+ * connections.
+ * <p>
+ * The secondary results count the outcomes: {@code mutations} succeeded, {@code conflicts} failed on a node locked by
+ * another thread, {@code rejections} failed because a node was full or the pair changed since it was checked.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+public class NodeServiceImplBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Service {
+        /**
+         * Fewer hot nodes, more contention.
+         */
+        @Param({"8", "256"})
+        public int hotNodes;
+
+        NodeServiceImpl service;
+        Node[] hot;
+
+        @Setup(Level.Trial)
+        public void setUp(GraphState state) {
+            service = state.graph.nodeService();
+            List<Node> added = state.graph.addNodes(hotNodes);
+            hot = added.toArray(Node[]::new);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+        public long mutations;
+        public long conflicts;
+        public long rejections;
+
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(GraphState.SEED + Thread.currentThread().getId());
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            mutations = 0;
+            conflicts = 0;
+            rejections = 0;
+        }
+    }
+
+    @Benchmark
+    public void connectOrDrop(Service service, Outcomes outcomes) {
+        Node first = service.hot[outcomes.random.nextInt(service.hot.length)];
+        List<Connection> connections = first.getConnections();
+        try {
+            // drops as often as it connects, so the hot nodes do not fill up
+            if (connections.size() == Node.MAX_CONNECTION_COUNT || (!connections.isEmpty() && outcomes.random.nextBoolean())) {
+                Connection connection = connections.get(outcomes.random.nextInt(connections.size()));
+                service.service.dropConnection(first.getId(), connection.getOtherNodeId(first.getId()));
+            } else {
+                Node second = service.hot[outcomes.random.nextInt(service.hot.length)];
+                if (second == first) {
+                    return;
+                }
+                service.service.connectNodes(first.getId(), second.getId(), 1 + outcomes.random.nextInt(100));
+            }
+            outcomes.mutations++;
+        } catch (IllegalStateException e) {
+            outcomes.conflicts++;
+        } catch (IllegalArgumentException e) {
+            outcomes.rejections++;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package me.selim.mesh.service;
+
+import me.selim.mesh.benchmark.GraphState;
+import me.selim.mesh.domain.Route;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route searches between random pairs of nodes, without the budget, the pool and the coalescing of the requests.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShortestPathFinderBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Finder {
+        ShortestPathFinder finder;
+
+        @Setup(Level.Trial)
+        public void setUp(GraphState state) {
+            finder = new ShortestPathFinder(state.graph.repository());
+        }
+    }
+
+    @Benchmark
+    public Route findShortestPath(GraphState state, GraphState.Cursor cursor, Finder finder) {
+        return finder.finder.findShortestPath(cursor.next(state), cursor.next(state));
+    }
+}
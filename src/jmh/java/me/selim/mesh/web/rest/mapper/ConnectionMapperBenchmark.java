@@ -0,0 +1,51 @@
+package me.selim.mesh.web.rest.mapper;
+
+import me.selim.mesh.benchmark.GraphState;
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.web.rest.model.ConnectionDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping a connection to its response body, done for every connection of a listing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConnectionMapperBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Mapper {
+        ConnectionMapper mapper;
+        Connection[] connections;
+
+        @Setup(Level.Trial)
+        public void setUp(GraphState state) {
+            mapper = new ConnectionMapper(state.graph.repository());
+            // the first connection of the sampled nodes, a geometric mesh has isolated nodes
+            connections = Arrays.stream(state.sample)
+                    .flatMap(node -> node.getConnections().stream().limit(1))
+                    .toArray(Connection[]::new);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Position {
+        int next;
+    }
+
+    @Benchmark
+    public ConnectionDto mapWithNameOnly(Mapper mapper, Position position) {
+        Connection connection = mapper.connections[position.next];
+        position.next = (position.next + 1) % mapper.connections.length;
+        return mapper.mapper.mapWithNameOnly(connection);
+    }
+}
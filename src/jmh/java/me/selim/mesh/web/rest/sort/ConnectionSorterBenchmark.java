@@ -0,0 +1,36 @@
+package me.selim.mesh.web.rest.sort;
+
+import me.selim.mesh.benchmark.GraphState;
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.web.rest.model.SortType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorting all the connections of the graph, the unpaged connection listings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ConnectionSorterBenchmark {
+
+    private final NodeSorter nodeSorter = new NodeSorter();
+    private final DistanceSorter distanceSorter = new DistanceSorter();
+
+    @Benchmark
+    public List<Connection> nodeSorter(GraphState state) {
+        return nodeSorter.sort(state.graph.nodes(), SortType.ASC);
+    }
+
+    @Benchmark
+    public List<Connection> distanceSorter(GraphState state) {
+        return distanceSorter.sort(state.graph.nodes(), SortType.ASC);
+    }
+}
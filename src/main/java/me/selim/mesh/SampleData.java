@@ -2,6 +2,10 @@ package me.selim.mesh;
 
 import me.selim.mesh.domain.Connection;
 import me.selim.mesh.domain.Node;
+import me.selim.mesh.generator.DistanceDistribution;
+import me.selim.mesh.generator.MeshGenerator;
+import me.selim.mesh.generator.MeshShape;
+import me.selim.mesh.generator.MeshSpec;
 import me.selim.mesh.infrastructure.NodeRepository;
 import me.selim.mesh.service.NodeService;
 import org.springframework.boot.CommandLineRunner;
@@ -13,18 +17,57 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Loads the sample graph at startup: the 20 nodes graph below, or a generated mesh when {@code sample.shape} is set,
+ * of {@code sample.size} nodes built from {@code sample.seed}, see {@link MeshGenerator}.
+ */
 @Configuration
 @ConfigurationProperties(prefix = "sample")
 public class SampleData {
     private boolean disable;
+    private MeshShape shape;
+    private int size = 1000;
+    private long seed;
+    private DistanceDistribution distances = DistanceDistribution.UNIFORM;
+    private int minDistance = MeshSpec.DEFAULT_MIN_DISTANCE;
+    private int maxDistance = MeshSpec.DEFAULT_MAX_DISTANCE;
+    private int clusterSize = MeshSpec.DEFAULT_CLUSTER_SIZE;
 
     public void setDisable(boolean disable) {
         this.disable = disable;
     }
 
+    public void setShape(MeshShape shape) {
+        this.shape = shape;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setDistances(DistanceDistribution distances) {
+        this.distances = distances;
+    }
+
+    public void setMinDistance(int minDistance) {
+        this.minDistance = minDistance;
+    }
+
+    public void setMaxDistance(int maxDistance) {
+        this.maxDistance = maxDistance;
+    }
+
+    public void setClusterSize(int clusterSize) {
+        this.clusterSize = clusterSize;
+    }
+
     private final static AtomicBoolean dataInit = new AtomicBoolean(false);
     @Bean
-    CommandLineRunner initDatabase(NodeRepository repository, NodeService service) {
+    CommandLineRunner initDatabase(NodeRepository repository, NodeService service, MeshGenerator meshGenerator) {
         return args -> {
             if (disable) {
                 return;
@@ -33,6 +76,10 @@ public class SampleData {
                 return;
             }
             dataInit.set(true);
+            if (shape != null) {
+                meshGenerator.generate(new MeshSpec(size, shape, seed, distances, minDistance, maxDistance, clusterSize));
+                return;
+            }
             createNodes(repository);
             createConnections(service);
         };
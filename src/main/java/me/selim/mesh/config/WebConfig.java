@@ -0,0 +1,18 @@
+package me.selim.mesh.config;
+
+import me.selim.mesh.web.rest.binary.MeshBinaryHttpMessageConverter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // added last, a converter bean would be placed before the JSON converters and become the default
+        converters.add(new MeshBinaryHttpMessageConverter());
+    }
+}
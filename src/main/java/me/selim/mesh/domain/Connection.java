@@ -102,7 +102,16 @@ public class Connection implements Comparable<Connection> {
     @Transient
     public Long getOtherNodeId(Long nodeId) {
         //if nodeId is not in the nodes set, return null
-        return nodes.contains(nodeId) ? nodes.stream().filter(id -> !id.equals(nodeId)).findFirst().get() : null;
+        if (!nodes.contains(nodeId)) {
+            return null;
+        }
+        // a loop over the two nodes, called for every edge a route search relaxes
+        for (Long id : nodes) {
+            if (!id.equals(nodeId)) {
+                return id;
+            }
+        }
+        return null;
     }
 
     /**
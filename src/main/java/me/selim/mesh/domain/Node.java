@@ -4,7 +4,9 @@ import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -20,7 +22,13 @@ public class Node implements Comparable<Node> {
 
     private final String name;
 
-    private final Set<Connection> connections = new HashSet<>();
+    // the name case folded once, compared by the name indexes instead of folding both names on every comparison
+    private final byte[] sortKey;
+
+    // read without the lock by the route searches and the listings while a mutation changes it: an immutable list
+    // sorted by distance, replaced on every change, never fails the readers with a ConcurrentModificationException
+    // and is returned to them without a copy. A copy of at most 4 connections per change is cheap.
+    private final AtomicReference<List<Connection>> connections = new AtomicReference<>(List.of());
 
     /**
      * Constructs a new Node object with the given name.
@@ -29,6 +37,7 @@ public class Node implements Comparable<Node> {
      */
     public Node(String name) {
         this.name = name;
+        this.sortKey = sortKeyOf(name);
     }
 
     /**
@@ -42,7 +51,8 @@ public class Node implements Comparable<Node> {
                 @Size(max = MAX_CONNECTION_COUNT) Set<Connection> connections) {
         this.id = id;
         this.name = name;
-        this.connections.addAll(connections);
+        this.sortKey = sortKeyOf(name);
+        this.connections.set(connections.stream().sorted().toList());
     }
 
     public void setId(Long id) {
@@ -61,12 +71,66 @@ public class Node implements Comparable<Node> {
     }
 
     /**
-     * Returns a copy of the connections set. This is to prevent direct modification of the connections set.
+     * Returns the connections ordered by distance, the connections of the same distance in the order they were made.
+     * The list is an immutable snapshot, a later change of the connections does not change it.
      *
-     * @return a copy of the connections set.
+     * @return the connections ordered by distance.
      */
     public List<Connection> getConnections() {
-        return connections.stream().sorted().toList();
+        return connections.get();
+    }
+
+    /**
+     * Returns the sort key of a name: the UTF-8 bytes of the name with every code point case folded as
+     * {@link String#compareToIgnoreCase} folds it (upper case, then lower case). Comparing two keys as unsigned bytes
+     * orders them by code point, as {@code compareToIgnoreCase} orders the names, and a name starts with a prefix
+     * ignoring case if its key starts with the key of the prefix. An unpaired surrogate is encoded as {@code '?'}.
+     *
+     * @param name The name.
+     * @return the sort key of the name.
+     */
+    public static byte[] sortKeyOf(String name) {
+        int length = name.length();
+        int folded = 0;
+        while (folded < length) {
+            int codePoint = name.codePointAt(folded);
+            if (foldCase(codePoint) != codePoint) {
+                break;
+            }
+            folded += Character.charCount(codePoint);
+        }
+        if (folded == length) {
+            return name.getBytes(StandardCharsets.UTF_8);
+        }
+        StringBuilder key = new StringBuilder(length).append(name, 0, folded);
+        while (folded < length) {
+            int codePoint = name.codePointAt(folded);
+            key.appendCodePoint(foldCase(codePoint));
+            folded += Character.charCount(codePoint);
+        }
+        return key.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int foldCase(int codePoint) {
+        return Character.toLowerCase(Character.toUpperCase(codePoint));
+    }
+
+    /**
+     * @return the length in bytes of the sort key of the name.
+     */
+    public int sortKeyLength() {
+        return sortKey.length;
+    }
+
+    /**
+     * Checks if the name of this node starts with a prefix, ignoring case.
+     *
+     * @param prefixKey The sort key of the prefix, see {@link #sortKeyOf(String)}.
+     * @return true if the name starts with the prefix, false otherwise.
+     */
+    public boolean hasNamePrefix(byte[] prefixKey) {
+        return sortKey.length >= prefixKey.length
+                && Arrays.equals(sortKey, 0, prefixKey.length, prefixKey, 0, prefixKey.length);
     }
 
     /**
@@ -80,8 +144,8 @@ public class Node implements Comparable<Node> {
      */
     @Override
     public int compareTo(Node o) {
-        //Compare by name alphabetically, ignore case (this is an assumption)
-        return this.name.compareToIgnoreCase(o.name);
+        //Compare by name alphabetically, ignore case (this is an assumption), on the names folded once
+        return Arrays.compareUnsigned(this.sortKey, o.sortKey);
     }
 
     /**
@@ -109,7 +173,7 @@ public class Node implements Comparable<Node> {
         return "Node{" +
                 "id=" + id +
                 ", name='" + name + '\'' +
-                ", connections=" + connections +
+                ", connections=" + connections.get() +
                 '}';
     }
 
@@ -120,7 +184,7 @@ public class Node implements Comparable<Node> {
      * @return true if this node is connected to the given node, false otherwise.
      */
     public boolean isConnectedTo(Node to) {
-        return connections.stream().anyMatch(c -> c.getNodes().containsAll(Set.of(this.getId(), to.getId())));
+        return getConnectionTo(to).isPresent();
     }
 
     /**
@@ -130,7 +194,16 @@ public class Node implements Comparable<Node> {
      * @return the connection between this node and the given node.
      */
     public Optional<Connection> getConnectionTo(Node to) {
-        return connections.stream().filter(c -> c.getNodes().containsAll(Set.of(this.getId(), to.getId()))).findFirst();
+        // every connection of the node contains the node, a node is never connected to itself
+        if (Objects.equals(id, to.getId())) {
+            return Optional.empty();
+        }
+        for (Connection connection : connections.get()) {
+            if (connection.getNodes().contains(to.getId())) {
+                return Optional.of(connection);
+            }
+        }
+        return Optional.empty();
     }
 
 
@@ -140,9 +213,11 @@ public class Node implements Comparable<Node> {
      * @return true if this node has an empty slot, false otherwise.
      */
     public boolean hasEmptySlot() {
-        return connections.size() < MAX_CONNECTION_COUNT;
+        return connections.get().size() < MAX_CONNECTION_COUNT;
     }
 
+    // A ReentrantLock instead of synchronized: a virtual thread waiting for it unmounts from its carrier thread
+    // instead of pinning it. Nodes are always locked in id order, see NodeServiceImpl.
     private final ReentrantLock lock = new ReentrantLock();
 
     /**
@@ -181,7 +256,24 @@ public class Node implements Comparable<Node> {
         if (!connection.getNodes().contains(this.getId())) {
             throw new IllegalArgumentException("Connection must contain this node");
         }
-        return connections.add(connection);
+        while (true) {
+            List<Connection> current = connections.get();
+            if (current.contains(connection)) {
+                return false;
+            }
+            // after the connections of the same distance, as a stable sort of the connections in the order they were made
+            int at = 0;
+            while (at < current.size() && current.get(at).compareTo(connection) <= 0) {
+                at++;
+            }
+            Connection[] changed = new Connection[current.size() + 1];
+            for (int i = 0, j = 0; i < changed.length; i++) {
+                changed[i] = i == at ? connection : current.get(j++);
+            }
+            if (connections.compareAndSet(current, List.of(changed))) {
+                return true;
+            }
+        }
     }
 
     /**
@@ -196,9 +288,21 @@ public class Node implements Comparable<Node> {
             throw new IllegalStateException("Node is already being on connection operations");
         }
 
-        if (!connections.contains(connection)) {
-            return false;
+        while (true) {
+            List<Connection> current = connections.get();
+            int at = current.indexOf(connection);
+            if (at < 0) {
+                return false;
+            }
+            Connection[] changed = new Connection[current.size() - 1];
+            for (int i = 0, j = 0; i < current.size(); i++) {
+                if (i != at) {
+                    changed[j++] = current.get(i);
+                }
+            }
+            if (connections.compareAndSet(current, List.of(changed))) {
+                return true;
+            }
         }
-        return connections.remove(connection);
     }
 }
@@ -0,0 +1,30 @@
+package me.selim.mesh.error;
+
+/**
+ * Thrown when the changes after a graph version are no longer available, or the version belongs to another run of
+ * the service. The client has to resync: export the graph and follow the changes after the version of the export.
+ */
+public class ChangesExpiredException extends RuntimeException {
+    private final String epoch;
+    private final long currentVersion;
+
+    public ChangesExpiredException(String message, String epoch, long currentVersion) {
+        super(message);
+        this.epoch = epoch;
+        this.currentVersion = currentVersion;
+    }
+
+    /**
+     * @return the epoch of the running service.
+     */
+    public String getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @return the current graph version.
+     */
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
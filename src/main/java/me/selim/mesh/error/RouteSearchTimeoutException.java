@@ -0,0 +1,11 @@
+package me.selim.mesh.error;
+
+/**
+ * Thrown when a route search runs out of its budget, the time or the number of nodes it may visit,
+ * before the route is found.
+ */
+public class RouteSearchTimeoutException extends RuntimeException {
+    public RouteSearchTimeoutException(String message) {
+        super(message);
+    }
+}
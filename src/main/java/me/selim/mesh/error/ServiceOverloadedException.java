@@ -0,0 +1,18 @@
+package me.selim.mesh.error;
+
+/**
+ * Thrown when a request is rejected because the service has no capacity left for it. The client may retry the
+ * request after the given number of seconds.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,41 @@
+package me.selim.mesh.generator;
+
+/**
+ * The distributions of the distances of the generated connections, between a minimum and a maximum distance.
+ */
+public enum DistanceDistribution {
+    /**
+     * Every distance between the minimum and the maximum is equally likely.
+     */
+    UNIFORM {
+        @Override
+        int sample(double unit, int min, int max) {
+            return min + (int) (unit * (max - min + 1));
+        }
+    },
+    /**
+     * Mostly short connections and a few long ones, the mean a quarter of the range above the minimum.
+     */
+    EXPONENTIAL {
+        @Override
+        int sample(double unit, int min, int max) {
+            double mean = (max - min) / 4.0;
+            return (int) Math.min(max, min - Math.log1p(-unit) * mean);
+        }
+    },
+    /**
+     * Every connection has the minimum distance, the shortest route is the route with the fewest connections.
+     */
+    CONSTANT {
+        @Override
+        int sample(double unit, int min, int max) {
+            return min;
+        }
+    };
+
+    /**
+     * @param unit a uniform random number in {@code [0, 1)}.
+     * @return the distance for the random number, between {@code min} and {@code max} inclusive.
+     */
+    abstract int sample(double unit, int min, int max);
+}
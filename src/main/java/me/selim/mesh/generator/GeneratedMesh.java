@@ -0,0 +1,19 @@
+package me.selim.mesh.generator;
+
+import java.time.Duration;
+
+/**
+ * A mesh written to the repository. The node of index {@code i} of the topology has the id {@code firstId + i}.
+ *
+ * @param spec        the specification of the mesh.
+ * @param firstId     the id of the first node.
+ * @param nodes       the number of nodes.
+ * @param connections the number of connections.
+ * @param elapsed     the time to generate and write the mesh.
+ */
+public record GeneratedMesh(MeshSpec spec, long firstId, int nodes, int connections, Duration elapsed) {
+
+    public Long nodeId(int index) {
+        return firstId + index;
+    }
+}
@@ -0,0 +1,64 @@
+package me.selim.mesh.generator;
+
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.infrastructure.NodeRepository;
+import me.selim.mesh.service.InMemoryNodeIdGenerator;
+import me.selim.mesh.service.NodeService;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Generates a {@link MeshTopology} and writes it to the repository in parallel: the nodes are saved with ids reserved
+ * in one block, then the connections are made through the {@link NodeService}, so the projections and the change feed
+ * see them as any other connection. The connections are made in rounds in which no two connections share a node, so
+ * the parallel connects never conflict on a node lock.
+ * <p>
+ * The nodes are named {@code "Node <id>"}.
+ */
+@Component
+public class MeshGenerator {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(MeshGenerator.class);
+
+    static final String NAME_PREFIX = "Node ";
+
+    private final NodeRepository nodeRepository;
+    private final NodeService nodeService;
+    private final InMemoryNodeIdGenerator idGenerator;
+
+    public MeshGenerator(NodeRepository nodeRepository, NodeService nodeService, InMemoryNodeIdGenerator idGenerator) {
+        this.nodeRepository = nodeRepository;
+        this.nodeService = nodeService;
+        this.idGenerator = idGenerator;
+    }
+
+    public GeneratedMesh generate(MeshSpec spec) {
+        long start = System.nanoTime();
+        MeshTopology topology = MeshTopology.build(spec);
+        long topologyNanos = System.nanoTime() - start;
+
+        long firstId = idGenerator.reserve(topology.size());
+        IntStream.range(0, topology.size()).parallel()
+                .forEach(index -> nodeRepository.save(new Node(firstId + index, NAME_PREFIX + (firstId + index), Set.of())));
+
+        MeshTopology.Rounds rounds = topology.rounds();
+        int[] order = rounds.order();
+        int[] starts = rounds.starts();
+        for (int round = 0; round < rounds.count(); round++) {
+            IntStream.range(starts[round], starts[round + 1]).parallel().forEach(position -> {
+                int edge = order[position];
+                nodeService.connectNodes(firstId + topology.first(edge), firstId + topology.second(edge),
+                        topology.distance(edge));
+            });
+        }
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        log.info("Generated a {} mesh of {} nodes and {} connections in {} ms (topology {} ms, {} rounds)",
+                spec.shape(), topology.size(), topology.edgeCount(), elapsed.toMillis(), topologyNanos / 1_000_000,
+                rounds.count());
+        return new GeneratedMesh(spec, firstId, topology.size(), topology.edgeCount(), elapsed);
+    }
+}
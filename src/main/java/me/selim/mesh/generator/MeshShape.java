@@ -0,0 +1,28 @@
+package me.selim.mesh.generator;
+
+/**
+ * The shapes of the generated meshes. Every node has at most {@link me.selim.mesh.domain.Node#MAX_CONNECTION_COUNT}
+ * connections.
+ */
+public enum MeshShape {
+    /**
+     * A square grid, every node connected to its right and lower neighbours: routes of about the square root of the
+     * size, many routes of the same length.
+     */
+    GRID,
+    /**
+     * Nodes placed at random in a square, each connected to its nearest neighbours within a radius holding about 8
+     * nodes, as long as both have an empty slot: local connections, one large component and a few small ones.
+     */
+    GEOMETRIC,
+    /**
+     * Rings of {@code clusterSize} nodes with chords across each ring, every ring bridged to the next one and the last
+     * ring to the first: dense neighbourhoods joined by single connections, routes crossing many bridges.
+     */
+    RING_OF_CLUSTERS,
+    /**
+     * Preferential attachment: every new node connects to two existing nodes chosen in proportion to their
+     * connections, among the nodes with an empty slot. The slots cap the hubs, the routes stay short.
+     */
+    SCALE_FREE
+}
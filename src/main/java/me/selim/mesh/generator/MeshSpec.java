@@ -0,0 +1,46 @@
+package me.selim.mesh.generator;
+
+/**
+ * What to generate. The same specification always generates the same connections and distances, whatever the number
+ * of threads building the mesh.
+ *
+ * @param size         the number of nodes.
+ * @param shape        how the nodes are connected.
+ * @param seed         the seed of the random placements, connections and distances.
+ * @param distances    the distribution of the distances.
+ * @param minDistance  the shortest distance of a connection.
+ * @param maxDistance  the longest distance of a connection.
+ * @param clusterSize  the number of nodes of a cluster of {@link MeshShape#RING_OF_CLUSTERS}, ignored by the other
+ *                     shapes.
+ */
+public record MeshSpec(int size, MeshShape shape, long seed, DistanceDistribution distances, int minDistance,
+                       int maxDistance, int clusterSize) {
+
+    public static final int DEFAULT_MIN_DISTANCE = 1;
+    public static final int DEFAULT_MAX_DISTANCE = 10;
+    public static final int DEFAULT_CLUSTER_SIZE = 32;
+
+    public MeshSpec {
+        if (size < 1) {
+            throw new IllegalArgumentException("The size of a mesh must be at least 1");
+        }
+        if (shape == null || distances == null) {
+            throw new IllegalArgumentException("The shape and the distances of a mesh are required");
+        }
+        if (minDistance < 0 || maxDistance < minDistance) {
+            throw new IllegalArgumentException("The distances must satisfy 0 <= minDistance <= maxDistance");
+        }
+        if (clusterSize < 3) {
+            throw new IllegalArgumentException("The cluster size must be at least 3");
+        }
+    }
+
+    /**
+     * A mesh with uniform distances between {@value #DEFAULT_MIN_DISTANCE} and {@value #DEFAULT_MAX_DISTANCE}, and
+     * clusters of {@value #DEFAULT_CLUSTER_SIZE} nodes.
+     */
+    public static MeshSpec of(int size, MeshShape shape, long seed) {
+        return new MeshSpec(size, shape, seed, DistanceDistribution.UNIFORM, DEFAULT_MIN_DISTANCE,
+                DEFAULT_MAX_DISTANCE, DEFAULT_CLUSTER_SIZE);
+    }
+}
@@ -0,0 +1,312 @@
+package me.selim.mesh.generator;
+
+import me.selim.mesh.domain.Node;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The connections of a generated mesh, between node indexes {@code 0} to {@code size - 1}, in primitive arrays so a
+ * mesh of millions of nodes is built before a single node exists.
+ * <p>
+ * The connections are generated in a fixed order from the seed of the {@link MeshSpec}, and the distance of a
+ * connection only depends on the seed and the position of the connection, so the topology does not depend on how it
+ * is written to the repository.
+ */
+public final class MeshTopology {
+    private static final int SLOTS = Node.MAX_CONNECTION_COUNT;
+    // nodes within the radius of a geometric mesh: enough candidates for the slots to connect most nodes into one
+    // component, with about 4.5 the capped mesh falls apart into small components
+    private static final double GEOMETRIC_DEGREE = 8;
+    private static final long DISTANCE_SALT = 0x6A09E667F3BCC909L;
+    private static final long POSITION_SALT = 0xBB67AE8584CAA73BL;
+
+    private final MeshSpec spec;
+    private final int size;
+    private final int[] neighbours;
+    private final int[] degrees;
+    private final int[] first;
+    private final int[] second;
+    private final int[] distances;
+    private int edgeCount;
+
+    private MeshTopology(MeshSpec spec) {
+        this.spec = spec;
+        this.size = spec.size();
+        this.neighbours = new int[size * SLOTS];
+        this.degrees = new int[size];
+        // every connection takes a slot of two nodes
+        int maxEdges = (int) Math.min(Integer.MAX_VALUE - 8, (long) size * SLOTS / 2);
+        this.first = new int[maxEdges];
+        this.second = new int[maxEdges];
+        this.distances = new int[maxEdges];
+    }
+
+    public static MeshTopology build(MeshSpec spec) {
+        if ((long) spec.size() * SLOTS > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("A mesh can have at most " + (Integer.MAX_VALUE / SLOTS) + " nodes");
+        }
+        MeshTopology topology = new MeshTopology(spec);
+        switch (spec.shape()) {
+            case GRID -> topology.grid();
+            case GEOMETRIC -> topology.geometric();
+            case RING_OF_CLUSTERS -> topology.ringOfClusters();
+            case SCALE_FREE -> topology.scaleFree();
+        }
+        return topology;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    public int first(int edge) {
+        return first[edge];
+    }
+
+    public int second(int edge) {
+        return second[edge];
+    }
+
+    public int distance(int edge) {
+        return distances[edge];
+    }
+
+    public int degree(int node) {
+        return degrees[node];
+    }
+
+    /**
+     * Splits the connections into rounds in which no two connections share a node, so the connections of a round can
+     * be made in parallel without two of them locking the same node. A greedy edge colouring: with at most 4
+     * connections per node, a connection always finds a round among the first 7.
+     *
+     * @return the edges ordered by round, and the start of every round followed by the number of edges.
+     */
+    public Rounds rounds() {
+        byte[] used = new byte[size];
+        byte[] round = new byte[edgeCount];
+        int[] counts = new int[Byte.SIZE];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            int free = Integer.numberOfTrailingZeros(~(used[first[edge]] | used[second[edge]]) & 0xFF);
+            round[edge] = (byte) free;
+            used[first[edge]] |= (byte) (1 << free);
+            used[second[edge]] |= (byte) (1 << free);
+            counts[free]++;
+        }
+        int rounds = Byte.SIZE;
+        while (rounds > 0 && counts[rounds - 1] == 0) {
+            rounds--;
+        }
+        int[] starts = new int[rounds + 1];
+        for (int r = 0; r < rounds; r++) {
+            starts[r + 1] = starts[r] + counts[r];
+        }
+        int[] next = Arrays.copyOf(starts, rounds);
+        int[] order = new int[edgeCount];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            order[next[round[edge]]++] = edge;
+        }
+        return new Rounds(order, starts);
+    }
+
+    /**
+     * @param order  the edges, ordered by round.
+     * @param starts the index in {@code order} of the first edge of every round, and the number of edges last.
+     */
+    public record Rounds(int[] order, int[] starts) {
+
+        public int count() {
+            return starts.length - 1;
+        }
+    }
+
+    private void grid() {
+        int side = (int) Math.ceil(Math.sqrt(size));
+        for (int node = 0; node < size; node++) {
+            if ((node + 1) % side != 0 && node + 1 < size) {
+                connect(node, node + 1);
+            }
+            if (node + side < size) {
+                connect(node, node + side);
+            }
+        }
+    }
+
+    private void geometric() {
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int node = 0; node < size; node++) {
+            x[node] = unit(spec.seed() ^ POSITION_SALT, 2L * node);
+            y[node] = unit(spec.seed() ^ POSITION_SALT, 2L * node + 1);
+        }
+        double radius = Math.min(1, Math.sqrt(GEOMETRIC_DEGREE / (Math.PI * size)));
+        int cellsPerSide = Math.max(1, (int) (1 / radius));
+        // the nodes bucketed by cell, a counting sort
+        int[] cellStarts = new int[cellsPerSide * cellsPerSide + 1];
+        for (int node = 0; node < size; node++) {
+            cellStarts[cell(x[node], y[node], cellsPerSide) + 1]++;
+        }
+        for (int cell = 0; cell < cellsPerSide * cellsPerSide; cell++) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+        // the nodes are numbered cell by cell, so the nodes of a neighbourhood have close indexes and ids, as the nodes
+        // of a mesh deployed area by area
+        int[] next = Arrays.copyOf(cellStarts, cellStarts.length - 1);
+        double[] cellX = new double[size];
+        double[] cellY = new double[size];
+        for (int node = 0; node < size; node++) {
+            int index = next[cell(x[node], y[node], cellsPerSide)]++;
+            cellX[index] = x[node];
+            cellY[index] = y[node];
+        }
+        x = cellX;
+        y = cellY;
+
+        double radiusSquared = radius * radius;
+        int[] candidates = new int[64];
+        double[] candidateDistances = new double[64];
+        for (int node = 0; node < size; node++) {
+            if (degrees[node] == SLOTS) {
+                continue;
+            }
+            int cell = cell(x[node], y[node], cellsPerSide);
+            int column = cell % cellsPerSide;
+            int row = cell / cellsPerSide;
+            int count = 0;
+            for (int r = Math.max(0, row - 1); r <= Math.min(cellsPerSide - 1, row + 1); r++) {
+                for (int c = Math.max(0, column - 1); c <= Math.min(cellsPerSide - 1, column + 1); c++) {
+                    int neighbourCell = r * cellsPerSide + c;
+                    for (int other = cellStarts[neighbourCell]; other < cellStarts[neighbourCell + 1]; other++) {
+                        // a pair is considered once, from its lower node
+                        if (other <= node) {
+                            continue;
+                        }
+                        double dx = x[node] - x[other];
+                        double dy = y[node] - y[other];
+                        double squared = dx * dx + dy * dy;
+                        if (squared > radiusSquared) {
+                            continue;
+                        }
+                        if (count == candidates.length) {
+                            candidates = Arrays.copyOf(candidates, count * 2);
+                            candidateDistances = Arrays.copyOf(candidateDistances, count * 2);
+                        }
+                        // insertion sort by distance, ties by node
+                        int at = count++;
+                        while (at > 0 && candidateDistances[at - 1] > squared) {
+                            candidates[at] = candidates[at - 1];
+                            candidateDistances[at] = candidateDistances[at - 1];
+                            at--;
+                        }
+                        candidates[at] = other;
+                        candidateDistances[at] = squared;
+                    }
+                }
+            }
+            for (int i = 0; i < count && degrees[node] < SLOTS; i++) {
+                connect(node, candidates[i]);
+            }
+        }
+    }
+
+    private static int cell(double x, double y, int cellsPerSide) {
+        int column = Math.min(cellsPerSide - 1, (int) (x * cellsPerSide));
+        int row = Math.min(cellsPerSide - 1, (int) (y * cellsPerSide));
+        return row * cellsPerSide + column;
+    }
+
+    private void ringOfClusters() {
+        int clusterSize = spec.clusterSize();
+        int clusters = (size + clusterSize - 1) / clusterSize;
+        for (int cluster = 0; cluster < clusters; cluster++) {
+            int start = cluster * clusterSize;
+            int members = Math.min(clusterSize, size - start);
+            for (int position = 1; position < members; position++) {
+                connect(start + position - 1, start + position);
+            }
+            if (members > 2) {
+                connect(start + members - 1, start);
+            }
+            // chords across the ring from every other node of its first half
+            for (int position = 0; position < members / 2; position += 2) {
+                connect(start + position, start + position + members / 2);
+            }
+        }
+        // the last node of a cluster to the first node of the next one, and the last cluster to the first
+        for (int cluster = 0; cluster < clusters && clusters > 1; cluster++) {
+            int last = Math.min(size, (cluster + 1) * clusterSize) - 1;
+            int nextFirst = ((cluster + 1) % clusters) * clusterSize;
+            connect(last, nextFirst);
+        }
+    }
+
+    private void scaleFree() {
+        SplittableRandom random = new SplittableRandom(spec.seed());
+        // every endpoint of every connection, so a uniform pick is a pick in proportion to the connections; the
+        // endpoints of full nodes are removed when they are picked
+        int[] endpoints = new int[(int) Math.min(Integer.MAX_VALUE - 8, 2L * size * SLOTS / 2)];
+        int endpointCount = 0;
+        int seedNodes = Math.min(size, 3);
+        for (int node = 1; node < seedNodes; node++) {
+            for (int other = 0; other < node; other++) {
+                if (connect(node, other)) {
+                    endpoints[endpointCount++] = node;
+                    endpoints[endpointCount++] = other;
+                }
+            }
+        }
+        for (int node = seedNodes; node < size; node++) {
+            for (int link = 0; link < 2 && endpointCount > 0; link++) {
+                // a few picks, a node already connected to the new node is picked again
+                for (int attempt = 0; attempt < 8 && endpointCount > 0; attempt++) {
+                    int pick = random.nextInt(endpointCount);
+                    int target = endpoints[pick];
+                    if (degrees[target] == SLOTS) {
+                        endpoints[pick] = endpoints[--endpointCount];
+                        continue;
+                    }
+                    if (connect(node, target)) {
+                        endpoints[endpointCount++] = node;
+                        endpoints[endpointCount++] = target;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean connect(int a, int b) {
+        if (a == b || degrees[a] == SLOTS || degrees[b] == SLOTS) {
+            return false;
+        }
+        for (int slot = 0; slot < degrees[a]; slot++) {
+            if (neighbours[a * SLOTS + slot] == b) {
+                return false;
+            }
+        }
+        neighbours[a * SLOTS + degrees[a]++] = b;
+        neighbours[b * SLOTS + degrees[b]++] = a;
+        first[edgeCount] = a;
+        second[edgeCount] = b;
+        distances[edgeCount] = spec.distances().sample(unit(spec.seed() ^ DISTANCE_SALT, edgeCount),
+                spec.minDistance(), spec.maxDistance());
+        edgeCount++;
+        return true;
+    }
+
+    /**
+     * A uniform number in {@code [0, 1)} for the seed and index, the SplitMix64 mix of the pair.
+     */
+    static double unit(long seed, long index) {
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+}
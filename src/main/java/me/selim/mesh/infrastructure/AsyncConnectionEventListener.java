@@ -2,16 +2,20 @@ package me.selim.mesh.infrastructure;
 
 import me.selim.mesh.events.ConnectionEstablishedEvent;
 import org.slf4j.Logger;
-import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.context.ApplicationEvent;
 import org.springframework.stereotype.Component;
 
 @Component
-public class AsyncConnectionEventListener {
+public class AsyncConnectionEventListener implements GraphEventHandler {
     private static final Logger log = org.slf4j.LoggerFactory.getLogger(AsyncConnectionEventListener.class);
 
-    @EventListener(ConnectionEstablishedEvent.class)
-    @Async
+    @Override
+    public void onEvent(ApplicationEvent event, long sequence, boolean endOfBatch) {
+        if (event instanceof ConnectionEstablishedEvent established) {
+            handleConnectionEstablished(established);
+        }
+    }
+
     public void handleConnectionEstablished(ConnectionEstablishedEvent event) {
         log.info("New connection established: {}", event.getConnection());
     }
@@ -3,22 +3,26 @@ package me.selim.mesh.infrastructure;
 import me.selim.mesh.events.NodeCreatedEvent;
 import me.selim.mesh.events.NodeDeletedEvent;
 import org.slf4j.Logger;
-import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.context.ApplicationEvent;
 import org.springframework.stereotype.Component;
 
 @Component
-public class AsyncNodeEventListener {
+public class AsyncNodeEventListener implements GraphEventHandler {
     private static final Logger log = org.slf4j.LoggerFactory.getLogger(AsyncNodeEventListener.class);
 
-    @Async
-    @EventListener()
+    @Override
+    public void onEvent(ApplicationEvent event, long sequence, boolean endOfBatch) {
+        if (event instanceof NodeCreatedEvent created) {
+            handleNewNodeCreation(created);
+        } else if (event instanceof NodeDeletedEvent deleted) {
+            handleNodeDeleted(deleted);
+        }
+    }
+
     public void handleNewNodeCreation(NodeCreatedEvent event) {
         log.info("New Node created {}", event.getNode());
     }
 
-    @Async
-    @EventListener()
     public void handleNodeDeleted(NodeDeletedEvent event) {
         log.info("Node with id deleted {}", event.getNode().getId());
     }
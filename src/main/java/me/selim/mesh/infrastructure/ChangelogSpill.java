@@ -0,0 +1,232 @@
+package me.selim.mesh.infrastructure;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The changes evicted from the memory of the {@link GraphChangelog}, appended to segment files on disk.
+ * <p>
+ * Segments are named after their first version and hold the changes in a compact binary form. The oldest segments
+ * are deleted once the segments take more than the configured bytes. Changes are appended by a single thread only,
+ * and are readable once {@link #lastVersion()} covers them; a reader never reads past it, so it never sees a change
+ * which is partially written.
+ */
+final class ChangelogSpill {
+
+    private static final String SEGMENT_PREFIX = "changes-";
+    private static final String SEGMENT_SUFFIX = ".bin";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long segmentBytes;
+    private final ConcurrentNavigableMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+    private DataOutputStream out;
+    private long closedBytes;
+    private volatile long bytes;
+    private volatile long firstVersion;
+    private volatile long lastVersion;
+
+    ChangelogSpill(Path directory, long maxBytes, long segmentBytes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        this.segmentBytes = Math.min(segmentBytes, maxBytes);
+        // versions restart with the service, the segments of a previous run are meaningless
+        deleteSegments();
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    /**
+     * @return the first version on disk, 0 if there is none.
+     */
+    long firstVersion() {
+        return firstVersion;
+    }
+
+    /**
+     * @return the last version on disk, 0 if there is none.
+     */
+    long lastVersion() {
+        return lastVersion;
+    }
+
+    /**
+     * @return the bytes of the segments.
+     */
+    long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Appends changes with consecutive versions, following the last version on disk.
+     */
+    void append(List<GraphChange> changes) throws IOException {
+        if (changes.isEmpty()) {
+            return;
+        }
+        for (GraphChange change : changes) {
+            if (out == null || out.size() >= segmentBytes) {
+                rollSegment(change.version());
+            }
+            write(out, change);
+        }
+        out.flush();
+        bytes = closedBytes + out.size();
+        if (firstVersion == 0) {
+            firstVersion = changes.get(0).version();
+        }
+        lastVersion = changes.get(changes.size() - 1).version();
+        deleteOldSegments();
+    }
+
+    /**
+     * Reads the changes starting at the given version.
+     *
+     * @param from  the first version to read.
+     * @param limit the maximum number of changes in the list.
+     * @param into  the list the changes are added to.
+     * @return false if the given version is not on disk.
+     */
+    boolean read(long from, int limit, List<GraphChange> into) {
+        long first = firstVersion;
+        long last = lastVersion;
+        Long start = segments.floorKey(from);
+        if (first == 0 || from < first || from > last || start == null) {
+            return false;
+        }
+        int size = into.size();
+        try {
+            boolean done = false;
+            for (Path segment : segments.tailMap(start, true).values()) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+                    while (!done) {
+                        GraphChange change = read(in);
+                        if (change == null) {
+                            break;
+                        }
+                        if (change.version() >= from) {
+                            into.add(change);
+                        }
+                        // the bytes after the last version may be a change which is partially written
+                        done = change.version() >= last || into.size() >= limit;
+                    }
+                }
+                if (done) {
+                    break;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // the segment was deleted while reading it
+            into.subList(size, into.size()).clear();
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (into.size() == size || into.get(size).version() != from) {
+            // the segment holding the version was deleted before it was opened
+            into.subList(size, into.size()).clear();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Deletes all the segments, the next append starts a new spill.
+     */
+    void clear() throws IOException {
+        closeSegment();
+        deleteSegments();
+        firstVersion = 0;
+        lastVersion = 0;
+        bytes = 0;
+        closedBytes = 0;
+    }
+
+    void close() throws IOException {
+        closeSegment();
+        deleteSegments();
+    }
+
+    private void rollSegment(long version) throws IOException {
+        closeSegment();
+        Path segment = directory.resolve(SEGMENT_PREFIX + version + SEGMENT_SUFFIX);
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(segment)));
+        segments.put(version, segment);
+    }
+
+    private void closeSegment() throws IOException {
+        if (out != null) {
+            closedBytes += out.size();
+            out.close();
+            out = null;
+        }
+    }
+
+    private void deleteOldSegments() throws IOException {
+        while (bytes > maxBytes && segments.size() > 1) {
+            Map.Entry<Long, Path> oldest = segments.pollFirstEntry();
+            long size = Files.size(oldest.getValue());
+            firstVersion = segments.firstKey();
+            Files.deleteIfExists(oldest.getValue());
+            closedBytes -= size;
+            bytes -= size;
+        }
+    }
+
+    private void deleteSegments() throws IOException {
+        segments.clear();
+        try (var files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void write(DataOutputStream out, GraphChange change) throws IOException {
+        out.writeLong(change.version());
+        out.writeByte(change.type().ordinal());
+        out.writeLong(change.nodeId());
+        switch (change.type()) {
+            case NODE -> out.writeUTF(change.name());
+            case CONNECTION -> {
+                out.writeLong(change.otherNodeId());
+                out.writeInt(change.distance());
+            }
+            case CONNECTION_DROPPED -> out.writeLong(change.otherNodeId());
+            case NODE_DELETED -> {
+            }
+        }
+    }
+
+    // returns null at the end of the segment
+    private static GraphChange read(DataInputStream in) throws IOException {
+        long version;
+        try {
+            version = in.readLong();
+        } catch (EOFException e) {
+            return null;
+        }
+        GraphChange.Type type = GraphChange.Type.values()[in.readByte()];
+        long nodeId = in.readLong();
+        return switch (type) {
+            case NODE -> new GraphChange(version, type, nodeId, in.readUTF(), 0, 0);
+            case NODE_DELETED -> new GraphChange(version, type, nodeId, null, 0, 0);
+            case CONNECTION -> new GraphChange(version, type, nodeId, null, in.readLong(), in.readInt());
+            case CONNECTION_DROPPED -> new GraphChange(version, type, nodeId, null, in.readLong(), 0);
+        };
+    }
+}
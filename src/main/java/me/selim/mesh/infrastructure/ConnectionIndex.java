@@ -0,0 +1,264 @@
+package me.selim.mesh.infrastructure;
+
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.events.ConnectionDropEvent;
+import me.selim.mesh.events.ConnectionEstablishedEvent;
+import me.selim.mesh.events.NodeDeletedEvent;
+import org.slf4j.Logger;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Concurrent ordered indexes of all the connections in the graph.
+ * <p>
+ * The distance index orders the connections by distance, ties are ordered by the node pair (lower node id,
+ * then higher node id), so every connection has a unique position which can be used as a keyset pagination key.
+ * <p>
+ * The node index holds every connection twice, once for each of its endpoints. The endpoints are ordered by
+ * node name ignoring case (ties by node id), then by distance and by the id of the other node. Walking it and
+ * keeping only the endpoint which comes first in the walk direction lists every connection once, in the same
+ * order as sorting the nodes by name and listing the connections of each node.
+ * <p>
+ * Both indexes are kept up to date synchronously from the connection events, so listing the connections in
+ * any order is an ordered walk without sorting, and descending order is a reverse walk. The events are applied
+ * while the nodes of the connection are locked, so the index sees a connection established before it is dropped.
+ */
+@Component
+@Order(0)
+public class ConnectionIndex implements GraphProjection {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(ConnectionIndex.class);
+
+    static final Comparator<Connection> BY_DISTANCE = Comparator.comparingInt(Connection::getDistance)
+            .thenComparingLong(ConnectionIndex::lowerNodeId)
+            .thenComparingLong(ConnectionIndex::higherNodeId);
+
+    static final Comparator<Endpoint> BY_NODE = Comparator.comparing(Endpoint::node, InMemoryNodeRepository.BY_NAME)
+            .thenComparingInt(endpoint -> endpoint.connection().getDistance())
+            .thenComparingLong(endpoint -> endpoint.other().getId());
+
+    private final NavigableSet<Connection> byDistance = new ConcurrentSkipListSet<>(BY_DISTANCE);
+    private final NavigableSet<Endpoint> byNode = new ConcurrentSkipListSet<>(BY_NODE);
+
+    private final NodeRepository nodeRepository;
+
+    public ConnectionIndex(NodeRepository nodeRepository) {
+        this.nodeRepository = nodeRepository;
+    }
+
+    @Override
+    public void apply(ApplicationEvent event) {
+        if (event instanceof ConnectionEstablishedEvent established) {
+            onConnectionEstablished(established);
+        } else if (event instanceof ConnectionDropEvent dropped) {
+            onConnectionDropped(dropped);
+        } else if (event instanceof NodeDeletedEvent deleted) {
+            onNodeDeleted(deleted);
+        }
+    }
+
+    public void onConnectionEstablished(ConnectionEstablishedEvent event) {
+        Connection connection = event.getConnection();
+        byDistance.add(connection);
+        Optional<Node> first = nodeRepository.findById(lowerNodeId(connection));
+        Optional<Node> second = nodeRepository.findById(higherNodeId(connection));
+        if (first.isEmpty() || second.isEmpty()) {
+            log.warn("Connection {} is not indexed by node, one of the nodes does not exist", connection);
+            return;
+        }
+        byNode.add(new Endpoint(first.get(), second.get(), connection));
+        byNode.add(new Endpoint(second.get(), first.get(), connection));
+    }
+
+    public void onConnectionDropped(ConnectionDropEvent event) {
+        Connection connection = event.getConnection();
+        byDistance.remove(connection);
+        Optional<Node> first = nodeRepository.findById(lowerNodeId(connection));
+        Optional<Node> second = nodeRepository.findById(higherNodeId(connection));
+        if (first.isEmpty() || second.isEmpty()) {
+            byNode.removeIf(endpoint -> endpoint.connection().equals(connection));
+            return;
+        }
+        removeEndpoints(first.get(), second.get(), connection);
+    }
+
+    public void onNodeDeleted(NodeDeletedEvent event) {
+        // connections of a deleted node are dropped without a connection event
+        Node node = event.getNode();
+        for (Connection connection : node.getConnections()) {
+            byDistance.remove(connection);
+            Optional<Node> other = nodeRepository.findById(connection.getOtherNodeId(node.getId()));
+            if (other.isEmpty()) {
+                byNode.removeIf(endpoint -> endpoint.connection().equals(connection));
+                continue;
+            }
+            removeEndpoints(node, other.get(), connection);
+        }
+    }
+
+    private void removeEndpoints(Node first, Node second, Connection connection) {
+        byNode.remove(new Endpoint(first, second, connection));
+        byNode.remove(new Endpoint(second, first, connection));
+    }
+
+    /**
+     * Streams all the connections ordered by distance, then by node pair.
+     *
+     * @param ascending true for ascending order, false for descending order.
+     * @return a lazy, weakly consistent stream of the connections.
+     */
+    public Stream<Connection> streamByDistance(boolean ascending) {
+        return (ascending ? byDistance : byDistance.descendingSet()).stream();
+    }
+
+    /**
+     * Streams all the connections ordered by their first endpoint in node name order, then by distance.
+     * In descending order the connections are listed under their last endpoint in node name order.
+     *
+     * @param ascending true for ascending order, false for descending order.
+     * @return a lazy, weakly consistent stream of the connections, every connection is listed once.
+     */
+    public Stream<Connection> streamByNode(boolean ascending) {
+        return endpointsByNode(ascending, null).map(Endpoint::connection);
+    }
+
+    /**
+     * Returns a page of connections ordered by distance, then by node pair.
+     *
+     * @param ascending true for ascending order, false for descending order.
+     * @param after     the last connection of the previous page, or null for the first page.
+     * @param limit     the maximum number of connections to return.
+     * @return the connections after the given one in the given order.
+     */
+    public List<Connection> findPageByDistance(boolean ascending, Connection after, int limit) {
+        NavigableSet<Connection> view = ascending ? byDistance : byDistance.descendingSet();
+        if (after != null) {
+            view = view.tailSet(after, false);
+        }
+        return view.stream().limit(limit).toList();
+    }
+
+    /**
+     * Returns the K shortest or the K longest connections, ties ordered by node pair.
+     * This is a walk over the head or the tail of the distance index, so it costs O(log n + k).
+     *
+     * @param ascending true for the shortest connections, false for the longest connections.
+     * @param k         the number of connections to return.
+     * @return at most k connections, the shortest (longest) first.
+     */
+    public List<Connection> findTopByDistance(boolean ascending, int k) {
+        return streamByDistance(ascending).limit(k).toList();
+    }
+
+    /**
+     * Returns a page of the connections with a distance in the given closed range, ordered by distance,
+     * then by node pair.
+     *
+     * @param minDistance the minimum distance, inclusive.
+     * @param maxDistance the maximum distance, inclusive.
+     * @param ascending   true for ascending order, false for descending order.
+     * @param after       the last connection of the previous page, or null for the first page.
+     * @param limit       the maximum number of connections to return.
+     * @return the connections in the range after the given one in the given order.
+     * @throws IllegalArgumentException if the range is empty, or the given connection is out of the range.
+     */
+    public List<Connection> findPageByDistanceRange(int minDistance, int maxDistance, boolean ascending,
+                                                     Connection after, int limit) {
+        if (minDistance > maxDistance) {
+            throw new IllegalArgumentException("Minimum distance " + minDistance + " is greater than maximum distance " + maxDistance);
+        }
+        NavigableSet<Connection> view = byDistance.subSet(lowestOf(minDistance), true, highestOf(maxDistance), true);
+        if (!ascending) {
+            view = view.descendingSet();
+        }
+        if (after != null) {
+            if (after.getDistance() < minDistance || after.getDistance() > maxDistance) {
+                throw new IllegalArgumentException("Connection " + after + " is out of the distance range");
+            }
+            view = view.tailSet(after, false);
+        }
+        return view.stream().limit(limit).toList();
+    }
+
+    // probes ordered before (after) all the connections with the given distance
+    private static Connection lowestOf(int distance) {
+        return new Connection(Long.MIN_VALUE, Long.MIN_VALUE + 1, distance);
+    }
+
+    private static Connection highestOf(int distance) {
+        return new Connection(Long.MAX_VALUE - 1, Long.MAX_VALUE, distance);
+    }
+
+    /**
+     * Returns a page of connections ordered by node name, in the same order as {@link #streamByNode(boolean)}.
+     * The endpoints under which the connections are listed are returned, to be used as the key of the next page.
+     *
+     * @param ascending true for ascending order, false for descending order.
+     * @param after     the endpoint of the last connection of the previous page, or null for the first page.
+     * @param limit     the maximum number of connections to return.
+     * @return the endpoints after the given one in the given order.
+     */
+    public List<Endpoint> findPageByNode(boolean ascending, Endpoint after, int limit) {
+        return endpointsByNode(ascending, after).limit(limit).toList();
+    }
+
+    private Stream<Endpoint> endpointsByNode(boolean ascending, Endpoint after) {
+        NavigableSet<Endpoint> view = ascending ? byNode : byNode.descendingSet();
+        if (after != null) {
+            view = view.tailSet(after, false);
+        }
+        return view.stream().filter(endpoint -> endpoint.isListedFirst(ascending));
+    }
+
+    /**
+     * @return the number of indexed connections. This is an O(n) operation.
+     */
+    public int size() {
+        return byDistance.size();
+    }
+
+    /**
+     * @return the lower id of the two nodes of the connection.
+     */
+    public static long lowerNodeId(Connection connection) {
+        long lower = Long.MAX_VALUE;
+        for (Long id : connection.getNodes()) {
+            lower = Math.min(lower, id);
+        }
+        return lower;
+    }
+
+    /**
+     * @return the higher id of the two nodes of the connection.
+     */
+    public static long higherNodeId(Connection connection) {
+        long higher = Long.MIN_VALUE;
+        for (Long id : connection.getNodes()) {
+            higher = Math.max(higher, id);
+        }
+        return higher;
+    }
+
+    /**
+     * One endpoint of a connection in the node index.
+     *
+     * @param node       the node the connection is listed under.
+     * @param other      the other node of the connection.
+     * @param connection the connection.
+     */
+    public record Endpoint(Node node, Node other, Connection connection) {
+
+        boolean isListedFirst(boolean ascending) {
+            int compare = InMemoryNodeRepository.BY_NAME.compare(node, other);
+            return ascending ? compare < 0 : compare > 0;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package me.selim.mesh.infrastructure;
+
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.events.ConnectionDropEvent;
+import me.selim.mesh.events.ConnectionEstablishedEvent;
+import me.selim.mesh.events.NodeCreatedEvent;
+import me.selim.mesh.events.NodeDeletedEvent;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * A mutation of the graph, recorded in the {@link GraphChangelog} under the graph version it produced.
+ * <p>
+ * Connections are recorded by their lower node id ({@code nodeId}) and higher node id ({@code otherNodeId}).
+ *
+ * @param version     the graph version of the mutation.
+ * @param type        the kind of mutation.
+ * @param nodeId      the id of the node, or the lower node id of the connection.
+ * @param name        the name of a created node, null for the other changes.
+ * @param otherNodeId the higher node id of the connection, 0 for node changes.
+ * @param distance    the distance of an established connection, 0 for the other changes.
+ */
+public record GraphChange(long version, Type type, long nodeId, String name, long otherNodeId, int distance) {
+
+    public enum Type {
+        NODE("node"),
+        NODE_DELETED("node-deleted"),
+        CONNECTION("connection"),
+        CONNECTION_DROPPED("connection-dropped");
+
+        private final String value;
+
+        Type(String value) {
+            this.value = value;
+        }
+
+        /**
+         * @return the name of the type in the change feed.
+         */
+        public String value() {
+            return value;
+        }
+    }
+
+    /**
+     * @return true if the event is a mutation of the graph.
+     */
+    static boolean isChange(ApplicationEvent event) {
+        return event instanceof NodeCreatedEvent || event instanceof NodeDeletedEvent
+                || event instanceof ConnectionEstablishedEvent || event instanceof ConnectionDropEvent;
+    }
+
+    /**
+     * @return the change of a graph mutation event.
+     * @throws IllegalArgumentException if the event is not a graph mutation.
+     */
+    static GraphChange of(long version, ApplicationEvent event) {
+        if (event instanceof NodeCreatedEvent created) {
+            Node node = created.getNode();
+            return new GraphChange(version, Type.NODE, node.getId(), node.getName(), 0, 0);
+        }
+        if (event instanceof NodeDeletedEvent deleted) {
+            return new GraphChange(version, Type.NODE_DELETED, deleted.getNode().getId(), null, 0, 0);
+        }
+        if (event instanceof ConnectionEstablishedEvent established) {
+            Connection connection = established.getConnection();
+            return new GraphChange(version, Type.CONNECTION, ConnectionIndex.lowerNodeId(connection), null,
+                    ConnectionIndex.higherNodeId(connection), connection.getDistance());
+        }
+        if (event instanceof ConnectionDropEvent dropped) {
+            Connection connection = dropped.getConnection();
+            return new GraphChange(version, Type.CONNECTION_DROPPED, ConnectionIndex.lowerNodeId(connection), null,
+                    ConnectionIndex.higherNodeId(connection), 0);
+        }
+        throw new IllegalArgumentException("Event " + event + " is not a graph change");
+    }
+}
@@ -0,0 +1,305 @@
+package me.selim.mesh.infrastructure;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import me.selim.mesh.error.ChangesExpiredException;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded log of the graph changes, by graph version.
+ * <p>
+ * The changelog assigns the graph versions: it is the last projection applied, so every mutation increases the
+ * {@link GraphVersion} and is recorded under the new version while its nodes are locked. The last
+ * {@code mesh.changelog.capacity} changes are kept in memory, in a ring indexed by version. As a
+ * {@link GraphEventHandler} the changelog appends the new changes to a {@link ChangelogSpill} on disk, off the write
+ * path, so the changes evicted from memory stay readable until the spill exceeds {@code mesh.changelog.max-spill-bytes}
+ * (0 disables the spill). Changes older than that, or versions of another run of the service (told apart by the
+ * epoch), are reported with a {@link ChangesExpiredException}.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@ConfigurationProperties(prefix = "mesh.changelog")
+public class GraphChangelog implements GraphProjection, GraphEventHandler, InitializingBean, DisposableBean, MeterBinder {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(GraphChangelog.class);
+
+    private int capacity = 65536;
+    private Path spillDirectory;
+    private long maxSpillBytes = 256L * 1024 * 1024;
+    private long segmentBytes = 16L * 1024 * 1024;
+
+    private final GraphVersion graphVersion;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private AtomicReferenceArray<GraphChange> changes;
+    private int mask;
+    private ChangelogSpill spill;
+    private boolean temporarySpillDirectory;
+    // the last version handled by the event handler, waiters are woken up when it passes their version
+    private volatile long head;
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+    private final LongAdder expired = new LongAdder();
+
+    public GraphChangelog(GraphVersion graphVersion) {
+        this.graphVersion = graphVersion;
+    }
+
+    /**
+     * @param capacity the number of changes kept in memory, a power of two.
+     */
+    public void setCapacity(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("mesh.changelog.capacity must be a power of two");
+        }
+        this.capacity = capacity;
+    }
+
+    public void setSpillDirectory(Path spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    public void setMaxSpillBytes(long maxSpillBytes) {
+        this.maxSpillBytes = maxSpillBytes;
+    }
+
+    public void setSegmentBytes(long segmentBytes) {
+        if (segmentBytes < 1) {
+            throw new IllegalArgumentException("mesh.changelog.segment-bytes must be positive");
+        }
+        this.segmentBytes = segmentBytes;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        changes = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+        if (maxSpillBytes > 0) {
+            temporarySpillDirectory = spillDirectory == null;
+            Path directory = temporarySpillDirectory ? Files.createTempDirectory("mesh-changelog") : spillDirectory;
+            spill = new ChangelogSpill(directory, maxSpillBytes, segmentBytes);
+            log.info("Graph changes are spilled to {}", directory);
+        }
+    }
+
+    /**
+     * @return the epoch of this run of the service, the versions of another epoch are unknown.
+     */
+    public String epoch() {
+        return epoch;
+    }
+
+    /**
+     * @param epoch the epoch of the versions of a client, null if not known.
+     * @throws ChangesExpiredException if the epoch is not the epoch of this run.
+     */
+    public void checkEpoch(String epoch) {
+        if (epoch != null && !epoch.equals(this.epoch)) {
+            throw expired("Epoch " + epoch + " ended, resync needed", graphVersion.current());
+        }
+    }
+
+    /**
+     * Records a graph change under the next graph version.
+     */
+    @Override
+    public void apply(ApplicationEvent event) {
+        if (!GraphChange.isChange(event)) {
+            return;
+        }
+        long version = graphVersion.onGraphChanged();
+        changes.set(slot(version), GraphChange.of(version, event));
+    }
+
+    /**
+     * Returns the changes after the given version, in version order. The list is empty if there is no change yet,
+     * and may end before the last change if a change is still being recorded.
+     *
+     * @param since the version the client has seen.
+     * @param limit the maximum number of changes to return.
+     * @throws ChangesExpiredException if the changes after the version are no longer available.
+     */
+    public List<GraphChange> read(long since, int limit) {
+        long current = graphVersion.current();
+        if (since < 0 || since > current) {
+            throw expired("Version " + since + " is unknown, resync needed", current);
+        }
+        List<GraphChange> result = new ArrayList<>(Math.min(limit, 256));
+        long next = since + 1;
+        GraphChange change = changes.get(slot(next));
+        if (change != null && change.version() > next) {
+            // evicted from memory
+            if (spill == null || !spill.read(next, limit, result)) {
+                throw expired("Changes after version " + since + " are no longer available, resync needed", current);
+            }
+            next = result.get(result.size() - 1).version() + 1;
+        }
+        while (result.size() < limit) {
+            change = changes.get(slot(next));
+            if (change == null || change.version() != next) {
+                break;
+            }
+            result.add(change);
+            next++;
+        }
+        return result;
+    }
+
+    /**
+     * Calls the callback once when changes after the given version are handled: on the event handler thread, or
+     * right away if they already are. The callback must not block.
+     *
+     * @return a handle which stops waiting, the callback is not called once it ran.
+     */
+    public Runnable awaitChange(long since, Runnable callback) {
+        Waiter waiter = new Waiter(since, callback);
+        waiters.add(waiter);
+        if (head > since) {
+            waiter.fire();
+        }
+        return () -> waiters.remove(waiter);
+    }
+
+    @Override
+    public void onEvent(ApplicationEvent event, long sequence, boolean endOfBatch) {
+        if (!endOfBatch) {
+            return;
+        }
+        List<GraphChange> batch = new ArrayList<>();
+        long next = head + 1;
+        while (true) {
+            GraphChange change = changes.get(slot(next));
+            if (change == null || change.version() < next) {
+                break;
+            }
+            if (change.version() > next) {
+                // the handler fell behind by more than the capacity, restart the spill at the oldest change in memory
+                long oldest = change.version() - capacity + 1;
+                log.warn("Graph changes {} to {} were evicted before they were spilled", next, oldest - 1);
+                clearSpill();
+                batch.clear();
+                next = oldest;
+                continue;
+            }
+            batch.add(change);
+            next++;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (spill != null) {
+            try {
+                spill.append(batch);
+            } catch (IOException e) {
+                log.error("Failed to spill graph changes, the changes evicted from memory are lost", e);
+                clearSpill();
+            }
+        }
+        head = next - 1;
+        for (Waiter waiter : waiters) {
+            if (waiter.since < head) {
+                waiter.fire();
+            }
+        }
+    }
+
+    private void clearSpill() {
+        if (spill == null) {
+            return;
+        }
+        try {
+            spill.clear();
+        } catch (IOException e) {
+            log.error("Failed to clear the graph changes spill", e);
+        }
+    }
+
+    private ChangesExpiredException expired(String message, long current) {
+        expired.increment();
+        return new ChangesExpiredException(message, epoch, current);
+    }
+
+    private int slot(long version) {
+        return (int) version & mask;
+    }
+
+    /**
+     * @return the number of changes the ring keeps in memory.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of changes in memory, the ring fills up then evicts the oldest change.
+     */
+    public int retained() {
+        return (int) Math.min(graphVersion.current(), capacity);
+    }
+
+    /**
+     * @return the bytes of the changes spilled to disk.
+     */
+    public long spillBytes() {
+        return spill == null ? 0 : spill.bytes();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("mesh.changelog.spill.bytes", this, GraphChangelog::spillBytes)
+                .description("Bytes of the graph changes spilled to disk")
+                .register(registry);
+        FunctionCounter.builder("mesh.changelog.expired", expired, LongAdder::sum)
+                .description("Change feed reads which need a resync, the changes were no longer available")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (spill != null) {
+            spill.close();
+            if (temporarySpillDirectory) {
+                Files.deleteIfExists(spill.directory());
+            }
+        }
+    }
+
+    private final class Waiter {
+        private final long since;
+        private final Runnable callback;
+        private final AtomicBoolean fired = new AtomicBoolean();
+
+        private Waiter(long since, Runnable callback) {
+            this.since = since;
+            this.callback = callback;
+        }
+
+        void fire() {
+            if (fired.compareAndSet(false, true)) {
+                waiters.remove(this);
+                try {
+                    callback.run();
+                } catch (RuntimeException e) {
+                    log.error("Change waiter failed", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package me.selim.mesh.infrastructure;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Delivers the graph events, replacing the Spring event multicaster in the write path.
+ * <p>
+ * A mutation delivers its event in two steps. {@link #apply(ApplicationEvent)} updates the
+ * {@link GraphProjection}s with direct calls, while the mutated nodes are still locked, so the projections change in
+ * the same order as the graph. {@link #publish(ApplicationEvent)} is called once the locks are released and only
+ * writes the event to a preallocated ring buffer of {@code mesh.event-bus.buffer-size} slots. A single consumer
+ * thread drains all the events available in a batch and hands them to the {@link GraphEventHandler}s in sequence
+ * order, then frees the slots of the batch.
+ * <p>
+ * Producers claim a sequence with a single atomic increment and never wait, unless the ring is full: then they park
+ * until the consumer freed the slot, so no event is lost.
+ */
+@Component
+@ConfigurationProperties(prefix = "mesh.event-bus")
+public class GraphEventBus implements SmartInitializingSingleton, MeterBinder, DisposableBean {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(GraphEventBus.class);
+
+    private static final long CONSUMER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long PRODUCER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final ObjectProvider<GraphProjection> projectionProvider;
+    private final ObjectProvider<GraphEventHandler> handlerProvider;
+    // resolved on first use, the projections depend on the repository which depends on the bus
+    private volatile List<GraphProjection> projections;
+    private List<GraphEventHandler> handlers;
+
+    private ApplicationEvent[] ring;
+    // the sequence last published in each slot, a slot is readable once it holds the sequence the consumer expects
+    private AtomicLongArray published;
+    private int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong consumed = new AtomicLong(-1);
+    private final LongAdder producerWaits = new LongAdder();
+    private final LongAdder handlerFailures = new LongAdder();
+    private volatile Thread consumer;
+    private volatile boolean consumerParked;
+    private volatile boolean running = true;
+
+    public GraphEventBus(ObjectProvider<GraphProjection> projectionProvider,
+                         ObjectProvider<GraphEventHandler> handlerProvider) {
+        this.projectionProvider = projectionProvider;
+        this.handlerProvider = handlerProvider;
+        setBufferSize(8192);
+    }
+
+    /**
+     * @param bufferSize the number of slots of the ring, a power of two.
+     */
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("mesh.event-bus.buffer-size must be a power of two");
+        }
+        if (consumer != null) {
+            throw new IllegalStateException("mesh.event-bus.buffer-size can not be changed once the bus is started");
+        }
+        ring = new ApplicationEvent[bufferSize];
+        published = new AtomicLongArray(bufferSize);
+        for (int slot = 0; slot < bufferSize; slot++) {
+            published.set(slot, -1);
+        }
+        mask = bufferSize - 1;
+    }
+
+    /**
+     * Starts the consumer thread once all the handlers are created. Events published before are delivered then.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        handlers = handlerProvider.orderedStream().toList();
+        Thread thread = new Thread(this::consume, "graph-events");
+        thread.setDaemon(true);
+        consumer = thread;
+        thread.start();
+    }
+
+    /**
+     * Applies the event to the projections on the calling thread.
+     */
+    public void apply(ApplicationEvent event) {
+        List<GraphProjection> current = projections;
+        if (current == null) {
+            current = projectionProvider.orderedStream().toList();
+            projections = current;
+        }
+        for (GraphProjection projection : current) {
+            projection.apply(event);
+        }
+    }
+
+    /**
+     * Publishes the event to the handlers. Returns once the event is in the ring, waiting only if the ring is full.
+     */
+    public void publish(ApplicationEvent event) {
+        if (!running) {
+            log.debug("Event bus stopped, event not delivered {}", event);
+            return;
+        }
+        long sequence = claimed.incrementAndGet();
+        long wrapPoint = sequence - ring.length;
+        if (wrapPoint > consumed.get()) {
+            awaitSlot(wrapPoint);
+        }
+        int slot = (int) sequence & mask;
+        ring[slot] = event;
+        // the volatile write makes the event visible to the consumer which reads the sequence
+        published.set(slot, sequence);
+        if (consumerParked) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private void awaitSlot(long wrapPoint) {
+        producerWaits.increment();
+        while (wrapPoint > consumed.get() && running) {
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+        }
+    }
+
+    private void consume() {
+        long next = consumed.get() + 1;
+        while (running) {
+            long available = next - 1;
+            while (published.get((int) (available + 1) & mask) == available + 1) {
+                available++;
+            }
+            if (available < next) {
+                park(next);
+                continue;
+            }
+            for (long sequence = next; sequence <= available; sequence++) {
+                int slot = (int) sequence & mask;
+                ApplicationEvent event = ring[slot];
+                ring[slot] = null;
+                dispatch(event, sequence, sequence == available);
+            }
+            // the slots of the batch are reusable from here
+            consumed.set(available);
+            next = available + 1;
+        }
+    }
+
+    private void park(long next) {
+        consumerParked = true;
+        // checked again after the flag is set, a producer publishing in between sees the flag and unparks
+        if (published.get((int) next & mask) != next && running) {
+            LockSupport.parkNanos(this, CONSUMER_PARK_NANOS);
+        }
+        consumerParked = false;
+    }
+
+    private void dispatch(ApplicationEvent event, long sequence, boolean endOfBatch) {
+        for (GraphEventHandler handler : handlers) {
+            try {
+                handler.onEvent(event, sequence, endOfBatch);
+            } catch (RuntimeException e) {
+                handlerFailures.increment();
+                log.error("Event handler {} failed on event {}", handler.getClass().getSimpleName(), event, e);
+            }
+        }
+    }
+
+    /**
+     * @return the number of slots of the ring.
+     */
+    public int bufferSize() {
+        return ring.length;
+    }
+
+    /**
+     * @return the number of events published and not yet handled.
+     */
+    public long lag() {
+        return claimed.get() - consumed.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("mesh.events.published", claimed, sequence -> sequence.get() + 1)
+                .description("Graph events published to the event bus")
+                .register(registry);
+        Gauge.builder("mesh.events.lag", this, GraphEventBus::lag)
+                .description("Graph events published and not yet handled")
+                .register(registry);
+        FunctionCounter.builder("mesh.events.producer.waits", producerWaits, LongAdder::sum)
+                .description("Publications which waited for a free slot of the full ring buffer")
+                .register(registry);
+        FunctionCounter.builder("mesh.events.handler.failures", handlerFailures, LongAdder::sum)
+                .description("Graph events a handler failed to handle")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        Thread thread = consumer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
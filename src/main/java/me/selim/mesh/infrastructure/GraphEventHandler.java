@@ -0,0 +1,22 @@
+package me.selim.mesh.infrastructure;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * A consumer of the graph events, called on the consumer thread of the {@link GraphEventBus} after the mutation
+ * completed and its locks were released.
+ *
+ * @see GraphEventBus#publish(ApplicationEvent)
+ */
+public interface GraphEventHandler {
+
+    /**
+     * Handles a graph event. The events are delivered one at a time, in sequence order.
+     *
+     * @param event      the event.
+     * @param sequence   the sequence of the event on the bus, starting at 0.
+     * @param endOfBatch true for the last event available when the batch was drained, a handler buffering its work
+     *                   flushes it there.
+     */
+    void onEvent(ApplicationEvent event, long sequence, boolean endOfBatch);
+}
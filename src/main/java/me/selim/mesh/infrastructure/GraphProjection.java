@@ -0,0 +1,18 @@
+package me.selim.mesh.infrastructure;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * A view of the graph which is kept up to date synchronously from the graph events, on the thread which mutated
+ * the graph and while it still holds the locks of the mutated nodes, so the view changes in the same order as the
+ * graph. Projections are applied in {@link org.springframework.core.annotation.Order} order.
+ *
+ * @see GraphEventBus#apply(ApplicationEvent)
+ */
+public interface GraphProjection {
+
+    /**
+     * Applies a graph event. Must be cheap and must not block, it runs inside the write path.
+     */
+    void apply(ApplicationEvent event);
+}
@@ -0,0 +1,32 @@
+package me.selim.mesh.infrastructure;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonically increasing version of the graph.
+ * <p>
+ * The version is increased synchronously for every graph mutation event by the {@link GraphChangelog}, the last
+ * projection applied, so a reader which observes version V is guaranteed to see at least all the mutations up to V
+ * in the repository and in the other projections.
+ */
+@Component
+public class GraphVersion {
+
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * @return the current version of the graph.
+     */
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * @return the new version of the graph.
+     */
+    public long onGraphChanged() {
+        return version.incrementAndGet();
+    }
+}
@@ -1,5 +1,6 @@
 package me.selim.mesh.infrastructure;
 
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import me.selim.mesh.domain.Node;
@@ -7,29 +8,33 @@ import me.selim.mesh.events.NodeCreatedEvent;
 import me.selim.mesh.events.NodeDeletedEvent;
 import me.selim.mesh.service.IdGenerator;
 import org.slf4j.Logger;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.annotation.Validated;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
 
 @Component
 @Validated
 public class InMemoryNodeRepository implements NodeRepository {
 
     private static final Logger log = org.slf4j.LoggerFactory.getLogger(InMemoryNodeRepository.class);
-    private final Set<Node> nodes = new ConcurrentSkipListSet<>();
+
+    // Nodes ordered by name, ties (same name ignoring case) are ordered by id so no node is lost
+    static final Comparator<Node> BY_NAME = Comparator.<Node>naturalOrder().thenComparing(Node::getId);
+
+    private final ConcurrentNavigableMap<Long, Node> nodesById = new ConcurrentSkipListMap<>();
+    private final NavigableSet<Node> nodes = new ConcurrentSkipListSet<>(BY_NAME);
 
     private final IdGenerator<Long> idGenerator;
-    private final ApplicationEventPublisher eventPublisher;
+    private final GraphEventBus eventBus;
 
-    public InMemoryNodeRepository(IdGenerator<Long> idGenerator, ApplicationEventPublisher eventPublisher) {
+    public InMemoryNodeRepository(IdGenerator<Long> idGenerator, GraphEventBus eventBus) {
         this.idGenerator = idGenerator;
-        this.eventPublisher = eventPublisher;
+        this.eventBus = eventBus;
     }
 
     @Override
@@ -38,11 +43,15 @@ public class InMemoryNodeRepository implements NodeRepository {
         if (node.getId() == null) {
             node.setId(idGenerator.next());
         }
-        boolean add = nodes.add(node);
-        if (!add) {
+        Node previous = nodesById.put(node.getId(), node);
+        if (previous != null) {
             log.info("Node already exists, updating {}", node);
+            nodes.remove(previous);
         }
-        eventPublisher.publishEvent(new NodeCreatedEvent(this, node));
+        nodes.add(node);
+        NodeCreatedEvent event = new NodeCreatedEvent(this, node);
+        eventBus.apply(event);
+        eventBus.publish(event);
         return node;
     }
 
@@ -57,7 +66,7 @@ public class InMemoryNodeRepository implements NodeRepository {
 
     @Override
     public Optional<Node> findById(@NotNull Long id) {
-        return nodes.stream().filter(node -> node.getId().equals(id)).findFirst();
+        return Optional.ofNullable(nodesById.get(id));
     }
 
     @Override
@@ -65,16 +74,71 @@ public class InMemoryNodeRepository implements NodeRepository {
         return nodes.stream().toList();
     }
 
+    @Override
+    public Stream<Node> streamAll() {
+        return nodesById.values().stream();
+    }
+
+    @Override
+    public Optional<Long> findMaxId() {
+        Map.Entry<Long, Node> last = nodesById.lastEntry();
+        return last == null ? Optional.empty() : Optional.of(last.getKey());
+    }
+
+    @Override
+    public List<Node> findPageOrderedById(Long afterId, @Min(1) int limit) {
+        Collection<Node> view = afterId == null ? nodesById.values() : nodesById.tailMap(afterId, false).values();
+        return view.stream().limit(limit).toList();
+    }
+
+    @Override
+    public List<Node> findPageOrderedByName(String afterName, Long afterId, @Min(1) int limit) {
+        NavigableSet<Node> view = nodes;
+        if (afterName != null && afterId != null) {
+            view = nodes.tailSet(new Node(afterId, afterName, Set.of()), false);
+        }
+        return view.stream().limit(limit).toList();
+    }
+
+    @Override
+    public List<Node> findPageByNamePrefix(@NotNull String prefix, String afterName, Long afterId, @Min(1) int limit) {
+        byte[] prefixKey = Node.sortKeyOf(prefix);
+        // the names with the prefix follow each other in name order: a walk from the first of them, or from the
+        // cursor if it is further, until a name without the prefix
+        Node first = new Node(Long.MIN_VALUE, prefix, Set.of());
+        NavigableSet<Node> view = nodes.tailSet(first, true);
+        if (afterName != null && afterId != null) {
+            Node after = new Node(afterId, afterName, Set.of());
+            if (BY_NAME.compare(after, first) > 0) {
+                view = nodes.tailSet(after, false);
+            }
+        }
+        List<Node> page = new ArrayList<>(Math.min(limit, 16));
+        for (Node node : view) {
+            if (page.size() == limit || !node.hasNamePrefix(prefixKey)) {
+                break;
+            }
+            page.add(node);
+        }
+        return page;
+    }
+
     @Override
     public boolean deleteById(@NotNull Long id) {
-        Optional<Node> byId = findById(id);
-        if (byId.isEmpty()) {
+        Node removed = nodesById.remove(id);
+        if (removed == null) {
             return false;
         }
-        boolean removed = nodes.removeIf(node -> node.getId().equals(id));
-        if (removed) {
-            eventPublisher.publishEvent(new NodeDeletedEvent(this, byId.get()));
+        nodes.remove(removed);
+        // called with the nodes locked by the service, which publishes the event once it released the locks
+        try {
+            eventBus.apply(new NodeDeletedEvent(this, removed));
+        } catch (RuntimeException e) {
+            // the node is put back for the service to restore the connections of its neighbours to it
+            nodesById.put(id, removed);
+            nodes.add(removed);
+            throw e;
         }
-        return removed;
+        return true;
     }
 }
@@ -1,11 +1,13 @@
 package me.selim.mesh.infrastructure;
 
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import me.selim.mesh.domain.Node;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface NodeRepository {
 
@@ -17,6 +19,52 @@ public interface NodeRepository {
 
     List<Node> findAll();
 
+    /**
+     * Streams all nodes in ascending id order, directly from the underlying store without copying it.
+     * The stream is weakly consistent: it never fails on concurrent modifications, but may or may not
+     * reflect nodes saved or deleted after the stream was created.
+     *
+     * @return a lazy stream of all nodes ordered by id.
+     */
+    Stream<Node> streamAll();
+
+    /**
+     * @return the highest id of the stored nodes, empty if there is no node.
+     */
+    Optional<Long> findMaxId();
+
+    /**
+     * Returns a page of nodes in ascending id order, starting after the given id.
+     *
+     * @param afterId the id of the last node of the previous page, or null for the first page.
+     * @param limit   the maximum number of nodes to return.
+     * @return the nodes with an id greater than the given id.
+     */
+    List<Node> findPageOrderedById(Long afterId, @Min(1) int limit);
+
+    /**
+     * Returns a page of nodes in ascending name order (ignoring case, ties ordered by id),
+     * starting after the given name and id.
+     *
+     * @param afterName the name of the last node of the previous page, or null for the first page.
+     * @param afterId   the id of the last node of the previous page, or null for the first page.
+     * @param limit     the maximum number of nodes to return.
+     * @return the nodes ordered after the given name and id.
+     */
+    List<Node> findPageOrderedByName(String afterName, Long afterId, @Min(1) int limit);
+
+    /**
+     * Returns a page of the nodes whose name starts with the given prefix ignoring case, in ascending name order
+     * (ignoring case, ties ordered by id), starting after the given name and id.
+     *
+     * @param prefix    the prefix of the names.
+     * @param afterName the name of the last node of the previous page, or null for the first page.
+     * @param afterId   the id of the last node of the previous page, or null for the first page.
+     * @param limit     the maximum number of nodes to return.
+     * @return the nodes with the prefix ordered after the given name and id.
+     */
+    List<Node> findPageByNamePrefix(@NotNull String prefix, String afterName, Long afterId, @Min(1) int limit);
+
     boolean deleteById(@NotNull Long id);
 
 }
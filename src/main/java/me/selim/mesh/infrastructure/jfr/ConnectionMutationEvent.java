@@ -0,0 +1,32 @@
+package me.selim.mesh.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A connection established or dropped, recorded while the mutation holds the node locks.
+ */
+@Name("me.selim.mesh.ConnectionMutation")
+@Label("Connection Mutation")
+@Category({"Mesh", "Graph"})
+@Description("A connection established or dropped")
+@StackTrace(false)
+public class ConnectionMutationEvent extends Event {
+
+    @Label("Operation")
+    @Description("connect or drop")
+    public String operation;
+
+    @Label("First Node Id")
+    public long firstNodeId;
+
+    @Label("Second Node Id")
+    public long secondNodeId;
+
+    @Label("Distance")
+    public int distance;
+}
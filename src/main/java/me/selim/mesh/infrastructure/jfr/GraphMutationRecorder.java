@@ -0,0 +1,54 @@
+package me.selim.mesh.infrastructure.jfr;
+
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.events.ConnectionDropEvent;
+import me.selim.mesh.events.ConnectionEstablishedEvent;
+import me.selim.mesh.events.NodeCreatedEvent;
+import me.selim.mesh.events.NodeDeletedEvent;
+import me.selim.mesh.infrastructure.ConnectionIndex;
+import me.selim.mesh.infrastructure.GraphProjection;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records the graph mutations as Flight Recorder events, on the thread of the mutation, so they line up with the GC,
+ * allocation and lock events of a recording. Costs a check of a flag when no recording enables the events.
+ */
+@Component
+@Order(1)
+public class GraphMutationRecorder implements GraphProjection {
+
+    @Override
+    public void apply(ApplicationEvent event) {
+        if (event instanceof NodeCreatedEvent created) {
+            recordNode("create", created.getNode().getId());
+        } else if (event instanceof NodeDeletedEvent deleted) {
+            recordNode("delete", deleted.getNode().getId());
+        } else if (event instanceof ConnectionEstablishedEvent established) {
+            recordConnection("connect", established.getConnection());
+        } else if (event instanceof ConnectionDropEvent dropped) {
+            recordConnection("drop", dropped.getConnection());
+        }
+    }
+
+    private static void recordNode(String operation, long nodeId) {
+        NodeMutationEvent event = new NodeMutationEvent();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.nodeId = nodeId;
+            event.commit();
+        }
+    }
+
+    private static void recordConnection(String operation, Connection connection) {
+        ConnectionMutationEvent event = new ConnectionMutationEvent();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.firstNodeId = ConnectionIndex.lowerNodeId(connection);
+            event.secondNodeId = ConnectionIndex.higherNodeId(connection);
+            event.distance = connection.getDistance();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package me.selim.mesh.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A node created or deleted, recorded while the mutation holds the node locks.
+ */
+@Name("me.selim.mesh.NodeMutation")
+@Label("Node Mutation")
+@Category({"Mesh", "Graph"})
+@Description("A node created or deleted")
+@StackTrace(false)
+public class NodeMutationEvent extends Event {
+
+    @Label("Operation")
+    @Description("create or delete")
+    public String operation;
+
+    @Label("Node Id")
+    public long nodeId;
+}
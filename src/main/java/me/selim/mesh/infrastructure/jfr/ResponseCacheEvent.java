@@ -0,0 +1,33 @@
+package me.selim.mesh.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A lookup of a serialized response body, lasting as long as the body is serialized on a miss.
+ */
+@Name("me.selim.mesh.ResponseCache")
+@Label("Response Cache Lookup")
+@Category({"Mesh", "Cache"})
+@Description("A lookup of a serialized response body, a miss serializes the body")
+@StackTrace(false)
+public class ResponseCacheEvent extends Event {
+
+    @Label("Variant")
+    public String variant;
+
+    @Label("Graph Version")
+    public long version;
+
+    @Label("Hit")
+    public boolean hit;
+
+    @Label("Body Size")
+    @DataAmount
+    public long bytes;
+}
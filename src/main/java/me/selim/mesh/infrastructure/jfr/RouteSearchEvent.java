@@ -0,0 +1,38 @@
+package me.selim.mesh.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A route search on a compute thread, from its start to its end, with the work it did when it found a route.
+ */
+@Name("me.selim.mesh.RouteSearch")
+@Label("Route Search")
+@Category({"Mesh", "Route"})
+@Description("A route search, from its start to its end")
+@StackTrace(false)
+public class RouteSearchEvent extends Event {
+
+    @Label("Start Node Id")
+    public long startNodeId;
+
+    @Label("End Node Id")
+    public long endNodeId;
+
+    @Label("Outcome")
+    @Description("found, or the simple name of the exception which ended the search")
+    public String outcome;
+
+    @Label("Settled Nodes")
+    public int settledNodes;
+
+    @Label("Relaxed Edges")
+    public int relaxedEdges;
+
+    @Label("Hops")
+    public int hops;
+}
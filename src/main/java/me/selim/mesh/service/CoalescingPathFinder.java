@@ -0,0 +1,200 @@
+package me.selim.mesh.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import me.selim.mesh.domain.Route;
+import me.selim.mesh.error.RouteSearchTimeoutException;
+import me.selim.mesh.infrastructure.GraphVersion;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PathFinder which coalesces identical concurrent route queries into a single search.
+ * <p>
+ * Queries are keyed by origin, destination and the graph version read before the search. The first query of a key
+ * submits the search to the {@link RouteSearchPool}, the queries arriving while it is in flight wait for its result
+ * (or its exception) instead of running their own search, so they are not admitted to the pool either. The key is
+ * removed once the search completes, so the results are never cached: a query arriving later, or after a mutation,
+ * runs a new search.
+ * <p>
+ * The search runs within the limits of the pool only, not within the budget of the query which started it, so a query
+ * with a tight budget can not fail the queries sharing its search. The budget of every query is applied to its own
+ * wait instead: a query fails with a {@link RouteSearchTimeoutException} when its time limit runs out before the
+ * search completes, or when the search visited more nodes than the query may visit, counted like the search of the
+ * query counts them. A query which fails or is
+ * cancelled stops waiting, the search itself is cancelled when the last query waiting for it leaves. The
+ * {@link SearchStats} of the search are reported to the budget of every query which shared it.
+ * <p>
+ * Sharing a result is safe because the search started after the version of the key was read, so it sees at least
+ * all the mutations up to that version, just like a search of its own would.
+ */
+@Primary
+@Component
+public class CoalescingPathFinder implements PathFinder, MeterBinder {
+
+    private final RouteSearchPool delegate;
+    private final GraphVersion graphVersion;
+    private final Map<RouteQuery, SharedSearch> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public CoalescingPathFinder(RouteSearchPool delegate, GraphVersion graphVersion) {
+        this.delegate = delegate;
+        this.graphVersion = graphVersion;
+    }
+
+    @Override
+    public Route findOptimalRoute(Long start, Long end, SearchBudget budget) {
+        return RouteFutures.await(findOptimalRouteAsync(start, end, budget));
+    }
+
+    @Override
+    public CompletableFuture<Route> findOptimalRouteAsync(Long start, Long end, SearchBudget budget) {
+        RouteQuery query = new RouteQuery(start, end, graphVersion.current());
+        while (true) {
+            SharedSearch running = inFlight.get(query);
+            if (running != null && running.join()) {
+                coalesced.increment();
+                return running.newWaiter(budget);
+            }
+            SharedSearch search = new SharedSearch(query);
+            boolean started = running == null ? inFlight.putIfAbsent(query, search) == null
+                    : inFlight.replace(query, running, search);
+            if (started) {
+                searches.increment();
+                search.join();
+                CompletableFuture<Route> waiter = search.newWaiter(budget);
+                SearchBudget searchBudget = SearchBudget.of(null, 0);
+                search.start(delegate.findOptimalRouteAsync(start, end, searchBudget), searchBudget);
+                return waiter;
+            }
+        }
+    }
+
+    /**
+     * @return the number of searches currently running.
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("mesh.route.queries", searches, LongAdder::sum)
+                .tag("result", "searched")
+                .description("Route queries which ran a search")
+                .register(registry);
+        FunctionCounter.builder("mesh.route.queries", coalesced, LongAdder::sum)
+                .tag("result", "coalesced")
+                .description("Route queries which shared the search of an identical query in flight")
+                .register(registry);
+        Gauge.builder("mesh.route.searches.inflight", this, CoalescingPathFinder::inFlight)
+                .description("Route searches currently running")
+                .register(registry);
+    }
+
+    private record RouteQuery(Long start, Long end, long version) {
+    }
+
+    /**
+     * A search in flight and the number of queries waiting for it. Once no query waits anymore the search is
+     * cancelled and no query can join it.
+     */
+    private final class SharedSearch {
+        private final RouteQuery query;
+        private final CompletableFuture<Route> route = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+        private volatile CompletableFuture<Route> search;
+        private volatile SearchBudget searchBudget;
+
+        private SharedSearch(RouteQuery query) {
+            this.query = query;
+        }
+
+        boolean join() {
+            int count;
+            do {
+                count = waiters.get();
+                if (count < 0 || (count == 0 && search != null)) {
+                    return false;
+                }
+            } while (!waiters.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        // the exceptions are passed without the CompletionException of the dependent futures
+        CompletableFuture<Route> newWaiter(SearchBudget budget) {
+            CompletableFuture<Route> waiter = new CompletableFuture<>();
+            route.whenComplete((result, e) -> {
+                SearchStats stats = searchBudget.stats();
+                if (stats != null) {
+                    budget.report(stats);
+                }
+                if (e != null) {
+                    waiter.completeExceptionally(e);
+                    return;
+                }
+                try {
+                    // the search of the query would have stopped at its node limit
+                    if (stats != null) {
+                        budget.checkNodeLimit(stats.visitedNodes());
+                    }
+                    waiter.complete(result);
+                } catch (RouteSearchTimeoutException limitExceeded) {
+                    waiter.completeExceptionally(limitExceeded);
+                }
+            });
+            Duration remaining = budget.remaining();
+            if (remaining != null) {
+                CompletableFuture.delayedExecutor(remaining.toNanos(), TimeUnit.NANOSECONDS).execute(() ->
+                        waiter.completeExceptionally(new RouteSearchTimeoutException(
+                                "Route search exceeded the time limit of " + budget.timeout().toMillis() + " ms")));
+            }
+            waiter.whenComplete((result, e) -> {
+                if (!route.isDone()) {
+                    leave();
+                }
+            });
+            return waiter;
+        }
+
+        void start(CompletableFuture<Route> search, SearchBudget budget) {
+            this.searchBudget = budget;
+            this.search = search;
+            search.whenComplete((result, e) -> {
+                inFlight.remove(query, this);
+                if (e != null) {
+                    route.completeExceptionally(RouteFutures.unwrap(e));
+                } else {
+                    route.complete(result);
+                }
+            });
+            if (waiters.get() == 0) {
+                cancel();
+            }
+        }
+
+        private void leave() {
+            if (waiters.decrementAndGet() == 0 && search != null) {
+                cancel();
+            }
+        }
+
+        private void cancel() {
+            if (waiters.compareAndSet(0, -1)) {
+                inFlight.remove(query, this);
+                search.cancel(false);
+            }
+        }
+    }
+}
@@ -6,10 +6,20 @@ import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 public class InMemoryNodeIdGenerator implements IdGenerator<Long> {
-    private static final AtomicLong counter = new AtomicLong();
+    private final AtomicLong counter = new AtomicLong();
 
     @Override
     public Long next() {
         return counter.incrementAndGet();
     }
+
+    /**
+     * Reserves consecutive ids, for nodes created in bulk with their ids.
+     *
+     * @param count the number of ids.
+     * @return the first of the ids.
+     */
+    public long reserve(int count) {
+        return counter.getAndAdd(count) + 1;
+    }
 }
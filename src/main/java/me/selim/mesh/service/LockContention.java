@@ -0,0 +1,177 @@
+package me.selim.mesh.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Statistics of the node locks taken by the mutations: the time waited for the locks, the lock conflicts (a node
+ * locked by another mutation, which fails the mutation with an {@link IllegalStateException}) and the rollbacks, per
+ * {@link Operation}.
+ * <p>
+ * The nodes with the most contentions, a conflict or a wait longer than {@code mesh.lock-contention.slow-wait}, are
+ * tracked with the Space-Saving algorithm in {@code mesh.lock-contention.tracked-nodes} counters: a node which is not
+ * tracked takes the counter of the least contended node and starts from its count, which is kept as the error bound
+ * of the count. Every node contended more often than the total contentions divided by the number of counters is
+ * tracked. Contentions are rare compared to the lock acquisitions, the counters are updated under a lock.
+ */
+@Component
+@ConfigurationProperties(prefix = "mesh.lock-contention")
+public class LockContention implements MeterBinder {
+
+    public enum Operation {
+        CONNECT, DROP, DELETE;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private int trackedNodes = 64;
+    private long slowWaitNanos = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final ReentrantLock countersLock = new ReentrantLock();
+    private final Map<Long, HotNode> counters = new HashMap<>();
+
+    public LockContention() {
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    public void setTrackedNodes(int trackedNodes) {
+        if (trackedNodes < 1) {
+            throw new IllegalArgumentException("mesh.lock-contention.tracked-nodes must be at least 1");
+        }
+        this.trackedNodes = trackedNodes;
+    }
+
+    public void setSlowWait(Duration slowWait) {
+        this.slowWaitNanos = slowWait.toNanos();
+    }
+
+    /**
+     * Records the time the operation waited for the lock of a node, whether it got the lock or not.
+     */
+    public void lockWaited(Operation operation, Long nodeId, long nanos) {
+        OperationStats operationStats = stats.get(operation);
+        operationStats.waits.increment();
+        operationStats.waitNanos.add(nanos);
+        if (nanos > slowWaitNanos) {
+            contended(nodeId);
+        }
+    }
+
+    /**
+     * Records an operation which failed because the node was locked by another operation.
+     */
+    public void conflict(Operation operation, Long nodeId) {
+        stats.get(operation).conflicts.increment();
+        contended(nodeId);
+    }
+
+    /**
+     * Records an operation which restored the connections it changed before it failed.
+     */
+    public void rolledBack(Operation operation) {
+        stats.get(operation).rollbacks.increment();
+    }
+
+    /**
+     * @param limit the maximum number of nodes to return.
+     * @return the most contended nodes, the most contended first.
+     */
+    public List<HotNode> hotNodes(int limit) {
+        List<HotNode> nodes;
+        countersLock.lock();
+        try {
+            nodes = new ArrayList<>(counters.values());
+        } finally {
+            countersLock.unlock();
+        }
+        nodes.sort(Comparator.comparingLong(HotNode::contentions).reversed().thenComparing(HotNode::nodeId));
+        return nodes.subList(0, Math.min(limit, nodes.size()));
+    }
+
+    /**
+     * Forgets the tracked nodes, to track the contentions from now on.
+     */
+    public void resetHotNodes() {
+        countersLock.lock();
+        try {
+            counters.clear();
+        } finally {
+            countersLock.unlock();
+        }
+    }
+
+    private void contended(Long nodeId) {
+        countersLock.lock();
+        try {
+            HotNode counter = counters.get(nodeId);
+            if (counter != null) {
+                counters.put(nodeId, new HotNode(nodeId, counter.contentions() + 1, counter.error()));
+                return;
+            }
+            if (counters.size() < trackedNodes) {
+                counters.put(nodeId, new HotNode(nodeId, 1, 0));
+                return;
+            }
+            HotNode least = counters.values().stream().min(Comparator.comparingLong(HotNode::contentions)).orElseThrow();
+            counters.remove(least.nodeId());
+            counters.put(nodeId, new HotNode(nodeId, least.contentions() + 1, least.contentions()));
+        } finally {
+            countersLock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        stats.forEach((operation, operationStats) -> {
+            FunctionTimer.builder("mesh.node.lock.wait", operationStats,
+                            s -> s.waits.sum(), s -> s.waitNanos.sum(), TimeUnit.NANOSECONDS)
+                    .tag("operation", operation.tag())
+                    .description("Time waited for the node locks")
+                    .register(registry);
+            FunctionCounter.builder("mesh.node.lock.conflicts", operationStats.conflicts, LongAdder::sum)
+                    .tag("operation", operation.tag())
+                    .description("Mutations failed because a node was locked by another mutation")
+                    .register(registry);
+            FunctionCounter.builder("mesh.node.rollbacks", operationStats.rollbacks, LongAdder::sum)
+                    .tag("operation", operation.tag())
+                    .description("Mutations which restored the connections they changed before they failed")
+                    .register(registry);
+        });
+    }
+
+    /**
+     * @param nodeId      the id of the node.
+     * @param contentions the conflicts and slow waits of the node, at most {@code error} too many.
+     * @param error       the contentions counted for other nodes before the node was tracked.
+     */
+    public record HotNode(Long nodeId, long contentions, long error) {
+    }
+
+    private static final class OperationStats {
+        final LongAdder waits = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final LongAdder conflicts = new LongAdder();
+        final LongAdder rollbacks = new LongAdder();
+    }
+}
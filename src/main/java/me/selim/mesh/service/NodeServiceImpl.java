@@ -6,8 +6,8 @@ import me.selim.mesh.error.ResourceDoesNotExistException;
 import me.selim.mesh.events.ConnectionDropEvent;
 import me.selim.mesh.events.ConnectionEstablishedEvent;
 import me.selim.mesh.events.NodeDeletedEvent;
+import me.selim.mesh.infrastructure.GraphEventBus;
 import me.selim.mesh.infrastructure.NodeRepository;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
@@ -15,17 +15,22 @@ import java.util.*;
 /**
  * This class provides the implementation for the NodeService interface.
  * It provides methods to connect nodes, drop connections between nodes, and delete nodes with their connections.
+ * The events of a mutation are applied to the projections while the nodes are locked, and published to the event
+ * handlers once the locks are released. The lock waits, lock conflicts and rollbacks are recorded in
+ * {@link LockContention}.
  */
 @Component
 public class NodeServiceImpl implements NodeService {
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(NodeServiceImpl.class);
 
     private final NodeRepository nodeRepository;
-    private final ApplicationEventPublisher eventPublisher;
+    private final GraphEventBus eventBus;
+    private final LockContention lockContention;
 
-    public NodeServiceImpl(NodeRepository nodeRepository, ApplicationEventPublisher eventPublisher) {
+    public NodeServiceImpl(NodeRepository nodeRepository, GraphEventBus eventBus, LockContention lockContention) {
         this.nodeRepository = nodeRepository;
-        this.eventPublisher = eventPublisher;
+        this.eventBus = eventBus;
+        this.lockContention = lockContention;
     }
 
     /**
@@ -36,7 +41,7 @@ public class NodeServiceImpl implements NodeService {
      * @param distance     the distance between the two nodes.
      * @return the connection created between the two nodes.
      * @throws ResourceDoesNotExistException if either of the nodes does not exist.
-     * @throws IllegalArgumentException      if either of the nodes has no empty slots for connections.
+     * @throws IllegalArgumentException      if the nodes are already connected or either of the nodes has no empty slots for connections.
      */
     @Override
     public Connection connectNodes(Long firstNodeId, Long secondNodeId, int distance) {
@@ -51,11 +56,17 @@ public class NodeServiceImpl implements NodeService {
         Node firstNode = firstNodeOpt.get();
         Node secondNode = secondNodeOpt.get();
         Connection connection = new Connection(firstNodeId, secondNodeId, distance);
+        ConnectionEstablishedEvent event = new ConnectionEstablishedEvent(this, connection);
+        boolean connected = false;
         try {
             //lock Nodes for connection, so no other thread can connect them
-            firstNode.lockForConnectionOperations();
-            secondNode.lockForConnectionOperations();
+            lockInIdOrder(LockContention.Operation.CONNECT, List.of(firstNode, secondNode));
+            ensureNotDeleted(firstNode);
+            ensureNotDeleted(secondNode);
 
+            if (firstNode.isConnectedTo(secondNode)) {
+                throw new IllegalArgumentException("Nodes " + firstNodeId + " and " + secondNodeId + " are already connected");
+            }
             if (!firstNode.hasEmptySlot()) {
                 throw new IllegalArgumentException("Node " + firstNode.getId() + " has no empty slots for connections");
             }
@@ -65,13 +76,23 @@ public class NodeServiceImpl implements NodeService {
 
             firstNode.addConnection(connection);
             secondNode.addConnection(connection);
+            connected = true;
 
-            eventPublisher.publishEvent(new ConnectionEstablishedEvent(this, connection));
+            eventBus.apply(event);
+        } catch (Exception e) {
+            if (connected) {
+                log.error("Error connecting nodes with ids: {} and {}", firstNodeId, secondNodeId, e);
+                firstNode.dropConnection(connection);
+                secondNode.dropConnection(connection);
+                lockContention.rolledBack(LockContention.Operation.CONNECT);
+            }
+            throw e;
         } finally {
             //unlock Nodes
             firstNode.unLock();
             secondNode.unLock();
         }
+        eventBus.publish(event);
         return connection;
     }
 
@@ -96,31 +117,46 @@ public class NodeServiceImpl implements NodeService {
         Node firstNode = firstNodeOpt.get();
         Node secondNode = secondNodeOpt.get();
 
-        Optional<Connection> connectionOpt = firstNode.getConnectionTo(secondNode);
-        if (connectionOpt.isEmpty()) {
+        if (!firstNode.isConnectedTo(secondNode)) {
             throw new IllegalArgumentException("Nodes are not connected");
         }
-        Connection connection = connectionOpt.get();
 
+        ConnectionDropEvent event;
+        Connection connection = null;
+        boolean droppedFromFirst = false;
+        boolean droppedFromSecond = false;
         try {
             //lock Nodes for connection, so no other thread can connect them
-            firstNode.lockForConnectionOperations();
-            secondNode.lockForConnectionOperations();
+            lockInIdOrder(LockContention.Operation.DROP, List.of(firstNode, secondNode));
+            ensureNotDeleted(firstNode);
+            ensureNotDeleted(secondNode);
+            // read again under the locks, another thread may have dropped it, or dropped and connected the nodes again
+            connection = firstNode.getConnectionTo(secondNode)
+                    .orElseThrow(() -> new IllegalArgumentException("Nodes are not connected"));
+            event = new ConnectionDropEvent(this, connection);
 
-            firstNode.dropConnection(connection);
-            secondNode.dropConnection(connection);
-            eventPublisher.publishEvent(new ConnectionDropEvent(this, connection));
+            droppedFromFirst = firstNode.dropConnection(connection);
+            droppedFromSecond = secondNode.dropConnection(connection);
+            eventBus.apply(event);
         } catch (Exception e) {
-            log.error("Error dropping connection between nodes with ids: {} and {}", firstNodeId, secondNodeId, e);
-            firstNode.addConnection(connection);
-            secondNode.addConnection(connection);
+            // only what this call dropped is restored, a failed lock or check changed nothing
+            if (droppedFromFirst || droppedFromSecond) {
+                log.error("Error dropping connection between nodes with ids: {} and {}", firstNodeId, secondNodeId, e);
+                if (droppedFromFirst) {
+                    firstNode.addConnection(connection);
+                }
+                if (droppedFromSecond) {
+                    secondNode.addConnection(connection);
+                }
+                lockContention.rolledBack(LockContention.Operation.DROP);
+            }
             throw e;
         } finally {
             //unlock Nodes
             firstNode.unLock();
             secondNode.unLock();
         }
-
+        eventBus.publish(event);
     }
 
     /**
@@ -128,6 +164,8 @@ public class NodeServiceImpl implements NodeService {
      *
      * @param nodeId the id of the node to be deleted.
      * @throws ResourceDoesNotExistException if the node does not exist.
+     * @throws IllegalStateException         if one of the nodes is locked by another operation, or the connections of the
+     *                                       node changed while it was being deleted.
      */
     @Override
     public void deleteNodeWithConnections(Long nodeId) {
@@ -145,38 +183,89 @@ public class NodeServiceImpl implements NodeService {
      * @param node the node to be deleted.
      */
     void deleteNodeWithConnections(Node node) {
-        boolean rollback = false;
         List<Connection> connections = node.getConnections();
         Map<Node, Connection> connectedNodes = new HashMap<>();
+        for (Connection connection : connections) {
+            Long connectedNodeId = connection.getNodes().stream()
+                    .filter(t -> !Objects.equals(t, node.getId())).findFirst().get();
+            Optional<Node> connectedNodeOpt = nodeRepository.findById(connectedNodeId);
+            if (connectedNodeOpt.isEmpty()) {
+                throw new ResourceDoesNotExistException("Connected node with id: " + connectedNodeId + " does not exist");
+            }
+            connectedNodes.put(connectedNodeOpt.get(), connection);
+        }
+        List<Node> lockedNodes = new ArrayList<>(connectedNodes.keySet());
+        lockedNodes.add(node);
+        Map<Node, Connection> droppedConnections = new HashMap<>();
+        boolean deleting = false;
+        boolean deleted = false;
         try {
-            node.lockForConnectionOperations();
+            lockInIdOrder(LockContention.Operation.DELETE, lockedNodes);
+            // the connections were read before the locks, a connection made or dropped since then would be left
+            // pointing to the deleted node or dropped twice. Every change replaces the list of a node.
+            if (node.getConnections() != connections) {
+                throw new IllegalStateException("Connections of node " + node.getId() + " changed while it was being deleted");
+            }
             log.info("Deleting node with connections {}", node);
-            for (Connection connection : connections) {
-                Long connectedNodeId = connection.getNodes().stream()
-                        .filter(t -> !Objects.equals(t, node.getId())).findFirst().get();
-                Optional<Node> connectedNodeOpt = nodeRepository.findById(connectedNodeId);
-                if (connectedNodeOpt.isEmpty()) {
-                    throw new ResourceDoesNotExistException("Connected node with id: " + connectedNodeId + " does not exist");
-                }
-                Node connectedNode = connectedNodeOpt.get();
-                connectedNode.lockForConnectionOperations();
-
+            connectedNodes.forEach((connectedNode, connection) -> {
                 connectedNode.dropConnection(connection);
-                connectedNodes.put(connectedNode, connection);
-            }
-            nodeRepository.deleteById(node.getId());
+                droppedConnections.put(connectedNode, connection);
+            });
+            deleting = true;
+            deleted = nodeRepository.deleteById(node.getId());
             log.info("Node with id: {} deleted", node.getId());
         } catch (Exception e) {
-            rollback = true;
-            throw e;
-        } finally {
-            if (rollback) {
+            // only what this call changed is restored, a failed lock or check changed nothing
+            if (!droppedConnections.isEmpty() || deleting) {
                 log.error("Rolling back node deletion {}", node);
-                connectedNodes.forEach(Node::addConnection);
+                droppedConnections.forEach(Node::addConnection);
+                lockContention.rolledBack(LockContention.Operation.DELETE);
                 log.info("Node with id: {} restored", node.getId());
             }
-            node.unLock();
-            connectedNodes.keySet().forEach(Node::unLock);
+            throw e;
+        } finally {
+            lockedNodes.forEach(Node::unLock);
+        }
+        if (deleted) {
+            eventBus.publish(new NodeDeletedEvent(this, node));
+        }
+    }
+
+    /**
+     * Checks, with the node locked, that the node was not deleted since it was read from the repository: a connection
+     * made or dropped on a deleted node would point to a node which does not exist.
+     *
+     * @throws ResourceDoesNotExistException if the node was deleted.
+     */
+    private void ensureNotDeleted(Node node) {
+        if (nodeRepository.findById(node.getId()).orElse(null) != node) {
+            throw new ResourceDoesNotExistException("Node with id: " + node.getId() + " does not exist");
+        }
+    }
+
+    /**
+     * Locks the nodes in id order. Every operation locking more than one node takes the locks in the same order,
+     * so two operations on the same nodes never hold one lock each while waiting for the other.
+     *
+     * @param operation the operation taking the locks, to record the waits and conflicts.
+     * @param nodes     the nodes to lock.
+     * @throws IllegalStateException if one of the nodes is locked by another thread, the locks taken so far are held
+     *                               by the current thread and released by the caller.
+     */
+    private void lockInIdOrder(LockContention.Operation operation, Collection<Node> nodes) {
+        List<Node> sorted = new ArrayList<>(nodes);
+        sorted.sort(Comparator.comparing(Node::getId));
+        for (Node node : sorted) {
+            long start = System.nanoTime();
+            try {
+                node.lockForConnectionOperations();
+            } catch (IllegalStateException e) {
+                // the wait is measured before the conflict is recorded, which is not part of it
+                lockContention.lockWaited(operation, node.getId(), System.nanoTime() - start);
+                lockContention.conflict(operation, node.getId());
+                throw e;
+            }
+            lockContention.lockWaited(operation, node.getId(), System.nanoTime() - start);
         }
     }
 }
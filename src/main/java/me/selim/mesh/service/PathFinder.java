@@ -2,6 +2,32 @@ package me.selim.mesh.service;
 
 import me.selim.mesh.domain.Route;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface PathFinder {
-    Route findOptimalRoute(Long start, Long end);
+
+    default Route findOptimalRoute(Long start, Long end) {
+        return findOptimalRoute(start, end, SearchBudget.unlimited());
+    }
+
+    /**
+     * Finds the optimal route within the given budget.
+     *
+     * @throws me.selim.mesh.error.RouteSearchTimeoutException   if the budget runs out before the route is found.
+     * @throws java.util.concurrent.CancellationException       if the budget is cancelled.
+     * @throws me.selim.mesh.error.ResourceDoesNotExistException if a node does not exist or no route joins the nodes.
+     */
+    Route findOptimalRoute(Long start, Long end, SearchBudget budget);
+
+    /**
+     * Finds the optimal route within the given budget without blocking the caller, if the implementation supports it.
+     * Failures are reported through the returned future, cancelling the future cancels the search.
+     */
+    default CompletableFuture<Route> findOptimalRouteAsync(Long start, Long end, SearchBudget budget) {
+        try {
+            return CompletableFuture.completedFuture(findOptimalRoute(start, end, budget));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
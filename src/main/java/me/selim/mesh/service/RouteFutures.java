@@ -0,0 +1,48 @@
+package me.selim.mesh.service;
+
+import me.selim.mesh.domain.Route;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Helpers for the futures of the asynchronous route searches.
+ */
+final class RouteFutures {
+
+    private RouteFutures() {
+    }
+
+    /**
+     * Waits for the route, the search is cancelled if the waiting thread is interrupted.
+     *
+     * @throws RuntimeException the exception the search failed with.
+     */
+    static Route await(CompletableFuture<Route> route) {
+        try {
+            return route.get();
+        } catch (InterruptedException e) {
+            route.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the route");
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /**
+     * @return the exception a search failed with, without the wrappers of the dependent futures.
+     */
+    static RuntimeException unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new IllegalStateException("Route could not be found", cause);
+    }
+}
@@ -0,0 +1,67 @@
+package me.selim.mesh.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the {@link SearchStats} of the completed route searches as distributions tagged by the engine of the search:
+ * {@code mesh.route.search.settled.nodes}, {@code mesh.route.search.relaxed.edges},
+ * {@code mesh.route.search.queue.pushes}, {@code mesh.route.search.frontier.peak}, {@code mesh.route.search.hops} and
+ * the {@code mesh.route.search.time} timer. The meters of an engine are registered once, on its first search.
+ */
+@Component
+public class RouteSearchMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, EngineMeters> meters = new ConcurrentHashMap<>();
+
+    public RouteSearchMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void record(SearchStats stats) {
+        EngineMeters engineMeters = meters.get(stats.engine());
+        if (engineMeters == null) {
+            engineMeters = meters.computeIfAbsent(stats.engine(), this::register);
+        }
+        engineMeters.settledNodes().record(stats.settledNodes());
+        engineMeters.relaxedEdges().record(stats.relaxedEdges());
+        engineMeters.queuePushes().record(stats.queuePushes());
+        engineMeters.peakFrontier().record(stats.peakFrontier());
+        engineMeters.hops().record(stats.hops());
+        engineMeters.time().record(stats.nanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private EngineMeters register(String engine) {
+        return new EngineMeters(
+                summary("mesh.route.search.settled.nodes", engine, "Nodes settled by a route search"),
+                summary("mesh.route.search.relaxed.edges", engine, "Connections examined by a route search"),
+                summary("mesh.route.search.queue.pushes", engine, "Entries added to the queue of a route search"),
+                summary("mesh.route.search.frontier.peak", engine, "Largest queue of a route search"),
+                summary("mesh.route.search.hops", engine, "Connections of the route found by a search"),
+                Timer.builder("mesh.route.search.time")
+                        .tag("engine", engine)
+                        .description("Time of a route search, without waiting for a compute thread")
+                        .publishPercentileHistogram()
+                        .register(registry));
+    }
+
+    private DistributionSummary summary(String name, String engine, String description) {
+        return DistributionSummary.builder(name)
+                .tag("engine", engine)
+                .description(description)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private record EngineMeters(DistributionSummary settledNodes, DistributionSummary relaxedEdges,
+                                DistributionSummary queuePushes, DistributionSummary peakFrontier,
+                                DistributionSummary hops, Timer time) {
+    }
+}
@@ -0,0 +1,282 @@
+package me.selim.mesh.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import me.selim.mesh.domain.Route;
+import me.selim.mesh.error.ResourceDoesNotExistException;
+import me.selim.mesh.error.RouteSearchTimeoutException;
+import me.selim.mesh.error.ServiceOverloadedException;
+import me.selim.mesh.infrastructure.jfr.RouteSearchEvent;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the route searches on a dedicated, bounded pool of compute threads, so expensive searches can not take the
+ * CPU of the request threads serving cheap lookups.
+ * <p>
+ * A search is admitted based on its estimated cost, the number of nodes it will visit: the cost of the previous
+ * search of the same pair of nodes, or the average cost of the recent searches for a pair which has not been searched
+ * yet. A search which timed out or found no route costs the nodes it visited until it failed. A search is rejected
+ * right away with a {@link ServiceOverloadedException} when the cost of the admitted (queued and running) searches
+ * would exceed {@code mesh.route-pool.max-admitted-cost}, or when {@code mesh.route-pool.max-pending} searches are
+ * already admitted. A single search is always admitted on an idle pool, whatever its cost. The retry hint is the time the pool needs to work off the pending searches.
+ * <p>
+ * Every search is limited to {@code mesh.route-pool.timeout} and {@code mesh.route-pool.max-visited-nodes} (0 for no
+ * limit), or to the tighter budget of the query, so a search can not occupy a compute thread indefinitely.
+ * Every search is recorded as a {@link RouteSearchEvent} for the Flight Recorder.
+ */
+@Component
+@ConfigurationProperties(prefix = "mesh.route-pool")
+public class RouteSearchPool implements PathFinder, MeterBinder, DisposableBean {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(RouteSearchPool.class);
+
+    private static final int MAX_TRACKED_PAIRS = 100_000;
+
+    private int maxPending = 256;
+    private long maxAdmittedCost = 1_000_000;
+    private Duration timeout = Duration.ofSeconds(10);
+    private int maxVisitedNodes;
+
+    private final ShortestPathFinder delegate;
+    private final RouteSearchMetrics metrics;
+    private final ThreadPoolExecutor executor;
+    private final Map<NodePair, Integer> costs = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong admittedCost = new AtomicLong();
+    private final LongAdder rejections = new LongAdder();
+    // moving averages of the recent searches, updated without synchronization as they are only estimates
+    private volatile long averageCost = 1;
+    private volatile long averageNanos;
+
+    public RouteSearchPool(ShortestPathFinder delegate, RouteSearchMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        int threads = Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "route-search-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("mesh.route-pool.threads must be at least 1");
+        }
+        if (threads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(threads);
+            executor.setCorePoolSize(threads);
+        } else {
+            executor.setCorePoolSize(threads);
+            executor.setMaximumPoolSize(threads);
+        }
+    }
+
+    public void setMaxPending(int maxPending) {
+        this.maxPending = maxPending;
+    }
+
+    public void setMaxAdmittedCost(long maxAdmittedCost) {
+        this.maxAdmittedCost = maxAdmittedCost;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public void setMaxVisitedNodes(int maxVisitedNodes) {
+        this.maxVisitedNodes = maxVisitedNodes;
+    }
+
+    /**
+     * Runs the search on the pool and waits for its route.
+     *
+     * @throws ServiceOverloadedException if the search is not admitted.
+     */
+    @Override
+    public Route findOptimalRoute(Long start, Long end, SearchBudget budget) {
+        return RouteFutures.await(findOptimalRouteAsync(start, end, budget));
+    }
+
+    /**
+     * Submits the search to the pool, within the given budget and the limits configured for the pool. The admitted
+     * cost is released when the search completes, not when the caller stops waiting; a cancelled search stops at its
+     * next budget check.
+     *
+     * @return the route, or a {@link ServiceOverloadedException} if the search is not admitted.
+     */
+    @Override
+    public CompletableFuture<Route> findOptimalRouteAsync(Long start, Long end, SearchBudget budget) {
+        NodePair pair = NodePair.of(start, end);
+        long cost = costs.getOrDefault(pair, (int) Math.min(Integer.MAX_VALUE, averageCost));
+        try {
+            admit(cost);
+        } catch (ServiceOverloadedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        SearchBudget searchBudget = budget.limitedTo(timeout, maxVisitedNodes);
+        CompletableFuture<Route> route = new CompletableFuture<>();
+        route.whenComplete((result, e) -> {
+            if (route.isCancelled()) {
+                searchBudget.cancel();
+            }
+        });
+        try {
+            executor.execute(() -> {
+                Route found = null;
+                Throwable failure = null;
+                try {
+                    found = run(pair, start, end, searchBudget).route();
+                } catch (Throwable e) {
+                    failure = e;
+                } finally {
+                    // released before the waiters are resumed, so they see the search as done
+                    release(cost);
+                }
+                if (failure != null) {
+                    route.completeExceptionally(failure);
+                } else {
+                    route.complete(found);
+                }
+            });
+        } catch (RuntimeException e) {
+            release(cost);
+            route.completeExceptionally(e);
+        }
+        return route;
+    }
+
+    private ShortestPathFinder.Search run(NodePair pair, Long start, Long end, SearchBudget budget) {
+        RouteSearchEvent event = new RouteSearchEvent();
+        event.begin();
+        long startTime = System.nanoTime();
+        ShortestPathFinder.Search search;
+        try {
+            search = delegate.search(start, end, budget);
+        } catch (RouteSearchTimeoutException | ResourceDoesNotExistException e) {
+            // the search ran out of budget, or settled the whole component of the start node without finding the end:
+            // its next search costs at least as much, a search of a node which does not exist reports no statistics
+            SearchStats stats = budget.stats();
+            commit(event, start, end, e.getClass().getSimpleName(), stats);
+            if (stats != null) {
+                recordCost(pair, stats.visitedNodes(), System.nanoTime() - startTime);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            commit(event, start, end, e.getClass().getSimpleName(), budget.stats());
+            throw e;
+        }
+        commit(event, start, end, "found", search.stats());
+        recordCost(pair, search.visitedNodes(), System.nanoTime() - startTime);
+        if (search.stats() != null) {
+            metrics.record(search.stats());
+        }
+        return search;
+    }
+
+    private void recordCost(NodePair pair, int visitedNodes, long nanos) {
+        if (costs.size() >= MAX_TRACKED_PAIRS) {
+            costs.clear();
+        }
+        costs.put(pair, visitedNodes);
+        averageCost += (visitedNodes - averageCost) / 8;
+        averageNanos += (nanos - averageNanos) / 8;
+    }
+
+    private static void commit(RouteSearchEvent event, Long start, Long end, String outcome, SearchStats stats) {
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.startNodeId = start;
+        event.endNodeId = end;
+        event.outcome = outcome;
+        if (stats != null) {
+            event.settledNodes = stats.settledNodes();
+            event.relaxedEdges = stats.relaxedEdges();
+            event.hops = stats.hops();
+        }
+        event.commit();
+    }
+
+    private void admit(long cost) {
+        int pendingSearches = pending.incrementAndGet();
+        long cumulatedCost = admittedCost.addAndGet(cost);
+        if (pendingSearches > 1 && (pendingSearches > maxPending || cumulatedCost > maxAdmittedCost)) {
+            release(cost);
+            rejections.increment();
+            long retryAfterSeconds = retryAfterSeconds(pendingSearches);
+            log.warn("Route search rejected, {} searches of cost {} pending, retry after {}s",
+                    pendingSearches - 1, cumulatedCost - cost, retryAfterSeconds);
+            throw new ServiceOverloadedException("Too many route searches in progress", retryAfterSeconds);
+        }
+    }
+
+    private void release(long cost) {
+        pending.decrementAndGet();
+        admittedCost.addAndGet(-cost);
+    }
+
+    private long retryAfterSeconds(int pendingSearches) {
+        double seconds = pendingSearches * (double) averageNanos / executor.getMaximumPoolSize() / 1e9;
+        return Math.max(1, (long) Math.ceil(seconds));
+    }
+
+    /**
+     * @return the number of admitted searches, queued or running.
+     */
+    public int pending() {
+        return pending.get();
+    }
+
+    /**
+     * @return the estimated cost of the admitted searches.
+     */
+    public long admittedCost() {
+        return admittedCost.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("mesh.route.pool.queue", executor, e -> e.getQueue().size())
+                .description("Route searches waiting for a compute thread")
+                .register(registry);
+        Gauge.builder("mesh.route.pool.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Route searches running")
+                .register(registry);
+        Gauge.builder("mesh.route.pool.admitted.cost", this, RouteSearchPool::admittedCost)
+                .description("Estimated number of nodes to visit by the admitted route searches")
+                .register(registry);
+        FunctionCounter.builder("mesh.route.pool.rejections", rejections, LongAdder::sum)
+                .description("Route searches rejected because of overload")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    // connections are bidirectional, a search costs the same in both directions
+    private record NodePair(Long low, Long high) {
+        static NodePair of(Long start, Long end) {
+            return start <= end ? new NodePair(start, end) : new NodePair(end, start);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package me.selim.mesh.service;
+
+import me.selim.mesh.error.RouteSearchTimeoutException;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Limits of a route search: a time limit, a limit of visited nodes, and a cancellation flag.
+ * <p>
+ * The search checks its budget cooperatively with {@link #check(int)} for every node it visits; the node limit is
+ * checked every time, the clock and the cancellation flag every {@value #CHECK_INTERVAL} nodes, so a search stops
+ * within a few microseconds after its budget ran out or it was cancelled.
+ * <p>
+ * A search reports its {@link SearchStats} back to its budget, and to the budgets it is limited by, so the caller can
+ * read the work done by the search it started, also when the search failed.
+ */
+public final class SearchBudget {
+
+    static final int CHECK_INTERVAL = 64;
+
+    private static final SearchBudget UNLIMITED = new SearchBudget(null, Integer.MAX_VALUE, null);
+
+    private final Duration timeout;
+    private final long deadlineNanos;
+    private final int maxVisitedNodes;
+    private final SearchBudget parent;
+    private volatile boolean cancelled;
+    private volatile SearchStats stats;
+
+    private SearchBudget(Duration timeout, int maxVisitedNodes, SearchBudget parent) {
+        this.timeout = timeout;
+        this.deadlineNanos = timeout == null ? 0 : System.nanoTime() + timeout.toNanos();
+        this.maxVisitedNodes = maxVisitedNodes;
+        this.parent = parent;
+    }
+
+    /**
+     * @return a budget without limits, which can not be cancelled.
+     */
+    public static SearchBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * @param timeout         the time limit starting now, or null for no time limit.
+     * @param maxVisitedNodes the maximum number of nodes to visit, 0 for no limit.
+     */
+    public static SearchBudget of(Duration timeout, int maxVisitedNodes) {
+        if (timeout != null && (timeout.isNegative() || timeout.isZero())) {
+            throw new IllegalArgumentException("Search timeout must be positive");
+        }
+        if (maxVisitedNodes < 0) {
+            throw new IllegalArgumentException("Maximum number of visited nodes must not be negative");
+        }
+        return new SearchBudget(timeout, maxVisitedNodes == 0 ? Integer.MAX_VALUE : maxVisitedNodes, null);
+    }
+
+    /**
+     * Returns a budget within the limits of this budget and the given limits. The returned budget is cancelled when
+     * this budget is cancelled, cancelling the returned budget does not cancel this budget.
+     *
+     * @param timeout         the time limit starting now, or null for no additional time limit.
+     * @param maxVisitedNodes the maximum number of nodes to visit, 0 for no additional limit.
+     */
+    public SearchBudget limitedTo(Duration timeout, int maxVisitedNodes) {
+        Duration limit = remaining();
+        if (timeout != null && (limit == null || timeout.compareTo(limit) < 0)) {
+            limit = timeout;
+        }
+        int nodes = maxVisitedNodes == 0 ? this.maxVisitedNodes : Math.min(this.maxVisitedNodes, maxVisitedNodes);
+        return new SearchBudget(limit, nodes, this);
+    }
+
+    /**
+     * @return the time left, or null if there is no time limit.
+     */
+    public Duration remaining() {
+        if (timeout == null) {
+            return null;
+        }
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    /**
+     * @return the time limit the budget was created with, or null if there is no time limit.
+     */
+    Duration timeout() {
+        return timeout;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || (parent != null && parent.isCancelled());
+    }
+
+    /**
+     * Records the statistics of the search which ran within this budget. The unlimited budget is shared and keeps no
+     * statistics.
+     */
+    public void report(SearchStats stats) {
+        if (this == UNLIMITED) {
+            return;
+        }
+        this.stats = stats;
+        if (parent != null) {
+            parent.report(stats);
+        }
+    }
+
+    /**
+     * @return the statistics of the search which ran within this budget, or null if no search reported to it.
+     */
+    public SearchStats stats() {
+        return stats;
+    }
+
+    /**
+     * Checks the budget of a search which has visited the given number of nodes.
+     *
+     * @throws RouteSearchTimeoutException if the time or the node limit is exceeded.
+     * @throws CancellationException       if the search is cancelled.
+     */
+    public void check(int visitedNodes) {
+        checkNodeLimit(visitedNodes);
+        if (visitedNodes % CHECK_INTERVAL != 1) {
+            return;
+        }
+        if (isCancelled()) {
+            throw new CancellationException("Route search cancelled");
+        }
+        if (timeout != null && System.nanoTime() - deadlineNanos > 0) {
+            throw new RouteSearchTimeoutException("Route search exceeded the time limit of " + timeout.toMillis() + " ms");
+        }
+    }
+
+    /**
+     * Checks the node limit only, for a search which ran within another budget and visited the given number of nodes.
+     *
+     * @throws RouteSearchTimeoutException if the node limit is exceeded.
+     */
+    void checkNodeLimit(int visitedNodes) {
+        if (visitedNodes > maxVisitedNodes) {
+            throw new RouteSearchTimeoutException("Route search exceeded the limit of " + maxVisitedNodes + " visited nodes");
+        }
+    }
+}
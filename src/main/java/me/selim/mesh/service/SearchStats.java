@@ -0,0 +1,19 @@
+package me.selim.mesh.service;
+
+/**
+ * The work done by a route search, to tell whether a slow route comes from the size of the graph, a poor locality of
+ * the nodes, or from waiting for the search.
+ *
+ * @param engine       the algorithm of the search.
+ * @param visitedNodes the entries taken from the queue, including the entries of nodes reached by a shorter path since
+ *                     they were queued: the cost of the search, which the node limit of its budget applies to.
+ * @param settledNodes the nodes whose shortest distance was final when they were taken from the queue.
+ * @param relaxedEdges the connections examined from the settled nodes.
+ * @param queuePushes  the entries added to the queue, a connection which shortened the distance to a node.
+ * @param peakFrontier the largest size of the queue during the search.
+ * @param hops         the number of connections of the route.
+ * @param nanos        the time of the search, without the time waiting for a compute thread.
+ */
+public record SearchStats(String engine, int visitedNodes, int settledNodes, int relaxedEdges, int queuePushes, int peakFrontier,
+                          int hops, long nanos) {
+}
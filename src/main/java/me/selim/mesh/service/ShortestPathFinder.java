@@ -4,10 +4,12 @@ import me.selim.mesh.domain.Connection;
 import me.selim.mesh.domain.Node;
 import me.selim.mesh.domain.Route;
 import me.selim.mesh.error.ResourceDoesNotExistException;
+import me.selim.mesh.error.RouteSearchTimeoutException;
 import me.selim.mesh.infrastructure.NodeRepository;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
 
 /**
  * This class implements the PathFinder interface and is responsible for finding the shortest path
@@ -25,10 +27,15 @@ import java.util.*;
  * It maintains a PriorityQueue of nodes to visit, a Map of the shortest known distances to each node, and a Map of the previous node on the shortest path to each node.
  * It iterates over each node in the queue, updating the shortest known distances and previous nodes as it goes.
  * Once the queue is empty, it constructs the shortest path by following the previous nodes from the end node back to the start node.
+ * The search checks its {@link SearchBudget} for every node taken from the queue, and stops when the budget runs out.
+ * Entries of a node which was reached by a shorter path since they were queued are skipped.
+ * Every search reports its {@link SearchStats} to its budget, also when it runs out of budget or finds no route.
  * Algorithm may not be optimal yet, but it does the job for now.
  */
 @Component
 public class ShortestPathFinder implements PathFinder {
+    static final String ENGINE = "dijkstra";
+
     private final NodeRepository nodeRepository;
 
     public ShortestPathFinder(NodeRepository nodeRepository) {
@@ -36,7 +43,17 @@ public class ShortestPathFinder implements PathFinder {
     }
 
     @Override
-    public Route findOptimalRoute(Long start, Long end) {
+    public Route findOptimalRoute(Long start, Long end, SearchBudget budget) {
+        return search(start, end, budget).route();
+    }
+
+    /**
+     * Finds the optimal route like {@link #findOptimalRoute(Long, Long, SearchBudget)} and reports the work done by
+     * the search.
+     *
+     * @return the route, the number of nodes visited to find it and the statistics of the search.
+     */
+    public Search search(Long start, Long end, SearchBudget budget) {
         Optional<Node> firstNodeOpt = this.nodeRepository.findById(start);
         if (firstNodeOpt.isEmpty()) {
             throw new ResourceDoesNotExistException("Node with id: " + start + " does not exist");
@@ -46,10 +63,20 @@ public class ShortestPathFinder implements PathFinder {
             throw new ResourceDoesNotExistException("Node with id: " + end + " does not exist");
         }
 
-        return findShortestPath(firstNodeOpt.get(), secondNodeOpt.get());
+        return search(firstNodeOpt.get(), secondNodeOpt.get(), budget);
     }
 
     protected Route findShortestPath(Node start, Node end) {
+        return search(start, end, SearchBudget.unlimited()).route();
+    }
+
+    private Search search(Node start, Node end, SearchBudget budget) {
+        long startTime = System.nanoTime();
+        int visitedNodes = 0;
+        int settledNodes = 0;
+        int relaxedEdges = 0;
+        int queuePushes = 1;
+        int peakFrontier = 1;
         Map<Node, Integer> distances = new HashMap<>();
         Map<Node, Integer> nodeCounts = new HashMap<>();
         Map<Node, Node> previousNodes = new HashMap<>();
@@ -61,35 +88,60 @@ public class ShortestPathFinder implements PathFinder {
         nodeCounts.put(start, 0);
         queue.add(new Tuple(0, start, 0));
 
-        while (!queue.isEmpty()) {
-            Tuple currentTuple = queue.poll();
-            Node currentNode = currentTuple.node;
-            int currentDistance = currentTuple.distance;
-            int currentNodeCount = currentTuple.nodeCount;
-
-            if (currentNode.equals(end)) {
-                break;
-            }
-
-            for (Connection connection : currentNode.getConnections()) {
-                Long connectedNodeId = connection.getOtherNodeId(currentNode.getId());
-                Optional<Node> neighborOpt = nodeRepository.findById(connectedNodeId);
-                if (neighborOpt.isEmpty()) {
+        try {
+            while (!queue.isEmpty()) {
+                Tuple currentTuple = queue.poll();
+                budget.check(++visitedNodes);
+                Node currentNode = currentTuple.node;
+                int currentDistance = currentTuple.distance;
+                int currentNodeCount = currentTuple.nodeCount;
+
+                // a shorter path to the node was found after this entry was queued
+                int settledDistance = distances.get(currentNode);
+                if (currentDistance > settledDistance
+                        || (currentDistance == settledDistance && currentNodeCount > nodeCounts.get(currentNode))) {
                     continue;
                 }
-                Node neighbor = neighborOpt.get();
-                int distance = connection.getDistance();
-                int newDistance = currentDistance + distance;
-                int newNodeCount = currentNodeCount + 1;
-
-                if (newDistance < distances.getOrDefault(neighbor, Integer.MAX_VALUE)
-                        || (newDistance == distances.get(neighbor) && newNodeCount < nodeCounts.getOrDefault(neighbor, Integer.MAX_VALUE))) {
-                    distances.put(neighbor, newDistance);
-                    nodeCounts.put(neighbor, newNodeCount);
-                    previousNodes.put(neighbor, currentNode);
-                    queue.add(new Tuple(newDistance, neighbor, newNodeCount));
+                settledNodes++;
+                if (currentNode.equals(end)) {
+                    break;
+                }
+
+                for (Connection connection : currentNode.getConnections()) {
+                    relaxedEdges++;
+                    Long connectedNodeId = connection.getOtherNodeId(currentNode.getId());
+                    Optional<Node> neighborOpt = nodeRepository.findById(connectedNodeId);
+                    if (neighborOpt.isEmpty()) {
+                        continue;
+                    }
+                    Node neighbor = neighborOpt.get();
+                    int distance = connection.getDistance();
+                    int newDistance = currentDistance + distance;
+                    int newNodeCount = currentNodeCount + 1;
+
+                    if (newDistance < distances.getOrDefault(neighbor, Integer.MAX_VALUE)
+                            || (newDistance == distances.get(neighbor) && newNodeCount < nodeCounts.getOrDefault(neighbor, Integer.MAX_VALUE))) {
+                        distances.put(neighbor, newDistance);
+                        nodeCounts.put(neighbor, newNodeCount);
+                        previousNodes.put(neighbor, currentNode);
+                        queue.add(new Tuple(newDistance, neighbor, newNodeCount));
+                        queuePushes++;
+                        peakFrontier = Math.max(peakFrontier, queue.size());
+                    }
                 }
             }
+        } catch (RouteSearchTimeoutException | CancellationException e) {
+            // the work done until the budget ran out is the cost of the search
+            budget.report(new SearchStats(ENGINE, visitedNodes, settledNodes, relaxedEdges, queuePushes, peakFrontier, 0,
+                    System.nanoTime() - startTime));
+            throw e;
+        }
+
+        if (!distances.containsKey(end)) {
+            // the nodes are in different components, the search settled every node reachable from the start
+            budget.report(new SearchStats(ENGINE, visitedNodes, settledNodes, relaxedEdges, queuePushes, peakFrontier, 0,
+                    System.nanoTime() - startTime));
+            throw new ResourceDoesNotExistException("No route from node " + start.getId() + " to node " + end.getId());
         }
 
         List<Node> path = new ArrayList<>();
@@ -98,7 +150,22 @@ public class ShortestPathFinder implements PathFinder {
         }
         Collections.reverse(path);
 
-        return new Route(path, distances.get(end));
+        SearchStats stats = new SearchStats(ENGINE, visitedNodes, settledNodes, relaxedEdges, queuePushes, peakFrontier,
+                path.size() - 1, System.nanoTime() - startTime);
+        budget.report(stats);
+        return new Search(new Route(path, distances.get(end)), visitedNodes, stats);
+    }
+
+    /**
+     * @param route        the optimal route.
+     * @param visitedNodes the number of nodes taken from the queue, the cost of the search.
+     * @param stats        the statistics of the search, null if unknown.
+     */
+    public record Search(Route route, int visitedNodes, SearchStats stats) {
+
+        public Search(Route route, int visitedNodes) {
+            this(route, visitedNodes, null);
+        }
     }
 
     private static class Tuple {
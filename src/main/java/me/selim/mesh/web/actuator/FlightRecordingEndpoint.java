@@ -0,0 +1,203 @@
+package me.selim.mesh.web.actuator;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Actuator endpoint running a Flight Recorder recording on demand, with the JDK events and the mesh events
+ * ({@code me.selim.mesh.*}), so the GC, allocation and lock profiles can be related to the mesh operations without
+ * attaching a profiler.
+ * <p>
+ * {@code POST /actuator/jfr} starts a recording with the {@code default} (low overhead) or {@code profile} settings,
+ * for at most {@code maxDuration}. {@code GET /actuator/jfr} reports the recording. {@code DELETE /actuator/jfr} stops
+ * the recording and returns the {@code .jfr} file. One recording runs at a time, it is kept on disk until it is
+ * downloaded.
+ * <p>
+ * A recording holds the environment variables and the system properties of the process, the endpoint is not exposed
+ * unless {@code management.endpoints.web.exposure.include} lists it. The duration of a recording is capped to
+ * {@code mesh.jfr.max-duration}, and the recording keeps at most {@code mesh.jfr.max-size} on disk, dropping its
+ * oldest events beyond.
+ */
+@Component
+@WebEndpoint(id = "jfr")
+@ConfigurationProperties(prefix = "mesh.jfr")
+public class FlightRecordingEndpoint implements DisposableBean {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(FlightRecordingEndpoint.class);
+
+    static final String DEFAULT_SETTINGS = "default";
+
+    private Duration maxDuration = Duration.ofMinutes(10);
+    private DataSize maxSize = DataSize.ofMegabytes(256);
+
+    private final AtomicReference<ActiveRecording> recording = new AtomicReference<>();
+
+    public void setMaxDuration(Duration maxDuration) {
+        if (maxDuration.isNegative() || maxDuration.isZero()) {
+            throw new IllegalArgumentException("mesh.jfr.max-duration must be positive");
+        }
+        this.maxDuration = maxDuration;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        if (maxSize.toBytes() <= 0) {
+            throw new IllegalArgumentException("mesh.jfr.max-size must be positive");
+        }
+        this.maxSize = maxSize;
+    }
+
+    @ReadOperation
+    public WebEndpointResponse<RecordingStatus> status() {
+        ActiveRecording current = recording.get();
+        if (current == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        return new WebEndpointResponse<>(current.status());
+    }
+
+    /**
+     * @param settings    the settings of the recording, {@value #DEFAULT_SETTINGS} if null.
+     * @param maxDuration the duration of the recording, capped to {@code mesh.jfr.max-duration}, which is the
+     *                    duration if null.
+     */
+    @WriteOperation
+    public WebEndpointResponse<RecordingStatus> start(@Nullable String settings, @Nullable Duration maxDuration) {
+        if (maxDuration != null && (maxDuration.isNegative() || maxDuration.isZero())) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings == null ? DEFAULT_SETTINGS : settings);
+        } catch (IOException | ParseException e) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        Recording started = new Recording(configuration);
+        started.setName("mesh");
+        started.setToDisk(true);
+        started.setDuration(maxDuration == null || maxDuration.compareTo(this.maxDuration) > 0
+                ? this.maxDuration : maxDuration);
+        started.setMaxSize(maxSize.toBytes());
+        ActiveRecording active = new ActiveRecording(started, configuration.getName());
+        if (!recording.compareAndSet(null, active)) {
+            started.close();
+            ActiveRecording running = recording.get();
+            return running == null ? new WebEndpointResponse<>(409) : new WebEndpointResponse<>(running.status(), 409);
+        }
+        started.start();
+        log.info("Flight recording {} started with the {} settings", started.getId(), configuration.getName());
+        return new WebEndpointResponse<>(active.status());
+    }
+
+    @DeleteOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> stop() throws IOException {
+        ActiveRecording active = recording.getAndSet(null);
+        if (active == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        Recording current = active.recording();
+        try {
+            if (current.getState() == RecordingState.RUNNING) {
+                current.stop();
+            }
+            Path file = Files.createTempFile("mesh-", ".jfr");
+            try {
+                current.dump(file);
+            } catch (IOException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            log.info("Flight recording {} stopped, {} bytes", current.getId(), Files.size(file));
+            return new WebEndpointResponse<>(new TemporaryFileResource(file));
+        } finally {
+            current.close();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        ActiveRecording active = recording.getAndSet(null);
+        if (active != null) {
+            active.recording().close();
+        }
+    }
+
+    /**
+     * @param id          the id of the recording.
+     * @param state       the state of the recording, a recording reaching its maximum duration is stopped.
+     * @param settings    the settings of the recording.
+     * @param startTime   the start of the recording.
+     * @param maxDuration the duration after which the recording stops.
+     * @param maxBytes    the size above which the oldest events of the recording are dropped.
+     * @param bytes       the size of the recording so far.
+     */
+    public record RecordingStatus(long id, RecordingState state, String settings, Instant startTime,
+                                  Duration maxDuration, long maxBytes, long bytes) {
+    }
+
+    private record ActiveRecording(Recording recording, String settings) {
+        RecordingStatus status() {
+            return new RecordingStatus(recording.getId(), recording.getState(), settings, recording.getStartTime(),
+                    recording.getDuration(), recording.getMaxSize(), recording.getSize());
+        }
+    }
+
+    // the file of a recording is deleted once it has been sent
+    private static final class TemporaryFileResource extends FileSystemResource {
+
+        TemporaryFileResource(Path file) {
+            super(file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        delete();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public boolean isFile() {
+            // read through the stream, so the file is deleted
+            return false;
+        }
+
+        private void delete() {
+            try {
+                Files.deleteIfExists(getFile().toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package me.selim.mesh.web.actuator;
+
+import me.selim.mesh.service.LockContention;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint listing the nodes whose locks are the most contended, to decide where to split or rewire the mesh.
+ * {@code GET /actuator/hotnodes?limit=10} reads the nodes, {@code DELETE /actuator/hotnodes} starts counting again.
+ */
+@Component
+@Endpoint(id = "hotnodes")
+public class HotNodesEndpoint {
+
+    static final int DEFAULT_LIMIT = 10;
+
+    private final LockContention lockContention;
+
+    public HotNodesEndpoint(LockContention lockContention) {
+        this.lockContention = lockContention;
+    }
+
+    @ReadOperation
+    public HotNodes hotNodes(@Nullable Integer limit) {
+        return new HotNodes(lockContention.hotNodes(limit == null ? DEFAULT_LIMIT : Math.max(0, limit)));
+    }
+
+    @DeleteOperation
+    public void reset() {
+        lockContention.resetHotNodes();
+    }
+
+    public record HotNodes(List<LockContention.HotNode> nodes) {
+    }
+}
@@ -0,0 +1,210 @@
+package me.selim.mesh.web.actuator;
+
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.infrastructure.ConnectionIndex;
+import me.selim.mesh.infrastructure.GraphChangelog;
+import me.selim.mesh.infrastructure.GraphEventBus;
+import me.selim.mesh.infrastructure.NodeRepository;
+import me.selim.mesh.web.rest.cache.ResponseCache;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Estimates the heap retained by the graph, from the objects it is made of and their size on the running JVM
+ * ({@link ObjectLayout}), without a heap dump.
+ * <p>
+ * A node costs its {@link Node}, its boxed id, its name and the sort key of the name, the {@code AtomicReference}
+ * of its connections, its {@code ReentrantLock} and the lock's sync, and an entry in each of the two skip lists of the
+ * repository. A connection costs its {@link Connection}, the {@code Set.of} of its node ids, the boxed ids not shared with the
+ * nodes, its {@code Instant}, its boxed distance outside the {@code Integer} cache, its slots in the immutable
+ * connection lists of the two nodes, and three entries and two {@link ConnectionIndex.Endpoint}s in the connection
+ * index. The response cache and the rings of the event bus and of the changelog do not grow with the graph.
+ * <p>
+ * The estimate walks the whole graph.
+ */
+@Component
+public class MemoryFootprint {
+
+    // a heap twice the live set leaves the collector room to copy the live objects and to start marking before the
+    // heap is full
+    static final int HEAP_HEADROOM = 2;
+    // the connections per node of a projection of an empty graph, the connections of a grid
+    static final int DEFAULT_CONNECTIONS_PER_NODE = 2;
+    // the name the cost of a node is estimated with when the graph is empty
+    private static final String TYPICAL_NAME = "Node 1000000";
+
+    private final ObjectLayout layout = ObjectLayout.CURRENT;
+
+    private final NodeRepository nodeRepository;
+    private final ConnectionIndex connectionIndex;
+    private final GraphEventBus eventBus;
+    private final GraphChangelog changelog;
+    private final ResponseCache responseCache;
+
+    public MemoryFootprint(NodeRepository nodeRepository, ConnectionIndex connectionIndex, GraphEventBus eventBus,
+                           GraphChangelog changelog, ResponseCache responseCache) {
+        this.nodeRepository = nodeRepository;
+        this.connectionIndex = connectionIndex;
+        this.eventBus = eventBus;
+        this.changelog = changelog;
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * Estimates the retained bytes of the graph, and the heap of a graph of the target size.
+     *
+     * @param targetNodes       the nodes of the projection, the nodes of the graph if null.
+     * @param targetConnections the connections of the projection, as many per node as in the graph if null.
+     */
+    public Footprint estimate(@Nullable Long targetNodes, @Nullable Long targetConnections) {
+        long nodes = 0;
+        long connections = 0;
+        long nodeBytes = 0;
+        long nameBytes = 0;
+        long connectionBytes = 0;
+        for (Iterator<Node> iterator = nodeRepository.streamAll().iterator(); iterator.hasNext(); ) {
+            Node node = iterator.next();
+            Long id = node.getId();
+            List<Connection> nodeConnections = node.getConnections();
+            nodes++;
+            nodeBytes += nodeObjects() + layout.boxed(id, Long.BYTES);
+            nameBytes += layout.string(node.getName()) + layout.primitiveArray(node.sortKeyLength(), 1);
+            connectionBytes += layout.immutableList(nodeConnections.size());
+            for (Connection connection : nodeConnections) {
+                // the ids are counted by the node they belong to, unless the connection holds the node's own Long
+                for (Long nodeId : connection.getNodes()) {
+                    if (nodeId.equals(id) && nodeId != id) {
+                        connectionBytes += layout.boxed(nodeId, Long.BYTES);
+                    }
+                }
+                // a connection is held by both of its nodes, counted once
+                if (ConnectionIndex.lowerNodeId(connection) == id) {
+                    connections++;
+                    connectionBytes += connectionObjects() + layout.boxed(connection.getDistance(), Integer.BYTES);
+                }
+            }
+        }
+        long nodeIndexBytes = nodes * repositoryEntries();
+        long connectionIndexBytes = connectionIndex.size() * connectionIndexEntries();
+        long cacheBytes = responseCache.footprint();
+        long eventQueueBytes = eventQueues(changelog.retained(), eventBus.lag());
+
+        long bytesPerNode = nodes == 0
+                ? nodeObjects() + layout.boxed(Long.MAX_VALUE, Long.BYTES) + layout.string(TYPICAL_NAME)
+                + layout.primitiveArray(Node.sortKeyOf(TYPICAL_NAME).length, 1) + repositoryEntries()
+                : (nodeBytes + nameBytes + nodeIndexBytes) / nodes;
+        long bytesPerConnection = connections == 0
+                ? connectionObjects() + 2 * layout.boxed(Long.MAX_VALUE, Long.BYTES) + 2L * layout.reference()
+                + connectionIndexEntries()
+                : (connectionBytes + connectionIndexBytes) / connections;
+
+        long projectedNodes = targetNodes == null ? nodes : Math.max(0, targetNodes);
+        long projectedConnections;
+        if (targetConnections != null) {
+            projectedConnections = Math.max(0, targetConnections);
+        } else if (nodes == 0) {
+            projectedConnections = projectedNodes * DEFAULT_CONNECTIONS_PER_NODE;
+        } else {
+            projectedConnections = Math.round((double) projectedNodes * connections / nodes);
+        }
+        // the cached listings grow with the graph up to the limit of the cache, the rings are full in the long run
+        long projectedCacheBytes = nodes == 0 ? cacheBytes
+                : Math.min(responseCache.getMaxBytes(), Math.round((double) cacheBytes * projectedNodes / nodes));
+        long liveBytes = projectedNodes * bytesPerNode + projectedConnections * bytesPerConnection
+                + projectedCacheBytes + eventQueues(changelog.capacity(), 0);
+
+        Components retained = new Components(nodeBytes, nameBytes, connectionBytes,
+                nodeIndexBytes + connectionIndexBytes, cacheBytes, eventQueueBytes);
+        return new Footprint(
+                new Layout(layout.compressedOops(), layout.compressedClassPointers(), layout.alignment()),
+                nodes, connections, retained, retained.total(), bytesPerNode, bytesPerConnection,
+                new Projection(projectedNodes, projectedConnections, liveBytes, liveBytes * HEAP_HEADROOM));
+    }
+
+    /**
+     * @return the objects a {@link Node} is created with: the node, the {@code AtomicReference} of its connections,
+     * its {@code ReentrantLock} and the sync of the lock (head, tail, owner and state).
+     */
+    long nodeObjects() {
+        return layout.object(5, 0) + layout.object(1, 0) + layout.object(1, 0) + layout.object(3, Integer.BYTES);
+    }
+
+    /**
+     * @return the objects a {@link Connection} is created with: the connection and the {@code Set.of} of its two node
+     * ids, and the {@code Instant} it was made at (seconds and nanos).
+     */
+    long connectionObjects() {
+        return layout.object(3, 0) + layout.object(2, 0) + layout.object(0, Long.BYTES + Integer.BYTES);
+    }
+
+    // the node in the repository by id and by name
+    private long repositoryEntries() {
+        return 2 * layout.skipListEntry();
+    }
+
+    // the connection in the distance index, its two endpoints in the node index
+    private long connectionIndexEntries() {
+        return 3 * layout.skipListEntry() + 2 * layout.object(3, 0);
+    }
+
+    /**
+     * @return the ring of the event bus (the events and the sequences published in its slots) with the events not
+     * handled yet, and the ring of the changelog with the changes it keeps.
+     */
+    private long eventQueues(long changes, long pendingEvents) {
+        int bufferSize = eventBus.bufferSize();
+        // source, node or connection, timestamp
+        long event = layout.object(2, Long.BYTES);
+        // type, name, version, node ids, distance
+        long change = layout.object(2, 3 * Long.BYTES + Integer.BYTES);
+        return layout.referenceArray(bufferSize) + layout.object(1, 0) + layout.primitiveArray(bufferSize, Long.BYTES)
+                + pendingEvents * event
+                + layout.object(1, 0) + layout.referenceArray(changelog.capacity()) + changes * change;
+    }
+
+    /**
+     * @param layout             the object layout of the JVM the sizes are estimated for.
+     * @param nodes              the nodes of the graph.
+     * @param connections        the connections of the graph.
+     * @param retainedBytes      the retained bytes by component.
+     * @param totalBytes         the retained bytes of all the components.
+     * @param bytesPerNode       the bytes a node adds: the node, its name and its entries in the repository.
+     * @param bytesPerConnection the bytes a connection adds: the connection, its slots in the connection lists and
+     *                           its entries in the connection index.
+     * @param projection         the heap of a graph of the target size.
+     */
+    public record Footprint(Layout layout, long nodes, long connections, Components retainedBytes, long totalBytes,
+                            long bytesPerNode, long bytesPerConnection, Projection projection) {
+    }
+
+    /**
+     * @param nodes       the nodes, their ids and their locks.
+     * @param names       the names of the nodes and their sort keys.
+     * @param connections the connections, their ids, distances and times, and the connection lists of the nodes.
+     * @param indexes     the repository indexes by id and by name, and the connection index.
+     * @param caches      the cached response bodies.
+     * @param eventQueues the rings of the event bus and of the changelog.
+     */
+    public record Components(long nodes, long names, long connections, long indexes, long caches, long eventQueues) {
+
+        long total() {
+            return nodes + names + connections + indexes + caches + eventQueues;
+        }
+    }
+
+    /**
+     * @param nodes       the nodes of the projected graph.
+     * @param connections the connections of the projected graph.
+     * @param liveBytes   the retained bytes of the projected graph, with full event rings and the cache grown with it.
+     * @param heapBytes   the heap to run it with, {@value MemoryFootprint#HEAP_HEADROOM} times the live bytes.
+     */
+    public record Projection(long nodes, long connections, long liveBytes, long heapBytes) {
+    }
+
+    public record Layout(boolean compressedOops, boolean compressedClassPointers, int objectAlignment) {
+    }
+}
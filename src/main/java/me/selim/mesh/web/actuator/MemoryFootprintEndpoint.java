@@ -0,0 +1,27 @@
+package me.selim.mesh.web.actuator;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint estimating the heap retained by the graph, by component, and the heap of a graph of a target size,
+ * to size the heap of a deployment before loading its mesh. {@code GET /actuator/footprint?nodes=5000000} projects a
+ * graph of 5 million nodes with as many connections per node as the current graph, {@code &connections=} sets them.
+ */
+@Component
+@Endpoint(id = "footprint")
+public class MemoryFootprintEndpoint {
+
+    private final MemoryFootprint memoryFootprint;
+
+    public MemoryFootprintEndpoint(MemoryFootprint memoryFootprint) {
+        this.memoryFootprint = memoryFootprint;
+    }
+
+    @ReadOperation
+    public MemoryFootprint.Footprint footprint(@Nullable Long nodes, @Nullable Long connections) {
+        return memoryFootprint.estimate(nodes, connections);
+    }
+}
@@ -0,0 +1,146 @@
+package me.selim.mesh.web.actuator;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import com.sun.management.VMOption;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * The sizes of the objects of the graph on the running JVM, from the HotSpot options which decide the object layout:
+ * compressed references and class pointers, the object alignment and compact strings. An object takes its header and
+ * its fields rounded up to the alignment, an array its header and its elements. Fields are counted without padding
+ * between them, as HotSpot packs them since JDK 15.
+ * <p>
+ * The sizes are shallow: a size counts the references an object holds, not the objects they point to.
+ */
+final class ObjectLayout {
+
+    static final ObjectLayout CURRENT = detect();
+
+    private final boolean compressedOops;
+    private final boolean compressedClassPointers;
+    private final int alignment;
+    private final boolean compactStrings;
+
+    ObjectLayout(boolean compressedOops, boolean compressedClassPointers, int alignment, boolean compactStrings) {
+        this.compressedOops = compressedOops;
+        this.compressedClassPointers = compressedClassPointers;
+        this.alignment = alignment;
+        this.compactStrings = compactStrings;
+    }
+
+    /**
+     * @return the layout of this JVM, the layout of a 64-bit JVM with a heap under 32 GB if the options can not be
+     * read.
+     */
+    static ObjectLayout detect() {
+        try {
+            HotSpotDiagnosticMXBean hotSpot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            return new ObjectLayout(flag(hotSpot, "UseCompressedOops"), flag(hotSpot, "UseCompressedClassPointers"),
+                    Integer.parseInt(hotSpot.getVMOption("ObjectAlignmentInBytes").getValue()),
+                    flag(hotSpot, "CompactStrings"));
+        } catch (RuntimeException e) {
+            return new ObjectLayout(true, true, 8, true);
+        }
+    }
+
+    private static boolean flag(HotSpotDiagnosticMXBean hotSpot, String name) {
+        VMOption option = hotSpot.getVMOption(name);
+        return Boolean.parseBoolean(option.getValue());
+    }
+
+    boolean compressedOops() {
+        return compressedOops;
+    }
+
+    boolean compressedClassPointers() {
+        return compressedClassPointers;
+    }
+
+    int alignment() {
+        return alignment;
+    }
+
+    int reference() {
+        return compressedOops ? 4 : 8;
+    }
+
+    private int header() {
+        return compressedClassPointers ? 12 : 16;
+    }
+
+    // the header and the length, the elements start at the next 8 bytes boundary
+    private int arrayHeader() {
+        return compressedClassPointers ? 16 : 24;
+    }
+
+    private long align(long bytes) {
+        return (bytes + alignment - 1) / alignment * alignment;
+    }
+
+    /**
+     * @param references the reference fields.
+     * @param primitives the bytes of the primitive fields.
+     * @return the size of an object with these fields.
+     */
+    long object(int references, int primitives) {
+        return align(header() + (long) references * reference() + primitives);
+    }
+
+    /**
+     * @return the size of an array of references.
+     */
+    long referenceArray(int length) {
+        return align(arrayHeader() + (long) length * reference());
+    }
+
+    /**
+     * @return the size of an array of primitives of {@code elementBytes} each.
+     */
+    long primitiveArray(int length, int elementBytes) {
+        return align(arrayHeader() + (long) length * elementBytes);
+    }
+
+    /**
+     * @return the size of a {@code Long} or an {@code Integer}, 0 for a value of the box cache.
+     */
+    long boxed(long value, int valueBytes) {
+        return value >= -128 && value <= 127 ? 0 : object(0, valueBytes);
+    }
+
+    /**
+     * @return the size of a string and its characters, one byte per character if all its characters are Latin-1.
+     */
+    long string(String value) {
+        boolean latin1 = compactStrings;
+        for (int i = 0; i < value.length() && latin1; i++) {
+            latin1 = value.charAt(i) <= 0xFF;
+        }
+        // value, hash, coder, hashIsZero
+        return object(1, 6) + primitiveArray(value.length(), latin1 ? 1 : 2);
+    }
+
+    /**
+     * @return the size of an entry of a {@code ConcurrentSkipListMap} or {@code ConcurrentSkipListSet}: its node
+     * (key, value, next) and, on average, half an index (node, down, right), a quarter of the entries being indexed on
+     * two levels on average.
+     */
+    long skipListEntry() {
+        return object(3, 0) + object(3, 0) / 2;
+    }
+
+    /**
+     * @return the size of an immutable list of {@code size} elements: none for the shared empty list, the two fields
+     * of a {@code List12} up to two elements, a {@code ListN} and its array above.
+     */
+    long immutableList(int size) {
+        if (size == 0) {
+            return 0;
+        }
+        if (size <= 2) {
+            return object(2, 0);
+        }
+        // elements, allowNulls
+        return object(1, 1) + referenceArray(size);
+    }
+}
@@ -0,0 +1,106 @@
+package me.selim.mesh.web.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import me.selim.mesh.infrastructure.GraphChange;
+import me.selim.mesh.infrastructure.GraphChangelog;
+import me.selim.mesh.web.rest.export.GraphChangeWriter;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+
+@Tag(name = "Graph Resources", description = "This API provides endpoints for whole graph operations")
+@RestController
+@RequestMapping("/api/graph")
+public class GraphChangesResource {
+
+    static final String GRAPH_EPOCH_HEADER = "X-Graph-Epoch";
+    static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    static final int DEFAULT_LIMIT = 1000;
+    static final int MAX_LIMIT = 10_000;
+    static final long MAX_WAIT_MS = 30_000;
+
+    private final GraphChangelog changelog;
+    private final GraphChangeWriter writer;
+
+    public GraphChangesResource(GraphChangelog changelog, ObjectMapper objectMapper) {
+        this.changelog = changelog;
+        this.writer = new GraphChangeWriter(objectMapper.getFactory());
+    }
+
+    @Operation(summary = "Get the changes of the graph after a version, in version order, as NDJSON or as server-sent " +
+            "events. Pass the X-Graph-Version of the response as the next since. With waitMs the request waits for " +
+            "the next change when there is none yet (long polling).")
+    @ApiResponse(responseCode = "200", description = "Changes after the version, possibly none",
+            content = {@Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE),
+                    @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)}
+    )
+    @ApiResponse(responseCode = "410", description = "The changes are no longer available or the epoch ended, " +
+            "resync from the graph export")
+    @GetMapping(path = "/changes", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    DeferredResult<ResponseEntity<byte[]>> getChanges(
+            @Parameter(description = "The graph version the client has seen, e.g. the version of the export")
+            @RequestParam(required = false) @Min(0) Long since,
+            @Parameter(description = "The epoch the version belongs to, as returned in X-Graph-Epoch")
+            @RequestParam(required = false) String epoch,
+            @Parameter(description = "Maximum number of changes") @RequestParam(defaultValue = "" + DEFAULT_LIMIT)
+            @Min(1) @Max(MAX_LIMIT) int limit,
+            @Parameter(description = "Milliseconds to wait for a change when there is none yet")
+            @RequestParam(defaultValue = "0") @Min(0) @Max(MAX_WAIT_MS) long waitMs,
+            @RequestHeader(name = LAST_EVENT_ID_HEADER, required = false) Long lastEventId,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        // a reconnecting EventSource sends the id of the last event it received, with the since of its first request
+        Long from = lastEventId != null ? lastEventId : since;
+        if (from == null) {
+            throw new IllegalArgumentException("The version to get the changes after is required");
+        }
+        changelog.checkEpoch(epoch);
+        boolean eventStream = accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+
+        List<GraphChange> changes = changelog.read(from, limit);
+        DeferredResult<ResponseEntity<byte[]>> result = new DeferredResult<>(waitMs > 0 ? waitMs : null);
+        if (!changes.isEmpty() || waitMs == 0) {
+            result.setResult(toResponse(from, changes, eventStream));
+            return result;
+        }
+        // called on the event handler thread, only reads the changes in memory
+        Runnable stopWaiting = changelog.awaitChange(from, () -> {
+            try {
+                result.setResult(toResponse(from, changelog.read(from, limit), eventStream));
+            } catch (RuntimeException e) {
+                result.setErrorResult(e);
+            }
+        });
+        result.onTimeout(() -> {
+            stopWaiting.run();
+            result.setResult(toResponse(from, List.of(), eventStream));
+        });
+        result.onCompletion(stopWaiting);
+        return result;
+    }
+
+    private ResponseEntity<byte[]> toResponse(long since, List<GraphChange> changes, boolean eventStream) {
+        long version = changes.isEmpty() ? since : changes.get(changes.size() - 1).version();
+        return ResponseEntity.ok()
+                .contentType(eventStream ? MediaType.TEXT_EVENT_STREAM : MediaType.APPLICATION_NDJSON)
+                .cacheControl(CacheControl.noStore())
+                .header(GraphExportResource.GRAPH_VERSION_HEADER, String.valueOf(version))
+                .header(GRAPH_EPOCH_HEADER, changelog.epoch())
+                .body(eventStream ? writer.toEventStream(changes) : writer.toNdjson(changes));
+    }
+}
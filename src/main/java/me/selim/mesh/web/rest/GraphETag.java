@@ -0,0 +1,102 @@
+package me.selim.mesh.web.rest;
+
+import jakarta.servlet.http.HttpServletResponse;
+import me.selim.mesh.infrastructure.GraphVersion;
+import me.selim.mesh.web.rest.binary.MeshBinaryHttpMessageConverter;
+import me.selim.mesh.web.rest.model.LinkMode;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ETags of the read endpoints, derived from the {@link GraphVersion}.
+ * <p>
+ * Every mutation of the graph increases the version, so a response built at version V stays valid as long as
+ * the version is V. The version is read before the data, so the data of a response is at least as new as its ETag;
+ * a client may download a change twice, but never keeps a stale response.
+ * <p>
+ * The ETags are weak, the same version can be rendered with different bytes (HAL, compressed). The representations a
+ * client can not use in place of each other get their own tag: {@code W/"42"} for JSON with links, {@code W/"42-plain"}
+ * for JSON without links ({@code links=none}) and {@code W/"42-bin"} for the binary format, which has no links. The
+ * responses vary by {@code Accept}, so a shared cache keeps the JSON and the binary responses apart.
+ */
+final class GraphETag {
+
+    private static final List<MediaType> NEGOTIATED = List.of(MediaType.APPLICATION_JSON,
+            MeshBinaryHttpMessageConverter.MEDIA_TYPE);
+
+    private GraphETag() {
+    }
+
+    static String of(long version) {
+        return "W/\"" + version + "\"";
+    }
+
+    /**
+     * @return the ETag of the representation the request negotiates, JSON with links is tagged with the version only.
+     */
+    static String of(long version, WebRequest request, LinkMode linkMode) {
+        if (acceptsBinary(request.getHeader(HttpHeaders.ACCEPT))) {
+            return "W/\"" + version + "-bin\"";
+        }
+        return linkMode == LinkMode.NONE ? "W/\"" + version + "-plain\"" : of(version);
+    }
+
+    /**
+     * Checks the If-None-Match header of the request against the current graph version, and sets the ETag
+     * and the Vary headers of the response. Handlers call this before any lookup and return null if the response is
+     * not modified.
+     *
+     * @return true if the response is not modified, the status is already set to 304.
+     */
+    static boolean checkNotModified(WebRequest request, GraphVersion graphVersion, LinkMode linkMode) {
+        return checkNotModified(request, graphVersion.current(), linkMode);
+    }
+
+    /**
+     * Checks the If-None-Match header of the request against a graph version read by the handler.
+     *
+     * @see #checkNotModified(WebRequest, GraphVersion, LinkMode)
+     */
+    static boolean checkNotModified(WebRequest request, long version, LinkMode linkMode) {
+        // set before the check, a 304 varies like the response it stands for
+        if (request instanceof NativeWebRequest nativeRequest) {
+            HttpServletResponse response = nativeRequest.getNativeResponse(HttpServletResponse.class);
+            if (response != null && !response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT)) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            }
+        }
+        return request.checkNotModified(of(version, request, linkMode));
+    }
+
+    /**
+     * @return true if the content negotiation picks the binary format: the accepted types compatible with JSON or the
+     * binary format are ordered by quality and specificity like the message converters order them, unparsable or
+     * missing Accept headers get JSON.
+     */
+    static boolean acceptsBinary(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        List<MediaType> candidates = new ArrayList<>();
+        try {
+            for (MediaType requested : MediaType.parseMediaTypes(accept)) {
+                for (MediaType produced : NEGOTIATED) {
+                    if (requested.getQualityValue() > 0 && requested.isCompatibleWith(produced)) {
+                        candidates.add(produced.copyQualityValue(requested));
+                    }
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        MimeTypeUtils.sortBySpecificity(candidates);
+        return !candidates.isEmpty() && candidates.get(0).equalsTypeAndSubtype(MeshBinaryHttpMessageConverter.MEDIA_TYPE);
+    }
+}
@@ -0,0 +1,73 @@
+package me.selim.mesh.web.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import me.selim.mesh.infrastructure.GraphChangelog;
+import me.selim.mesh.infrastructure.GraphVersion;
+import me.selim.mesh.infrastructure.NodeRepository;
+import me.selim.mesh.web.rest.export.NdjsonGraphWriter;
+import me.selim.mesh.web.rest.export.NdjsonGraphWriter.ExportCutoff;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
+
+@Tag(name = "Graph Resources", description = "This API provides endpoints for whole graph operations")
+@RestController
+@RequestMapping("/api/graph")
+public class GraphExportResource {
+
+    private static final Logger log = LoggerFactory.getLogger(GraphExportResource.class);
+
+    static final String GRAPH_VERSION_HEADER = "X-Graph-Version";
+
+    private final NodeRepository repository;
+    private final GraphVersion graphVersion;
+    private final GraphChangelog changelog;
+    private final ObjectMapper objectMapper;
+
+    public GraphExportResource(NodeRepository repository, GraphVersion graphVersion, GraphChangelog changelog,
+                               ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.graphVersion = graphVersion;
+        this.changelog = changelog;
+        this.objectMapper = objectMapper;
+    }
+
+    @Operation(summary = "Export the whole graph as NDJSON. The first line holds the cutoff of the export, " +
+            "followed by one line per node and then one line per connection. The export is a fuzzy snapshot: it " +
+            "holds the graph at its version and some of the changes made while it was written. Replay the changes " +
+            "since its version from /api/graph/changes idempotently to get a consistent graph.")
+    @ApiResponse(responseCode = "200", description = "Graph exported",
+            content = {@Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE)}
+    )
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    ResponseEntity<StreamingResponseBody> exportGraph(WebRequest request) {
+        // version is read first, so the exported data is at least as new as the version
+        long version = graphVersion.current();
+        if (request.checkNotModified(GraphETag.of(version))) {
+            return null;
+        }
+        long lastNodeId = repository.findMaxId().orElse(0L);
+        ExportCutoff cutoff = new ExportCutoff(version, lastNodeId, Instant.now());
+
+        NdjsonGraphWriter writer = new NdjsonGraphWriter(repository, objectMapper.getFactory());
+        log.info("Exporting graph with cutoff {}", cutoff);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(GRAPH_VERSION_HEADER, String.valueOf(version))
+                // the changes after the version of the export are followed with the changes feed of the same epoch
+                .header(GraphChangesResource.GRAPH_EPOCH_HEADER, changelog.epoch())
+                .body(out -> writer.write(cutoff, out));
+    }
+}
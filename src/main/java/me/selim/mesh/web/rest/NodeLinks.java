@@ -0,0 +1,91 @@
+package me.selim.mesh.web.rest;
+
+import org.springframework.hateoas.Link;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.net.URI;
+
+/**
+ * Links of the node resources.
+ * <p>
+ * {@code linkTo(methodOn(...))} proxies the controller, inspects the mapping annotations and expands a URI template
+ * for every link, which dominates the cost of large listings. The paths of the node resources are fixed, so they are
+ * kept as string templates here, the base URI is resolved once per request and the links are built by concatenating
+ * the ids. The links are identical to the ones built by {@code WebMvcLinkBuilder}.
+ */
+public final class NodeLinks {
+
+    static final String NODES_PATH = "/api/nodes";
+
+    private static final String CONNECTION_PATH = "/connection/";
+    private static final String SHORTEST_PATH_PATH = "/shortestPath/";
+
+    private final String baseUri;
+    private final String nodesHref;
+    private final String nodeHrefPrefix;
+
+    private NodeLinks(String baseUri) {
+        this.baseUri = baseUri;
+        this.nodesHref = baseUri + NODES_PATH;
+        this.nodeHrefPrefix = nodesHref + "/";
+    }
+
+    /**
+     * Resolves the base URI (scheme, host, port and context path) of the current request,
+     * the same way {@code WebMvcLinkBuilder} does.
+     */
+    public static NodeLinks fromCurrentRequest() {
+        return new NodeLinks(ServletUriComponentsBuilder.fromCurrentServletMapping().build().toUriString());
+    }
+
+    /**
+     * @param baseUri the base URI without a trailing slash, e.g. {@code http://localhost:8080}.
+     */
+    public static NodeLinks of(String baseUri) {
+        return new NodeLinks(baseUri);
+    }
+
+    public String baseUri() {
+        return baseUri;
+    }
+
+    public String nodeHref(long id) {
+        return nodeHrefPrefix + id;
+    }
+
+    public String connectionHref(long id, long targetId) {
+        return nodeHrefPrefix + id + CONNECTION_PATH + targetId;
+    }
+
+    public Link node(long id) {
+        return Link.of(nodeHref(id));
+    }
+
+    public Link node(long id, String rel) {
+        return Link.of(nodeHref(id), rel);
+    }
+
+    public Link nodes() {
+        return Link.of(nodesHref, "nodes");
+    }
+
+    public Link connection(long id, long targetId) {
+        return Link.of(connectionHref(id, targetId));
+    }
+
+    public Link connection(long id, long targetId, String rel) {
+        return Link.of(connectionHref(id, targetId), rel);
+    }
+
+    public Link shortestPath(long id, long targetId) {
+        return Link.of(nodeHrefPrefix + id + SHORTEST_PATH_PATH + targetId);
+    }
+
+    public URI nodeUri(long id) {
+        return URI.create(nodeHref(id));
+    }
+
+    public URI connectionUri(long id, long targetId) {
+        return URI.create(connectionHref(id, targetId));
+    }
+}
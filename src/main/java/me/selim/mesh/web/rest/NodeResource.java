@@ -1,66 +1,139 @@
 package me.selim.mesh.web.rest;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import me.selim.mesh.domain.Connection;
 import me.selim.mesh.domain.Node;
 import me.selim.mesh.domain.Route;
 import me.selim.mesh.error.ResourceDoesNotExistException;
+import me.selim.mesh.error.RouteSearchTimeoutException;
+import me.selim.mesh.infrastructure.ConnectionIndex;
+import me.selim.mesh.infrastructure.GraphVersion;
 import me.selim.mesh.infrastructure.NodeRepository;
 import me.selim.mesh.service.NodeService;
 import me.selim.mesh.service.PathFinder;
+import me.selim.mesh.service.SearchBudget;
+import me.selim.mesh.service.SearchStats;
+import me.selim.mesh.web.rest.binary.MeshBinaryHttpMessageConverter;
+import me.selim.mesh.web.rest.cache.ResponseCache;
 import me.selim.mesh.web.rest.mapper.ConnectionMapper;
 import me.selim.mesh.web.rest.model.*;
-import me.selim.mesh.web.rest.sort.ConnectionSorter;
-import me.selim.mesh.web.rest.sort.ConnectionSorterFactory;
+import me.selim.mesh.web.rest.page.PageCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
-
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Tag(name = "Node Resources", description = "This API provides endpoints for Node operations")
 @RestController
-@RequestMapping("/api/nodes")
+@RequestMapping(NodeLinks.NODES_PATH)
 public class NodeResource {
 
     private static final Logger log = LoggerFactory.getLogger(NodeResource.class);
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String ROUTE_SEARCH_HEADER = "X-Route-Search";
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+    private static final String LINKS_DESCRIPTION = "all (default) to add hypermedia links, none to return plain objects";
+
     private final NodeRepository repository;
     private final NodeService nodeService;
     private final PathFinder pathFinder;
     private final ConnectionMapper connectionMapper;
+    private final ConnectionIndex connectionIndex;
+    private final GraphVersion graphVersion;
+    private final ResponseCache responseCache;
 
-    public NodeResource(NodeRepository repository, NodeService nodeService, PathFinder pathFinder, ConnectionMapper connectionMapper) {
+    public NodeResource(NodeRepository repository, NodeService nodeService, PathFinder pathFinder,
+                        ConnectionMapper connectionMapper, ConnectionIndex connectionIndex, GraphVersion graphVersion,
+                        ResponseCache responseCache) {
         this.repository = repository;
         this.nodeService = nodeService;
         this.pathFinder = pathFinder;
         this.connectionMapper = connectionMapper;
+        this.connectionIndex = connectionIndex;
+        this.graphVersion = graphVersion;
+        this.responseCache = responseCache;
     }
 
-    @Operation(summary = "Get all nodes")
+    @Operation(summary = "Get all nodes. When orderBy, limit, cursor or namePrefix is given, the nodes are returned page by page, " +
+            "the cursor of the next page is returned in the X-Next-Cursor header and the Link header. With namePrefix only " +
+            "the nodes whose name starts with the prefix, ignoring case, are returned in name order, for autocomplete.")
     @ApiResponse(responseCode = "200", description = "List of all nodes", content = {
             @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = Node.class)))
     })
-    @GetMapping(path = "", produces = MediaType.APPLICATION_JSON_VALUE)
-    ResponseEntity<List<EntityModel<Node>>> getAllNodes() {
-        List<EntityModel<Node>> list = repository.findAll().stream().map(node -> EntityModel.of(node,
-                        linkTo(methodOn(NodeResource.class).getNodeById((Long) node.getId())).withSelfRel()))
-                .toList();
-        return ResponseEntity.ok(list);
+    @GetMapping(path = "", produces = {MediaType.APPLICATION_JSON_VALUE, MeshBinaryHttpMessageConverter.MEDIA_TYPE_VALUE})
+    ResponseEntity<?> getAllNodes(
+            @Parameter(description = "Order of the page, NAME if not given") @RequestParam(required = false) NodeOrder orderBy,
+            @Parameter(description = "Page size") @RequestParam(required = false) @Min(1) @Max(MAX_PAGE_SIZE) Integer limit,
+            @Parameter(description = "Cursor of the next page, as returned in X-Next-Cursor") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Prefix of the names, ignoring case") @RequestParam(required = false) String namePrefix,
+            @Parameter(description = LINKS_DESCRIPTION) @RequestParam(defaultValue = "all") String links,
+            WebRequest request) {
+        if (namePrefix != null && orderBy == NodeOrder.ID) {
+            throw new IllegalArgumentException("Nodes with a name prefix are ordered by name");
+        }
+        LinkMode linkMode = LinkMode.of(links);
+        long version = graphVersion.current();
+        if (GraphETag.checkNotModified(request, version, linkMode)) {
+            return null;
+        }
+        if (orderBy == null && limit == null && cursor == null && namePrefix == null) {
+            Supplier<List<?>> nodes = () -> toNodeModels(repository.findAll(), linkMode);
+            ResponseEntity<?> cached = cachedListing("nodes", linkMode, version, nodes, request);
+            return cached != null ? cached : ResponseEntity.ok(nodes.get());
+        }
+
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        List<Node> page;
+        if (orderBy == NodeOrder.ID) {
+            PageCursor.NodeId after = PageCursor.decode(cursor, PageCursor.NodeId.class);
+            page = repository.findPageOrderedById(after == null ? null : after.id(), pageSize + 1);
+        } else {
+            PageCursor.NodeName after = PageCursor.decode(cursor, PageCursor.NodeName.class);
+            String afterName = after == null ? null : after.name();
+            Long afterId = after == null ? null : after.id();
+            page = namePrefix == null ? repository.findPageOrderedByName(afterName, afterId, pageSize + 1)
+                    : repository.findPageByNamePrefix(namePrefix, afterName, afterId, pageSize + 1);
+        }
+
+        PageCursor nextCursor = null;
+        if (page.size() > pageSize) {
+            page = page.subList(0, pageSize);
+            Node last = page.get(pageSize - 1);
+            nextCursor = orderBy == NodeOrder.ID ? new PageCursor.NodeId(last.getId())
+                    : new PageCursor.NodeName(last.getName(), last.getId());
+        }
+        return pageOf(toNodeModels(page, linkMode), nextCursor);
     }
 
     @Operation(summary = "Get a node by its ID")
@@ -68,12 +141,20 @@ public class NodeResource {
             content = {@Content(schema = @Schema(implementation = Node.class))}
     )
     @GetMapping(path = "/{id}")
-    ResponseEntity<?> getNodeById(@PathVariable @Min(1) Long id) {
+    ResponseEntity<?> getNodeById(@PathVariable @Min(1) Long id,
+                                  @Parameter(description = LINKS_DESCRIPTION) @RequestParam(defaultValue = "all") String links,
+                                  WebRequest request) {
+        LinkMode linkMode = LinkMode.of(links);
+        if (GraphETag.checkNotModified(request, graphVersion, linkMode)) {
+            return null;
+        }
         Node node = repository.findById(id)
                 .orElseThrow(() -> new ResourceDoesNotExistException("Node with id: " + id + "' does not exist"));
-        EntityModel<Node> entityModel = EntityModel.of(node,
-                linkTo(methodOn(NodeResource.class).getNodeById(id)).withSelfRel(),
-                linkTo(methodOn(NodeResource.class).getAllNodes()).withRel("nodes"));
+        if (linkMode == LinkMode.NONE) {
+            return ResponseEntity.ok(node);
+        }
+        NodeLinks nodeLinks = NodeLinks.fromCurrentRequest();
+        EntityModel<Node> entityModel = EntityModel.of(node, nodeLinks.node(id), nodeLinks.nodes());
         return ResponseEntity.ok(entityModel);
     }
 
@@ -85,14 +166,11 @@ public class NodeResource {
     ResponseEntity<EntityModel<Node>> createNode(@RequestBody RestNodeCreateRequest request) {
         Node node = new Node(request.name());
         Node savedNode = repository.save(node);
-        EntityModel<Node> entityModel = EntityModel.of(savedNode,
-                linkTo(methodOn(NodeResource.class).getNodeById(savedNode.getId())).withSelfRel(),
-                linkTo(methodOn(NodeResource.class).getAllNodes()).withRel("nodes"));
+        NodeLinks nodeLinks = NodeLinks.fromCurrentRequest();
+        EntityModel<Node> entityModel = EntityModel.of(savedNode, nodeLinks.node(savedNode.getId()), nodeLinks.nodes());
 
         log.info("Node with id: {} created", savedNode.getId());
-        return ResponseEntity.created(
-                        linkTo(methodOn(NodeResource.class).getNodeById(savedNode.getId())).toUri())
-                .body(entityModel);
+        return ResponseEntity.created(nodeLinks.nodeUri(savedNode.getId())).body(entityModel);
     }
 
     @Operation(summary = "Delete a node by its ID. It also delete the connections on connected Nodes")
@@ -122,19 +200,24 @@ public class NodeResource {
 
         Connection connection = nodeService.connectNodes(id, targetId, request.distance());
         log.info("Node: {} connected to Node: {}", id, targetId);
-        EntityModel<Connection> entityModel = EntityModel.of(connection,
-                linkTo(methodOn(NodeResource.class).getConnectionBetweenNodes(id, targetId)).withSelfRel());
+        NodeLinks nodeLinks = NodeLinks.fromCurrentRequest();
+        EntityModel<Connection> entityModel = EntityModel.of(connection, nodeLinks.connection(id, targetId));
 
-        return ResponseEntity.created(
-                linkTo(methodOn(NodeResource.class).getConnectionBetweenNodes(id, targetId)).toUri()).body(entityModel);
+        return ResponseEntity.created(nodeLinks.connectionUri(id, targetId)).body(entityModel);
     }
 
     @Operation(summary = "Get connection between two nodes")
     @ApiResponse(responseCode = "200", description = "Connection details",
             content = {@Content(schema = @Schema(implementation = Connection.class))}
     )
-    @GetMapping(path = "/{id}/connection/{targetId}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<EntityModel<Connection>> getConnectionBetweenNodes(@PathVariable @Min(1) Long id, @PathVariable @Min(1) Long targetId) {
+    @GetMapping(path = "/{id}/connection/{targetId}", produces = {MediaType.APPLICATION_JSON_VALUE, MeshBinaryHttpMessageConverter.MEDIA_TYPE_VALUE})
+    ResponseEntity<?> getConnectionBetweenNodes(@PathVariable @Min(1) Long id, @PathVariable @Min(1) Long targetId,
+                                                @Parameter(description = LINKS_DESCRIPTION) @RequestParam(defaultValue = "all") String links,
+                                                WebRequest request) {
+        LinkMode linkMode = LinkMode.of(links);
+        if (GraphETag.checkNotModified(request, graphVersion, linkMode)) {
+            return null;
+        }
         Node node = repository.findById(id)
                 .orElseThrow(() -> new ResourceDoesNotExistException("Node with id: " + id + " does not exist"));
         Node targetNode = repository.findById(targetId)
@@ -146,8 +229,11 @@ public class NodeResource {
         }
 
         Connection connection = connectionOptional.get();
+        if (linkMode == LinkMode.NONE) {
+            return ResponseEntity.ok(connection);
+        }
         EntityModel<Connection> entityModel = EntityModel.of(connection,
-                linkTo(methodOn(NodeResource.class).getConnectionBetweenNodes(id, targetId)).withSelfRel());
+                NodeLinks.fromCurrentRequest().connection(id, targetId));
         return ResponseEntity.ok(entityModel);
     }
 
@@ -160,45 +246,312 @@ public class NodeResource {
         return ResponseEntity.noContent().build();
     }
 
-    @Operation(summary = "Find the shortest path between two nodes")
+    @Operation(summary = "Find the shortest path between two nodes. The search runs within a time limit and a limit " +
+            "of visited nodes, it is cancelled when the client disconnects. With debug=true the work done by the search " +
+            "is returned in the X-Route-Search header.")
     @ApiResponse(responseCode = "200", description = "Shortest path found",
             content = {@Content(schema = @Schema(implementation = Route.class))}
     )
+    @ApiResponse(responseCode = "503", description = "The search ran out of its time or node limit")
     @GetMapping(path = "/{id}/shortestPath/{targetId}")
-    ResponseEntity<?> findShortestPath(@PathVariable @Min(1) Long id, @PathVariable @Min(1) Long targetId) {
-        Route route = pathFinder.findOptimalRoute(id, targetId);
-        log.info("Shortest path between nodes {} and {} found as {} ", id, targetId, route);
+    DeferredResult<ResponseEntity<?>> findShortestPath(@PathVariable @Min(1) Long id, @PathVariable @Min(1) Long targetId,
+                                                       @Parameter(description = LINKS_DESCRIPTION) @RequestParam(defaultValue = "all") String links,
+                                                       @Parameter(description = "Time limit of the search in milliseconds, within the configured limit")
+                                                       @RequestParam(required = false) @Min(1) Long timeoutMs,
+                                                       @Parameter(description = "Maximum number of nodes visited by the search, within the configured limit")
+                                                       @RequestParam(required = false) @Min(1) Integer maxVisitedNodes,
+                                                       @Parameter(description = "Return the statistics of the search in the X-Route-Search header")
+                                                       @RequestParam(required = false) Boolean debug,
+                                                       WebRequest request) {
+        LinkMode linkMode = LinkMode.of(links);
+        if (GraphETag.checkNotModified(request, graphVersion, linkMode)) {
+            return null;
+        }
+        // the links are resolved on the request thread, the route is completed on a search thread
+        NodeLinks nodeLinks = linkMode == LinkMode.NONE ? null : NodeLinks.fromCurrentRequest();
+        SearchBudget budget = SearchBudget.of(timeoutMs == null ? null : Duration.ofMillis(timeoutMs),
+                maxVisitedNodes == null ? 0 : maxVisitedNodes);
 
+        CompletableFuture<Route> route = pathFinder.findOptimalRouteAsync(id, targetId, budget);
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>();
+        // the client is gone or the request timed out, nobody waits for the route anymore
+        result.onError(e -> route.cancel(false));
+        result.onTimeout(() -> {
+            result.setErrorResult(new RouteSearchTimeoutException("Route search did not complete within the request timeout"));
+            route.cancel(false);
+        });
+        route.whenComplete((found, e) -> {
+            if (route.isCancelled()) {
+                return;
+            }
+            if (e != null) {
+                result.setErrorResult(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                return;
+            }
+            log.info("Shortest path between nodes {} and {} found as {} ", id, targetId, found);
+            ResponseEntity<?> response = toRouteResponse(id, targetId, found, nodeLinks);
+            result.setResult(Boolean.TRUE.equals(debug) ? withSearchStats(response, budget.stats()) : response);
+        });
+        return result;
+    }
+
+    // the statistics of a shared search are the statistics of the search, not of this query
+    private static ResponseEntity<?> withSearchStats(ResponseEntity<?> response, SearchStats stats) {
+        if (stats == null) {
+            return response;
+        }
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(ROUTE_SEARCH_HEADER, String.format(Locale.ROOT,
+                        "engine=%s, settled=%d, relaxed=%d, pushes=%d, frontier=%d, hops=%d, timeMs=%.3f",
+                        stats.engine(), stats.settledNodes(), stats.relaxedEdges(), stats.queuePushes(),
+                        stats.peakFrontier(), stats.hops(), stats.nanos() / 1e6))
+                .body(response.getBody());
+    }
+
+    private static ResponseEntity<?> toRouteResponse(Long id, Long targetId, Route route, NodeLinks nodeLinks) {
         List<NodeDto> nodesDto = route.nodes().stream().map(node -> new NodeDto(node.getId(), node.getName())).toList();
         RouteDto routeDto = new RouteDto(nodesDto, route.totalDistance());
 
+        if (nodeLinks == null) {
+            return ResponseEntity.ok(routeDto);
+        }
         EntityModel<RouteDto> entityModel = EntityModel.of(routeDto,
-                linkTo(methodOn(NodeResource.class).getNodeById(id)).withRel("startNode"),
-                linkTo(methodOn(NodeResource.class).getNodeById(targetId)).withRel("targetNode"),
-                linkTo(methodOn(NodeResource.class).findShortestPath(id, targetId)).withSelfRel());
+                nodeLinks.node(id, "startNode"),
+                nodeLinks.node(targetId, "targetNode"),
+                nodeLinks.shortestPath(id, targetId));
 
-        routeDto.nodes().forEach(node ->
-                entityModel.add(linkTo(methodOn(NodeResource.class).getNodeById(node.id())).withRel("node-" + node.id()))
-        );
+        routeDto.nodes().forEach(node -> entityModel.add(nodeLinks.node(node.id(), "node-" + node.id())));
         return ResponseEntity.ok(entityModel);
     }
 
-    @Operation(summary = "Get all connections between nodes")
+    @Operation(summary = "Get all connections between nodes. When limit or cursor is given, the connections are returned page by page, " +
+            "the cursor of the next page is returned in the X-Next-Cursor header and the Link header.")
     @ApiResponse(responseCode = "200", description = "List of all connections between nodes in a sorted way", content = {
             @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = ConnectionDto.class)))
     })
     @GetMapping("/connections")
-    ResponseEntity<List<EntityModel<ConnectionDto>>> getAllConnections(@RequestParam SortCriteria criteria, @RequestParam SortType sortType) {
-        ConnectionSorter sorter = ConnectionSorterFactory.getSorter(criteria);
-        List<ConnectionDto> sortedConnections = sorter.sort(repository.findAll(), sortType)
-                .stream().map(connectionMapper::mapWithNameOnly).toList();
-
-        List<EntityModel<ConnectionDto>> sortedAndLinkedConnections = sortedConnections.stream().map(dto -> EntityModel.of(dto,
-                        linkTo(methodOn(NodeResource.class).getConnectionBetweenNodes(dto.nodes().get(0).id(), dto.nodes().get(1).id()))
-                                .withRel(String.format("Nodes: " + dto.nodes().get(0).name() + " and " + dto.nodes().get(1).name()))
-                )
-        ).toList();
-        return ResponseEntity.ok(sortedAndLinkedConnections);
+    ResponseEntity<?> getAllConnections(
+            @RequestParam SortCriteria criteria, @RequestParam SortType sortType,
+            @Parameter(description = "Page size") @RequestParam(required = false) @Min(1) @Max(MAX_PAGE_SIZE) Integer limit,
+            @Parameter(description = "Cursor of the next page, as returned in X-Next-Cursor") @RequestParam(required = false) String cursor,
+            @Parameter(description = LINKS_DESCRIPTION) @RequestParam(defaultValue = "all") String links,
+            WebRequest request) {
+        LinkMode linkMode = LinkMode.of(links);
+        long version = graphVersion.current();
+        if (GraphETag.checkNotModified(request, version, linkMode)) {
+            return null;
+        }
+        boolean ascending = Objects.requireNonNull(sortType) == SortType.ASC;
+        if (limit == null && cursor == null) {
+            Supplier<List<?>> connections = () -> toConnectionModels(switch (criteria) {
+                case NODE -> connectionIndex.streamByNode(ascending);
+                case DISTANCE -> connectionIndex.streamByDistance(ascending);
+            }, linkMode);
+            ResponseEntity<?> cached = cachedListing("connections:" + criteria + ":" + sortType, linkMode, version,
+                    connections, request);
+            return cached != null ? cached : ResponseEntity.ok(connections.get());
+        }
+
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        List<Connection> page;
+        PageCursor nextCursor = null;
+        if (criteria == SortCriteria.DISTANCE) {
+            PageCursor.ConnectionDistance after = PageCursor.decode(cursor, PageCursor.ConnectionDistance.class);
+            Connection afterConnection = after == null ? null
+                    : new Connection(after.lowerNodeId(), after.higherNodeId(), after.distance());
+            page = connectionIndex.findPageByDistance(ascending, afterConnection, pageSize + 1);
+            if (page.size() > pageSize) {
+                page = page.subList(0, pageSize);
+                nextCursor = distanceCursorOf(page.get(pageSize - 1));
+            }
+        } else {
+            PageCursor.ConnectionNode after = PageCursor.decode(cursor, PageCursor.ConnectionNode.class);
+            ConnectionIndex.Endpoint afterEndpoint = after == null ? null : new ConnectionIndex.Endpoint(
+                    new Node(after.nodeId(), after.name(), Set.of()), new Node(after.otherNodeId(), "", Set.of()),
+                    new Connection(after.nodeId(), after.otherNodeId(), after.distance()));
+            List<ConnectionIndex.Endpoint> endpoints = connectionIndex.findPageByNode(ascending, afterEndpoint, pageSize + 1);
+            if (endpoints.size() > pageSize) {
+                endpoints = endpoints.subList(0, pageSize);
+                ConnectionIndex.Endpoint last = endpoints.get(pageSize - 1);
+                nextCursor = new PageCursor.ConnectionNode(last.node().getName(), last.node().getId(),
+                        last.connection().getDistance(), last.other().getId());
+            }
+            page = endpoints.stream().map(ConnectionIndex.Endpoint::connection).toList();
+        }
+        return pageOf(toConnectionModels(page.stream(), linkMode), nextCursor);
+    }
+
+    @Operation(summary = "Get the K shortest (ASC) or the K longest (DESC) connections")
+    @ApiResponse(responseCode = "200", description = "List of at most K connections, ordered by distance", content = {
+            @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = ConnectionDto.class)))
+    })
+    @GetMapping("/connections/top")
+    ResponseEntity<List<?>> getTopConnections(
+            @Parameter(description = "Number of connections") @RequestParam @Min(1) @Max(MAX_PAGE_SIZE) int k,
+            @RequestParam SortType sortType,
+            @Parameter(description = LINKS_DESCRIPTION) @RequestParam(defaultValue = "all") String links,
+            WebRequest request) {
+        LinkMode linkMode = LinkMode.of(links);
+        if (GraphETag.checkNotModified(request, graphVersion, linkMode)) {
+            return null;
+        }
+        List<Connection> topConnections = connectionIndex.findTopByDistance(sortType == SortType.ASC, k);
+        return ResponseEntity.ok(toConnectionModels(topConnections.stream(), linkMode));
+    }
+
+    @Operation(summary = "Get the connections with a distance between min and max (inclusive), ordered by distance. " +
+            "The connections are returned page by page, the cursor of the next page is returned in the X-Next-Cursor header and the Link header.")
+    @ApiResponse(responseCode = "200", description = "Page of connections in the distance range", content = {
+            @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = ConnectionDto.class)))
+    })
+    @GetMapping("/connections/range")
+    ResponseEntity<List<?>> getConnectionsInDistanceRange(
+            @Parameter(description = "Minimum distance, inclusive") @RequestParam @Min(0) int min,
+            @Parameter(description = "Maximum distance, inclusive") @RequestParam @Min(0) int max,
+            @RequestParam(defaultValue = "ASC") SortType sortType,
+            @Parameter(description = "Page size") @RequestParam(required = false) @Min(1) @Max(MAX_PAGE_SIZE) Integer limit,
+            @Parameter(description = "Cursor of the next page, as returned in X-Next-Cursor") @RequestParam(required = false) String cursor,
+            @Parameter(description = LINKS_DESCRIPTION) @RequestParam(defaultValue = "all") String links,
+            WebRequest request) {
+        LinkMode linkMode = LinkMode.of(links);
+        if (GraphETag.checkNotModified(request, graphVersion, linkMode)) {
+            return null;
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        PageCursor.ConnectionDistance after = PageCursor.decode(cursor, PageCursor.ConnectionDistance.class);
+        Connection afterConnection = after == null ? null
+                : new Connection(after.lowerNodeId(), after.higherNodeId(), after.distance());
+        List<Connection> page = connectionIndex.findPageByDistanceRange(min, max, sortType == SortType.ASC,
+                afterConnection, pageSize + 1);
+
+        PageCursor nextCursor = null;
+        if (page.size() > pageSize) {
+            page = page.subList(0, pageSize);
+            nextCursor = distanceCursorOf(page.get(pageSize - 1));
+        }
+        return pageOf(toConnectionModels(page.stream(), linkMode), nextCursor);
+    }
+
+    /**
+     * Serves an unpaged listing from the response cache if the client accepts JSON, gzip compressed if the client
+     * accepts gzip. Returns null if the listing is not cached, it is then written by the message converters.
+     */
+    private ResponseEntity<?> cachedListing(String variant, LinkMode linkMode, long version, Supplier<List<?>> body,
+                                            WebRequest request) {
+        if (!acceptsJson(request.getHeader(HttpHeaders.ACCEPT))) {
+            return null;
+        }
+        // links hold the base URI of the request, which comes from its Host header
+        String linksKey = "none";
+        if (linkMode != LinkMode.NONE) {
+            linksKey = NodeLinks.fromCurrentRequest().baseUri();
+            if (!responseCache.cachesBaseUri(linksKey)) {
+                return null;
+            }
+        }
+        String[] acceptEncoding = request.getHeaderValues(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzipAccepted = acceptEncoding != null && acceptsGzip(String.join(",", acceptEncoding));
+        ResponseCache.CachedBody cached = responseCache.get(variant + ":" + linksKey, version, body, gzipAccepted);
+        if (cached == null) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (cached.gzipBody() != null) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(cached.gzipBody());
+        }
+        return response.body(cached.body());
+    }
+
+    private static boolean acceptsJson(String accept) {
+        if (accept == null) {
+            return true;
+        }
+        boolean json = false;
+        try {
+            for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+                if (mediaType.equalsTypeAndSubtype(MeshBinaryHttpMessageConverter.MEDIA_TYPE)) {
+                    return false;
+                }
+                json |= mediaType.includes(MediaType.APPLICATION_JSON);
+            }
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        return json;
+    }
+
+    // an explicit gzip coding wins over the wildcard, a coding with q=0 is not acceptable
+    static boolean acceptsGzip(String acceptEncoding) {
+        double gzip = -1;
+        double any = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            double quality = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            String name = parameters[0].trim();
+            if (name.equalsIgnoreCase("gzip")) {
+                gzip = quality;
+            } else if (name.equals("*")) {
+                any = quality;
+            }
+        }
+        return (gzip >= 0 ? gzip : any) > 0;
+    }
+
+    private static PageCursor distanceCursorOf(Connection connection) {
+        return new PageCursor.ConnectionDistance(connection.getDistance(),
+                ConnectionIndex.lowerNodeId(connection), ConnectionIndex.higherNodeId(connection));
+    }
+
+    private static List<?> toNodeModels(List<Node> nodes, LinkMode linkMode) {
+        if (linkMode == LinkMode.NONE) {
+            return nodes;
+        }
+        NodeLinks nodeLinks = NodeLinks.fromCurrentRequest();
+        return nodes.stream().map(node -> EntityModel.of(node, nodeLinks.node(node.getId()))).toList();
+    }
+
+    private List<?> toConnectionModels(Stream<Connection> connections, LinkMode linkMode) {
+        Stream<ConnectionDto> dtos = connections.map(connectionMapper::mapWithNameOnly);
+        if (linkMode == LinkMode.NONE) {
+            return dtos.toList();
+        }
+        NodeLinks nodeLinks = NodeLinks.fromCurrentRequest();
+        return dtos.map(dto -> {
+            NodeDto first = dto.nodes().get(0);
+            NodeDto second = dto.nodes().get(1);
+            return EntityModel.of(dto,
+                    nodeLinks.connection(first.id(), second.id(), "Nodes: " + first.name() + " and " + second.name()));
+        }).toList();
+    }
+
+    /**
+     * Builds the response of a page, with the cursor of the next page in the X-Next-Cursor header and
+     * the link of the next page in the Link header. There is no next page if the cursor is null.
+     */
+    private static ResponseEntity<List<?>> pageOf(List<?> page, PageCursor nextCursor) {
+        if (nextCursor == null) {
+            return ResponseEntity.ok(page);
+        }
+        String encodedCursor = nextCursor.encode();
+        String nextLink = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor", encodedCursor).build().toUriString();
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, encodedCursor)
+                .header(HttpHeaders.LINK, Link.of(nextLink, IanaLinkRelations.NEXT).toString())
+                .body(page);
     }
 
 }
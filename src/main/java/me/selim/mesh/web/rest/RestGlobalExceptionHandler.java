@@ -2,7 +2,10 @@ package me.selim.mesh.web.rest;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import me.selim.mesh.error.ChangesExpiredException;
 import me.selim.mesh.error.ResourceDoesNotExistException;
+import me.selim.mesh.error.RouteSearchTimeoutException;
+import me.selim.mesh.error.ServiceOverloadedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.*;
@@ -52,4 +55,31 @@ public class RestGlobalExceptionHandler extends ResponseEntityExceptionHandler {
         ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
         return new ResponseEntity<>(problemDetail, HttpStatus.BAD_REQUEST);
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ProblemDetail> handleServiceOverloaded(ServiceOverloadedException ex) {
+        log.warn("Request rejected because of overload: {}", ex.getMessage());
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(problemDetail);
+    }
+
+    @ExceptionHandler(RouteSearchTimeoutException.class)
+    public ResponseEntity<ProblemDetail> handleRouteSearchTimeout(RouteSearchTimeoutException ex) {
+        log.warn("Route search stopped: {}", ex.getMessage());
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+        return new ResponseEntity<>(problemDetail, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(ChangesExpiredException.class)
+    public ResponseEntity<ProblemDetail> handleChangesExpired(ChangesExpiredException ex) {
+        log.warn("Changes not available: {}", ex.getMessage());
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.GONE, ex.getMessage());
+        problemDetail.setProperty("epoch", ex.getEpoch());
+        problemDetail.setProperty("version", ex.getCurrentVersion());
+        return ResponseEntity.status(HttpStatus.GONE)
+                .header(GraphChangesResource.GRAPH_EPOCH_HEADER, ex.getEpoch())
+                .body(problemDetail);
+    }
+}
@@ -2,33 +2,165 @@ package me.selim.mesh.web.rest.aop;
 
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Times the methods of the REST layer as {@code method.execution.time}, tagged with the short signature of the method.
+ * <p>
+ * The timer of a method is resolved once and cached, so a call only reads the clock twice. Request handler methods
+ * are always timed and publish a percentile histogram with the {@code mesh.metrics.slo} buckets, which
+ * {@code mesh.metrics.endpoint-slo[Class.method]} overrides per endpoint. A handler returning a {@link DeferredResult}
+ * or a {@link CompletionStage} is timed until its result is set. The other methods (mappers, sorters, cache, error
+ * handling) are called many times per request, only {@code mesh.metrics.inner-sample-rate} of their calls are timed
+ * and their timers are tagged {@code sampled=true}, the count of such a timer is the count of the sampled calls.
+ * <p>
+ * Exceptions of the timed methods are rethrown as they are, the timing does not change the error handling.
+ */
 @Aspect
 @Component
+@ConfigurationProperties(prefix = "mesh.metrics")
 public class MetricsAspect {
     private static final Logger log = org.slf4j.LoggerFactory.getLogger(MetricsAspect.class);
 
+    static final String TIMER_NAME = "method.execution.time";
+
+    private List<Duration> slo = List.of(Duration.ofMillis(5), Duration.ofMillis(10), Duration.ofMillis(25),
+            Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofMillis(500),
+            Duration.ofSeconds(1), Duration.ofSeconds(5));
+    private Map<String, List<Duration>> endpointSlo = new HashMap<>();
+    private double innerSampleRate = 0.01;
+
     private final MeterRegistry meterRegistry;
+    private final Map<Method, MethodTimer> timers = new ConcurrentHashMap<>();
 
     public MetricsAspect(MeterRegistry meterRegistry) {
         this.meterRegistry = meterRegistry;
     }
 
+    public void setSlo(List<Duration> slo) {
+        this.slo = slo;
+    }
+
+    public void setEndpointSlo(Map<String, List<Duration>> endpointSlo) {
+        this.endpointSlo = endpointSlo;
+    }
+
+    public void setInnerSampleRate(double innerSampleRate) {
+        if (innerSampleRate < 0 || innerSampleRate > 1) {
+            throw new IllegalArgumentException("mesh.metrics.inner-sample-rate must be between 0 and 1");
+        }
+        this.innerSampleRate = innerSampleRate;
+    }
+
     @Around("execution(* me.selim.mesh.web.rest..*.*(..))")
     public Object measureExecutionTime(ProceedingJoinPoint pjp) throws Throwable {
-        String methodName = pjp.getSignature().toShortString();
-        Timer timer = meterRegistry.timer("method.execution.time", "method", methodName);
-        return timer.recordCallable(() -> {
-            try {
-                return pjp.proceed();
-            } catch (Throwable throwable) {
-                throw new RuntimeException(throwable);
-            }
-        });
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        MethodTimer methodTimer = timers.get(method);
+        if (methodTimer == null) {
+            methodTimer = timers.computeIfAbsent(method, key -> newTimer(key, pjp.getSignature().toShortString()));
+        }
+        if (!methodTimer.endpoint() && (innerSampleRate == 0
+                || innerSampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= innerSampleRate)) {
+            return pjp.proceed();
+        }
+
+        Timer timer = methodTimer.timer();
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = pjp.proceed();
+        } catch (Throwable e) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        if (!methodTimer.endpoint() || !recordOnCompletion(result, timer, start)) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return result;
+    }
+
+    private MethodTimer newTimer(Method method, String signature) {
+        boolean endpoint = AnnotatedElementUtils.hasAnnotation(method, RequestMapping.class);
+        Timer.Builder builder = Timer.builder(TIMER_NAME)
+                .tag("method", signature)
+                .tag("sampled", String.valueOf(!endpoint && innerSampleRate < 1));
+        if (endpoint) {
+            List<Duration> buckets = endpointSlo.getOrDefault(
+                    method.getDeclaringClass().getSimpleName() + "." + method.getName(), slo);
+            builder.publishPercentileHistogram()
+                    .serviceLevelObjectives(buckets.toArray(Duration[]::new));
+        }
+        log.debug("Timing {} as {}", signature, endpoint ? "endpoint" : "inner method");
+        return new MethodTimer(builder.register(meterRegistry), endpoint);
+    }
+
+    /**
+     * Records the time once the asynchronous result of a handler is set.
+     *
+     * @return false if the result is not asynchronous and has to be recorded right away.
+     */
+    private static boolean recordOnCompletion(Object result, Timer timer, long start) {
+        if (result instanceof CompletionStage<?> stage) {
+            stage.whenComplete((value, e) ->
+                    timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+            return true;
+        }
+        if (!(result instanceof DeferredResult<?>)
+                || !(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return false;
+        }
+        // the callbacks of a DeferredResult hold one callback each and belong to the handler, an interceptor of the
+        // request is called when the result is set, or when the request completes without a result
+        HttpServletRequest request = attributes.getRequest();
+        AtomicBoolean recorded = new AtomicBoolean();
+        WebAsyncUtils.getAsyncManager(request).registerDeferredResultInterceptor(timer,
+                new DeferredResultProcessingInterceptor() {
+                    @Override
+                    public <T> void postProcess(NativeWebRequest webRequest, DeferredResult<T> deferredResult,
+                                                Object concurrentResult) {
+                        record();
+                    }
+
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, DeferredResult<T> deferredResult) {
+                        record();
+                    }
+
+                    private void record() {
+                        if (recorded.compareAndSet(false, true)) {
+                            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                    }
+                });
+        return true;
+    }
+
+    private record MethodTimer(Timer timer, boolean endpoint) {
     }
 }
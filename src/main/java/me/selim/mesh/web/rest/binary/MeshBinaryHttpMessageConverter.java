@@ -0,0 +1,110 @@
+package me.selim.mesh.web.rest.binary;
+
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.web.rest.model.ConnectionDto;
+import me.selim.mesh.web.rest.model.RouteDto;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes nodes, connections and routes in a compact binary format for machine clients, negotiated with
+ * {@code Accept: application/x-mesh-binary}. See {@link MeshBinaryWriter} for the format.
+ * <p>
+ * Hypermedia links are dropped, {@link EntityModel}s are written as their content. The converter is registered after
+ * the JSON converters, so JSON stays the default for clients accepting any media type.
+ */
+public class MeshBinaryHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-mesh-binary";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    /**
+     * Kind of an empty list, the kind of its elements is not known.
+     */
+    static final int KIND_EMPTY_LIST = 0;
+
+    public MeshBinaryHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Node.class.isAssignableFrom(clazz) || Connection.class.isAssignableFrom(clazz)
+                || RouteDto.class.isAssignableFrom(clazz) || EntityModel.class.isAssignableFrom(clazz)
+                || List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Reading " + MEDIA_TYPE_VALUE + " is not supported", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+        BufferedOutputStream out = new BufferedOutputStream(outputMessage.getBody());
+        MeshBinaryWriter writer = new MeshBinaryWriter(out);
+        Object content = unwrap(body);
+        if (content instanceof Node node) {
+            writer.writeNode(node);
+        } else if (content instanceof Connection connection) {
+            writer.writeConnection(connection);
+        } else if (content instanceof RouteDto route) {
+            writer.writeRoute(route);
+        } else if (content instanceof List<?> list) {
+            writeList(writer, out, list);
+        } else {
+            throw new HttpMessageNotWritableException("Cannot write " + content.getClass().getSimpleName()
+                    + " as " + MEDIA_TYPE_VALUE);
+        }
+        out.flush();
+    }
+
+    private static void writeList(MeshBinaryWriter writer, BufferedOutputStream out, List<?> list) throws IOException {
+        if (list.isEmpty()) {
+            out.write(MeshBinaryWriter.FORMAT_VERSION);
+            out.write(KIND_EMPTY_LIST);
+            return;
+        }
+        Object first = unwrap(list.get(0));
+        if (first instanceof Node) {
+            writer.writeNodes(elementsOf(list, Node.class));
+        } else if (first instanceof ConnectionDto) {
+            writer.writeConnections(elementsOf(list, ConnectionDto.class));
+        } else {
+            throw new HttpMessageNotWritableException("Cannot write a list of " + first.getClass().getSimpleName()
+                    + " as " + MEDIA_TYPE_VALUE);
+        }
+    }
+
+    private static <T> List<T> elementsOf(List<?> list, Class<T> type) {
+        List<T> elements = new ArrayList<>(list.size());
+        for (Object element : list) {
+            Object content = unwrap(element);
+            if (!type.isInstance(content)) {
+                throw new HttpMessageNotWritableException("Cannot write a mixed list as " + MEDIA_TYPE_VALUE);
+            }
+            elements.add(type.cast(content));
+        }
+        return elements;
+    }
+
+    private static Object unwrap(Object value) {
+        return value instanceof EntityModel<?> model ? model.getContent() : value;
+    }
+}
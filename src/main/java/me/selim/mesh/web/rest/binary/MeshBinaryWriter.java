@@ -0,0 +1,137 @@
+package me.selim.mesh.web.rest.binary;
+
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.infrastructure.ConnectionIndex;
+import me.selim.mesh.web.rest.model.ConnectionDto;
+import me.selim.mesh.web.rest.model.NodeDto;
+import me.selim.mesh.web.rest.model.RouteDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes nodes, connections and routes in the compact binary format of {@link MeshBinaryHttpMessageConverter}.
+ * <p>
+ * A message starts with the format version byte and a kind byte, followed by the payload. Counts, lengths and
+ * distances are unsigned varints (LEB128), ids are written as zigzag varint deltas to the previous id of the same
+ * kind in the message, so ids close to each other take one or two bytes. Strings are a length followed by UTF-8 bytes.
+ * <ul>
+ *     <li>node: id delta, name, connection count, then for each connection the other node id as a delta to the node
+ *     id and the distance.</li>
+ *     <li>connection: lower node id delta, higher node id minus lower node id, distance.</li>
+ *     <li>route: total distance, node count, then for each node its id delta and name.</li>
+ * </ul>
+ * Lists are a count followed by the elements. Connection times and links are not written.
+ * <p>
+ * Not thread safe, a writer is created for each message.
+ */
+class MeshBinaryWriter {
+
+    static final int FORMAT_VERSION = 1;
+
+    static final int KIND_NODE = 1;
+    static final int KIND_NODES = 2;
+    static final int KIND_CONNECTION = 3;
+    static final int KIND_CONNECTIONS = 4;
+    static final int KIND_ROUTE = 5;
+
+    private final OutputStream out;
+    private long previousId;
+
+    MeshBinaryWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    void writeNode(Node node) throws IOException {
+        writeHeader(KIND_NODE);
+        writeNodeBody(node);
+    }
+
+    void writeNodes(List<Node> nodes) throws IOException {
+        writeHeader(KIND_NODES);
+        writeUnsignedVarint(nodes.size());
+        for (Node node : nodes) {
+            writeNodeBody(node);
+        }
+    }
+
+    void writeConnection(Connection connection) throws IOException {
+        writeHeader(KIND_CONNECTION);
+        writeConnectionBody(ConnectionIndex.lowerNodeId(connection), ConnectionIndex.higherNodeId(connection),
+                connection.getDistance());
+    }
+
+    void writeConnections(List<ConnectionDto> connections) throws IOException {
+        writeHeader(KIND_CONNECTIONS);
+        writeUnsignedVarint(connections.size());
+        for (ConnectionDto connection : connections) {
+            long first = connection.nodes().get(0).id();
+            long second = connection.nodes().get(1).id();
+            writeConnectionBody(Math.min(first, second), Math.max(first, second), connection.distance());
+        }
+    }
+
+    void writeRoute(RouteDto route) throws IOException {
+        writeHeader(KIND_ROUTE);
+        writeUnsignedVarint(route.totalDistance());
+        writeUnsignedVarint(route.nodes().size());
+        for (NodeDto node : route.nodes()) {
+            writeIdDelta(node.id());
+            writeString(node.name());
+        }
+    }
+
+    private void writeHeader(int kind) throws IOException {
+        out.write(FORMAT_VERSION);
+        out.write(kind);
+    }
+
+    private void writeNodeBody(Node node) throws IOException {
+        long id = node.getId();
+        writeIdDelta(id);
+        writeString(node.getName());
+        List<Connection> connections = node.getConnections();
+        writeUnsignedVarint(connections.size());
+        for (Connection connection : connections) {
+            writeSignedVarint(connection.getOtherNodeId(id) - id);
+            writeUnsignedVarint(connection.getDistance());
+        }
+    }
+
+    private void writeConnectionBody(long lowerNodeId, long higherNodeId, int distance) throws IOException {
+        writeIdDelta(lowerNodeId);
+        writeUnsignedVarint(higherNodeId - lowerNodeId);
+        writeUnsignedVarint(distance);
+    }
+
+    private void writeIdDelta(long id) throws IOException {
+        writeSignedVarint(id - previousId);
+        previousId = id;
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeUnsignedVarint(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeSignedVarint(long value) throws IOException {
+        writeUnsignedVarint((value << 1) ^ (value >> 63));
+    }
+
+    // an int is written as its unsigned 32 bits, so a negative int takes 5 bytes and is read back as the same int
+    private void writeUnsignedVarint(int value) throws IOException {
+        writeUnsignedVarint(Integer.toUnsignedLong(value));
+    }
+
+    private void writeUnsignedVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
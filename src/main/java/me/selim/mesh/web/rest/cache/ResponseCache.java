@@ -0,0 +1,277 @@
+package me.selim.mesh.web.rest.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import me.selim.mesh.infrastructure.jfr.ResponseCacheEvent;
+import org.slf4j.Logger;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of serialized JSON response bodies, per graph version and per variant of a listing.
+ * <p>
+ * Between two mutations the listings are byte-identical, so the body is serialized once for a graph version and the
+ * same bytes are written for every request, optionally with a gzip compressed copy which is built on the first request
+ * accepting gzip. The first request of a new version builds the body, concurrent requests of the same variant wait for
+ * it instead of serializing the same body again. Entries of older versions are dropped when a newer one is built.
+ * <p>
+ * The total size of the cached bodies is bounded by {@code mesh.response-cache.max-bytes}; a body which does not fit
+ * is still returned to the requests which waited for it, but it is not kept. Waiting does not pin virtual threads,
+ * there is no {@code synchronized} block. Every lookup is recorded as a {@link ResponseCacheEvent} for the Flight
+ * Recorder.
+ * <p>
+ * The links of a listing hold the base URI of the request, which comes from its Host header. Only the listings with the
+ * links of the base URIs in {@code mesh.response-cache.base-uris} are cached, so requests with made up Host headers
+ * can not fill the cache with variants nobody reads again.
+ */
+@Component
+@ConfigurationProperties(prefix = "mesh.response-cache")
+public class ResponseCache implements MeterBinder {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(ResponseCache.class);
+
+    private boolean enabled = true;
+    private boolean gzip = true;
+    private long maxBytes = 64L * 1024 * 1024;
+    private Set<String> baseUris = Set.of();
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, AtomicReference<Entry>> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ResponseCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @param baseUris the base URIs (scheme, host, port and context path) the listings with links are cached for.
+     */
+    public void setBaseUris(List<String> baseUris) {
+        Set<String> normalized = new HashSet<>();
+        for (String baseUri : baseUris) {
+            String trimmed = baseUri.trim();
+            if (!trimmed.startsWith("http://") && !trimmed.startsWith("https://")) {
+                throw new IllegalArgumentException("mesh.response-cache.base-uris must be http or https URIs: " + baseUri);
+            }
+            normalized.add(trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed);
+        }
+        this.baseUris = Set.copyOf(normalized);
+    }
+
+    /**
+     * @return true if the listings with the links of the given base URI are cached, the base URI must match exactly as
+     * the links of a cached body are the links of the request which built it.
+     */
+    public boolean cachesBaseUri(String baseUri) {
+        return baseUris.contains(baseUri);
+    }
+
+    /**
+     * Returns the serialized body of the variant at the given graph version, serializing it if it is not cached.
+     * An entry of a newer version may be returned, its data is at least as new as the requested version.
+     *
+     * @param variant      the key of the listing, including everything the body depends on (parameters, base URI).
+     * @param version      the graph version read before reading any data.
+     * @param body         supplies the body to serialize, called at most once per version.
+     * @param gzipAccepted true to also return the gzip compressed body.
+     * @return the cached body, or null if the cache is disabled.
+     */
+    public CachedBody get(String variant, long version, Supplier<?> body, boolean gzipAccepted) {
+        if (!enabled) {
+            return null;
+        }
+        ResponseCacheEvent event = new ResponseCacheEvent();
+        event.begin();
+        AtomicReference<Entry> slot = entries.computeIfAbsent(variant, key -> new AtomicReference<>());
+        Entry entry = slot.get();
+        boolean built = false;
+        while (entry == null || entry.version < version) {
+            Entry fresh = new Entry(version, () -> serialize(body.get()));
+            if (slot.compareAndSet(entry, fresh)) {
+                fresh.body.run();
+                built = true;
+                entry = fresh;
+            } else {
+                entry = slot.get();
+            }
+        }
+
+        byte[] bytes = await(slot, entry);
+        if (built) {
+            misses.increment();
+            evictStaleEntries(version);
+            evictIfOverBound(slot, entry);
+        } else {
+            hits.increment();
+        }
+        if (event.shouldCommit()) {
+            event.variant = variant;
+            event.version = entry.version;
+            event.hit = !built;
+            event.bytes = bytes.length;
+            event.commit();
+        }
+        if (!gzipAccepted || !gzip) {
+            return new CachedBody(bytes, null);
+        }
+        byte[] gzipped = entry.gzip.get();
+        if (gzipped == null) {
+            gzipped = gzip(bytes);
+            if (entry.gzip.compareAndSet(null, gzipped)) {
+                evictIfOverBound(slot, entry);
+            }
+        }
+        return new CachedBody(bytes, gzipped);
+    }
+
+    /**
+     * @return the total size of the cached bodies, including the compressed copies.
+     */
+    public long footprint() {
+        long footprint = 0;
+        for (AtomicReference<Entry> slot : entries.values()) {
+            Entry entry = slot.get();
+            if (entry != null) {
+                footprint += entry.size();
+            }
+        }
+        return footprint;
+    }
+
+    /**
+     * Drops all the cached bodies.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("mesh.response.cache.footprint", this, ResponseCache::footprint)
+                .baseUnit("bytes")
+                .description("Size of the cached response bodies")
+                .register(registry);
+        FunctionCounter.builder("mesh.response.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("mesh.response.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(registry);
+    }
+
+    private byte[] await(AtomicReference<Entry> slot, Entry entry) {
+        try {
+            return entry.body.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the response body", e);
+        } catch (ExecutionException e) {
+            // do not keep the failure, the next request serializes again
+            slot.compareAndSet(entry, null);
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Response body could not be serialized", e.getCause());
+        }
+    }
+
+    // no request can be served by an entry older than a version which has been seen
+    private void evictStaleEntries(long version) {
+        for (AtomicReference<Entry> slot : entries.values()) {
+            Entry entry = slot.get();
+            if (entry != null && entry.version < version) {
+                slot.compareAndSet(entry, null);
+            }
+        }
+        entries.values().removeIf(slot -> slot.get() == null);
+    }
+
+    private void evictIfOverBound(AtomicReference<Entry> slot, Entry entry) {
+        long footprint = footprint();
+        if (footprint > maxBytes && slot.compareAndSet(entry, null)) {
+            log.warn("Response cache footprint {} exceeds {} bytes, body of {} bytes is not cached",
+                    footprint, maxBytes, entry.size());
+        }
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final FutureTask<byte[]> body;
+        private final AtomicReference<byte[]> gzip = new AtomicReference<>();
+        private volatile byte[] serialized;
+
+        private Entry(long version, Callable<byte[]> serializer) {
+            this.version = version;
+            this.body = new FutureTask<>(() -> serialized = serializer.call());
+        }
+
+        private long size() {
+            byte[] bytes = serialized;
+            byte[] gzipped = gzip.get();
+            return (bytes == null ? 0 : bytes.length) + (gzipped == null ? 0 : gzipped.length);
+        }
+    }
+
+    /**
+     * A serialized response body.
+     *
+     * @param body     the JSON body.
+     * @param gzipBody the gzip compressed body, or null if gzip is not accepted or disabled.
+     */
+    public record CachedBody(byte[] body, byte[] gzipBody) {
+    }
+}
@@ -0,0 +1,96 @@
+package me.selim.mesh.web.rest.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import me.selim.mesh.infrastructure.GraphChange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes graph changes as NDJSON, or as server-sent events with the JSON of the change as data.
+ * <p>
+ * The lines have the same shape as the lines of the graph export, with the version of the change, so a client
+ * applies the export and then the changes with the same code:
+ * <pre>
+ * {"version":5,"type":"node","id":3,"name":"N3"}
+ * {"version":6,"type":"connection","nodes":[1,3],"distance":10}
+ * {"version":7,"type":"connection-dropped","nodes":[1,3]}
+ * {"version":8,"type":"node-deleted","id":3}
+ * </pre>
+ * A server-sent event has the version as id and the type as event name, so a reconnecting EventSource resumes after
+ * the last change it received.
+ */
+public class GraphChangeWriter {
+
+    private static final byte[] EVENT_DATA = "data: ".getBytes(StandardCharsets.US_ASCII);
+
+    private final JsonFactory jsonFactory;
+
+    public GraphChangeWriter(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    public byte[] toNdjson(List<GraphChange> changes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(changes.size() * 64);
+        try (JsonGenerator generator = newGenerator(out)) {
+            for (GraphChange change : changes) {
+                writeChange(generator, change);
+                generator.writeRaw('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public byte[] toEventStream(List<GraphChange> changes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(changes.size() * 96);
+        try (JsonGenerator generator = newGenerator(out)) {
+            for (GraphChange change : changes) {
+                generator.flush();
+                out.write(("id: " + change.version() + "\nevent: " + change.type().value() + "\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                out.write(EVENT_DATA);
+                writeChange(generator, change);
+                generator.writeRaw("\n\n");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private JsonGenerator newGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = jsonFactory.createGenerator(out);
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+
+    private static void writeChange(JsonGenerator generator, GraphChange change) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("version", change.version());
+        generator.writeStringField("type", change.type().value());
+        switch (change.type()) {
+            case NODE -> {
+                generator.writeNumberField("id", change.nodeId());
+                generator.writeStringField("name", change.name());
+            }
+            case NODE_DELETED -> generator.writeNumberField("id", change.nodeId());
+            case CONNECTION, CONNECTION_DROPPED -> {
+                generator.writeArrayFieldStart("nodes");
+                generator.writeNumber(change.nodeId());
+                generator.writeNumber(change.otherNodeId());
+                generator.writeEndArray();
+                if (change.type() == GraphChange.Type.CONNECTION) {
+                    generator.writeNumberField("distance", change.distance());
+                }
+            }
+        }
+        generator.writeEndObject();
+    }
+}
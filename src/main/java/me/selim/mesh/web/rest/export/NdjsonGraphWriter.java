@@ -0,0 +1,119 @@
+package me.selim.mesh.web.rest.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.infrastructure.NodeRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.Iterator;
+
+/**
+ * Writes the whole graph as NDJSON (one JSON document per line) straight from the repository.
+ * <p>
+ * The output starts with an export line holding the cutoff of the export, followed by all the node lines and then
+ * all the connection lines. Each connection is written only once, from its endpoint with the lower id.
+ * <p>
+ * Nothing is collected in memory: the nodes are read from the repository stream and written one by one,
+ * so the memory used is constant regardless of the graph size.
+ * <p>
+ * The export is a fuzzy snapshot: the graph is read without a lock while it keeps changing, so it holds every change
+ * up to the version of the cutoff and some of the changes made after it, a node may be written while its connections
+ * are dropped by its deletion. The cutoff only skips the nodes created after the export started (id greater than the
+ * last node id) and the connections made after the cutoff time. A client becomes consistent by replaying the changes
+ * after the version ({@code /api/graph/changes?since=<version>}) idempotently: a node or a connection line replaces
+ * the one it has, a deletion or a drop removes it if it is there, and the deletion of a node removes its connections.
+ */
+public class NdjsonGraphWriter {
+
+    private final NodeRepository repository;
+    private final JsonFactory jsonFactory;
+
+    public NdjsonGraphWriter(NodeRepository repository, JsonFactory jsonFactory) {
+        this.repository = repository;
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Writes the graph to the given output stream, the stream is not closed.
+     *
+     * @param cutoff the cutoff of the export.
+     * @param out    the output stream to write to.
+     * @throws IOException if writing to the stream fails.
+     */
+    public void write(ExportCutoff cutoff, OutputStream out) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            writeExportLine(generator, cutoff);
+            Iterator<Node> nodes = nodesOf(cutoff);
+            while (nodes.hasNext()) {
+                writeNodeLine(generator, nodes.next());
+            }
+            nodes = nodesOf(cutoff);
+            while (nodes.hasNext()) {
+                Node node = nodes.next();
+                for (Connection connection : node.getConnections()) {
+                    Long otherNodeId = connection.getOtherNodeId(node.getId());
+                    if (otherNodeId != null && node.getId() < otherNodeId && cutoff.includes(otherNodeId, connection)) {
+                        writeConnectionLine(generator, node.getId(), otherNodeId, connection.getDistance());
+                    }
+                }
+            }
+        }
+    }
+
+    private Iterator<Node> nodesOf(ExportCutoff cutoff) {
+        return repository.streamAll().takeWhile(node -> node.getId() <= cutoff.lastNodeId()).iterator();
+    }
+
+    private static void writeExportLine(JsonGenerator generator, ExportCutoff cutoff) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", "export");
+        generator.writeNumberField("version", cutoff.version());
+        generator.writeStringField("snapshot", "fuzzy");
+        generator.writeNumberField("lastNodeId", cutoff.lastNodeId());
+        generator.writeStringField("cutoffTime", cutoff.cutoffTime().toString());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private static void writeNodeLine(JsonGenerator generator, Node node) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", "node");
+        generator.writeNumberField("id", node.getId());
+        generator.writeStringField("name", node.getName());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private static void writeConnectionLine(JsonGenerator generator, long from, long to, int distance) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", "connection");
+        generator.writeArrayFieldStart("nodes");
+        generator.writeNumber(from);
+        generator.writeNumber(to);
+        generator.writeEndArray();
+        generator.writeNumberField("distance", distance);
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    /**
+     * The cutoff of an export.
+     *
+     * @param version    the graph version when the export started, the export holds at least the changes up to it.
+     * @param lastNodeId the highest node id when the export started, nodes with a greater id are skipped.
+     * @param cutoffTime the time the export started, connections made after it are skipped.
+     */
+    public record ExportCutoff(long version, long lastNodeId, Instant cutoffTime) {
+
+        boolean includes(Long otherNodeId, Connection connection) {
+            return otherNodeId <= lastNodeId && !connection.getConnectionTime().isAfter(cutoffTime);
+        }
+    }
+}
@@ -25,7 +25,7 @@ public class ConnectionMapper {
         if (connection == null) {
             return null;
         }
-        List<NodeDto> connectionDto = new ArrayList<>();
+        List<NodeDto> connectionDto = new ArrayList<>(2);
         for (Long nodeId : connection.getNodes()) {
             Optional<Node> nodeOpt = this.nodeRepository.findById(nodeId);
             if (nodeOpt.isEmpty()) {
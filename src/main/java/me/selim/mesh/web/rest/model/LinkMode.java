@@ -0,0 +1,23 @@
+package me.selim.mesh.web.rest.model;
+
+/**
+ * Whether the responses carry hypermedia links. Machine clients which do not follow the links can ask for
+ * plain objects with {@code links=none}, which is cheaper to build and to parse.
+ */
+public enum LinkMode {
+    ALL,
+    NONE;
+
+    /**
+     * @param value the value of the links request parameter, case-insensitive.
+     * @throws IllegalArgumentException if the value is not a link mode.
+     */
+    public static LinkMode of(String value) {
+        for (LinkMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Invalid links parameter: " + value + ", expected all or none");
+    }
+}
@@ -0,0 +1,6 @@
+package me.selim.mesh.web.rest.model;
+
+public enum NodeOrder {
+    ID,
+    NAME
+}
@@ -0,0 +1,107 @@
+package me.selim.mesh.web.rest.page;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor of keyset pagination.
+ * <p>
+ * A cursor holds the sort key of the last element of a page, the next page starts right after that key.
+ * As the key identifies a position in an ordered index instead of an offset, cursors stay stable while
+ * elements are inserted or deleted concurrently.
+ * <p>
+ * Cursors are encoded as URL safe base64, clients must not rely on their content.
+ */
+public sealed interface PageCursor {
+
+    /**
+     * Cursor of nodes ordered by id.
+     */
+    record NodeId(long id) implements PageCursor {
+        @Override
+        public String encode() {
+            return PageCursor.encode("I:" + id);
+        }
+    }
+
+    /**
+     * Cursor of nodes ordered by name, ties ordered by id.
+     */
+    record NodeName(String name, long id) implements PageCursor {
+        @Override
+        public String encode() {
+            return PageCursor.encode("N:" + id + ":" + name);
+        }
+    }
+
+    /**
+     * Cursor of connections ordered by distance, ties ordered by the node pair.
+     */
+    record ConnectionDistance(int distance, long lowerNodeId, long higherNodeId) implements PageCursor {
+        @Override
+        public String encode() {
+            return PageCursor.encode("D:" + distance + ":" + lowerNodeId + ":" + higherNodeId);
+        }
+    }
+
+    /**
+     * Cursor of connections ordered by the name of the node they are listed under, then by distance and other node.
+     */
+    record ConnectionNode(String name, long nodeId, int distance, long otherNodeId) implements PageCursor {
+        @Override
+        public String encode() {
+            return PageCursor.encode("C:" + nodeId + ":" + distance + ":" + otherNodeId + ":" + name);
+        }
+    }
+
+    /**
+     * @return the opaque string representation of this cursor.
+     */
+    String encode();
+
+    /**
+     * Decodes a cursor created by {@link #encode()}.
+     *
+     * @param cursor the opaque cursor.
+     * @return the decoded cursor.
+     * @throws IllegalArgumentException if the cursor is not valid.
+     */
+    static PageCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(":", 5);
+            return switch (parts[0]) {
+                case "I" -> new NodeId(Long.parseLong(parts[1]));
+                case "N" -> new NodeName(decoded.substring(decoded.indexOf(':', 2) + 1), Long.parseLong(parts[1]));
+                case "D" -> new ConnectionDistance(Integer.parseInt(parts[1]), Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+                case "C" -> new ConnectionNode(parts[4], Long.parseLong(parts[1]), Integer.parseInt(parts[2]), Long.parseLong(parts[3]));
+                default -> throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            };
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * Decodes a cursor and checks it is of the expected type.
+     *
+     * @param cursor the opaque cursor, may be null.
+     * @param type   the expected type of the cursor.
+     * @return the decoded cursor, or null if the cursor is null.
+     * @throws IllegalArgumentException if the cursor is not valid or not of the expected type.
+     */
+    static <T extends PageCursor> T decode(String cursor, Class<T> type) {
+        if (cursor == null) {
+            return null;
+        }
+        PageCursor decoded = decode(cursor);
+        if (!type.isInstance(decoded)) {
+            throw new IllegalArgumentException("Cursor does not match the requested order: " + cursor);
+        }
+        return type.cast(decoded);
+    }
+
+    private static String encode(String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+}
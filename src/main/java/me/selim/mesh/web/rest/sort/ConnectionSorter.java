@@ -6,7 +6,12 @@ import me.selim.mesh.web.rest.model.SortType;
 
 import java.util.List;
 
-
+/**
+ * Sorts the connections of the given nodes, every connection is listed once.
+ * <p>
+ * The connection listing of the REST API is served from {@link me.selim.mesh.infrastructure.ConnectionIndex},
+ * which keeps the connections in the same orders incrementally.
+ */
 public interface ConnectionSorter {
     List<Connection> sort(List<Node> allNodes, SortType sortType);
 }
@@ -4,10 +4,7 @@ import me.selim.mesh.domain.Connection;
 import me.selim.mesh.domain.Node;
 import me.selim.mesh.web.rest.model.SortType;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
 
 public class NodeSorter implements ConnectionSorter {
 
@@ -18,14 +15,11 @@ public class NodeSorter implements ConnectionSorter {
 
         List<Node> nodes = new ArrayList<>(allNodes);
         nodes.sort(comparator);
-        List<Connection> orderedConnections = new ArrayList<>();
+        // keeps the first occurrence of each connection in insertion order, with constant time look ups
+        Set<Connection> orderedConnections = new LinkedHashSet<>();
         for (Node node : nodes) {
-            for (Connection nodeConnection : node.getConnections()) {
-                if (!orderedConnections.contains(nodeConnection)) {
-                    orderedConnections.add(nodeConnection);
-                }
-            }
+            orderedConnections.addAll(node.getConnections());
         }
-        return orderedConnections;
+        return new ArrayList<>(orderedConnections);
     }
 }
@@ -0,0 +1,140 @@
+package me.selim.mesh;
+
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.generator.GeneratedMesh;
+import me.selim.mesh.generator.MeshGenerator;
+import me.selim.mesh.generator.MeshShape;
+import me.selim.mesh.generator.MeshSpec;
+import me.selim.mesh.infrastructure.ConnectionIndex;
+import me.selim.mesh.infrastructure.GraphEventBus;
+import me.selim.mesh.infrastructure.GraphEventHandler;
+import me.selim.mesh.infrastructure.GraphProjection;
+import me.selim.mesh.infrastructure.InMemoryNodeRepository;
+import me.selim.mesh.service.InMemoryNodeIdGenerator;
+import me.selim.mesh.service.LockContention;
+import me.selim.mesh.service.NodeServiceImpl;
+import me.selim.mesh.service.ShortestPathFinder;
+import me.selim.mesh.web.rest.mapper.ConnectionMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Allocation budgets of the hot operations, measured with {@link com.sun.management.ThreadMXBean} on a fixed
+ * 32 x 32 grid. An operation is warmed up so it runs compiled, then the bytes allocated by the test thread are
+ * averaged over many calls. A change allocating more per call, e.g. a stream or a copy per connection read, fails the
+ * build before it shows up as GC pauses.
+ * <p>
+ * The budgets leave room for the differences between JVMs, they are about twice the allocation measured on JDK 17.
+ * Lower them when an operation allocates less.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AllocationBudgetTest {
+    private static final Logger log = LoggerFactory.getLogger(AllocationBudgetTest.class);
+
+    private static final int SIDE = 32;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+    private final GraphEventBus eventBus = new GraphEventBus(beans.getBeanProvider(GraphProjection.class),
+            beans.getBeanProvider(GraphEventHandler.class));
+    private final InMemoryNodeIdGenerator idGenerator = new InMemoryNodeIdGenerator();
+    private final InMemoryNodeRepository repository = new InMemoryNodeRepository(idGenerator, eventBus);
+    private final ConnectionIndex connectionIndex = new ConnectionIndex(repository);
+    private final NodeServiceImpl nodeService = new NodeServiceImpl(repository, eventBus, new LockContention());
+    private final ShortestPathFinder pathFinder = new ShortestPathFinder(repository);
+    private final ConnectionMapper connectionMapper = new ConnectionMapper(repository);
+
+    private GeneratedMesh mesh;
+
+    // the results are stored here so the JIT can not drop the allocations of an unused result
+    private volatile Object sink;
+
+    @BeforeAll
+    void setUp() {
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "Thread allocation is not measured on this JVM");
+        threads.setThreadAllocatedMemoryEnabled(true);
+        beans.registerSingleton("connectionIndex", connectionIndex);
+        eventBus.afterSingletonsInstantiated();
+        mesh = new MeshGenerator(repository, nodeService, idGenerator)
+                .generate(MeshSpec.of(SIDE * SIDE, MeshShape.GRID, 1));
+    }
+
+    @AfterAll
+    void tearDown() {
+        eventBus.destroy();
+    }
+
+    @Test
+    @DisplayName("Finding a node by id allocates at most its Optional")
+    void findById() {
+        Long id = mesh.nodeId(SIDE * SIDE / 2);
+
+        assertBudget("findById", 10_000, 32, () -> repository.findById(id));
+    }
+
+    @Test
+    @DisplayName("A route across the grid stays within its allocation budget")
+    void route() {
+        Long start = mesh.nodeId(0);
+        Long end = mesh.nodeId(SIDE * SIDE - 1);
+
+        assertBudget("route", 200, 600_000, () -> pathFinder.findOptimalRoute(start, end));
+    }
+
+    @Test
+    @DisplayName("Connecting and dropping a connection stays within its allocation budget")
+    void connectAndDrop() {
+        Long first = repository.save(new Node("Allocation A")).getId();
+        Long second = repository.save(new Node("Allocation B")).getId();
+
+        assertBudget("connect/drop", 2_000, 3_000, () -> {
+            nodeService.connectNodes(first, second, 10);
+            nodeService.dropConnection(first, second);
+            return first;
+        });
+    }
+
+    @Test
+    @DisplayName("Listing the connections sorted by distance stays within its allocation budget per connection")
+    void sortedListing() {
+        int connections = connectionIndex.size();
+
+        long perListing = assertBudget("sorted listing", 100, 256L * connections,
+                () -> connectionIndex.streamByDistance(true).map(connectionMapper::mapWithNameOnly).toList());
+
+        log.info("Allocation of the sorted listing: {} bytes per connection", perListing / connections);
+    }
+
+    /**
+     * Runs the operation {@code iterations} times to warm it up, then measures it over as many calls.
+     *
+     * @return the bytes allocated per call.
+     */
+    private long assertBudget(String name, int iterations, long budget, Supplier<?> operation) {
+        for (int i = 0; i < iterations; i++) {
+            sink = operation.get();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            sink = operation.get();
+        }
+        long perCall = (threads.getCurrentThreadAllocatedBytes() - before) / iterations;
+        log.info("Allocation of {}: {} bytes per call, budget {}", name, perCall, budget);
+        assertTrue(perCall <= budget, name + " allocates " + perCall + " bytes per call, over its budget of " + budget);
+        return perCall;
+    }
+}
@@ -0,0 +1,91 @@
+package me.selim.mesh.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Calls a running application through its REST API, without the links in the responses.
+ */
+final class HttpLoadTarget implements LoadTarget {
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String baseUrl;
+
+    /**
+     * @param baseUrl the URL of the application, e.g. {@code http://localhost:8080}.
+     */
+    HttpLoadTarget(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    @Override
+    public long createNode(String name) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request("/api/nodes")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(new NodeName(name))))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 201 && response.statusCode() != 200) {
+            throw new IOException("Node " + name + " not created: HTTP " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body()).get("id").asLong();
+    }
+
+    @Override
+    public Outcome readNode(long id) throws IOException, InterruptedException {
+        return call(request("/api/nodes/" + id + "?links=none").GET().build());
+    }
+
+    @Override
+    public Outcome findRoute(long from, long to) throws IOException, InterruptedException {
+        return call(request("/api/nodes/" + from + "/shortestPath/" + to + "?links=none").GET().build());
+    }
+
+    @Override
+    public Outcome topConnections(int k) throws IOException, InterruptedException {
+        return call(request("/api/nodes/connections/top?k=" + k + "&sortType=ASC&links=none").GET().build());
+    }
+
+    @Override
+    public Outcome listConnections() throws IOException, InterruptedException {
+        return call(request("/api/nodes/connections?criteria=DISTANCE&sortType=ASC&links=none").GET().build());
+    }
+
+    @Override
+    public Outcome connect(long first, long second, int distance) throws IOException, InterruptedException {
+        return call(request("/api/nodes/" + first + "/connect/" + second)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"distance\":" + distance + "}"))
+                .build());
+    }
+
+    @Override
+    public Outcome disconnect(long first, long second) throws IOException, InterruptedException {
+        return call(request("/api/nodes/" + first + "/disconnect/" + second).DELETE().build());
+    }
+
+    private Outcome call(HttpRequest request) throws IOException, InterruptedException {
+        int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        // 503: the route search ran out of its limits, shed like a 429
+        if (status < 400) {
+            return Outcome.OK;
+        }
+        return status < 500 || status == 503 ? Outcome.REJECTED : Outcome.ERROR;
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(60));
+    }
+
+    private record NodeName(String name) {
+    }
+}
@@ -0,0 +1,62 @@
+package me.selim.mesh.benchmark;
+
+import me.selim.mesh.infrastructure.ConnectionIndex;
+import me.selim.mesh.infrastructure.NodeRepository;
+import me.selim.mesh.service.NodeService;
+import me.selim.mesh.service.PathFinder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Latency of the services with the workload of {@link MixedClientsThroughputBenchmark}, called in the same JVM without
+ * the web layer, so the difference between the two reports is the cost of HTTP, serialization and request handling.
+ * <p>
+ * Not part of the test task, run it with {@code gradle benchmark}. Writes its report to
+ * {@code build/reports/load/in-process}.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "logging.level.me.selim.mesh=WARN")
+class InProcessLoadBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(InProcessLoadBenchmark.class);
+
+    @Autowired
+    NodeRepository nodeRepository;
+
+    @Autowired
+    NodeService nodeService;
+
+    @Autowired
+    PathFinder pathFinder;
+
+    @Autowired
+    ConnectionIndex connectionIndex;
+
+    @Autowired
+    Environment environment;
+
+    @Test
+    @DisplayName("Latency of the services with concurrent mixed clients")
+    void inProcess() throws Exception {
+        Workload workload = Workload.fromSystemProperties(MixedClientsThroughputBenchmark.DEFAULT_CLIENTS,
+                MixedClientsThroughputBenchmark.sampleNodes(environment));
+
+        LoadReport report = new LoadDriver(new InProcessLoadTarget(nodeRepository, nodeService, pathFinder,
+                connectionIndex), workload).run();
+
+        log.warn("Benchmark: in-process, client threads={}: {} ops/s, errors {}\n{}",
+                VirtualThreads.isSupported() ? "virtual" : "platform", Math.round(report.throughput()),
+                report.errors(), report.format());
+        report.write(Path.of(System.getProperty("benchmark.reports", "build/reports/load"), "in-process"));
+        assertTrue(report.count() > 0, "No operation completed");
+    }
+}
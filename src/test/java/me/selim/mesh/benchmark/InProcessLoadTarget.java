@@ -0,0 +1,82 @@
+package me.selim.mesh.benchmark;
+
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.error.ResourceDoesNotExistException;
+import me.selim.mesh.error.RouteSearchTimeoutException;
+import me.selim.mesh.error.ServiceOverloadedException;
+import me.selim.mesh.infrastructure.ConnectionIndex;
+import me.selim.mesh.infrastructure.NodeRepository;
+import me.selim.mesh.service.NodeService;
+import me.selim.mesh.service.PathFinder;
+
+import java.util.function.Supplier;
+
+/**
+ * Calls the services of the application in the same JVM, without the web layer: the node reads from the repository,
+ * the routes from the {@link PathFinder}, the listings from the connection index and the churn through the
+ * {@link NodeService}.
+ */
+final class InProcessLoadTarget implements LoadTarget {
+
+    private final NodeRepository nodeRepository;
+    private final NodeService nodeService;
+    private final PathFinder pathFinder;
+    private final ConnectionIndex connectionIndex;
+
+    InProcessLoadTarget(NodeRepository nodeRepository, NodeService nodeService, PathFinder pathFinder,
+                        ConnectionIndex connectionIndex) {
+        this.nodeRepository = nodeRepository;
+        this.nodeService = nodeService;
+        this.pathFinder = pathFinder;
+        this.connectionIndex = connectionIndex;
+    }
+
+    @Override
+    public long createNode(String name) {
+        return nodeRepository.save(new Node(name)).getId();
+    }
+
+    @Override
+    public Outcome readNode(long id) {
+        return nodeRepository.findById(id).isPresent() ? Outcome.OK : Outcome.REJECTED;
+    }
+
+    @Override
+    public Outcome findRoute(long from, long to) {
+        return call(() -> pathFinder.findOptimalRoute(from, to));
+    }
+
+    @Override
+    public Outcome topConnections(int k) {
+        return call(() -> connectionIndex.findTopByDistance(true, k));
+    }
+
+    @Override
+    public Outcome listConnections() {
+        return call(() -> connectionIndex.streamByDistance(true).toList());
+    }
+
+    @Override
+    public Outcome connect(long first, long second, int distance) {
+        return call(() -> nodeService.connectNodes(first, second, distance));
+    }
+
+    @Override
+    public Outcome disconnect(long first, long second) {
+        return call(() -> {
+            nodeService.dropConnection(first, second);
+            return null;
+        });
+    }
+
+    // the exceptions the REST layer maps to a client error or to a shed request
+    private static Outcome call(Supplier<?> operation) {
+        try {
+            operation.get();
+            return Outcome.OK;
+        } catch (ResourceDoesNotExistException | IllegalArgumentException | IllegalStateException
+                 | ServiceOverloadedException | RouteSearchTimeoutException e) {
+            return Outcome.REJECTED;
+        }
+    }
+}
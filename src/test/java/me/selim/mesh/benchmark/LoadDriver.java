@@ -0,0 +1,190 @@
+package me.selim.mesh.benchmark;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a {@link Workload} against a {@link LoadTarget} and records the latency of every operation in an HdrHistogram.
+ * <p>
+ * Every client runs on a thread of its own, a virtual thread when the JDK supports them. It creates two nodes, which
+ * its churn operations connect and disconnect, then picks operations at random by their weight until the end of the
+ * run. Only the operations started and completed during the measurement are recorded.
+ * <p>
+ * With a rate, every client starts its operations on a fixed schedule and the latency is measured from the time the
+ * operation should have started, so an operation delayed by a slow one before it counts the delay (coordinated
+ * omission). Without a rate, a client starts an operation as soon as the previous one completed and the latency is
+ * the service time.
+ */
+final class LoadDriver {
+    private static final Logger log = LoggerFactory.getLogger(LoadDriver.class);
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final int TOP_CONNECTIONS = 10;
+    private static final int MAX_DISTANCE = 100;
+
+    private final LoadTarget target;
+    private final Workload workload;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> rejections = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    private volatile boolean measuring;
+    private volatile boolean running = true;
+
+    LoadDriver(LoadTarget target, Workload workload) {
+        this.target = target;
+        this.workload = workload;
+        this.operations = workload.mix().entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toArray(Operation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += workload.mix().get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        for (Operation operation : operations) {
+            recorders.put(operation, new Recorder(SIGNIFICANT_DIGITS));
+            rejections.put(operation, new LongAdder());
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    /**
+     * Runs the clients for the warmup and the duration of the workload.
+     *
+     * @return the operations completed after the warmup.
+     */
+    LoadReport run() throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(workload.clients());
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor();
+        try {
+            for (int i = 0; i < workload.clients(); i++) {
+                int client = i;
+                executor.execute(() -> runClient(client, ready));
+            }
+            // the warmup starts once every client has its nodes
+            ready.await();
+            TimeUnit.NANOSECONDS.sleep(workload.warmup().toNanos());
+            measuring = true;
+            long start = System.nanoTime();
+            TimeUnit.NANOSECONDS.sleep(workload.duration().toNanos());
+            measuring = false;
+            long elapsed = System.nanoTime() - start;
+            // a client may still be recording an operation completed in time, the stats are read once it stopped
+            stop(executor);
+
+            Map<Operation, LoadReport.OperationStats> stats = new EnumMap<>(Operation.class);
+            for (Operation operation : operations) {
+                Histogram histogram = recorders.get(operation).getIntervalHistogram();
+                stats.put(operation, new LoadReport.OperationStats(operation, histogram,
+                        rejections.get(operation).sum(), errors.get(operation).sum()));
+            }
+            return new LoadReport(workload, elapsed, stats);
+        } finally {
+            stop(executor);
+        }
+    }
+
+    private void stop(ExecutorService executor) throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void runClient(int client, CountDownLatch ready) {
+        long first;
+        long second;
+        try {
+            first = target.createNode("Load " + client + "a");
+            second = target.createNode("Load " + client + "b");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            log.warn("Client {} could not create its nodes", client, e);
+            return;
+        } finally {
+            ready.countDown();
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean connected = false;
+        // the clients share the rate, each starts an operation every interval from a random offset
+        long interval = workload.isPaced() ? (long) (workload.clients() * 1e9 / workload.rate()) : 0;
+        long intendedStart = System.nanoTime() + (interval > 0 ? random.nextLong(interval) : 0);
+        while (running) {
+            if (interval > 0) {
+                long wait = intendedStart - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                    continue;
+                }
+            } else {
+                intendedStart = System.nanoTime();
+            }
+            Operation operation = pick(random);
+            boolean recorded = measuring;
+            try {
+                LoadTarget.Outcome outcome = switch (operation) {
+                    case READ -> target.readNode(sampleNode(random));
+                    case ROUTE -> target.findRoute(sampleNode(random), sampleNode(random));
+                    case TOP -> target.topConnections(TOP_CONNECTIONS);
+                    case LIST -> target.listConnections();
+                    case CHURN -> connected ? target.disconnect(first, second)
+                            : target.connect(first, second, random.nextInt(1, MAX_DISTANCE));
+                };
+                // a rejected churn finds the nodes in the other state, e.g. after a failed call: flip to recover
+                if (operation == Operation.CHURN && outcome != LoadTarget.Outcome.ERROR) {
+                    connected = !connected;
+                }
+                // an operation started during the warmup is not measured
+                if (recorded && measuring) {
+                    recorders.get(operation).recordValue(System.nanoTime() - intendedStart);
+                    if (outcome == LoadTarget.Outcome.REJECTED) {
+                        rejections.get(operation).increment();
+                    } else if (outcome == LoadTarget.Outcome.ERROR) {
+                        errors.get(operation).increment();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (recorded && measuring) {
+                    errors.get(operation).increment();
+                }
+            }
+            intendedStart += interval;
+        }
+    }
+
+    private Operation pick(ThreadLocalRandom random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (value >= cumulativeWeights[i]) {
+            i++;
+        }
+        return operations[i];
+    }
+
+    private long sampleNode(ThreadLocalRandom random) {
+        return random.nextLong(1, workload.sampleNodes() + 1);
+    }
+}
@@ -0,0 +1,134 @@
+package me.selim.mesh.benchmark;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadDriverTest {
+
+    @Test
+    @DisplayName("The driver runs the operations of the mix and counts the rejected ones")
+    void run() throws Exception {
+        //given
+        FakeTarget target = new FakeTarget(0);
+        Workload workload = new Workload(Operation.parseMix("read:1,route:1,churn:2"), 4, Duration.ofMillis(100),
+                Duration.ofMillis(500), 0, 20);
+
+        //when
+        LoadReport report = new LoadDriver(target, workload).run();
+
+        //then
+        assertEquals(Set.of(Operation.READ, Operation.ROUTE, Operation.CHURN), report.stats().keySet());
+        assertTrue(report.count() > 0);
+        // the routes of the fake target are all rejected
+        LoadReport.OperationStats routes = report.stats().get(Operation.ROUTE);
+        assertEquals(routes.count(), routes.rejections());
+        assertEquals(0, report.errors());
+        // a client never connects its connected nodes
+        assertEquals(0, target.doubleConnects.get());
+        assertEquals(8, target.nodes.get());
+    }
+
+    @Test
+    @DisplayName("With a rate the latency counts the delay of the operations behind a slow one")
+    void run_paced() throws Exception {
+        //given every read takes 50 ms, a client can complete 20 of them per second
+        FakeTarget target = new FakeTarget(50);
+        Workload workload = new Workload(Operation.parseMix("read:1"), 1, Duration.ZERO, Duration.ofMillis(600), 100, 20);
+
+        //when
+        LoadReport report = new LoadDriver(target, workload).run();
+
+        //then the schedule falls behind, the last reads wait for hundreds of milliseconds
+        LoadReport.OperationStats reads = report.stats().get(Operation.READ);
+        assertTrue(reads.histogram().getMaxValue() > TimeUnit.MILLISECONDS.toNanos(300),
+                "max " + reads.histogram().getMaxValue());
+        assertTrue(reads.histogram().getMinValue() >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    @DisplayName("The report writes a summary and a percentile distribution per operation")
+    void write() throws Exception {
+        //given
+        Path directory = Files.createTempDirectory("load");
+        LoadReport report = new LoadDriver(new FakeTarget(0), new Workload(Operation.parseMix("read:1,top:1"), 1,
+                Duration.ZERO, Duration.ofMillis(100), 0, 20)).run();
+
+        //when
+        report.write(directory);
+
+        //then
+        assertTrue(Files.readString(directory.resolve("summary.txt")).contains("total"));
+        assertTrue(Files.readString(directory.resolve("read.hgrm")).contains("Percentile"));
+        assertTrue(Files.exists(directory.resolve("top.hgrm")));
+    }
+
+    @Test
+    @DisplayName("An invalid mix is rejected")
+    void parseMix_invalid() {
+        assertThrows(IllegalArgumentException.class, () -> Operation.parseMix("read"));
+        assertThrows(IllegalArgumentException.class, () -> Operation.parseMix("write:1"));
+        assertThrows(IllegalArgumentException.class, () -> Operation.parseMix("read:0"));
+    }
+
+    private static class FakeTarget implements LoadTarget {
+        private final long latencyMillis;
+        private final AtomicLong nodes = new AtomicLong();
+        private final AtomicLong doubleConnects = new AtomicLong();
+        private final Map<Long, Boolean> connected = new ConcurrentHashMap<>();
+
+        FakeTarget(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public long createNode(String name) {
+            return nodes.incrementAndGet();
+        }
+
+        @Override
+        public Outcome readNode(long id) throws InterruptedException {
+            TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            return Outcome.OK;
+        }
+
+        @Override
+        public Outcome findRoute(long from, long to) {
+            return Outcome.REJECTED;
+        }
+
+        @Override
+        public Outcome topConnections(int k) {
+            return Outcome.OK;
+        }
+
+        @Override
+        public Outcome listConnections() {
+            return Outcome.OK;
+        }
+
+        @Override
+        public Outcome connect(long first, long second, int distance) {
+            if (Boolean.TRUE.equals(connected.put(first, true))) {
+                doubleConnects.incrementAndGet();
+            }
+            return Outcome.OK;
+        }
+
+        @Override
+        public Outcome disconnect(long first, long second) {
+            connected.put(first, false);
+            return Outcome.OK;
+        }
+    }
+}
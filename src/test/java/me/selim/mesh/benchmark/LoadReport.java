@@ -0,0 +1,98 @@
+package me.selim.mesh.benchmark;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The result of a {@link LoadDriver} run: the throughput and the latency percentiles of every operation.
+ *
+ * @param workload the workload of the run.
+ * @param elapsed  the measured time, in nanoseconds.
+ * @param stats    the operations of the workload.
+ */
+record LoadReport(Workload workload, long elapsed, Map<Operation, OperationStats> stats) {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /**
+     * @param histogram  the latencies of the completed operations, rejected ones included, in nanoseconds.
+     * @param rejections the operations the target refused.
+     * @param errors     the operations failed on the target or in the client, not in the histogram when they threw.
+     */
+    record OperationStats(Operation operation, Histogram histogram, long rejections, long errors) {
+
+        long count() {
+            return histogram.getTotalCount();
+        }
+    }
+
+    long count() {
+        return stats.values().stream().mapToLong(OperationStats::count).sum();
+    }
+
+    long errors() {
+        return stats.values().stream().mapToLong(OperationStats::errors).sum();
+    }
+
+    double throughput() {
+        return count() * 1e9 / elapsed;
+    }
+
+    /**
+     * @return a table with a line per operation and the total.
+     */
+    String format() {
+        StringBuilder table = new StringBuilder(String.format(Locale.ROOT,
+                "clients=%d, rate=%s, duration=%.1fs%n%-6s %10s %10s %9s %9s %9s %9s %9s %9s %8s %7s%n",
+                workload.clients(), workload.isPaced() ? Math.round(workload.rate()) + "/s" : "unbounded",
+                elapsed / 1e9, "op", "count", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "mean ms",
+                "rejected", "errors"));
+        Histogram total = null;
+        for (OperationStats operation : stats.values()) {
+            line(table, operation.operation().name().toLowerCase(Locale.ROOT), operation.histogram(),
+                    operation.rejections(), operation.errors());
+            if (total == null) {
+                total = operation.histogram().copy();
+            } else {
+                total.add(operation.histogram());
+            }
+        }
+        if (total != null) {
+            line(table, "total", total, stats.values().stream().mapToLong(OperationStats::rejections).sum(), errors());
+        }
+        return table.toString();
+    }
+
+    private void line(StringBuilder table, String name, Histogram histogram, long rejections, long errors) {
+        table.append(String.format(Locale.ROOT, "%-6s %10d %10.0f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f %8d %7d%n",
+                name, histogram.getTotalCount(), histogram.getTotalCount() * 1e9 / elapsed,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()), histogram.getMean() / NANOS_PER_MILLI, rejections, errors));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Writes the table to {@code summary.txt} and the percentile distribution of every operation, in milliseconds, to
+     * {@code <operation>.hgrm}, the format of the HdrHistogram plotter.
+     */
+    void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve("summary.txt"), format());
+        for (OperationStats operation : stats.values()) {
+            Path file = directory.resolve(operation.operation().name().toLowerCase(Locale.ROOT) + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+                operation.histogram().outputPercentileDistribution(out, NANOS_PER_MILLI);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package me.selim.mesh.benchmark;
+
+/**
+ * What the load driver calls: the application over HTTP or its services in the same JVM.
+ * <p>
+ * A call returns {@link Outcome#REJECTED} when the application refused it as a client error (a missing node, nodes
+ * already connected, a route search rejected or out of its limits), and {@link Outcome#ERROR} on a server failure. An
+ * exception is counted as an error.
+ */
+interface LoadTarget extends AutoCloseable {
+
+    enum Outcome {
+        OK, REJECTED, ERROR
+    }
+
+    /**
+     * @return the id of the created node.
+     */
+    long createNode(String name) throws Exception;
+
+    Outcome readNode(long id) throws Exception;
+
+    Outcome findRoute(long from, long to) throws Exception;
+
+    Outcome topConnections(int k) throws Exception;
+
+    Outcome listConnections() throws Exception;
+
+    Outcome connect(long first, long second, int distance) throws Exception;
+
+    Outcome disconnect(long first, long second) throws Exception;
+
+    @Override
+    default void close() throws Exception {
+    }
+}
@@ -0,0 +1,34 @@
+package me.selim.mesh.benchmark;
+
+import java.nio.file.Path;
+
+/**
+ * Runs a workload against a running application over HTTP, with {@code gradle loadTest}, see the README for the
+ * parameters. Prints the report and writes it with the latency distributions to {@code benchmark.reports}.
+ */
+public final class LoadTestMain {
+    private static final int SAMPLE_GRAPH_NODES = 20;
+
+    private LoadTestMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("benchmark.target", "http://localhost:8080");
+        Workload workload = Workload.fromSystemProperties(100, SAMPLE_GRAPH_NODES);
+        System.out.printf("Load test of %s: %s, %d clients, warmup %ds, duration %ds, %s threads%n", url,
+                workload.mix(), workload.clients(), workload.warmup().toSeconds(), workload.duration().toSeconds(),
+                VirtualThreads.isSupported() ? "virtual" : "platform");
+        LoadReport report;
+        try (LoadTarget target = new HttpLoadTarget(url)) {
+            report = new LoadDriver(target, workload).run();
+        }
+        System.out.print(report.format());
+        Path reports = Path.of(System.getProperty("benchmark.reports", "build/reports/load"));
+        report.write(reports);
+        System.out.println("Latency distributions written to " + reports.toAbsolutePath());
+        if (report.count() == 0) {
+            System.err.println("No operation completed");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package me.selim.mesh.benchmark;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput of the application with many concurrent clients running a mixed read and write workload over HTTP.
+ * <p>
+ * Not part of the test task, run it with {@code gradle benchmark}, see the README for the parameters. Compare the
+ * platform thread mode with the virtual thread mode ({@code -Pvirtual=true}, JDK 21) to see how request handling
+ * scales with the number of concurrent clients.
+ * <p>
+ * Every client creates two nodes of its own, then runs the {@link Workload#DEFAULT_MIX default mix} of the
+ * {@link LoadDriver}: node reads (40%), shortest paths between sample nodes (20%), top connections (15%), the full
+ * connection listing (5%) and connecting or disconnecting its own nodes (20%). The sample nodes are the 20 nodes of the
+ * sample graph, or the nodes of the mesh generated from {@code sample.shape} and {@code sample.size} ({@code -Pshape}
+ * and {@code -Pnodes}). Writes its report to {@code build/reports/load/http}.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.tomcat.max-connections=20000",
+        "server.tomcat.accept-count=10000",
+        "logging.level.me.selim.mesh=WARN"
+})
+class MixedClientsThroughputBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(MixedClientsThroughputBenchmark.class);
+
+    static final int DEFAULT_CLIENTS = 10_000;
+    private static final int SAMPLE_GRAPH_NODES = 20;
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    Environment environment;
+
+    @Test
+    @DisplayName("Throughput with concurrent mixed clients")
+    void mixedClients() throws Exception {
+        Workload workload = Workload.fromSystemProperties(DEFAULT_CLIENTS, sampleNodes(environment));
+
+        LoadReport report;
+        try (LoadTarget target = new HttpLoadTarget("http://localhost:" + port)) {
+            report = new LoadDriver(target, workload).run();
+        }
+
+        long count = report.count();
+        log.warn("Benchmark: server threads={}, client threads={}, clients={}, duration={}s: {} ops/s, " +
+                        "mean latency {} ms, max latency {} ms, rejections {}, errors {}\n{}",
+                environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false) && VirtualThreads.isSupported()
+                        ? "virtual" : "platform",
+                VirtualThreads.isSupported() ? "virtual" : "platform",
+                workload.clients(), workload.duration().toSeconds(), Math.round(report.throughput()),
+                Math.round(mean(report) / 1_000_000), max(report) / 1_000_000,
+                report.stats().values().stream().mapToLong(LoadReport.OperationStats::rejections).sum(),
+                report.errors(), report.format());
+        report.write(Path.of(System.getProperty("benchmark.reports", "build/reports/load"), "http"));
+        assertTrue(count > 0, "No operation completed");
+    }
+
+    /**
+     * The generated mesh takes the first ids of a fresh application, as the sample graph.
+     */
+    static int sampleNodes(Environment environment) {
+        return environment.getProperty("sample.shape") == null ? SAMPLE_GRAPH_NODES
+                : environment.getProperty("sample.size", Integer.class, 1000);
+    }
+
+    private static double mean(LoadReport report) {
+        long count = report.count();
+        return count == 0 ? 0 : report.stats().values().stream()
+                .mapToDouble(stats -> stats.histogram().getMean() * stats.count())
+                .sum() / count;
+    }
+
+    private static long max(LoadReport report) {
+        return report.stats().values().stream().mapToLong(stats -> stats.histogram().getMaxValue()).max().orElse(0);
+    }
+}
@@ -0,0 +1,53 @@
+package me.selim.mesh.benchmark;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The operations of a load test workload.
+ */
+enum Operation {
+    /**
+     * Reads a random sample node.
+     */
+    READ,
+    /**
+     * Finds the shortest path between two random sample nodes.
+     */
+    ROUTE,
+    /**
+     * Lists the 10 shortest connections.
+     */
+    TOP,
+    /**
+     * Lists every connection by distance.
+     */
+    LIST,
+    /**
+     * Connects the two nodes of the client, or disconnects them when they are connected.
+     */
+    CHURN;
+
+    /**
+     * @param mix the weights of the operations, e.g. {@code read:40,route:20,churn:40}, the missing operations are not run.
+     */
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry '" + entry + "', expected <operation>:<weight>");
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("The weight of " + parts[0] + " is negative");
+            }
+            weights.put(valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("The mix '" + mix + "' runs no operation");
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,33 @@
+package me.selim.mesh.benchmark;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual thread executors for the benchmarks. The project is compiled for JDK 17, so the JDK 21 API is called
+ * reflectively, on older JDKs a platform thread per task is used instead.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    static boolean isSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    /**
+     * @return an executor starting a new virtual thread for each task, or a platform thread if virtual threads are not supported.
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        if (!isSupported()) {
+            return Executors.newCachedThreadPool();
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Virtual threads are not available", e);
+        }
+    }
+}
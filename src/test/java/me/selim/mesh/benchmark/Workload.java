@@ -0,0 +1,57 @@
+package me.selim.mesh.benchmark;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The load a {@link LoadDriver} puts on a target.
+ *
+ * @param mix         the weight of every operation.
+ * @param clients     the number of concurrent clients, each with a thread of its own.
+ * @param warmup      the time the clients run before the measurement.
+ * @param duration    the time of the measurement.
+ * @param rate        the operations per second of all clients together, or 0 for clients starting an operation as soon as
+ *                    the previous one completed.
+ * @param sampleNodes the reads and routes pick nodes {@code 1} to {@code sampleNodes}: the nodes of the sample graph or
+ *                    of the generated mesh of a fresh application.
+ */
+record Workload(Map<Operation, Integer> mix, int clients, Duration warmup, Duration duration, double rate,
+                int sampleNodes) {
+
+    static final String DEFAULT_MIX = "read:40,route:20,top:15,list:5,churn:20";
+
+    Workload {
+        mix = Collections.unmodifiableMap(new EnumMap<>(mix));
+        if (clients < 1) {
+            throw new IllegalArgumentException("At least one client is required");
+        }
+        if (rate < 0) {
+            throw new IllegalArgumentException("The rate is negative");
+        }
+        if (sampleNodes < 1) {
+            throw new IllegalArgumentException("At least one sample node is required");
+        }
+    }
+
+    /**
+     * The workload of the {@code benchmark.*} system properties: {@code mix}, {@code clients}, {@code warmup} and
+     * {@code seconds}, {@code rate} and {@code nodes}.
+     *
+     * @param defaultClients     the clients when {@code benchmark.clients} is not set.
+     * @param defaultSampleNodes the sample nodes when {@code benchmark.nodes} is not set.
+     */
+    static Workload fromSystemProperties(int defaultClients, int defaultSampleNodes) {
+        return new Workload(Operation.parseMix(System.getProperty("benchmark.mix", DEFAULT_MIX)),
+                Integer.getInteger("benchmark.clients", defaultClients),
+                Duration.ofSeconds(Integer.getInteger("benchmark.warmup", 5)),
+                Duration.ofSeconds(Integer.getInteger("benchmark.seconds", 30)),
+                Double.parseDouble(System.getProperty("benchmark.rate", "0")),
+                Integer.getInteger("benchmark.nodes", defaultSampleNodes));
+    }
+
+    boolean isPaced() {
+        return rate > 0;
+    }
+}
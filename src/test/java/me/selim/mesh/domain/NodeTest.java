@@ -3,7 +3,9 @@ package me.selim.mesh.domain;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -117,4 +119,99 @@ class NodeTest {
         assertDoesNotThrow(() -> node1.addConnection(connection));
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("The connections can be read while another thread changes them")
+    void reading_connections_while_they_change_should_not_throw_exception() throws Exception {
+        //given
+        Node node = new Node(1L, "A", Set.of());
+        Node other = new Node(2L, "B", Set.of());
+        Connection connection = new Connection(1L, 2L, 5);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            while (running.get()) {
+                node.addConnection(connection);
+                node.dropConnection(connection);
+            }
+        });
+        writer.start();
+
+        //when
+        try {
+            for (int i = 0; i < 100_000; i++) {
+                assertDoesNotThrow(() -> {
+                    node.getConnections();
+                    node.isConnectedTo(other);
+                    node.getConnectionTo(other);
+                });
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+
+        //then
+        assertTrue(node.hasEmptySlot());
+    }
+
+    @Test
+    @DisplayName("The connections are ordered by distance, the connections of the same distance in the order they were made")
+    void connections_should_be_ordered_by_distance() {
+        //given
+        Node node = new Node(1L, "A", Set.of());
+        Connection third = new Connection(1L, 2L, 30);
+        Connection first = new Connection(1L, 3L, 10);
+        Connection secondMadeFirst = new Connection(1L, 4L, 20);
+        Connection secondMadeLast = new Connection(1L, 5L, 20);
+
+        //when
+        node.addConnection(third);
+        node.addConnection(secondMadeFirst);
+        node.addConnection(first);
+        node.addConnection(secondMadeLast);
+        List<Connection> before = node.getConnections();
+        assertFalse(node.addConnection(new Connection(2L, 1L, 99)));
+        node.dropConnection(secondMadeFirst);
+
+        //then
+        assertEquals(List.of(first, secondMadeFirst, secondMadeLast, third), before);
+        assertEquals(List.of(first, secondMadeLast, third), node.getConnections());
+        assertEquals(30, node.getConnectionTo(new Node(2L, "B", Set.of())).orElseThrow().getDistance());
+        assertThrows(UnsupportedOperationException.class, () -> node.getConnections().add(first));
+    }
+
+    @Test
+    @DisplayName("A node is not connected to itself")
+    void node_should_not_be_connected_to_itself() {
+        Node node = new Node(1L, "A", Set.of());
+        node.addConnection(new Connection(1L, 2L, 5));
+
+        assertFalse(node.isConnectedTo(node));
+        assertTrue(node.getConnectionTo(node).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Nodes are ordered by their sort keys as compareToIgnoreCase orders their names")
+    void sort_keys_order_as_compare_to_ignore_case() {
+        List<String> names = List.of("", "a", "A", "ab", "aB", "Ab", "b", "Node 1", "node 10", "NODE 2", "z", "Z", "_",
+                "é", "É", "ß", "ẞ", "ÿ", "Ÿ", "µ", "Μ", "İ", "i", "ı", "I", "Σ", "σ", "ς", "\uE000", "\uFFFD",
+                "\uD801\uDC00", "\uD801\uDC28", "\uD83D\uDE00", "a\uD83D\uDE00", "Ǆ", "ǅ", "ǆ");
+        for (String first : names) {
+            for (String second : names) {
+                assertEquals(Integer.signum(first.compareToIgnoreCase(second)),
+                        Integer.signum(new Node(first).compareTo(new Node(second))), first + " and " + second);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("A name starts with a prefix ignoring case")
+    void name_prefix_ignores_case() {
+        Node node = new Node("Straße 7");
+
+        assertTrue(node.hasNamePrefix(Node.sortKeyOf("")));
+        assertTrue(node.hasNamePrefix(Node.sortKeyOf("sTRA")));
+        assertTrue(node.hasNamePrefix(Node.sortKeyOf("STRAẞE 7")));
+        assertFalse(node.hasNamePrefix(Node.sortKeyOf("Strasse")));
+        assertFalse(node.hasNamePrefix(Node.sortKeyOf("Straße 71")));
+    }
+}
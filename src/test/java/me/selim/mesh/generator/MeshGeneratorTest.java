@@ -0,0 +1,76 @@
+package me.selim.mesh.generator;
+
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.events.ConnectionEstablishedEvent;
+import me.selim.mesh.infrastructure.GraphEventBus;
+import me.selim.mesh.infrastructure.InMemoryNodeRepository;
+import me.selim.mesh.service.InMemoryNodeIdGenerator;
+import me.selim.mesh.service.LockContention;
+import me.selim.mesh.service.NodeServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MeshGeneratorTest {
+
+    GraphEventBus eventBus = mock(GraphEventBus.class);
+
+    InMemoryNodeIdGenerator idGenerator = new InMemoryNodeIdGenerator();
+
+    InMemoryNodeRepository repository = new InMemoryNodeRepository(idGenerator, eventBus);
+
+    NodeServiceImpl nodeService = new NodeServiceImpl(repository, eventBus, new LockContention());
+
+    MeshGenerator generator = new MeshGenerator(repository, nodeService, idGenerator);
+
+    @Test
+    @DisplayName("The mesh is written to the repository with consecutive ids and the connections of its topology")
+    void generate() {
+        //given
+        MeshSpec spec = MeshSpec.of(2500, MeshShape.GEOMETRIC, 5);
+        MeshTopology topology = MeshTopology.build(spec);
+
+        //when
+        GeneratedMesh mesh = generator.generate(spec);
+
+        //then
+        assertEquals(2500, mesh.nodes());
+        assertEquals(topology.edgeCount(), mesh.connections());
+        assertEquals(2500, repository.findAll().size());
+        for (int edge = 0; edge < topology.edgeCount(); edge++) {
+            Node first = repository.findById(mesh.nodeId(topology.first(edge))).orElseThrow();
+            Node second = repository.findById(mesh.nodeId(topology.second(edge))).orElseThrow();
+            Connection connection = first.getConnectionTo(second).orElseThrow();
+            assertEquals(topology.distance(edge), connection.getDistance());
+            assertTrue(second.isConnectedTo(first));
+        }
+        for (int index = 0; index < mesh.nodes(); index++) {
+            Node node = repository.findById(mesh.nodeId(index)).orElseThrow();
+            assertEquals(MeshGenerator.NAME_PREFIX + node.getId(), node.getName());
+            assertEquals(topology.degree(index), node.getConnections().size());
+        }
+        // every connection goes through the service, the projections see it
+        verify(eventBus, times(topology.edgeCount())).apply(any(ConnectionEstablishedEvent.class));
+    }
+
+    @Test
+    @DisplayName("A node created after a mesh does not reuse the ids of the mesh")
+    void generate_ids() {
+        //given
+        GeneratedMesh mesh = generator.generate(MeshSpec.of(100, MeshShape.SCALE_FREE, 1));
+
+        //when
+        Node node = repository.save(new Node("after"));
+
+        //then
+        assertTrue(node.getId() > mesh.nodeId(mesh.nodes() - 1));
+        List<Node> nodes = repository.findAll();
+        assertEquals(101, nodes.size());
+    }
+}
@@ -0,0 +1,138 @@
+package me.selim.mesh.generator;
+
+import me.selim.mesh.domain.Node;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeshTopologyTest {
+
+    @ParameterizedTest
+    @EnumSource(MeshShape.class)
+    @DisplayName("Every shape connects distinct pairs of nodes once, with at most 4 connections per node")
+    void build_slots(MeshShape shape) {
+        //given
+        MeshSpec spec = MeshSpec.of(5000, shape, 7);
+
+        //when
+        MeshTopology topology = MeshTopology.build(spec);
+
+        //then
+        int[] degrees = new int[topology.size()];
+        Set<Long> pairs = new HashSet<>();
+        for (int edge = 0; edge < topology.edgeCount(); edge++) {
+            int first = topology.first(edge);
+            int second = topology.second(edge);
+            assertNotEquals(first, second);
+            assertTrue(pairs.add((long) Math.min(first, second) << 32 | Math.max(first, second)));
+            degrees[first]++;
+            degrees[second]++;
+            assertTrue(topology.distance(edge) >= MeshSpec.DEFAULT_MIN_DISTANCE);
+            assertTrue(topology.distance(edge) <= MeshSpec.DEFAULT_MAX_DISTANCE);
+        }
+        for (int node = 0; node < topology.size(); node++) {
+            assertTrue(degrees[node] <= Node.MAX_CONNECTION_COUNT);
+            assertEquals(degrees[node], topology.degree(node));
+        }
+        assertTrue(topology.edgeCount() > topology.size() / 2, shape + " has " + topology.edgeCount() + " edges");
+    }
+
+    @ParameterizedTest
+    @EnumSource(MeshShape.class)
+    @DisplayName("The same specification builds the same topology")
+    void build_deterministic(MeshShape shape) {
+        //given
+        MeshSpec spec = new MeshSpec(2000, shape, 11, DistanceDistribution.EXPONENTIAL, 1, 100, 16);
+
+        //when
+        MeshTopology first = MeshTopology.build(spec);
+        MeshTopology second = MeshTopology.build(spec);
+        MeshTopology otherSeed = MeshTopology.build(new MeshSpec(2000, shape, 12, DistanceDistribution.EXPONENTIAL, 1, 100, 16));
+
+        //then
+        assertEquals(first.edgeCount(), second.edgeCount());
+        boolean differs = first.edgeCount() != otherSeed.edgeCount();
+        for (int edge = 0; edge < first.edgeCount(); edge++) {
+            assertEquals(first.first(edge), second.first(edge));
+            assertEquals(first.second(edge), second.second(edge));
+            assertEquals(first.distance(edge), second.distance(edge));
+            differs |= edge >= otherSeed.edgeCount() || first.distance(edge) != otherSeed.distance(edge);
+        }
+        assertTrue(differs);
+    }
+
+    @Test
+    @DisplayName("A grid connects every node to its right and lower neighbours")
+    void build_grid() {
+        //when
+        MeshTopology topology = MeshTopology.build(MeshSpec.of(9, MeshShape.GRID, 1));
+
+        //then
+        assertEquals(12, topology.edgeCount());
+        assertEquals(2, topology.degree(0));
+        assertEquals(4, topology.degree(4));
+        assertEquals(2, topology.degree(8));
+    }
+
+    @Test
+    @DisplayName("Clusters are rings bridged to the next cluster, the last to the first")
+    void build_ringOfClusters() {
+        //when
+        MeshTopology topology = MeshTopology.build(new MeshSpec(12, MeshShape.RING_OF_CLUSTERS, 1,
+                DistanceDistribution.CONSTANT, 3, 3, 4));
+
+        //then
+        Set<String> edges = new HashSet<>();
+        for (int edge = 0; edge < topology.edgeCount(); edge++) {
+            edges.add(Math.min(topology.first(edge), topology.second(edge)) + "-"
+                    + Math.max(topology.first(edge), topology.second(edge)));
+            assertEquals(3, topology.distance(edge));
+        }
+        // the rings and chords of the first cluster, then the bridges
+        assertTrue(edges.containsAll(Set.of("0-1", "1-2", "2-3", "0-3", "0-2")));
+        assertTrue(edges.containsAll(Set.of("3-4", "7-8", "0-11")));
+        assertEquals(3 * 5 + 3, topology.edgeCount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(MeshShape.class)
+    @DisplayName("The connections of a round never share a node")
+    void rounds(MeshShape shape) {
+        //given
+        MeshTopology topology = MeshTopology.build(MeshSpec.of(3000, shape, 3));
+
+        //when
+        MeshTopology.Rounds rounds = topology.rounds();
+
+        //then
+        assertTrue(rounds.count() <= 2 * Node.MAX_CONNECTION_COUNT - 1);
+        assertEquals(topology.edgeCount(), rounds.starts()[rounds.count()]);
+        Set<Integer> edges = new HashSet<>();
+        for (int round = 0; round < rounds.count(); round++) {
+            Set<Integer> nodes = new HashSet<>();
+            for (int i = rounds.starts()[round]; i < rounds.starts()[round + 1]; i++) {
+                int edge = rounds.order()[i];
+                assertTrue(edges.add(edge));
+                assertTrue(nodes.add(topology.first(edge)));
+                assertTrue(nodes.add(topology.second(edge)));
+            }
+        }
+        assertEquals(topology.edgeCount(), edges.size());
+    }
+
+    @Test
+    @DisplayName("Invalid specifications are rejected")
+    void spec_invalid() {
+        assertThrows(IllegalArgumentException.class, () -> MeshSpec.of(0, MeshShape.GRID, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new MeshSpec(10, MeshShape.GRID, 1, DistanceDistribution.UNIFORM, 5, 4, 32));
+        assertThrows(IllegalArgumentException.class,
+                () -> new MeshSpec(10, MeshShape.RING_OF_CLUSTERS, 1, DistanceDistribution.UNIFORM, 1, 4, 2));
+    }
+}
@@ -9,8 +9,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 
 import java.util.concurrent.TimeUnit;
 
@@ -22,9 +21,9 @@ import static org.mockito.Mockito.verify;
 class AsyncConnectionEventListenerTest {
 
     @Autowired
-    private ApplicationEventPublisher publisher;
+    private GraphEventBus publisher;
 
-    @MockBean
+    @SpyBean
     private AsyncNodeEventListener listener;
 
     @Test
@@ -32,7 +31,7 @@ class AsyncConnectionEventListenerTest {
         Node node = new Node("N1_SOME_45644");
         final NodeCreatedEvent event = new NodeCreatedEvent(this, node);
 
-        publisher.publishEvent(event);
+        publisher.publish(event);
         // Wait for the async method to complete using awaitility
         Awaitility.await().atMost(1, TimeUnit.SECONDS).untilAsserted(() ->
                 verify(listener, times(1)).handleNewNodeCreation(event)
@@ -43,7 +42,7 @@ class AsyncConnectionEventListenerTest {
     void handleNodeDeleted() {
         Node node = new Node("N1_SOME_456432");
         NodeDeletedEvent event = new NodeDeletedEvent(this, node);
-        publisher.publishEvent(event);
+        publisher.publish(event);
 
         // Wait for the async method to complete using awaitility
         Awaitility.await().atMost(1, TimeUnit.SECONDS).untilAsserted(() ->
@@ -8,8 +8,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 
 import java.util.concurrent.TimeUnit;
 
@@ -21,9 +20,9 @@ import static org.mockito.Mockito.verify;
 class AsyncNodeEventListenerTest {
 
     @Autowired
-    private ApplicationEventPublisher publisher;
+    private GraphEventBus publisher;
 
-    @MockBean
+    @SpyBean
     private AsyncConnectionEventListener listener;
 
     @Test
@@ -32,7 +31,7 @@ class AsyncNodeEventListenerTest {
         Connection connection = new Connection(1L, 2L, 10);
         ConnectionEstablishedEvent event = new ConnectionEstablishedEvent(this, connection);
 
-        publisher.publishEvent(event);
+        publisher.publish(event);
         // Wait for the async method to complete using awaitility
         Awaitility.await().atMost(1, TimeUnit.SECONDS).untilAsserted(() ->
                 verify(listener, times(1)).handleConnectionEstablished(event)
@@ -0,0 +1,140 @@
+package me.selim.mesh.infrastructure;
+
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.events.ConnectionDropEvent;
+import me.selim.mesh.events.ConnectionEstablishedEvent;
+import me.selim.mesh.events.NodeDeletedEvent;
+import me.selim.mesh.web.rest.model.SortType;
+import me.selim.mesh.web.rest.sort.NodeSorter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ConnectionIndexTest {
+
+    @Mock
+    NodeRepository nodeRepository;
+
+    private ConnectionIndex index;
+    Connection c1_2 = new Connection(1L, 2L, 10);
+    Connection c1_3 = new Connection(1L, 3L, 20);
+    Connection c2_3 = new Connection(2L, 3L, 5);
+    Connection c2_4 = new Connection(4L, 2L, 5);
+    Connection c3_4 = new Connection(3L, 4L, 15);
+
+    Node node1;
+    Node node2;
+    Node node3;
+    Node node4;
+
+    @BeforeEach
+    void setUp() {
+        // names are not in id order, to see the node index is ordered by name
+        node1 = new Node(1L, "D", Set.of(c1_2, c1_3));
+        node2 = new Node(2L, "b", Set.of(c2_3, c1_2, c2_4));
+        node3 = new Node(3L, "C", Set.of(c1_3, c2_3, c3_4));
+        node4 = new Node(4L, "A", Set.of(c2_4, c3_4));
+        for (Node node : List.of(node1, node2, node3, node4)) {
+            when(nodeRepository.findById(node.getId())).thenReturn(Optional.of(node));
+        }
+
+        index = new ConnectionIndex(nodeRepository);
+        for (Connection connection : List.of(c1_2, c1_3, c2_3, c2_4, c3_4)) {
+            index.onConnectionEstablished(new ConnectionEstablishedEvent(this, connection));
+        }
+    }
+
+    @Test
+    @DisplayName("Connections are ordered by distance, then by node pair")
+    void findPageByDistance() {
+        assertEquals(List.of(c2_3, c2_4, c1_2, c3_4, c1_3), index.findPageByDistance(true, null, 10));
+        assertEquals(List.of(c1_3, c3_4, c1_2, c2_4, c2_3), index.findPageByDistance(false, null, 10));
+        assertEquals(List.of(c1_3, c3_4, c1_2, c2_4, c2_3), index.streamByDistance(false).toList());
+    }
+
+    @Test
+    @DisplayName("Pages start after the given connection")
+    void findPageByDistance_afterConnection() {
+        List<Connection> firstPage = index.findPageByDistance(true, null, 2);
+        assertEquals(List.of(c2_3, c2_4), firstPage);
+
+        List<Connection> secondPage = index.findPageByDistance(true, firstPage.get(1), 2);
+        assertEquals(List.of(c1_2, c3_4), secondPage);
+
+        // a connection with the same key, but another instance
+        Connection after = new Connection(3L, 4L, 15);
+        assertEquals(List.of(c1_2, c2_4, c2_3), index.findPageByDistance(false, after, 10));
+    }
+
+    @Test
+    @DisplayName("Top K returns the K shortest or the K longest connections")
+    void findTopByDistance() {
+        assertEquals(List.of(c2_3, c2_4), index.findTopByDistance(true, 2));
+        assertEquals(List.of(c1_3, c3_4, c1_2), index.findTopByDistance(false, 3));
+        assertEquals(5, index.findTopByDistance(false, 50).size());
+    }
+
+    @Test
+    @DisplayName("Distance range returns the connections in the closed range")
+    void findPageByDistanceRange() {
+        assertEquals(List.of(c2_3, c2_4, c1_2), index.findPageByDistanceRange(5, 10, true, null, 10));
+        assertEquals(List.of(c3_4, c1_2), index.findPageByDistanceRange(6, 15, false, null, 10));
+        assertEquals(List.of(c2_4, c1_2), index.findPageByDistanceRange(5, 10, true, c2_3, 2));
+        assertEquals(List.of(), index.findPageByDistanceRange(21, 100, true, null, 10));
+
+        assertThrows(IllegalArgumentException.class, () -> index.findPageByDistanceRange(10, 5, true, null, 10));
+        assertThrows(IllegalArgumentException.class, () -> index.findPageByDistanceRange(5, 10, true, c1_3, 10));
+    }
+
+    @Test
+    @DisplayName("Connections are ordered by node name, in the same order as the NodeSorter")
+    void streamByNode() {
+        List<Node> nodes = List.of(node1, node2, node3, node4);
+
+        // A: c2_4, c3_4, b: c2_3, c1_2, C: c1_3
+        assertEquals(List.of(c2_4, c3_4, c2_3, c1_2, c1_3), index.streamByNode(true).toList());
+        assertEquals(new NodeSorter().sort(nodes, SortType.ASC), index.streamByNode(true).toList());
+        // D: c1_3, c1_2, C: c3_4, c2_3, b: c2_4
+        assertEquals(List.of(c1_3, c1_2, c3_4, c2_3, c2_4), index.streamByNode(false).toList());
+    }
+
+    @Test
+    @DisplayName("Pages by node start after the given endpoint")
+    void findPageByNode() {
+        List<ConnectionIndex.Endpoint> firstPage = index.findPageByNode(true, null, 3);
+        assertEquals(List.of(c2_4, c3_4, c2_3), firstPage.stream().map(ConnectionIndex.Endpoint::connection).toList());
+        assertEquals(node2, firstPage.get(2).node());
+
+        List<ConnectionIndex.Endpoint> secondPage = index.findPageByNode(true, firstPage.get(2), 3);
+        assertEquals(List.of(c1_2, c1_3), secondPage.stream().map(ConnectionIndex.Endpoint::connection).toList());
+    }
+
+    @Test
+    @DisplayName("Dropped connections and connections of deleted nodes are removed from the index")
+    void removeConnections() {
+        index.onConnectionDropped(new ConnectionDropEvent(this, c1_2));
+        assertEquals(4, index.size());
+        assertEquals(List.of(c2_4, c3_4, c2_3, c1_3), index.streamByNode(true).toList());
+
+        when(nodeRepository.findById(3L)).thenReturn(Optional.empty());
+        index.onNodeDeleted(new NodeDeletedEvent(this, node3));
+        assertEquals(List.of(c2_4), index.findPageByDistance(true, null, 10));
+        assertEquals(List.of(c2_4), index.streamByNode(false).toList());
+    }
+}
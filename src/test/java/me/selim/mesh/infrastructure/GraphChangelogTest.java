@@ -0,0 +1,178 @@
+package me.selim.mesh.infrastructure;
+
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.error.ChangesExpiredException;
+import me.selim.mesh.events.ConnectionDropEvent;
+import me.selim.mesh.events.ConnectionEstablishedEvent;
+import me.selim.mesh.events.NodeCreatedEvent;
+import me.selim.mesh.events.NodeDeletedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphChangelogTest {
+
+    @TempDir
+    Path spillDirectory;
+
+    GraphVersion graphVersion = new GraphVersion();
+
+    GraphChangelog changelog;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (changelog != null) {
+            changelog.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Every change is recorded under the graph version it produced")
+    void read() throws Exception {
+        //given
+        changelog = newChangelog(16, 0);
+        Node node1 = new Node(1L, "A", Set.of());
+        Connection connection = new Connection(2L, 1L, 7);
+
+        //when
+        changelog.apply(new NodeCreatedEvent(this, node1));
+        changelog.apply(new ConnectionEstablishedEvent(this, connection));
+        changelog.apply(new ConnectionDropEvent(this, connection));
+        changelog.apply(new NodeDeletedEvent(this, node1));
+
+        //then
+        assertEquals(4, graphVersion.current());
+        assertEquals(List.of(
+                new GraphChange(1, GraphChange.Type.NODE, 1L, "A", 0, 0),
+                new GraphChange(2, GraphChange.Type.CONNECTION, 1L, null, 2L, 7),
+                new GraphChange(3, GraphChange.Type.CONNECTION_DROPPED, 1L, null, 2L, 0),
+                new GraphChange(4, GraphChange.Type.NODE_DELETED, 1L, null, 0, 0)), changelog.read(0, 10));
+        assertEquals(List.of(3L), versions(changelog.read(2, 1)));
+        assertTrue(changelog.read(4, 10).isEmpty());
+        assertThrows(ChangesExpiredException.class, () -> changelog.read(5, 10));
+    }
+
+    @Test
+    @DisplayName("Changes evicted from memory are read from the spill, changes deleted from the spill need a resync")
+    void read_spilled() throws Exception {
+        //given
+        changelog = newChangelog(4, 200, 50);
+
+        //when
+        for (long id = 1; id <= 30; id++) {
+            changelog.apply(new NodeCreatedEvent(this, new Node(id, "N" + id, Set.of())));
+            changelog.onEvent(null, id, true);
+        }
+
+        //then
+        // 4 changes in memory, a segment holds 3 changes of 21 or 22 bytes, the 200 bytes hold the last 3 segments
+        assertEquals(LongStream.rangeClosed(22, 30).boxed().toList(), versions(changelog.read(21, 100)));
+        assertEquals(List.of(23L, 24L), versions(changelog.read(22, 2)));
+        assertTrue(changelog.spillBytes() <= 200);
+        ChangesExpiredException e = assertThrows(ChangesExpiredException.class, () -> changelog.read(5, 100));
+        assertEquals(30, e.getCurrentVersion());
+        assertEquals(changelog.epoch(), e.getEpoch());
+    }
+
+    @Test
+    @DisplayName("Without spill, the changes evicted from memory need a resync")
+    void read_noSpill() throws Exception {
+        //given
+        changelog = newChangelog(4, 0);
+
+        //when
+        for (long id = 1; id <= 6; id++) {
+            changelog.apply(new NodeCreatedEvent(this, new Node(id, "N" + id, Set.of())));
+        }
+
+        //then
+        assertEquals(List.of(3L, 4L, 5L, 6L), versions(changelog.read(2, 10)));
+        assertThrows(ChangesExpiredException.class, () -> changelog.read(1, 10));
+    }
+
+    @Test
+    @DisplayName("A waiter is called once the changes after its version are handled")
+    void awaitChange() throws Exception {
+        //given
+        changelog = newChangelog(16, 1024);
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger cancelledCalls = new AtomicInteger();
+        changelog.awaitChange(0, calls::incrementAndGet);
+        Runnable stopWaiting = changelog.awaitChange(0, cancelledCalls::incrementAndGet);
+
+        //when
+        stopWaiting.run();
+        changelog.apply(new NodeCreatedEvent(this, new Node(1L, "A", Set.of())));
+        changelog.onEvent(null, 0, false);
+
+        //then
+        assertEquals(0, calls.get());
+
+        //when
+        changelog.onEvent(null, 0, true);
+        changelog.onEvent(null, 1, true);
+
+        //then
+        assertEquals(1, calls.get());
+        assertEquals(0, cancelledCalls.get());
+        // a change after the version is already handled
+        changelog.awaitChange(0, calls::incrementAndGet);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("Versions of another epoch need a resync")
+    void checkEpoch() throws Exception {
+        changelog = newChangelog(16, 0);
+        changelog.checkEpoch(null);
+        changelog.checkEpoch(changelog.epoch());
+        assertThrows(ChangesExpiredException.class, () -> changelog.checkEpoch("other"));
+    }
+
+    @Test
+    @DisplayName("The segments of the spill are deleted when the changelog is destroyed")
+    void destroy() throws Exception {
+        //given
+        changelog = newChangelog(4, 1024);
+        changelog.apply(new NodeCreatedEvent(this, new Node(1L, "A", Set.of())));
+        changelog.onEvent(null, 0, true);
+        assertTrue(changelog.spillBytes() > 0);
+
+        //when
+        changelog.destroy();
+
+        //then
+        try (var files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private GraphChangelog newChangelog(int capacity, long maxSpillBytes) throws Exception {
+        return newChangelog(capacity, maxSpillBytes, 1024);
+    }
+
+    private GraphChangelog newChangelog(int capacity, long maxSpillBytes, long segmentBytes) throws Exception {
+        GraphChangelog graphChangelog = new GraphChangelog(graphVersion);
+        graphChangelog.setCapacity(capacity);
+        graphChangelog.setMaxSpillBytes(maxSpillBytes);
+        graphChangelog.setSegmentBytes(segmentBytes);
+        graphChangelog.setSpillDirectory(spillDirectory);
+        graphChangelog.afterPropertiesSet();
+        return graphChangelog;
+    }
+
+    private static List<Long> versions(List<GraphChange> changes) {
+        return changes.stream().map(GraphChange::version).toList();
+    }
+}
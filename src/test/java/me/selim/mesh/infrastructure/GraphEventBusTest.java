@@ -0,0 +1,161 @@
+package me.selim.mesh.infrastructure;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.events.NodeCreatedEvent;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphEventBusTest {
+
+    DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+
+    GraphEventBus bus;
+
+    @AfterEach
+    void tearDown() {
+        if (bus != null) {
+            bus.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Events of concurrent producers are handled once each, in sequence order, through a full ring")
+    void publish_concurrent() throws Exception {
+        //given
+        RecordingHandler handler = new RecordingHandler();
+        beans.registerSingleton("handler", handler);
+        bus = newBus(4);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        bus.bindTo(registry);
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+
+        //when
+        try {
+            for (int producer = 0; producer < 4; producer++) {
+                long first = producer * 1000L;
+                producers.execute(() -> {
+                    for (long id = first; id < first + 500; id++) {
+                        bus.publish(event(id));
+                    }
+                });
+            }
+            producers.shutdown();
+            assertTrue(producers.awaitTermination(10, TimeUnit.SECONDS));
+        } finally {
+            producers.shutdownNow();
+        }
+
+        //then
+        Awaitility.await().atMost(10, TimeUnit.SECONDS).until(() -> bus.lag() == 0);
+        assertEquals(2000, handler.events.size());
+        for (int i = 0; i < handler.sequences.size(); i++) {
+            assertEquals(i, handler.sequences.get(i));
+        }
+        // every producer's events are handled in the order it published them
+        for (int producer = 0; producer < 4; producer++) {
+            long first = producer * 1000L;
+            List<Long> ids = handler.events.stream().map(GraphEventBusTest::nodeId)
+                    .filter(id -> id >= first && id < first + 1000).toList();
+            assertEquals(500, ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                assertEquals(first + i, ids.get(i));
+            }
+        }
+        assertTrue(handler.batchEnds > 0);
+        assertTrue(handler.events.size() >= handler.batchEnds);
+        assertEquals(2000.0, registry.get("mesh.events.published").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("A failing handler does not stop the delivery to the other handlers")
+    void publish_handlerFailure() {
+        //given
+        RecordingHandler handler = new RecordingHandler();
+        beans.registerSingleton("failing", (GraphEventHandler) (event, sequence, endOfBatch) -> {
+            throw new IllegalStateException("failed");
+        });
+        beans.registerSingleton("handler", handler);
+        bus = newBus(8);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        bus.bindTo(registry);
+
+        //when
+        bus.publish(event(1L));
+        bus.publish(event(2L));
+
+        //then
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> handler.events.size() == 2);
+        assertEquals(2.0, registry.get("mesh.events.handler.failures").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Projections are applied on the calling thread")
+    void apply() {
+        //given
+        List<String> threads = new ArrayList<>();
+        beans.registerSingleton("recording", (GraphProjection) event -> threads.add(Thread.currentThread().getName()));
+        bus = newBus(8);
+
+        //when
+        bus.apply(event(1L));
+        bus.apply(event(2L));
+
+        //then
+        assertEquals(List.of(Thread.currentThread().getName(), Thread.currentThread().getName()), threads);
+    }
+
+    @Test
+    @DisplayName("The buffer size must be a power of two")
+    void setBufferSize() {
+        bus = new GraphEventBus(beans.getBeanProvider(GraphProjection.class), beans.getBeanProvider(GraphEventHandler.class));
+        assertThrows(IllegalArgumentException.class, () -> bus.setBufferSize(1000));
+        assertThrows(IllegalArgumentException.class, () -> bus.setBufferSize(0));
+    }
+
+    private GraphEventBus newBus(int bufferSize) {
+        GraphEventBus eventBus = new GraphEventBus(beans.getBeanProvider(GraphProjection.class),
+                beans.getBeanProvider(GraphEventHandler.class));
+        eventBus.setBufferSize(bufferSize);
+        eventBus.afterSingletonsInstantiated();
+        return eventBus;
+    }
+
+    private static NodeCreatedEvent event(Long id) {
+        return new NodeCreatedEvent(GraphEventBusTest.class, new Node(id, "N" + id, Set.of()));
+    }
+
+    private static long nodeId(ApplicationEvent event) {
+        return ((NodeCreatedEvent) event).getNode().getId();
+    }
+
+    // only called from the consumer thread
+    private static class RecordingHandler implements GraphEventHandler {
+        final List<ApplicationEvent> events = new CopyOnWriteArrayList<>();
+        final List<Long> sequences = new CopyOnWriteArrayList<>();
+        volatile int batchEnds;
+
+        @Override
+        public void onEvent(ApplicationEvent event, long sequence, boolean endOfBatch) {
+            events.add(event);
+            sequences.add(sequence);
+            if (endOfBatch) {
+                batchEnds++;
+            }
+        }
+    }
+}
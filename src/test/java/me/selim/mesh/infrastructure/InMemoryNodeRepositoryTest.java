@@ -4,7 +4,6 @@ import me.selim.mesh.domain.Node;
 import me.selim.mesh.service.IdGenerator;
 import org.junit.jupiter.api.*;
 import org.mockito.Mockito;
-import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.List;
 import java.util.Random;
@@ -14,14 +13,14 @@ import static org.mockito.Mockito.when;
 class InMemoryNodeRepositoryTest {
 
     private static InMemoryNodeRepository repository;
-    private static ApplicationEventPublisher publisher;
+    private static GraphEventBus eventBus;
     private static IdGenerator<Long> idGenerator;
 
     @BeforeAll
     static void setUp() {
         idGenerator = Mockito.mock(IdGenerator.class);
-        publisher = Mockito.mock(ApplicationEventPublisher.class);
-        repository = new InMemoryNodeRepository(idGenerator, publisher);
+        eventBus = Mockito.mock(GraphEventBus.class);
+        repository = new InMemoryNodeRepository(idGenerator, eventBus);
     }
 
     @BeforeEach
@@ -90,6 +89,89 @@ class InMemoryNodeRepositoryTest {
         Assertions.assertTrue(nodes.contains(node2));
     }
 
+    @Test
+    @DisplayName("streamAll() should stream all nodes ordered by id")
+    void streamAll() {
+        //given
+        when(idGenerator.next()).thenReturn(3L, 1L, 2L);
+        Node node3 = repository.save(new Node("A"));
+        Node node1 = repository.save(new Node("B"));
+        Node node2 = repository.save(new Node("C"));
+        //when
+        List<Node> nodes = repository.streamAll().toList();
+        //then
+        Assertions.assertEquals(List.of(node1, node2, node3), nodes);
+    }
+
+    @Test
+    @DisplayName("findMaxId() should return the highest node id")
+    void findMaxId() {
+        Assertions.assertTrue(repository.findMaxId().isEmpty());
+        //given
+        when(idGenerator.next()).thenReturn(5L, 2L);
+        repository.save(new Node("Node1"));
+        repository.save(new Node("Node2"));
+        //when, then
+        Assertions.assertEquals(5L, repository.findMaxId().get());
+    }
+
+    @Test
+    @DisplayName("save() should keep nodes with the same name")
+    void save_shouldKeepNodesWithSameName() {
+        //given
+        when(idGenerator.next()).thenReturn(1L, 2L);
+        Node node1 = repository.save(new Node("Node"));
+        Node node2 = repository.save(new Node("node"));
+        //when
+        List<Node> nodes = repository.findAll();
+        //then
+        Assertions.assertEquals(2, nodes.size());
+        Assertions.assertTrue(nodes.containsAll(List.of(node1, node2)));
+    }
+
+    @Test
+    @DisplayName("findPageOrderedById() should return the nodes after the given id")
+    void findPageOrderedById() {
+        //given
+        when(idGenerator.next()).thenReturn(1L, 2L, 3L);
+        Node node1 = repository.save(new Node("C"));
+        Node node2 = repository.save(new Node("B"));
+        Node node3 = repository.save(new Node("A"));
+        //when, then
+        Assertions.assertEquals(List.of(node1, node2), repository.findPageOrderedById(null, 2));
+        Assertions.assertEquals(List.of(node3), repository.findPageOrderedById(2L, 2));
+    }
+
+    @Test
+    @DisplayName("findPageOrderedByName() should return the nodes after the given name and id")
+    void findPageOrderedByName() {
+        //given
+        when(idGenerator.next()).thenReturn(1L, 2L, 3L);
+        Node node1 = repository.save(new Node("B"));
+        Node node2 = repository.save(new Node("A"));
+        Node node3 = repository.save(new Node("b"));
+        //when, then
+        Assertions.assertEquals(List.of(node2, node1), repository.findPageOrderedByName(null, null, 2));
+        Assertions.assertEquals(List.of(node3), repository.findPageOrderedByName("B", 1L, 2));
+    }
+
+    @Test
+    @DisplayName("findPageByNamePrefix() should return the nodes whose name starts with the prefix ignoring case")
+    void findPageByNamePrefix() {
+        //given
+        when(idGenerator.next()).thenReturn(1L, 2L, 3L, 4L, 5L);
+        Node node1 = repository.save(new Node("Node 2"));
+        Node node2 = repository.save(new Node("node 1"));
+        Node node3 = repository.save(new Node("NODE 10"));
+        repository.save(new Node("Nod"));
+        repository.save(new Node("Other"));
+        //when, then
+        Assertions.assertEquals(List.of(node2, node3), repository.findPageByNamePrefix("nOdE ", null, null, 2));
+        Assertions.assertEquals(List.of(node1), repository.findPageByNamePrefix("node ", "NODE 10", 3L, 2));
+        Assertions.assertEquals(List.of(node2, node3), repository.findPageByNamePrefix("Node 1", "A", 9L, 5));
+        Assertions.assertEquals(List.of(), repository.findPageByNamePrefix("Nodes", null, null, 5));
+    }
+
     @Test
     @DisplayName("deleteById() should delete node by id")
     void deleteById() {
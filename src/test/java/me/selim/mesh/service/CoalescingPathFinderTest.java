@@ -0,0 +1,243 @@
+package me.selim.mesh.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.domain.Route;
+import me.selim.mesh.error.ResourceDoesNotExistException;
+import me.selim.mesh.error.RouteSearchTimeoutException;
+import me.selim.mesh.infrastructure.GraphVersion;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CoalescingPathFinderTest {
+
+    @Mock
+    RouteSearchPool routeSearchPool;
+
+    GraphVersion graphVersion = new GraphVersion();
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    CoalescingPathFinder pathFinder;
+
+    @BeforeEach
+    void setUp() {
+        pathFinder = new CoalescingPathFinder(routeSearchPool, graphVersion);
+        pathFinder.bindTo(registry);
+    }
+
+    @Test
+    @DisplayName("Concurrent identical queries share a single search")
+    void findOptimalRoute_concurrent() throws Exception {
+        //given
+        Route route = new Route(List.of(new Node(1L, "A", Set.of()), new Node(2L, "B", Set.of())), 5);
+        CompletableFuture<Route> search = new CompletableFuture<>();
+        when(routeSearchPool.findOptimalRouteAsync(eq(1L), eq(2L), any())).thenReturn(search);
+
+        //when
+        List<CompletableFuture<Route>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(pathFinder.findOptimalRouteAsync(1L, 2L, SearchBudget.unlimited()));
+        }
+        assertEquals(1, pathFinder.inFlight());
+        search.complete(route);
+
+        //then
+        for (CompletableFuture<Route> result : results) {
+            assertSame(route, result.get());
+        }
+        verify(routeSearchPool, times(1)).findOptimalRouteAsync(eq(1L), eq(2L), any());
+        assertEquals(1.0, queries("searched"));
+        assertEquals(7.0, queries("coalesced"));
+        assertEquals(0, pathFinder.inFlight());
+    }
+
+    @Test
+    @DisplayName("The statistics of a shared search are reported to the budget of every query")
+    void findOptimalRoute_stats() throws Exception {
+        //given
+        Route route = new Route(List.of(new Node(1L, "A", Set.of()), new Node(2L, "B", Set.of())), 5);
+        SearchStats stats = new SearchStats("dijkstra", 2, 2, 1, 2, 1, 1, 1000);
+        CompletableFuture<Route> search = new CompletableFuture<>();
+        AtomicReference<SearchBudget> searchBudget = new AtomicReference<>();
+        when(routeSearchPool.findOptimalRouteAsync(eq(1L), eq(2L), any())).thenAnswer(invocation -> {
+            searchBudget.set(invocation.getArgument(2));
+            return search;
+        });
+        SearchBudget first = SearchBudget.of(null, 0);
+        SearchBudget second = SearchBudget.of(null, 0);
+
+        //when
+        CompletableFuture<Route> firstResult = pathFinder.findOptimalRouteAsync(1L, 2L, first);
+        CompletableFuture<Route> secondResult = pathFinder.findOptimalRouteAsync(1L, 2L, second);
+        searchBudget.get().report(stats);
+        search.complete(route);
+
+        //then
+        assertSame(route, firstResult.get());
+        assertSame(route, secondResult.get());
+        assertSame(stats, first.stats());
+        assertSame(stats, second.stats());
+    }
+
+    @Test
+    @DisplayName("The budget of a query limits its own wait, not the search it shares with the other queries")
+    void findOptimalRoute_budgets() throws Exception {
+        //given
+        Route route = new Route(List.of(new Node(1L, "A", Set.of()), new Node(2L, "B", Set.of())), 5);
+        // 4 entries were taken from the queue, 2 of them were stale
+        SearchStats stats = new SearchStats("dijkstra", 4, 2, 1, 3, 2, 1, 1000);
+        CompletableFuture<Route> search = new CompletableFuture<>();
+        AtomicReference<SearchBudget> searchBudget = new AtomicReference<>();
+        when(routeSearchPool.findOptimalRouteAsync(eq(1L), eq(2L), any())).thenAnswer(invocation -> {
+            searchBudget.set(invocation.getArgument(2));
+            return search;
+        });
+
+        //when
+        CompletableFuture<Route> byDefault = pathFinder.findOptimalRouteAsync(1L, 2L, SearchBudget.unlimited());
+        CompletableFuture<Route> tight = pathFinder.findOptimalRouteAsync(1L, 2L,
+                SearchBudget.of(Duration.ofMillis(1), 0));
+        CompletableFuture<Route> fewNodes = pathFinder.findOptimalRouteAsync(1L, 2L, SearchBudget.of(null, 3));
+        CompletableFuture<Route> enoughNodes = pathFinder.findOptimalRouteAsync(1L, 2L, SearchBudget.of(null, 4));
+
+        //then
+        ExecutionException timedOut = assertThrows(ExecutionException.class, () -> tight.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RouteSearchTimeoutException.class, timedOut.getCause());
+        assertFalse(search.isDone());
+        assertNull(searchBudget.get().remaining());
+
+        //when
+        searchBudget.get().report(stats);
+        search.complete(route);
+
+        //then
+        assertSame(route, byDefault.get());
+        assertSame(route, enoughNodes.get());
+        // the limit applies to the visited nodes, like in a search of the query's own
+        ExecutionException tooManyNodes = assertThrows(ExecutionException.class, fewNodes::get);
+        assertInstanceOf(RouteSearchTimeoutException.class, tooManyNodes.getCause());
+        verify(routeSearchPool, times(1)).findOptimalRouteAsync(eq(1L), eq(2L), any());
+    }
+
+    @Test
+    @DisplayName("The search is cancelled when the last query waiting for it runs out of time")
+    void findOptimalRoute_allTimedOut() {
+        //given
+        // the first query may run out of time before the second one joins its search, which then runs a new one
+        List<CompletableFuture<Route>> searches = new CopyOnWriteArrayList<>();
+        when(routeSearchPool.findOptimalRouteAsync(eq(1L), eq(2L), any())).thenAnswer(invocation -> {
+            CompletableFuture<Route> search = new CompletableFuture<>();
+            searches.add(search);
+            return search;
+        });
+
+        //when
+        CompletableFuture<Route> first = pathFinder.findOptimalRouteAsync(1L, 2L,
+                SearchBudget.of(Duration.ofMillis(1), 0));
+        CompletableFuture<Route> second = pathFinder.findOptimalRouteAsync(1L, 2L,
+                SearchBudget.of(Duration.ofMillis(1), 0));
+
+        //then
+        for (CompletableFuture<Route> result : List.of(first, second)) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(RouteSearchTimeoutException.class, e.getCause());
+        }
+        Awaitility.await().atMost(1, TimeUnit.SECONDS)
+                .until(() -> searches.stream().allMatch(CompletableFuture::isCancelled));
+        assertEquals(0, pathFinder.inFlight());
+    }
+
+    @Test
+    @DisplayName("Completed searches are not cached, a query after a mutation runs a new search")
+    void findOptimalRoute_sequential() {
+        //given
+        Route route = new Route(List.of(new Node(1L, "A", Set.of())), 0);
+        when(routeSearchPool.findOptimalRouteAsync(eq(1L), eq(1L), any()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(route));
+
+        //when
+        pathFinder.findOptimalRoute(1L, 1L);
+        pathFinder.findOptimalRoute(1L, 1L);
+        graphVersion.onGraphChanged();
+        pathFinder.findOptimalRoute(1L, 1L);
+
+        //then
+        verify(routeSearchPool, times(3)).findOptimalRouteAsync(eq(1L), eq(1L), any());
+        assertEquals(3.0, queries("searched"));
+        assertEquals(0.0, queries("coalesced"));
+    }
+
+    @Test
+    @DisplayName("The exception of a search is thrown to every coalesced query")
+    void findOptimalRoute_exception() {
+        //given
+        CompletableFuture<Route> search = new CompletableFuture<>();
+        when(routeSearchPool.findOptimalRouteAsync(eq(1L), eq(9L), any())).thenReturn(search);
+
+        //when
+        CompletableFuture<Route> first = pathFinder.findOptimalRouteAsync(1L, 9L, SearchBudget.unlimited());
+        CompletableFuture<Route> second = pathFinder.findOptimalRouteAsync(1L, 9L, SearchBudget.unlimited());
+        search.completeExceptionally(new ResourceDoesNotExistException("Node with id: 9 does not exist"));
+
+        //then
+        for (CompletableFuture<Route> result : List.of(first, second)) {
+            ExecutionException e = assertThrows(ExecutionException.class, result::get);
+            assertInstanceOf(ResourceDoesNotExistException.class, e.getCause());
+        }
+        verify(routeSearchPool, times(1)).findOptimalRouteAsync(eq(1L), eq(9L), any());
+    }
+
+    @Test
+    @DisplayName("The search is cancelled when the last query waiting for it is cancelled")
+    void findOptimalRoute_cancel() {
+        //given
+        CompletableFuture<Route> search = new CompletableFuture<>();
+        CompletableFuture<Route> nextSearch = new CompletableFuture<>();
+        when(routeSearchPool.findOptimalRouteAsync(eq(1L), eq(2L), any())).thenReturn(search).thenReturn(nextSearch);
+        CompletableFuture<Route> first = pathFinder.findOptimalRouteAsync(1L, 2L, SearchBudget.unlimited());
+        CompletableFuture<Route> second = pathFinder.findOptimalRouteAsync(1L, 2L, SearchBudget.unlimited());
+
+        //when
+        first.cancel(false);
+
+        //then
+        assertFalse(search.isCancelled());
+        assertFalse(second.isDone());
+
+        //when
+        second.cancel(false);
+
+        //then
+        assertTrue(search.isCancelled());
+        assertEquals(0, pathFinder.inFlight());
+        CompletableFuture<Route> third = pathFinder.findOptimalRouteAsync(1L, 2L, SearchBudget.unlimited());
+        assertFalse(third.isDone());
+        verify(routeSearchPool, times(2)).findOptimalRouteAsync(eq(1L), eq(2L), any());
+    }
+
+    private double queries(String result) {
+        return registry.get("mesh.route.queries").tag("result", result).functionCounter().count();
+    }
+}
@@ -0,0 +1,83 @@
+package me.selim.mesh.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LockContentionTest {
+
+    LockContention lockContention = new LockContention();
+
+    @Test
+    @DisplayName("The most contended nodes are tracked within the bounded number of counters")
+    void hotNodes() {
+        //given
+        lockContention.setTrackedNodes(2);
+
+        //when
+        for (int i = 0; i < 5; i++) {
+            lockContention.conflict(LockContention.Operation.CONNECT, 1L);
+        }
+        lockContention.conflict(LockContention.Operation.DROP, 2L);
+        lockContention.conflict(LockContention.Operation.DROP, 3L);
+        lockContention.conflict(LockContention.Operation.DELETE, 1L);
+
+        //then
+        // 3 took the counter of 2, starting from its count
+        assertEquals(List.of(new LockContention.HotNode(1L, 6, 0), new LockContention.HotNode(3L, 2, 1)),
+                lockContention.hotNodes(10));
+        assertEquals(List.of(new LockContention.HotNode(1L, 6, 0)), lockContention.hotNodes(1));
+
+        //when
+        lockContention.resetHotNodes();
+
+        //then
+        assertTrue(lockContention.hotNodes(10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Only the waits longer than the slow wait count as contention")
+    void lockWaited() {
+        //given
+        lockContention.setSlowWait(Duration.ofMillis(1));
+
+        //when
+        lockContention.lockWaited(LockContention.Operation.CONNECT, 1L, 1000);
+        lockContention.lockWaited(LockContention.Operation.CONNECT, 2L, TimeUnit.MILLISECONDS.toNanos(5));
+
+        //then
+        assertEquals(List.of(new LockContention.HotNode(2L, 1, 0)), lockContention.hotNodes(10));
+    }
+
+    @Test
+    @DisplayName("Waits, conflicts and rollbacks are exported per operation")
+    void bindTo() {
+        //given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        lockContention.bindTo(registry);
+
+        //when
+        lockContention.lockWaited(LockContention.Operation.CONNECT, 1L, TimeUnit.MILLISECONDS.toNanos(2));
+        lockContention.lockWaited(LockContention.Operation.CONNECT, 2L, TimeUnit.MILLISECONDS.toNanos(4));
+        lockContention.conflict(LockContention.Operation.DROP, 1L);
+        lockContention.rolledBack(LockContention.Operation.DELETE);
+        lockContention.rolledBack(LockContention.Operation.CONNECT);
+
+        //then
+        assertEquals(2, registry.get("mesh.node.lock.wait").tag("operation", "connect").functionTimer().count());
+        assertEquals(6.0, registry.get("mesh.node.lock.wait").tag("operation", "connect").functionTimer()
+                .totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(1.0, registry.get("mesh.node.lock.conflicts").tag("operation", "drop").functionCounter().count());
+        assertEquals(0.0, registry.get("mesh.node.lock.conflicts").tag("operation", "connect").functionCounter().count());
+        assertEquals(1.0, registry.get("mesh.node.rollbacks").tag("operation", "delete").functionCounter().count());
+        assertEquals(1.0, registry.get("mesh.node.rollbacks").tag("operation", "connect").functionCounter().count());
+        assertEquals(0.0, registry.get("mesh.node.rollbacks").tag("operation", "drop").functionCounter().count());
+        assertThrows(IllegalArgumentException.class, () -> lockContention.setTrackedNodes(0));
+    }
+}
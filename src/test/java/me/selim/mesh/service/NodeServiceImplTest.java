@@ -3,18 +3,28 @@ package me.selim.mesh.service;
 import me.selim.mesh.domain.Connection;
 import me.selim.mesh.domain.Node;
 import me.selim.mesh.error.ResourceDoesNotExistException;
+import me.selim.mesh.events.ConnectionDropEvent;
+import me.selim.mesh.events.ConnectionEstablishedEvent;
+import me.selim.mesh.events.NodeDeletedEvent;
+import me.selim.mesh.infrastructure.GraphEventBus;
+import me.selim.mesh.infrastructure.InMemoryNodeRepository;
 import me.selim.mesh.infrastructure.NodeRepository;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.context.ApplicationEventPublisher;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,7 +39,10 @@ class NodeServiceImplTest {
     private NodeServiceImpl nodeService;
 
     @Mock
-    private ApplicationEventPublisher eventPublisher;
+    private GraphEventBus eventBus;
+
+    @Spy
+    private LockContention lockContention = new LockContention();
 
     @Test
     @DisplayName("Connect two nodes")
@@ -58,7 +71,28 @@ class NodeServiceImplTest {
         thread.join();
 
         assertThrows(IllegalStateException.class, () -> nodeService.connectNodes(node1.getId(), node2.getId(), 10));
+        verify(lockContention).conflict(LockContention.Operation.CONNECT, 1L);
+        assertEquals(List.of(new LockContention.HotNode(1L, 1, 0)), lockContention.hotNodes(10));
+    }
+
+    @Test
+    @DisplayName("A connect failing after the nodes were connected restores them and counts a rollback")
+    void connect_should_rollback_when_apply_fails() {
+        //given
+        Node node1 = new Node(1L, "A", Set.of());
+        Node node2 = new Node(2L, "B", Set.of());
+        when(nodeRepository.findById(node1.getId())).thenReturn(Optional.of(node1));
+        when(nodeRepository.findById(node2.getId())).thenReturn(Optional.of(node2));
+        doThrow(new IllegalStateException("Projection failed")).when(eventBus).apply(any(ConnectionEstablishedEvent.class));
 
+        //when
+        assertThrows(IllegalStateException.class, () -> nodeService.connectNodes(node1.getId(), node2.getId(), 10));
+
+        //then
+        assertFalse(node1.isConnectedTo(node2));
+        assertFalse(node2.isConnectedTo(node1));
+        verify(lockContention).rolledBack(LockContention.Operation.CONNECT);
+        verify(eventBus, never()).publish(any());
     }
 
     @Test
@@ -178,6 +212,7 @@ class NodeServiceImplTest {
                 thenThrow(new RuntimeException("Error deleting node"));
 
         assertThrows(RuntimeException.class, () -> nodeService.deleteNodeWithConnections(node1));
+        verify(lockContention).rolledBack(LockContention.Operation.DELETE);
 
         verify(node1).addConnection(connection);
         verify(node2, times(2)).addConnection(connection);
@@ -185,4 +220,136 @@ class NodeServiceImplTest {
         assertTrue(node2.getConnections().contains(connection));
         assertEquals(1, node2.getConnections().size());
     }
+
+    @Test
+    @DisplayName("A delete failing in the projections restores the node and the connections of its neighbours")
+    void deleteNodeWithConnections_shouldRestoreNodeWhenProjectionFails() {
+        //given
+        InMemoryNodeRepository repository = new InMemoryNodeRepository(new InMemoryNodeIdGenerator(), eventBus);
+        NodeServiceImpl service = new NodeServiceImpl(repository, eventBus, lockContention);
+        Node node1 = repository.save(new Node("A"));
+        Node node2 = repository.save(new Node("B"));
+        Connection connection = service.connectNodes(node1.getId(), node2.getId(), 10);
+        doThrow(new IllegalStateException("Projection failed")).when(eventBus).apply(any(NodeDeletedEvent.class));
+
+        //when
+        assertThrows(IllegalStateException.class, () -> service.deleteNodeWithConnections(node1.getId()));
+
+        //then
+        assertSame(node1, repository.findById(node1.getId()).orElseThrow());
+        assertEquals(List.of(node1, node2), repository.findPageOrderedByName(null, null, 10));
+        assertEquals(List.of(connection), node1.getConnections());
+        assertEquals(List.of(connection), node2.getConnections());
+        verify(lockContention).rolledBack(LockContention.Operation.DELETE);
+        verify(eventBus, never()).publish(any(NodeDeletedEvent.class));
+    }
+
+    @Test
+    @DisplayName("A delete failing before it changed anything is not counted as a rollback")
+    void deleteNodeWithConnections_shouldNotCountRollbackWhenNothingChanged() throws InterruptedException {
+        //given
+        Node node1 = new Node(1L, "A", Set.of());
+        Node node2 = new Node(2L, "B", Set.of());
+        Connection connection = new Connection(node1.getId(), node2.getId(), 10);
+        node1.addConnection(connection);
+        node2.addConnection(connection);
+        when(nodeRepository.findById(node2.getId())).thenReturn(Optional.of(node2));
+        Thread thread = new Thread(node2::lockForConnectionOperations);
+        thread.start();
+        thread.join();
+
+        //when
+        assertThrows(IllegalStateException.class, () -> nodeService.deleteNodeWithConnections(node1));
+
+        //then
+        verify(lockContention).conflict(LockContention.Operation.DELETE, 2L);
+        verify(lockContention, never()).rolledBack(any());
+        verify(nodeRepository, never()).deleteById(any());
+        assertEquals(List.of(connection), node2.getConnections());
+    }
+
+    @Test
+    @DisplayName("Connecting and disconnecting the same nodes in opposite order from two threads should not deadlock")
+    void connect_and_drop_in_opposite_order_should_not_deadlock() throws Exception {
+        //given
+        Node node1 = new Node(1L, "A", Set.of());
+        Node node2 = new Node(2L, "B", Set.of());
+        when(nodeRepository.findById(node1.getId())).thenReturn(Optional.of(node1));
+        when(nodeRepository.findById(node2.getId())).thenReturn(Optional.of(node2));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        //when
+        try {
+            executor.execute(() -> connectAndDrop(node1.getId(), node2.getId()));
+            executor.execute(() -> connectAndDrop(node2.getId(), node1.getId()));
+            executor.shutdown();
+
+            //then
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            assertEquals(node1.isConnectedTo(node2), node2.isConnectedTo(node1));
+            assertEquals(node1.getConnections().size(), node2.getConnections().size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Events are applied to the projections under the node locks and published once the locks are released")
+    void events_should_be_published_after_unlock() {
+        //given
+        Node node1 = Mockito.spy(new Node(1L, "A", Set.of()));
+        Node node2 = Mockito.spy(new Node(2L, "B", Set.of()));
+        when(nodeRepository.findById(node1.getId())).thenReturn(Optional.of(node1));
+        when(nodeRepository.findById(node2.getId())).thenReturn(Optional.of(node2));
+        InOrder inOrder = inOrder(eventBus, node1, node2);
+
+        //when
+        nodeService.connectNodes(node1.getId(), node2.getId(), 10);
+        nodeService.dropConnection(node1.getId(), node2.getId());
+
+        //then
+        inOrder.verify(eventBus).apply(any(ConnectionEstablishedEvent.class));
+        inOrder.verify(node1).unLock();
+        inOrder.verify(node2).unLock();
+        inOrder.verify(eventBus).publish(any(ConnectionEstablishedEvent.class));
+        inOrder.verify(eventBus).apply(any(ConnectionDropEvent.class));
+        inOrder.verify(node1).unLock();
+        inOrder.verify(node2).unLock();
+        inOrder.verify(eventBus).publish(any(ConnectionDropEvent.class));
+    }
+
+    @Test
+    @DisplayName("The deletion of a node is published once the node and its neighbours are unlocked")
+    void delete_should_be_published_after_unlock() {
+        //given
+        Node node1 = Mockito.spy(new Node(1L, "A", Set.of()));
+        Node node2 = Mockito.spy(new Node(2L, "B", Set.of()));
+        Connection connection = new Connection(node1.getId(), node2.getId(), 10);
+        node1.addConnection(connection);
+        node2.addConnection(connection);
+        when(nodeRepository.findById(node2.getId())).thenReturn(Optional.of(node2));
+        when(nodeRepository.deleteById(node1.getId())).thenReturn(true);
+        InOrder inOrder = inOrder(nodeRepository, node1, node2, eventBus);
+
+        //when
+        nodeService.deleteNodeWithConnections(node1);
+
+        //then
+        inOrder.verify(nodeRepository).deleteById(node1.getId());
+        inOrder.verify(node2).unLock();
+        inOrder.verify(node1).unLock();
+        inOrder.verify(eventBus).publish(argThat(event -> event instanceof NodeDeletedEvent deleted
+                && deleted.getNode() == node1));
+    }
+
+    private void connectAndDrop(Long firstNodeId, Long secondNodeId) {
+        for (int i = 0; i < 1000; i++) {
+            try {
+                nodeService.connectNodes(firstNodeId, secondNodeId, 10);
+                nodeService.dropConnection(firstNodeId, secondNodeId);
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                // the other thread holds the lock or changed the connection in the meantime
+            }
+        }
+    }
 }
@@ -0,0 +1,211 @@
+package me.selim.mesh.service;
+
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.error.ResourceDoesNotExistException;
+import me.selim.mesh.infrastructure.ConnectionIndex;
+import me.selim.mesh.infrastructure.GraphEventBus;
+import me.selim.mesh.infrastructure.GraphEventHandler;
+import me.selim.mesh.infrastructure.GraphProjection;
+import me.selim.mesh.infrastructure.InMemoryNodeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers connect, drop and delete on a few hub nodes from many threads through the real repository, event bus and
+ * connection index, then checks that the graph is still consistent once the threads stopped:
+ * <ul>
+ *     <li>a connection is held by both of its nodes (symmetry),</li>
+ *     <li>no node has more than {@link Node#MAX_CONNECTION_COUNT} connections,</li>
+ *     <li>no connection points to a deleted node,</li>
+ *     <li>the connection index holds exactly the connections of the nodes,</li>
+ *     <li>no node is left locked.</li>
+ * </ul>
+ * Lock conflicts, lost races (nodes already connected, full, not connected or deleted) are expected failures, counted
+ * by operation; any other exception fails the test. Logs the operations per second and the failure rates.
+ * <p>
+ * Runs for {@code stress.seconds} (default 2) with {@code stress.threads} (default 8) threads, set them with
+ * {@code gradle test -PstressSeconds=60 -PstressThreads=32}.
+ */
+class NodeServiceStressTest {
+    private static final Logger log = LoggerFactory.getLogger(NodeServiceStressTest.class);
+
+    private static final int HUBS = 8;
+    private static final int NODES = 64;
+
+    enum Operation {
+        CONNECT, DROP, DELETE
+    }
+
+    private final DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+    private final GraphEventBus eventBus = new GraphEventBus(beans.getBeanProvider(GraphProjection.class),
+            beans.getBeanProvider(GraphEventHandler.class));
+    private final InMemoryNodeRepository repository = new InMemoryNodeRepository(new InMemoryNodeIdGenerator(), eventBus);
+    private final ConnectionIndex connectionIndex = new ConnectionIndex(repository);
+    private final NodeServiceImpl nodeService = new NodeServiceImpl(repository, eventBus, new LockContention());
+
+    private final Map<Operation, LongAdder> completed = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> failed = new EnumMap<>(Operation.class);
+    private final Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+
+    // the live nodes: the first slots are the hubs, a deleted node is replaced by a new node in its slot
+    private final AtomicReferenceArray<Long> slots = new AtomicReferenceArray<>(NODES);
+
+    private volatile boolean running = true;
+
+    @AfterEach
+    void tearDown() {
+        eventBus.destroy();
+    }
+
+    @Test
+    @DisplayName("Concurrent connects, drops and deletes on hub nodes keep the graph consistent")
+    void stress() throws InterruptedException {
+        //given
+        beans.registerSingleton("connectionIndex", connectionIndex);
+        eventBus.afterSingletonsInstantiated();
+        for (Operation operation : Operation.values()) {
+            completed.put(operation, new LongAdder());
+            failed.put(operation, new LongAdder());
+        }
+        for (int slot = 0; slot < NODES; slot++) {
+            slots.set(slot, repository.save(new Node((slot < HUBS ? "Hub " : "Node ") + slot)).getId());
+        }
+        int threads = Integer.getInteger("stress.threads", 8);
+        long seconds = Long.getLong("stress.seconds", 2);
+
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    while (running) {
+                        runOperation(ThreadLocalRandom.current());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        long startTime = System.nanoTime();
+        start.countDown();
+        TimeUnit.SECONDS.sleep(seconds);
+        running = false;
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS), "The stress threads did not stop");
+        double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+
+        //then
+        long total = 0;
+        long totalFailed = 0;
+        StringBuilder rates = new StringBuilder();
+        for (Operation operation : Operation.values()) {
+            long done = completed.get(operation).sum();
+            long failures = failed.get(operation).sum();
+            total += done + failures;
+            totalFailed += failures;
+            rates.append(String.format(" %s %d ok / %d failed (%.1f%%),", operation.name().toLowerCase(), done,
+                    failures, done + failures == 0 ? 0 : 100.0 * failures / (done + failures)));
+        }
+        log.info("Stress: {} threads, {}s: {} ops/s, failure rate {}%,{}", threads, seconds,
+                Math.round(total / elapsedSeconds), String.format("%.1f", total == 0 ? 0 : 100.0 * totalFailed / total),
+                rates);
+
+        assertTrue(unexpected.isEmpty(), () -> "Unexpected failures: " + unexpected);
+        assertTrue(completed.get(Operation.CONNECT).sum() > 0);
+        assertTrue(completed.get(Operation.DROP).sum() > 0);
+        assertTrue(completed.get(Operation.DELETE).sum() > 0);
+        assertConsistent();
+    }
+
+    private void runOperation(ThreadLocalRandom random) {
+        int choice = random.nextInt(100);
+        Operation operation = choice < 55 ? Operation.CONNECT : choice < 95 ? Operation.DROP : Operation.DELETE;
+        try {
+            switch (operation) {
+                case CONNECT -> nodeService.connectNodes(pick(random), pick(random), random.nextInt(1, 100));
+                case DROP -> {
+                    Long id = pick(random);
+                    Optional<Node> node = repository.findById(id);
+                    List<Connection> connections = node.map(Node::getConnections).orElse(List.of());
+                    if (connections.isEmpty()) {
+                        return;
+                    }
+                    nodeService.dropConnection(id,
+                            connections.get(random.nextInt(connections.size())).getOtherNodeId(id));
+                }
+                case DELETE -> {
+                    int slot = random.nextInt(NODES);
+                    Long id = slots.get(slot);
+                    nodeService.deleteNodeWithConnections(id);
+                    slots.compareAndSet(slot, id, repository.save(new Node("Node " + slot)).getId());
+                }
+            }
+            completed.get(operation).increment();
+        } catch (IllegalStateException | IllegalArgumentException | ResourceDoesNotExistException e) {
+            // a lock conflict, or a race lost to another thread on the same nodes
+            failed.get(operation).increment();
+        } catch (Throwable e) {
+            unexpected.add(e);
+        }
+    }
+
+    // half of the picks are hubs
+    private Long pick(ThreadLocalRandom random) {
+        return slots.get(random.nextBoolean() ? random.nextInt(HUBS) : random.nextInt(NODES));
+    }
+
+    private void assertConsistent() {
+        Set<Connection> connections = new HashSet<>();
+        for (Node node : repository.findAll()) {
+            List<Connection> nodeConnections = node.getConnections();
+            assertTrue(nodeConnections.size() <= Node.MAX_CONNECTION_COUNT, () -> "Too many connections: " + node);
+            for (Connection connection : nodeConnections) {
+                Long otherId = connection.getOtherNodeId(node.getId());
+                Optional<Node> other = repository.findById(otherId);
+                assertTrue(other.isPresent(), () -> node + " is connected to the deleted node " + otherId);
+                Optional<Connection> back = other.get().getConnectionTo(node);
+                assertTrue(back.isPresent(), () -> node + " is connected to " + other.get() + " but not back");
+                assertEquals(connection.getDistance(), back.get().getDistance(), () -> "Asymmetric " + connection);
+                connections.add(connection);
+            }
+            assertDoesNotThrow(() -> {
+                node.lockForConnectionOperations();
+                node.unLock();
+            }, () -> node + " is still locked");
+        }
+        List<Connection> indexed = connectionIndex.streamByDistance(true).toList();
+        assertEquals(connections.size(), indexed.size(), "Connections in the index");
+        for (Connection connection : indexed) {
+            Connection held = repository.findById(ConnectionIndex.lowerNodeId(connection))
+                    .flatMap(node -> node.getConnections().stream().filter(connection::equals).findFirst())
+                    .orElse(null);
+            assertNotNull(held, () -> "The index holds the dropped " + connection);
+            assertEquals(held.getDistance(), connection.getDistance(), () -> "The index holds a stale " + connection);
+        }
+    }
+}
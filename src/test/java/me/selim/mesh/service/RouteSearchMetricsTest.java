@@ -0,0 +1,34 @@
+package me.selim.mesh.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RouteSearchMetricsTest {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    RouteSearchMetrics metrics = new RouteSearchMetrics(registry);
+
+    @Test
+    @DisplayName("The statistics of the searches are recorded as distributions per engine")
+    void record() {
+        //when
+        metrics.record(new SearchStats("dijkstra", 12, 10, 30, 12, 6, 4, 2_000_000));
+        metrics.record(new SearchStats("dijkstra", 22, 20, 50, 22, 8, 6, 4_000_000));
+        metrics.record(new SearchStats("other", 1, 1, 1, 1, 1, 1, 1000));
+
+        //then
+        assertEquals(30.0, registry.get("mesh.route.search.settled.nodes").tag("engine", "dijkstra").summary().totalAmount());
+        assertEquals(80.0, registry.get("mesh.route.search.relaxed.edges").tag("engine", "dijkstra").summary().totalAmount());
+        assertEquals(34.0, registry.get("mesh.route.search.queue.pushes").tag("engine", "dijkstra").summary().totalAmount());
+        assertEquals(8.0, registry.get("mesh.route.search.frontier.peak").tag("engine", "dijkstra").summary().max());
+        assertEquals(5.0, registry.get("mesh.route.search.hops").tag("engine", "dijkstra").summary().mean());
+        assertEquals(6.0, registry.get("mesh.route.search.time").tag("engine", "dijkstra").timer().totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(1, registry.get("mesh.route.search.settled.nodes").tag("engine", "other").summary().count());
+    }
+}
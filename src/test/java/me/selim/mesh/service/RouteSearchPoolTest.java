@@ -0,0 +1,202 @@
+package me.selim.mesh.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.domain.Route;
+import me.selim.mesh.error.RouteSearchTimeoutException;
+import me.selim.mesh.error.ServiceOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RouteSearchPoolTest {
+
+    @Mock
+    ShortestPathFinder shortestPathFinder;
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    RouteSearchPool pool;
+
+    ExecutorService clients = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    void setUp() {
+        pool = new RouteSearchPool(shortestPathFinder, new RouteSearchMetrics(registry));
+        pool.setThreads(2);
+        pool.bindTo(registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        clients.shutdownNow();
+        pool.destroy();
+    }
+
+    @Test
+    @DisplayName("Route is searched on a compute thread of the pool")
+    void findOptimalRoute() {
+        //given
+        Route route = route(1L, 2L);
+        AtomicReference<String> thread = new AtomicReference<>();
+        when(shortestPathFinder.search(eq(1L), eq(2L), any())).thenAnswer(invocation -> {
+            thread.set(Thread.currentThread().getName());
+            return new ShortestPathFinder.Search(route, 2);
+        });
+
+        //when
+        Route found = pool.findOptimalRoute(1L, 2L);
+
+        //then
+        assertSame(route, found);
+        assertTrue(thread.get().startsWith("route-search-"));
+        assertEquals(0, pool.pending());
+        assertEquals(0, pool.admittedCost());
+    }
+
+    @Test
+    @DisplayName("Search is rejected with a retry hint when too many searches are pending")
+    void findOptimalRoute_tooManyPending() throws Exception {
+        //given
+        pool.setMaxPending(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(shortestPathFinder.search(eq(1L), eq(2L), any())).thenAnswer(invocation -> {
+            release.await();
+            return new ShortestPathFinder.Search(route(1L, 2L), 2);
+        });
+        Future<Route> running = clients.submit(() -> pool.findOptimalRoute(1L, 2L));
+        awaitPending(1);
+
+        //when
+        ServiceOverloadedException e = assertThrows(ServiceOverloadedException.class,
+                () -> pool.findOptimalRoute(3L, 4L));
+
+        //then
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+        assertEquals(1.0, registry.get("mesh.route.pool.rejections").functionCounter().count());
+        release.countDown();
+        assertNotNull(running.get(10, TimeUnit.SECONDS));
+        assertEquals(0, pool.pending());
+    }
+
+    @Test
+    @DisplayName("Search is admitted based on the cost of the previous search of the same nodes")
+    void findOptimalRoute_costBased() throws Exception {
+        //given
+        pool.setMaxAdmittedCost(20);
+        when(shortestPathFinder.search(eq(1L), eq(2L), any())).thenReturn(new ShortestPathFinder.Search(route(1L, 2L), 50));
+        when(shortestPathFinder.search(eq(5L), eq(6L), any())).thenReturn(new ShortestPathFinder.Search(route(5L, 6L), 2));
+        CountDownLatch release = new CountDownLatch(1);
+        when(shortestPathFinder.search(eq(3L), eq(4L), any())).thenAnswer(invocation -> {
+            release.await();
+            return new ShortestPathFinder.Search(route(3L, 4L), 2);
+        });
+        // a single search is admitted on an idle pool whatever its cost
+        pool.findOptimalRoute(1L, 2L);
+        Future<Route> running = clients.submit(() -> pool.findOptimalRoute(3L, 4L));
+        awaitPending(1);
+
+        //when
+        // the search of 1 to 2 visited 50 nodes, in both directions
+        assertThrows(ServiceOverloadedException.class, () -> pool.findOptimalRoute(2L, 1L));
+        // a pair which has not been searched yet is estimated from the average cost
+        Route cheap = pool.findOptimalRoute(5L, 6L);
+
+        //then
+        assertEquals(route(5L, 6L), cheap);
+        release.countDown();
+        assertNotNull(running.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Search which timed out is admitted at the cost of the nodes it visited")
+    void findOptimalRoute_timedOutCost() throws Exception {
+        //given
+        pool.setMaxAdmittedCost(20);
+        when(shortestPathFinder.search(eq(1L), eq(2L), any())).thenAnswer(invocation -> {
+            SearchBudget budget = invocation.getArgument(2);
+            budget.report(new SearchStats("dijkstra", 50, 40, 60, 55, 10, 0, 1_000_000));
+            throw new RouteSearchTimeoutException("Route search exceeded the time limit of 1 ms");
+        });
+        CountDownLatch release = new CountDownLatch(1);
+        when(shortestPathFinder.search(eq(3L), eq(4L), any())).thenAnswer(invocation -> {
+            release.await();
+            return new ShortestPathFinder.Search(route(3L, 4L), 2);
+        });
+        assertThrows(RouteSearchTimeoutException.class, () -> pool.findOptimalRoute(1L, 2L));
+        Future<Route> running = clients.submit(() -> pool.findOptimalRoute(3L, 4L));
+        awaitPending(1);
+
+        //when //then
+        // the search of 1 to 2 visited 50 nodes before it timed out
+        assertThrows(ServiceOverloadedException.class, () -> pool.findOptimalRoute(1L, 2L));
+        assertEquals(1.0, registry.get("mesh.route.pool.rejections").functionCounter().count());
+        release.countDown();
+        assertNotNull(running.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Search runs within the configured limits and is cancelled with its future")
+    void findOptimalRouteAsync_budget() throws Exception {
+        //given
+        pool.setTimeout(Duration.ofSeconds(5));
+        pool.setMaxVisitedNodes(100);
+        AtomicReference<SearchBudget> searchBudget = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(1);
+        when(shortestPathFinder.search(eq(1L), eq(2L), any())).thenAnswer(invocation -> {
+            SearchBudget budget = invocation.getArgument(2);
+            searchBudget.set(budget);
+            started.countDown();
+            for (int visited = 1; ; visited++) {
+                budget.check(visited);
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+        });
+
+        //when
+        CompletableFuture<Route> route = pool.findOptimalRouteAsync(1L, 2L, SearchBudget.of(Duration.ofSeconds(60), 0));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        route.cancel(false);
+
+        //then
+        assertTrue(searchBudget.get().isCancelled());
+        assertTrue(searchBudget.get().remaining().compareTo(Duration.ofSeconds(5)) <= 0);
+        assertThrows(RouteSearchTimeoutException.class, () -> searchBudget.get().check(101));
+        // the admitted cost is released once the search stopped, not when the caller stopped waiting
+        while (pool.pending() > 0) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        assertEquals(0, pool.admittedCost());
+    }
+
+    private void awaitPending(int pending) throws InterruptedException {
+        while (pool.pending() < pending) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+    }
+
+    private static Route route(Long start, Long end) {
+        return new Route(List.of(new Node(start, "N" + start, Set.of()), new Node(end, "N" + end, Set.of())), 1);
+    }
+}
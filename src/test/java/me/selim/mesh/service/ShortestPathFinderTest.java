@@ -3,6 +3,8 @@ package me.selim.mesh.service;
 import me.selim.mesh.domain.Connection;
 import me.selim.mesh.domain.Node;
 import me.selim.mesh.domain.Route;
+import me.selim.mesh.error.ResourceDoesNotExistException;
+import me.selim.mesh.error.RouteSearchTimeoutException;
 import me.selim.mesh.infrastructure.NodeRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,11 +13,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -56,4 +62,87 @@ class ShortestPathFinderTest {
         assertEquals(List.of(start, middle, end), route.nodes());
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Search reports the nodes settled, the connections examined and the queue entries of the search")
+    void search_stats() {
+        // 1 -3- 3 -1- 2 and 1 -5- 2, the direct connection is queued first and then shortened through 3
+        Node start = new Node(1L, "N1", Set.of());
+        Node end = new Node(2L, "N2", Set.of());
+        Node middle = new Node(3L, "N3", Set.of());
+        for (Connection connection : List.of(new Connection(1L, 3L, 3), new Connection(3L, 2L, 1), new Connection(1L, 2L, 5))) {
+            List.of(start, middle, end).stream()
+                    .filter(node -> connection.getNodes().contains(node.getId()))
+                    .forEach(node -> node.addConnection(connection));
+        }
+        when(nodeRepository.findById(1L)).thenReturn(Optional.of(start));
+        when(nodeRepository.findById(2L)).thenReturn(Optional.of(end));
+        when(nodeRepository.findById(3L)).thenReturn(Optional.of(middle));
+
+        ShortestPathFinder.Search search = shortestPathFinder.search(1L, 2L, SearchBudget.of(null, 0));
+
+        assertEquals(List.of(start, middle, end), search.route().nodes());
+        SearchStats stats = search.stats();
+        assertEquals(ShortestPathFinder.ENGINE, stats.engine());
+        assertEquals(3, stats.settledNodes());
+        assertEquals(4, stats.relaxedEdges());
+        assertEquals(4, stats.queuePushes());
+        assertEquals(2, stats.peakFrontier());
+        assertEquals(2, stats.hops());
+        assertTrue(stats.nanos() > 0);
+    }
+
+    @Test
+    @DisplayName("Search stops when its budget runs out or when it is cancelled")
+    void findTheRoute_budget() {
+        Node start = new Node(1L, "N1", Set.of());
+        Node end = new Node(2L, "N2", Set.of());
+        Node middle = new Node(3L, "N3", Set.of());
+        Connection conn1 = new Connection(start.getId(), middle.getId(), 3);
+        start.addConnection(conn1);
+        middle.addConnection(conn1);
+        Connection conn2 = new Connection(middle.getId(), end.getId(), 1);
+        middle.addConnection(conn2);
+        end.addConnection(conn2);
+        when(nodeRepository.findById(1L)).thenReturn(Optional.of(start));
+        when(nodeRepository.findById(2L)).thenReturn(Optional.of(end));
+        when(nodeRepository.findById(3L)).thenReturn(Optional.of(middle));
+
+        SearchBudget budget = SearchBudget.of(Duration.ofSeconds(10), 3);
+        ShortestPathFinder.Search search = shortestPathFinder.search(1L, 2L, budget);
+        assertEquals(3, search.visitedNodes());
+        assertEquals(3, search.stats().visitedNodes());
+        assertEquals(search.stats(), budget.stats());
+        SearchBudget exceeded = SearchBudget.of(null, 2);
+        assertThrows(RouteSearchTimeoutException.class,
+                () -> shortestPathFinder.findOptimalRoute(1L, 2L, exceeded));
+        // the search reports the work it did until it ran out of budget
+        assertEquals(3, exceeded.stats().visitedNodes());
+        assertEquals(0, exceeded.stats().hops());
+
+        SearchBudget cancelled = SearchBudget.of(null, 0);
+        cancelled.cancel();
+        assertThrows(CancellationException.class, () -> shortestPathFinder.findOptimalRoute(1L, 2L, cancelled));
+    }
+
+    @Test
+    @DisplayName("Nodes in different components have no route")
+    void findTheRoute_unreachable() {
+        Node start = new Node(1L, "N1", Set.of());
+        Node end = new Node(2L, "N2", Set.of());
+        Node middle = new Node(3L, "N3", Set.of());
+        Connection connection = new Connection(start.getId(), middle.getId(), 3);
+        start.addConnection(connection);
+        middle.addConnection(connection);
+        when(nodeRepository.findById(3L)).thenReturn(Optional.of(middle));
+
+        SearchBudget budget = SearchBudget.of(null, 0);
+        ResourceDoesNotExistException e = assertThrows(ResourceDoesNotExistException.class,
+                () -> shortestPathFinder.findShortestPath(start, end));
+
+        assertEquals("No route from node 1 to node 2", e.getMessage());
+        when(nodeRepository.findById(1L)).thenReturn(Optional.of(start));
+        when(nodeRepository.findById(2L)).thenReturn(Optional.of(end));
+        assertThrows(ResourceDoesNotExistException.class, () -> shortestPathFinder.findOptimalRoute(1L, 2L, budget));
+        assertEquals(2, budget.stats().settledNodes());
+    }
+}
@@ -0,0 +1,128 @@
+package me.selim.mesh.web.actuator;
+
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.events.ConnectionEstablishedEvent;
+import me.selim.mesh.events.NodeCreatedEvent;
+import me.selim.mesh.infrastructure.jfr.GraphMutationRecorder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecordingEndpointTest {
+
+    @TempDir
+    Path directory;
+
+    FlightRecordingEndpoint endpoint = new FlightRecordingEndpoint();
+
+    @AfterEach
+    void tearDown() {
+        endpoint.destroy();
+    }
+
+    @Test
+    @DisplayName("A recording is started on demand and returned with the mesh events when it is stopped")
+    void startAndStop() throws Exception {
+        //given
+        WebEndpointResponse<FlightRecordingEndpoint.RecordingStatus> started = endpoint.start(null, Duration.ofMinutes(1));
+        assertEquals(200, started.getStatus());
+        assertEquals(RecordingState.RUNNING, endpoint.status().getBody().state());
+        assertEquals(FlightRecordingEndpoint.DEFAULT_SETTINGS, endpoint.status().getBody().settings());
+        assertEquals(409, endpoint.start("profile", null).getStatus());
+
+        //when
+        GraphMutationRecorder recorder = new GraphMutationRecorder();
+        recorder.apply(new NodeCreatedEvent(this, new Node(7L, "N7", Set.of())));
+        recorder.apply(new ConnectionEstablishedEvent(this, new Connection(9L, 7L, 3)));
+        WebEndpointResponse<Resource> stopped = endpoint.stop();
+
+        //then
+        assertEquals(200, stopped.getStatus());
+        Path file = directory.resolve("recording.jfr");
+        try (InputStream in = stopped.getBody().getInputStream()) {
+            Files.copy(in, file);
+        }
+        assertFalse(stopped.getBody().exists());
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().startsWith("me.selim.mesh."))
+                .toList();
+        assertEquals(2, events.size());
+        assertEquals("create", events.get(0).getString("operation"));
+        assertEquals(7L, events.get(0).getLong("nodeId"));
+        assertEquals("connect", events.get(1).getString("operation"));
+        assertEquals(7L, events.get(1).getLong("firstNodeId"));
+        assertEquals(9L, events.get(1).getLong("secondNodeId"));
+        assertEquals(3, events.get(1).getInt("distance"));
+        assertEquals(404, endpoint.status().getStatus());
+    }
+
+    @Test
+    @DisplayName("Stopping without recording answers 404, unknown settings or a duration which is not positive answer 400")
+    void stop_withoutRecording() throws Exception {
+        assertEquals(404, endpoint.stop().getStatus());
+        assertEquals(400, endpoint.start("unknown", null).getStatus());
+        assertEquals(400, endpoint.start(null, Duration.ofSeconds(-1)).getStatus());
+        assertEquals(404, endpoint.status().getStatus());
+    }
+
+    @Test
+    @DisplayName("A recording is capped to the configured duration and size")
+    void start_capped() throws Exception {
+        //given
+        endpoint.setMaxDuration(Duration.ofMinutes(1));
+        endpoint.setMaxSize(DataSize.ofMegabytes(1));
+
+        //when
+        WebEndpointResponse<FlightRecordingEndpoint.RecordingStatus> started = endpoint.start(null, Duration.ofDays(7));
+
+        //then
+        assertEquals(200, started.getStatus());
+        assertEquals(Duration.ofMinutes(1), started.getBody().maxDuration());
+        assertEquals(DataSize.ofMegabytes(1).toBytes(), started.getBody().maxBytes());
+        endpoint.stop().getBody().getInputStream().close();
+
+        //when
+        WebEndpointResponse<FlightRecordingEndpoint.RecordingStatus> shorter = endpoint.start(null, Duration.ofSeconds(30));
+        WebEndpointResponse<FlightRecordingEndpoint.RecordingStatus> running = endpoint.status();
+        endpoint.stop().getBody().getInputStream().close();
+        endpoint.start(null, null);
+
+        //then
+        assertEquals(Duration.ofSeconds(30), shorter.getBody().maxDuration());
+        assertEquals(Duration.ofSeconds(30), running.getBody().maxDuration());
+        assertEquals(Duration.ofMinutes(1), endpoint.status().getBody().maxDuration());
+        assertThrows(IllegalArgumentException.class, () -> endpoint.setMaxDuration(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> endpoint.setMaxSize(DataSize.ofBytes(0)));
+    }
+
+    @Test
+    @DisplayName("The flight recording endpoint is not exposed over the web by default")
+    void notExposedByDefault() throws Exception {
+        //when
+        Properties properties = PropertiesLoaderUtils.loadAllProperties("application.properties");
+
+        //then
+        List<String> exposed = List.of(properties.getProperty("management.endpoints.web.exposure.include").split(","));
+        assertFalse(exposed.contains("jfr"));
+        assertFalse(exposed.contains("*"));
+    }
+}
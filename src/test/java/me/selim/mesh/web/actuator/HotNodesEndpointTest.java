@@ -0,0 +1,39 @@
+package me.selim.mesh.web.actuator;
+
+import me.selim.mesh.service.LockContention;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HotNodesEndpointTest {
+
+    LockContention lockContention = new LockContention();
+
+    HotNodesEndpoint endpoint = new HotNodesEndpoint(lockContention);
+
+    @Test
+    @DisplayName("The most contended nodes are listed up to the limit and forgotten on reset")
+    void hotNodes() {
+        //given
+        for (long id = 1; id <= 12; id++) {
+            for (long i = 0; i < id; i++) {
+                lockContention.conflict(LockContention.Operation.CONNECT, id);
+            }
+        }
+
+        //then
+        assertEquals(HotNodesEndpoint.DEFAULT_LIMIT, endpoint.hotNodes(null).nodes().size());
+        assertEquals(List.of(new LockContention.HotNode(12L, 12, 0), new LockContention.HotNode(11L, 11, 0)),
+                endpoint.hotNodes(2).nodes());
+
+        //when
+        endpoint.reset();
+
+        //then
+        assertTrue(endpoint.hotNodes(null).nodes().isEmpty());
+    }
+}
@@ -0,0 +1,203 @@
+package me.selim.mesh.web.actuator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.infrastructure.ConnectionIndex;
+import me.selim.mesh.infrastructure.GraphChangelog;
+import me.selim.mesh.infrastructure.GraphEventBus;
+import me.selim.mesh.infrastructure.GraphEventHandler;
+import me.selim.mesh.infrastructure.GraphProjection;
+import me.selim.mesh.infrastructure.GraphVersion;
+import me.selim.mesh.infrastructure.InMemoryNodeRepository;
+import me.selim.mesh.service.InMemoryNodeIdGenerator;
+import me.selim.mesh.service.LockContention;
+import me.selim.mesh.service.NodeServiceImpl;
+import me.selim.mesh.web.rest.cache.ResponseCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MemoryFootprintTest {
+
+    private final DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+    private final GraphEventBus eventBus = new GraphEventBus(beans.getBeanProvider(GraphProjection.class),
+            beans.getBeanProvider(GraphEventHandler.class));
+    private final InMemoryNodeRepository repository = new InMemoryNodeRepository(new InMemoryNodeIdGenerator(), eventBus);
+    private final ConnectionIndex connectionIndex = new ConnectionIndex(repository);
+    private final GraphChangelog changelog = new GraphChangelog(new GraphVersion());
+    private final NodeServiceImpl nodeService = new NodeServiceImpl(repository, eventBus, new LockContention());
+    private final ResponseCache responseCache = new ResponseCache(new ObjectMapper());
+    private final ObjectLayout layout = ObjectLayout.CURRENT;
+
+    private final MemoryFootprint memoryFootprint = new MemoryFootprint(repository, connectionIndex, eventBus,
+            changelog, responseCache);
+    private final MemoryFootprintEndpoint endpoint = new MemoryFootprintEndpoint(memoryFootprint);
+
+    // the objects are stored here so the JIT can not drop their allocation
+    private volatile Object sink;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        changelog.setCapacity(1024);
+        changelog.setMaxSpillBytes(0);
+        changelog.afterPropertiesSet();
+        beans.registerSingleton("connectionIndex", connectionIndex);
+        beans.registerSingleton("graphChangelog", changelog);
+        eventBus.afterSingletonsInstantiated();
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventBus.destroy();
+    }
+
+    @Test
+    @DisplayName("The sizes of a node and a connection match the bytes the JVM allocates for their objects")
+    void layoutMatchesAllocation() {
+        //given
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "Thread allocation is not measured on this JVM");
+        threads.setThreadAllocatedMemoryEnabled(true);
+        String name = "Node";
+        byte[] sortKey = Node.sortKeyOf(name);
+        Long first = 1000L;
+        Long second = 2000L;
+        Integer distance = 5;
+
+        //when
+        // a test mocking a Node makes Mockito instrument its constructor, so the objects are measured in a record of
+        // the same fields
+        double node = allocatedPerCall(threads,
+                () -> new FiveFields(first, name, sortKey, new AtomicReference<>(List.of()), new ReentrantLock()));
+        double connection = allocatedPerCall(threads,
+                () -> new ThreeFields(Set.of(first, second), distance, Instant.now()));
+
+        //then
+        assertEquals(List.of(Long.class, String.class, byte[].class, AtomicReference.class, ReentrantLock.class),
+                instanceFieldTypes(Node.class));
+        assertEquals(List.of(Set.class, Integer.class, Instant.class), instanceFieldTypes(Connection.class));
+        assertEquals(memoryFootprint.nodeObjects(), node, 8);
+        assertEquals(memoryFootprint.connectionObjects(), connection, 8);
+    }
+
+    @Test
+    @DisplayName("Every node, name and connection is counted once, with the ids shared by the nodes and connections")
+    void countsTheGraph() {
+        //given
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            nodes.add(repository.save(new Node(i % 2 == 0 ? "Node " + i : "Nœud " + i)));
+        }
+        for (int i = 1; i < nodes.size(); i++) {
+            nodeService.connectNodes(nodes.get(i - 1).getId(), nodes.get(i).getId(), 1000);
+        }
+        long names = nodes.stream().mapToLong(node -> layout.string(node.getName())
+                + layout.primitiveArray(Node.sortKeyOf(node.getName()).length, 1)).sum();
+
+        //when
+        MemoryFootprint.Footprint footprint = endpoint.footprint(null, null);
+
+        //then
+        assertEquals(100, footprint.nodes());
+        assertEquals(99, footprint.connections());
+        MemoryFootprint.Components retained = footprint.retainedBytes();
+        assertEquals(names, retained.names());
+        // the connections hold the Longs of the nodes, every node holds a List12, the distance is not in the cache
+        assertEquals(99 * (memoryFootprint.connectionObjects() + layout.object(0, Integer.BYTES))
+                + 100 * layout.object(2, 0), retained.connections());
+        assertEquals(retained.nodes() + retained.names() + retained.connections() + retained.indexes()
+                + retained.caches() + retained.eventQueues(), footprint.totalBytes());
+        assertEquals(0, retained.caches());
+        assertTrue(retained.eventQueues() > 0);
+        assertEquals((retained.connections() + 99 * (3 * layout.skipListEntry() + 2 * layout.object(3, 0))) / 99,
+                footprint.bytesPerConnection());
+        assertEquals(new MemoryFootprint.Projection(100, 99, footprint.projection().liveBytes(),
+                footprint.projection().liveBytes() * MemoryFootprint.HEAP_HEADROOM), footprint.projection());
+    }
+
+    @Test
+    @DisplayName("A projection grows with the nodes and the connections per node of the graph")
+    void projects() {
+        //given
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            nodes.add(repository.save(new Node("Node " + i)));
+        }
+        for (int i = 1; i < nodes.size(); i++) {
+            nodeService.connectNodes(nodes.get(i - 1).getId(), nodes.get(i).getId(), 10);
+        }
+
+        //when
+        MemoryFootprint.Footprint current = endpoint.footprint(100L, 99L);
+        MemoryFootprint.Footprint scaled = endpoint.footprint(1000L, null);
+        MemoryFootprint.Footprint denser = endpoint.footprint(1000L, 2000L);
+
+        //then
+        assertEquals(990, scaled.projection().connections());
+        assertEquals(900 * current.bytesPerNode() + 891 * current.bytesPerConnection(),
+                scaled.projection().liveBytes() - current.projection().liveBytes());
+        assertEquals(1010 * current.bytesPerConnection(),
+                denser.projection().liveBytes() - scaled.projection().liveBytes());
+    }
+
+    @Test
+    @DisplayName("An empty graph is projected with the modelled cost of a node and a connection")
+    void emptyGraph() {
+        //when
+        MemoryFootprint.Footprint footprint = endpoint.footprint(1_000_000L, null);
+
+        //then
+        assertEquals(0, footprint.nodes());
+        assertEquals(0, footprint.totalBytes() - footprint.retainedBytes().eventQueues());
+        assertTrue(footprint.bytesPerNode() > memoryFootprint.nodeObjects());
+        assertTrue(footprint.bytesPerConnection() > memoryFootprint.connectionObjects());
+        assertEquals(2_000_000, footprint.projection().connections());
+        assertTrue(footprint.projection().liveBytes() > 1_000_000 * footprint.bytesPerNode());
+        assertEquals(0, endpoint.footprint(-1L, -1L).projection().nodes());
+    }
+
+    private static List<Class<?>> instanceFieldTypes(Class<?> type) {
+        return Arrays.stream(type.getDeclaredFields())
+                .filter(field -> !Modifier.isStatic(field.getModifiers()) && !field.isSynthetic())
+                .<Class<?>>map(Field::getType)
+                .toList();
+    }
+
+    private record FiveFields(Object first, Object second, Object third, Object fourth, Object fifth) {
+    }
+
+    private record ThreeFields(Object first, Object second, Object third) {
+    }
+
+    private double allocatedPerCall(com.sun.management.ThreadMXBean threads, Supplier<?> allocation) {
+        int iterations = 100_000;
+        for (int i = 0; i < iterations; i++) {
+            sink = allocation.get();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            sink = allocation.get();
+        }
+        return (double) (threads.getCurrentThreadAllocatedBytes() - before) / iterations;
+    }
+}
@@ -0,0 +1,139 @@
+package me.selim.mesh.web.rest;
+
+import me.selim.mesh.error.ChangesExpiredException;
+import me.selim.mesh.infrastructure.GraphChange;
+import me.selim.mesh.infrastructure.GraphChangelog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(GraphChangesResource.class)
+class GraphChangesResourceTest {
+    private static final String CHANGES_URL = "/api/graph/changes";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    GraphChangelog changelog;
+
+    GraphChange created = new GraphChange(5, GraphChange.Type.NODE, 3L, "N3", 0, 0);
+    GraphChange connected = new GraphChange(6, GraphChange.Type.CONNECTION, 1L, null, 3L, 10);
+    GraphChange dropped = new GraphChange(7, GraphChange.Type.CONNECTION_DROPPED, 1L, null, 3L, 0);
+    GraphChange deleted = new GraphChange(8, GraphChange.Type.NODE_DELETED, 3L, null, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        when(changelog.epoch()).thenReturn("e1");
+    }
+
+    @Test
+    @DisplayName("Changes after a version are returned as NDJSON with the version to continue from")
+    void test_getChanges() throws Exception {
+        when(changelog.read(4L, 1000)).thenReturn(List.of(created, connected, dropped, deleted));
+
+        MvcResult result = mockMvc.perform(get(CHANGES_URL).param("since", "4"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().string(GraphExportResource.GRAPH_VERSION_HEADER, "8"))
+                .andExpect(header().string(GraphChangesResource.GRAPH_EPOCH_HEADER, "e1"))
+                .andExpect(content().string("""
+                        {"version":5,"type":"node","id":3,"name":"N3"}
+                        {"version":6,"type":"connection","nodes":[1,3],"distance":10}
+                        {"version":7,"type":"connection-dropped","nodes":[1,3]}
+                        {"version":8,"type":"node-deleted","id":3}
+                        """));
+    }
+
+    @Test
+    @DisplayName("Changes are returned as server-sent events, resuming after the Last-Event-ID")
+    void test_getChanges_eventStream() throws Exception {
+        when(changelog.read(5L, 10)).thenReturn(List.of(connected));
+
+        MvcResult result = mockMvc.perform(get(CHANGES_URL).param("since", "0").param("limit", "10")
+                        .header(GraphChangesResource.LAST_EVENT_ID_HEADER, "5")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(header().string(GraphExportResource.GRAPH_VERSION_HEADER, "6"))
+                .andExpect(content().string("id: 6\nevent: connection\n" +
+                        "data: {\"version\":6,\"type\":\"connection\",\"nodes\":[1,3],\"distance\":10}\n\n"));
+    }
+
+    @Test
+    @DisplayName("Without a change after the version the request waits for the next change")
+    void test_getChanges_longPolling() throws Exception {
+        when(changelog.read(4L, 1000)).thenReturn(List.of()).thenReturn(List.of(created));
+        ArgumentCaptor<Runnable> callback = ArgumentCaptor.forClass(Runnable.class);
+        when(changelog.awaitChange(eq(4L), callback.capture())).thenReturn(() -> {
+        });
+
+        MvcResult result = mockMvc.perform(get(CHANGES_URL).param("since", "4").param("waitMs", "10000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        callback.getValue().run();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(GraphExportResource.GRAPH_VERSION_HEADER, "5"))
+                .andExpect(content().string("{\"version\":5,\"type\":\"node\",\"id\":3,\"name\":\"N3\"}\n"));
+    }
+
+    @Test
+    @DisplayName("Without a change and without waiting, no change is returned")
+    void test_getChanges_none() throws Exception {
+        when(changelog.read(4L, 1000)).thenReturn(List.of());
+
+        MvcResult result = mockMvc.perform(get(CHANGES_URL).param("since", "4"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(GraphExportResource.GRAPH_VERSION_HEADER, "4"))
+                .andExpect(content().string(""));
+        verify(changelog, never()).awaitChange(any(Long.class), any());
+    }
+
+    @Test
+    @DisplayName("Changes which are no longer available answer 410 Gone, the client has to resync")
+    void test_getChanges_expired() throws Exception {
+        when(changelog.read(1L, 1000)).thenThrow(
+                new ChangesExpiredException("Changes after version 1 are no longer available, resync needed", "e1", 90));
+
+        mockMvc.perform(get(CHANGES_URL).param("since", "1"))
+                .andExpect(status().isGone())
+                .andExpect(header().string(GraphChangesResource.GRAPH_EPOCH_HEADER, "e1"))
+                .andExpect(jsonPath("$.detail").value("Changes after version 1 are no longer available, resync needed"))
+                .andExpect(jsonPath("$.version").value(90));
+    }
+
+    @Test
+    @DisplayName("The version to get the changes after is required")
+    void test_getChanges_withoutVersion() throws Exception {
+        mockMvc.perform(get(CHANGES_URL))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get(CHANGES_URL).param("since", "1").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,113 @@
+package me.selim.mesh.web.rest;
+
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.infrastructure.GraphChangelog;
+import me.selim.mesh.infrastructure.GraphVersion;
+import me.selim.mesh.infrastructure.NodeRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(GraphExportResource.class)
+class GraphExportResourceTest {
+    private static final String EXPORT_URL = "/api/graph/export";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    NodeRepository nodeRepository;
+
+    @MockBean
+    GraphVersion graphVersion;
+
+    @MockBean
+    GraphChangelog changelog;
+
+    @Test
+    @DisplayName("Export graph as NDJSON, every connection is written once")
+    void test_exportGraph() throws Exception {
+        Connection c1_2 = new Connection(1L, 2L, 5);
+        Connection c2_3 = new Connection(2L, 3L, 10);
+        Node n1 = new Node(1L, "N1", Set.of(c1_2));
+        Node n2 = new Node(2L, "N2", Set.of(c1_2, c2_3));
+        Node n3 = new Node(3L, "N3", Set.of(c2_3));
+        when(graphVersion.current()).thenReturn(7L);
+        when(nodeRepository.findMaxId()).thenReturn(Optional.of(3L));
+        when(nodeRepository.streamAll()).thenAnswer(invocation -> Stream.of(n1, n2, n3));
+
+        String[] lines = export("7");
+
+        assertEquals(6, lines.length);
+        assertTrue(lines[0].contains("\"type\":\"export\""));
+        assertTrue(lines[0].contains("\"version\":7"));
+        assertEquals("{\"type\":\"node\",\"id\":1,\"name\":\"N1\"}", lines[1]);
+        assertEquals("{\"type\":\"node\",\"id\":3,\"name\":\"N3\"}", lines[3]);
+        assertEquals("{\"type\":\"connection\",\"nodes\":[1,2],\"distance\":5}", lines[4]);
+        assertEquals("{\"type\":\"connection\",\"nodes\":[2,3],\"distance\":10}", lines[5]);
+    }
+
+    @Test
+    @DisplayName("Export skips nodes and connections created after the cutoff")
+    void test_exportGraph_skipsChangesAfterCutoff() throws Exception {
+        Connection c1_2 = new Connection(1L, 2L, 5);
+        Connection late1_3 = new Connection(1L, 3L, 5, Instant.now().plusSeconds(60));
+        Connection c1_4 = new Connection(1L, 4L, 5);
+        Node n1 = new Node(1L, "N1", Set.of(c1_2, late1_3, c1_4));
+        Node n2 = new Node(2L, "N2", Set.of(c1_2));
+        Node n3 = new Node(3L, "N3", Set.of(late1_3));
+        Node n4 = new Node(4L, "N4", Set.of(c1_4));
+        when(graphVersion.current()).thenReturn(1L);
+        when(nodeRepository.findMaxId()).thenReturn(Optional.of(3L));
+        when(nodeRepository.streamAll()).thenAnswer(invocation -> Stream.of(n1, n2, n3, n4));
+
+        String[] lines = export("1");
+
+        assertEquals(5, lines.length);
+        assertEquals("{\"type\":\"connection\",\"nodes\":[1,2],\"distance\":5}", lines[4]);
+    }
+
+    @Test
+    @DisplayName("Export is not modified while the graph version is the same")
+    void test_exportGraph_notModified() throws Exception {
+        when(graphVersion.current()).thenReturn(7L);
+
+        mockMvc.perform(get(EXPORT_URL).header(HttpHeaders.IF_NONE_MATCH, "W/\"7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"7\""));
+        verifyNoInteractions(nodeRepository);
+    }
+
+    private String[] export(String expectedVersion) throws Exception {
+        MvcResult result = mockMvc.perform(get(EXPORT_URL))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().string(GraphExportResource.GRAPH_VERSION_HEADER, expectedVersion))
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"" + expectedVersion + "\""))
+                .andReturn().getResponse().getContentAsString();
+        return body.split("\n");
+    }
+}
@@ -0,0 +1,50 @@
+package me.selim.mesh.web.rest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+class NodeLinksTest {
+
+    @BeforeEach
+    void setUp() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/mesh/api/nodes");
+        request.setScheme("https");
+        request.setServerName("mesh.example");
+        request.setServerPort(8443);
+        request.setContextPath("/mesh");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    // the optional request parameters are rendered as a template by WebMvcLinkBuilder, expanding drops them
+    @Test
+    @DisplayName("Links are identical to the links built by WebMvcLinkBuilder")
+    void sameAsWebMvcLinkBuilder() {
+        //given
+        NodeLinks links = NodeLinks.fromCurrentRequest();
+
+        //then
+        assertEquals(linkTo(methodOn(NodeResource.class).getNodeById(7L, null, null)).withSelfRel().expand(), links.node(7L));
+        assertEquals(linkTo(methodOn(NodeResource.class).getNodeById(7L, null, null)).withRel("startNode").expand(), links.node(7L, "startNode"));
+        assertEquals(linkTo(NodeResource.class).withRel("nodes"), links.nodes());
+        assertEquals(linkTo(methodOn(NodeResource.class).getConnectionBetweenNodes(1L, 2L, null, null)).withSelfRel().expand(),
+                links.connection(1L, 2L));
+        assertEquals(linkTo(methodOn(NodeResource.class).findShortestPath(1L, 2L, null, null, null, null, null)).withSelfRel().expand(),
+                links.shortestPath(1L, 2L));
+        assertEquals(linkTo(methodOn(NodeResource.class).getNodeById(7L, null, null)).withSelfRel().expand().toUri(), links.nodeUri(7L));
+        assertEquals("https://mesh.example:8443/mesh/api/nodes/1/connection/2", links.connectionHref(1L, 2L));
+    }
+}
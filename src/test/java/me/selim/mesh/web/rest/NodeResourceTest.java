@@ -4,33 +4,54 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import me.selim.mesh.domain.Connection;
 import me.selim.mesh.domain.Node;
 import me.selim.mesh.domain.Route;
+import me.selim.mesh.error.RouteSearchTimeoutException;
+import me.selim.mesh.error.ServiceOverloadedException;
+import me.selim.mesh.infrastructure.ConnectionIndex;
+import me.selim.mesh.infrastructure.GraphVersion;
 import me.selim.mesh.infrastructure.NodeRepository;
 import me.selim.mesh.service.NodeService;
 import me.selim.mesh.service.PathFinder;
+import me.selim.mesh.service.SearchBudget;
+import me.selim.mesh.service.SearchStats;
+import me.selim.mesh.web.rest.binary.MeshBinaryHttpMessageConverter;
+import me.selim.mesh.web.rest.cache.ResponseCache;
 import me.selim.mesh.web.rest.mapper.ConnectionMapper;
 import me.selim.mesh.web.rest.model.ConnectionDto;
 import me.selim.mesh.web.rest.model.NodeDto;
 import me.selim.mesh.web.rest.model.SortCriteria;
 import me.selim.mesh.web.rest.model.SortType;
+import me.selim.mesh.web.rest.page.PageCursor;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(NodeResource.class)
 public class NodeResourceTest {
@@ -48,6 +69,15 @@ public class NodeResourceTest {
     @MockBean
     PathFinder pathFinder;
 
+    @MockBean
+    ConnectionIndex connectionIndex;
+
+    @MockBean
+    GraphVersion graphVersion;
+
+    @MockBean
+    ResponseCache responseCache;
+
     @SpyBean
     ConnectionMapper connectionMapper;
 
@@ -165,10 +195,79 @@ public class NodeResourceTest {
         Node end = new Node(2L, "N2", Set.of());
         Node middle = new Node(3L, "N3", Set.of());
 
-        when(pathFinder.findOptimalRoute(1L, 2L)).thenReturn(new Route(List.of(start, middle, end), 4));
+        when(pathFinder.findOptimalRouteAsync(eq(1L), eq(2L), any()))
+                .thenReturn(CompletableFuture.completedFuture(new Route(List.of(start, middle, end), 4)));
 
-        mockMvc.perform(get(NODE_URL + "/shortestPath/{toId}", 1, 2))
-                .andExpect(status().isOk());
+        MvcResult result = mockMvc.perform(get(NODE_URL + "/shortestPath/{toId}", 1, 2))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalDistance").value(4));
+    }
+
+    @Test
+    @DisplayName("Statistics of the route search are returned in a header when asked")
+    void test_findShortestPath_debug() throws Exception {
+        Node start = new Node(1L, "N1", Set.of());
+        Node end = new Node(2L, "N2", Set.of());
+        when(pathFinder.findOptimalRouteAsync(eq(1L), eq(2L), any())).thenAnswer(invocation -> {
+            SearchBudget budget = invocation.getArgument(2);
+            budget.report(new SearchStats("dijkstra", 2, 2, 3, 2, 1, 1, 1_500_000));
+            return CompletableFuture.completedFuture(new Route(List.of(start, end), 4));
+        });
+
+        MvcResult result = mockMvc.perform(get(NODE_URL + "/shortestPath/{toId}", 1, 2).param("debug", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(NodeResource.ROUTE_SEARCH_HEADER,
+                        "engine=dijkstra, settled=2, relaxed=3, pushes=2, frontier=1, hops=1, timeMs=1.500"))
+                .andExpect(jsonPath("$.totalDistance").value(4));
+
+        result = mockMvc.perform(get(NODE_URL + "/shortestPath/{toId}", 1, 2))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(NodeResource.ROUTE_SEARCH_HEADER));
+    }
+
+    @Test
+    @DisplayName("Shortest path search runs within the budget of the request and answers 503 when the budget runs out")
+    void test_findShortestPath_budget() throws Exception {
+        ArgumentCaptor<SearchBudget> budget = ArgumentCaptor.forClass(SearchBudget.class);
+        when(pathFinder.findOptimalRouteAsync(eq(1L), eq(2L), budget.capture()))
+                .thenReturn(CompletableFuture.failedFuture(new RouteSearchTimeoutException("Route search exceeded the limit of 10 visited nodes")));
+
+        MvcResult result = mockMvc.perform(get(NODE_URL + "/shortestPath/{toId}", 1, 2)
+                        .param("timeoutMs", "500").param("maxVisitedNodes", "10"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.detail").value("Route search exceeded the limit of 10 visited nodes"));
+
+        assertTrue(budget.getValue().remaining().toMillis() <= 500);
+        assertThrows(RouteSearchTimeoutException.class, () -> budget.getValue().check(11));
+        mockMvc.perform(get(NODE_URL + "/shortestPath/{toId}", 1, 2).param("timeoutMs", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Shortest path is rejected with 429 and a retry hint when the route searches are overloaded")
+    void test_findShortestPath_overloaded() throws Exception {
+        when(pathFinder.findOptimalRouteAsync(eq(1L), eq(2L), any()))
+                .thenReturn(CompletableFuture.failedFuture(new ServiceOverloadedException("Too many route searches in progress", 3)));
+
+        MvcResult result = mockMvc.perform(get(NODE_URL + "/shortestPath/{toId}", 1, 2))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "3"))
+                .andExpect(jsonPath("$.detail").value("Too many route searches in progress"));
     }
 
     @Test
@@ -187,10 +286,361 @@ public class NodeResourceTest {
         when(nodeRepository.findById(1L)).thenReturn(Optional.of(n1));
         when(nodeRepository.findById(2L)).thenReturn(Optional.of(n2));
         when(nodeRepository.findById(3L)).thenReturn(Optional.of(n3));
+        when(connectionIndex.streamByDistance(false)).thenAnswer(invocation -> Stream.of(c2_3, c1_2));
         when(connectionMapper.mapWithNameOnly(any())).thenCallRealMethod();
         mockMvc.perform(get(NODES_URL + "/connections")
                         .param("criteria", criteria.name())
                         .param("sortType", type.name()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].distance").value(10))
+                .andExpect(jsonPath("$[1].distance").value(5));
+    }
+
+    @Test
+    @DisplayName("Get a page of nodes ordered by id, with the cursor of the next page")
+    void test_getAllNodes_page() throws Exception {
+        List<Node> nodeList = List.of(new Node(1L, "N1", Set.of()), new Node(2L, "N2", Set.of()), new Node(3L, "N3", Set.of()));
+        when(nodeRepository.findPageOrderedById(null, 3)).thenReturn(nodeList);
+        String nextCursor = new PageCursor.NodeId(2L).encode();
+
+        mockMvc.perform(get(NODES_URL).param("orderBy", "ID").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(nodeList.subList(0, 2))))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(header().string("X-Next-Cursor", nextCursor))
+                .andExpect(header().string("Link", org.hamcrest.Matchers.containsString("cursor=" + nextCursor)));
+
+        when(nodeRepository.findPageOrderedById(2L, 3)).thenReturn(nodeList.subList(2, 3));
+        mockMvc.perform(get(NODES_URL).param("orderBy", "ID").param("limit", "2").param("cursor", nextCursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    @DisplayName("Get a page of nodes ordered by name starting after the cursor")
+    void test_getAllNodes_page_byName() throws Exception {
+        List<Node> nodeList = List.of(new Node(5L, "B", Set.of()));
+        when(nodeRepository.findPageOrderedByName("A", 4L, 101)).thenReturn(nodeList);
+
+        mockMvc.perform(get(NODES_URL).param("cursor", new PageCursor.NodeName("A", 4L).encode()))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(nodeList)));
+    }
+
+    @Test
+    @DisplayName("Get the nodes whose name starts with a prefix, for autocomplete")
+    void test_getAllNodes_namePrefix() throws Exception {
+        List<Node> nodeList = List.of(new Node(5L, "Node 1", Set.of()), new Node(6L, "node 10", Set.of()));
+        when(nodeRepository.findPageByNamePrefix("no", null, null, 2)).thenReturn(nodeList);
+        String nextCursor = new PageCursor.NodeName("Node 1", 5L).encode();
+
+        mockMvc.perform(get(NODES_URL + "?namePrefix=no&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(nodeList.subList(0, 1))))
+                .andExpect(header().string("X-Next-Cursor", nextCursor))
+                .andExpect(header().string("Link", org.hamcrest.Matchers.containsString("namePrefix=no")));
+
+        when(nodeRepository.findPageByNamePrefix("no", "Node 1", 5L, 101)).thenReturn(nodeList.subList(1, 2));
+        mockMvc.perform(get(NODES_URL).param("namePrefix", "no").param("cursor", nextCursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+        mockMvc.perform(get(NODES_URL).param("namePrefix", "no").param("orderBy", "ID"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(responseCache);
+    }
+
+    @Test
+    @DisplayName("Get nodes page with invalid page size or cursor")
+    void test_getAllNodes_page_invalid() throws Exception {
+        mockMvc.perform(get(NODES_URL).param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get(NODES_URL).param("limit", "1001"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get(NODES_URL).param("orderBy", "ID").param("cursor", new PageCursor.NodeName("A", 4L).encode()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Get a page of connections ordered by distance")
+    void test_getAllConnections_page() throws Exception {
+        Connection c1_2 = new Connection(1L, 2L, 5);
+        Connection c2_3 = new Connection(2L, 3L, 10);
+        Node n1 = new Node(1L, "N1", Set.of(c1_2));
+        Node n2 = new Node(2L, "N2", Set.of(c1_2, c2_3));
+        Node n3 = new Node(3L, "N3", Set.of(c2_3));
+        when(nodeRepository.findById(1L)).thenReturn(Optional.of(n1));
+        when(nodeRepository.findById(2L)).thenReturn(Optional.of(n2));
+        when(nodeRepository.findById(3L)).thenReturn(Optional.of(n3));
+        when(connectionIndex.findPageByDistance(eq(true), any(), eq(2))).thenReturn(List.of(c1_2, c2_3));
+
+        mockMvc.perform(get(NODES_URL + "/connections")
+                        .param("criteria", SortCriteria.DISTANCE.name())
+                        .param("sortType", SortType.ASC.name())
+                        .param("limit", "1")
+                        .param("cursor", new PageCursor.ConnectionDistance(1, 1L, 3L).encode()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].distance").value(5))
+                .andExpect(header().string("X-Next-Cursor", new PageCursor.ConnectionDistance(5, 1L, 2L).encode()));
+    }
+
+    @Test
+    @DisplayName("Get a page of connections ordered by node name")
+    void test_getAllConnections_page_byNode() throws Exception {
+        Connection c1_2 = new Connection(1L, 2L, 5);
+        Node n1 = new Node(1L, "N1", Set.of(c1_2));
+        Node n2 = new Node(2L, "N2", Set.of(c1_2));
+        when(nodeRepository.findById(1L)).thenReturn(Optional.of(n1));
+        when(nodeRepository.findById(2L)).thenReturn(Optional.of(n2));
+        when(connectionIndex.findPageByNode(eq(false), any(), eq(2)))
+                .thenReturn(List.of(new ConnectionIndex.Endpoint(n2, n1, c1_2), new ConnectionIndex.Endpoint(n2, n1, c1_2)));
+
+        mockMvc.perform(get(NODES_URL + "/connections")
+                        .param("criteria", SortCriteria.NODE.name())
+                        .param("sortType", SortType.DESC.name())
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(header().string("X-Next-Cursor", new PageCursor.ConnectionNode("N2", 2L, 5, 1L).encode()));
+
+        mockMvc.perform(get(NODES_URL + "/connections")
+                        .param("criteria", SortCriteria.NODE.name())
+                        .param("sortType", SortType.DESC.name())
+                        .param("cursor", new PageCursor.ConnectionDistance(5, 1L, 2L).encode()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Get the K longest connections")
+    void test_getTopConnections() throws Exception {
+        Connection c1_2 = new Connection(1L, 2L, 5);
+        Node n1 = new Node(1L, "N1", Set.of(c1_2));
+        Node n2 = new Node(2L, "N2", Set.of(c1_2));
+        when(nodeRepository.findById(1L)).thenReturn(Optional.of(n1));
+        when(nodeRepository.findById(2L)).thenReturn(Optional.of(n2));
+        when(connectionIndex.findTopByDistance(false, 50)).thenReturn(List.of(c1_2));
+
+        mockMvc.perform(get(NODES_URL + "/connections/top").param("k", "50").param("sortType", "DESC"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].distance").value(5));
+
+        mockMvc.perform(get(NODES_URL + "/connections/top").param("k", "0").param("sortType", "DESC"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Get the connections in a distance range")
+    void test_getConnectionsInDistanceRange() throws Exception {
+        Connection c1_2 = new Connection(1L, 2L, 5);
+        Connection c2_3 = new Connection(2L, 3L, 6);
+        Node n1 = new Node(1L, "N1", Set.of(c1_2));
+        Node n2 = new Node(2L, "N2", Set.of(c1_2, c2_3));
+        Node n3 = new Node(3L, "N3", Set.of(c2_3));
+        when(nodeRepository.findById(1L)).thenReturn(Optional.of(n1));
+        when(nodeRepository.findById(2L)).thenReturn(Optional.of(n2));
+        when(nodeRepository.findById(3L)).thenReturn(Optional.of(n3));
+        when(connectionIndex.findPageByDistanceRange(5, 8, true, null, 2)).thenReturn(List.of(c1_2, c2_3));
+
+        mockMvc.perform(get(NODES_URL + "/connections/range").param("min", "5").param("max", "8").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(header().string("X-Next-Cursor", new PageCursor.ConnectionDistance(5, 1L, 2L).encode()));
+
+        when(connectionIndex.findPageByDistanceRange(8, 5, true, null, 101))
+                .thenThrow(new IllegalArgumentException("Minimum distance 8 is greater than maximum distance 5"));
+        mockMvc.perform(get(NODES_URL + "/connections/range").param("min", "8").param("max", "5"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Links of the listings are built from the request base URI")
+    void test_getAllNodes_links() throws Exception {
+        List<Node> nodeList = List.of(new Node(1L, "N1", Set.of()), new Node(2L, "N2", Set.of()));
+        when(nodeRepository.findAll()).thenReturn(nodeList);
+
+        mockMvc.perform(get(NODES_URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].links[0].rel").value("self"))
+                .andExpect(jsonPath("$[0].links[0].href").value("http://localhost/api/nodes/1"))
+                .andExpect(jsonPath("$[1].links[0].href").value("http://localhost/api/nodes/2"));
+    }
+
+    @Test
+    @DisplayName("Plain objects are returned without links when links=none")
+    void test_links_none() throws Exception {
+        List<Node> nodeList = List.of(new Node(1L, "N1", Set.of()), new Node(2L, "N2", Set.of()));
+        when(nodeRepository.findAll()).thenReturn(nodeList);
+        when(nodeRepository.findById(1L)).thenReturn(Optional.of(nodeList.get(0)));
+        when(pathFinder.findOptimalRouteAsync(eq(1L), eq(2L), any()))
+                .thenReturn(CompletableFuture.completedFuture(new Route(nodeList, 4)));
+
+        //when //then
+        mockMvc.perform(get(NODES_URL).param("links", "none"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].links").doesNotExist());
+        mockMvc.perform(get(NODE_URL, 1).param("links", "NONE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("N1"))
+                .andExpect(jsonPath("$._links").doesNotExist());
+        MvcResult route = mockMvc.perform(get(NODE_URL + "/shortestPath/{toId}", 1, 2).param("links", "none"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(route))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalDistance").value(4))
+                .andExpect(jsonPath("$._links").doesNotExist());
+        mockMvc.perform(get(NODES_URL).param("links", "some"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Reads carry the graph version as ETag and are not modified while the version is the same")
+    void test_conditionalGet() throws Exception {
+        //given
+        Node node = new Node(1L, "N1", Set.of());
+        when(graphVersion.current()).thenReturn(5L);
+        when(nodeRepository.findById(1L)).thenReturn(Optional.of(node));
+
+        //when //then
+        mockMvc.perform(get(NODE_URL, 1))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"5\""));
+        mockMvc.perform(get(NODE_URL, 1).header(HttpHeaders.IF_NONE_MATCH, "W/\"4\""))
+                .andExpect(status().isOk());
+
+        Mockito.reset(nodeRepository);
+        mockMvc.perform(get(NODE_URL, 1).header(HttpHeaders.IF_NONE_MATCH, "W/\"5\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get(NODES_URL + "/connections").header(HttpHeaders.IF_NONE_MATCH, "W/\"5\"")
+                        .param("criteria", "DISTANCE").param("sortType", "ASC"))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get(NODE_URL + "/shortestPath/{toId}", 1, 2).header(HttpHeaders.IF_NONE_MATCH, "W/\"5\""))
+                .andExpect(status().isNotModified());
+        verifyNoInteractions(nodeRepository, connectionIndex, pathFinder);
+    }
+
+    @Test
+    @DisplayName("The representations of a version have their own ETags and the reads vary by Accept")
+    void test_conditionalGet_representations() throws Exception {
+        //given
+        Node node = new Node(1L, "N1", Set.of());
+        when(graphVersion.current()).thenReturn(5L);
+        when(nodeRepository.findById(1L)).thenReturn(Optional.of(node));
+
+        //when //then
+        mockMvc.perform(get(NODE_URL, 1).accept(MeshBinaryHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"5-bin\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+        mockMvc.perform(get(NODE_URL, 1).param("links", "none"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"5-plain\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+        mockMvc.perform(get(NODE_URL, 1).header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/x-mesh-binary"))
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"5-bin\""));
+        mockMvc.perform(get(NODE_URL, 1).header(HttpHeaders.ACCEPT, "application/json, application/x-mesh-binary;q=0.5"))
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"5\""));
+
+        // the JSON tag does not match the binary representation, nor the other way around
+        mockMvc.perform(get(NODE_URL, 1).accept(MeshBinaryHttpMessageConverter.MEDIA_TYPE)
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"5\""))
                 .andExpect(status().isOk());
+        mockMvc.perform(get(NODE_URL, 1).header(HttpHeaders.IF_NONE_MATCH, "W/\"5-bin\""))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(NODE_URL, 1).header(HttpHeaders.IF_NONE_MATCH, "W/\"5-plain\""))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(NODES_URL + "/connections").accept(MeshBinaryHttpMessageConverter.MEDIA_TYPE)
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"5-bin\"")
+                        .param("criteria", "DISTANCE").param("sortType", "ASC").param("limit", "10"))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+    }
+
+    @Test
+    @DisplayName("Nodes are served in the binary format when accepted, JSON stays the default")
+    void test_getAllNodes_binary() throws Exception {
+        List<Node> nodeList = List.of(new Node(1L, "N1", Set.of()), new Node(2L, "N2", Set.of()));
+        when(nodeRepository.findAll()).thenReturn(nodeList);
+
+        //when //then
+        mockMvc.perform(get(NODES_URL).accept(MeshBinaryHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MeshBinaryHttpMessageConverter.MEDIA_TYPE))
+                // version, kind, count, then id delta, name length and name, connection count for each node
+                .andExpect(content().bytes(new byte[]{1, 2, 2, 2, 2, 'N', '1', 0, 2, 2, 'N', '2', 0}));
+        mockMvc.perform(get(NODES_URL).accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+        mockMvc.perform(get(NODE_URL, 3).accept(MeshBinaryHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Unpaged listings are served from the response cache, gzip compressed when accepted")
+    void test_getAllConnections_cached() throws Exception {
+        //given
+        byte[] body = "[{\"distance\":5}]".getBytes();
+        byte[] gzipBody = {31, -117, 8, 0};
+        when(graphVersion.current()).thenReturn(3L);
+        when(responseCache.get(eq("connections:DISTANCE:ASC:none"), eq(3L), any(), eq(true)))
+                .thenReturn(new ResponseCache.CachedBody(body, gzipBody));
+        when(responseCache.get(eq("connections:DISTANCE:ASC:none"), eq(3L), any(), eq(false)))
+                .thenReturn(new ResponseCache.CachedBody(body, null));
+
+        //when //then
+        mockMvc.perform(get(NODES_URL + "/connections").param("criteria", "DISTANCE").param("sortType", "ASC")
+                        .param("links", "none").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"3-plain\""))
+                .andExpect(header().stringValues(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(content().bytes(gzipBody));
+        mockMvc.perform(get(NODES_URL + "/connections").param("criteria", "DISTANCE").param("sortType", "ASC")
+                        .param("links", "none"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().bytes(body));
+        // gzip with q=0 is refused, the wildcard accepts it unless gzip is listed
+        mockMvc.perform(get(NODES_URL + "/connections").param("criteria", "DISTANCE").param("sortType", "ASC")
+                        .param("links", "none").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, deflate"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().bytes(body));
+        mockMvc.perform(get(NODES_URL + "/connections").param("criteria", "DISTANCE").param("sortType", "ASC")
+                        .param("links", "none").header(HttpHeaders.ACCEPT_ENCODING, "*;q=0.5"))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+        mockMvc.perform(get(NODES_URL + "/connections").param("criteria", "DISTANCE").param("sortType", "ASC")
+                        .param("links", "none").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0.0, *"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+        verifyNoInteractions(connectionIndex);
+    }
+
+    @Test
+    @DisplayName("Listings with links are cached for the configured base URIs only")
+    void test_getAllNodes_cachedBaseUri() throws Exception {
+        //given
+        byte[] body = "[{\"id\":1}]".getBytes();
+        when(graphVersion.current()).thenReturn(3L);
+        when(responseCache.cachesBaseUri("http://localhost")).thenReturn(true);
+        when(responseCache.get(eq("nodes:http://localhost"), eq(3L), any(), eq(false)))
+                .thenReturn(new ResponseCache.CachedBody(body, null));
+        when(nodeRepository.findAll()).thenReturn(List.of(new Node(1L, "N1", Set.of())));
+
+        //when //then
+        mockMvc.perform(get(NODES_URL))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(body));
+        verifyNoInteractions(nodeRepository);
+        // the links of another host are built for the request, without a cache entry
+        mockMvc.perform(get(NODES_URL).header(HttpHeaders.HOST, "other.example"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].links[0].href").value("http://other.example/api/nodes/1"));
+        verify(responseCache, never()).get(eq("nodes:http://other.example"), anyLong(), any(), anyBoolean());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,180 @@
+package me.selim.mesh.web.rest.aop;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsAspectTest {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    MetricsAspect aspect = new MetricsAspect(registry);
+
+    Handlers target = new Handlers();
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    @DisplayName("An endpoint is timed on every call with one cached timer publishing the SLO buckets")
+    void measureExecutionTime_endpoint() {
+        //given
+        aspect.setEndpointSlo(Map.of("Handlers.get", List.of(Duration.ofMillis(1), Duration.ofSeconds(1))));
+        Handlers handlers = proxy();
+
+        //when
+        for (int i = 0; i < 3; i++) {
+            assertEquals("ok", handlers.get());
+        }
+
+        //then
+        Timer timer = registry.get(MetricsAspect.TIMER_NAME).tag("method", "Handlers.get()").tag("sampled", "false").timer();
+        assertEquals(3, timer.count());
+        assertEquals(1, registry.find(MetricsAspect.TIMER_NAME).timers().size());
+        CountAtBucket[] buckets = timer.takeSnapshot().histogramCounts();
+        assertTrue(List.of(buckets).stream().anyMatch(bucket -> bucket.bucket() == Duration.ofMillis(1).toNanos()));
+        assertTrue(List.of(buckets).stream().anyMatch(bucket -> bucket.bucket() == Duration.ofSeconds(1).toNanos()));
+    }
+
+    @Test
+    @DisplayName("Exceptions are rethrown unchanged and the failed call is timed")
+    void measureExecutionTime_exception() {
+        //given
+        Handlers handlers = proxy();
+
+        //when
+        IOException e = assertThrows(IOException.class, handlers::fail);
+
+        //then
+        assertEquals("failed", e.getMessage());
+        assertEquals(1, registry.get(MetricsAspect.TIMER_NAME).tag("method", "Handlers.fail()").timer().count());
+    }
+
+    @Test
+    @DisplayName("Only the sampled calls of inner methods are timed")
+    void measureExecutionTime_inner() {
+        //given
+        aspect.setInnerSampleRate(0);
+        Handlers handlers = proxy();
+
+        //when
+        assertEquals(2, handlers.inner(1));
+
+        //then
+        assertEquals(0, registry.get(MetricsAspect.TIMER_NAME).tag("method", "Handlers.inner(..)").timer().count());
+
+        //when
+        aspect.setInnerSampleRate(1);
+        assertEquals(2, handlers.inner(1));
+
+        //then
+        assertEquals(1, registry.get(MetricsAspect.TIMER_NAME).tag("method", "Handlers.inner(..)").timer().count());
+        assertThrows(IllegalArgumentException.class, () -> aspect.setInnerSampleRate(1.5));
+    }
+
+    @Test
+    @DisplayName("An endpoint returning a future is timed when the future completes")
+    void measureExecutionTime_future() {
+        //given
+        Handlers handlers = proxy();
+
+        //when
+        CompletableFuture<String> future = handlers.future();
+
+        //then
+        Timer timer = registry.get(MetricsAspect.TIMER_NAME).tag("method", "Handlers.future()").timer();
+        assertEquals(0, timer.count());
+
+        //when
+        target.pending.complete("done");
+
+        //then
+        assertEquals("done", future.join());
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    @DisplayName("An endpoint returning a deferred result is timed when the result is set")
+    void measureExecutionTime_deferredResult() throws Exception {
+        //given
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.setAsyncWebRequest(new StandardServletAsyncWebRequest(request, response));
+        Handlers handlers = proxy();
+
+        //when
+        DeferredResult<String> result = handlers.deferred();
+        asyncManager.startDeferredResultProcessing(result);
+
+        //then
+        Timer timer = registry.get(MetricsAspect.TIMER_NAME).tag("method", "Handlers.deferred()").timer();
+        assertEquals(0, timer.count());
+
+        //when
+        result.setResult("done");
+
+        //then
+        assertEquals(1, timer.count());
+        assertEquals("done", asyncManager.getConcurrentResult());
+    }
+
+    private Handlers proxy() {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    public static class Handlers {
+        final CompletableFuture<String> pending = new CompletableFuture<>();
+
+        @GetMapping("/get")
+        public String get() {
+            return "ok";
+        }
+
+        @GetMapping("/fail")
+        public String fail() throws IOException {
+            throw new IOException("failed");
+        }
+
+        @GetMapping("/future")
+        public CompletableFuture<String> future() {
+            return pending;
+        }
+
+        @GetMapping("/deferred")
+        public DeferredResult<String> deferred() {
+            return new DeferredResult<>();
+        }
+
+        public int inner(int value) {
+            return value * 2;
+        }
+    }
+}
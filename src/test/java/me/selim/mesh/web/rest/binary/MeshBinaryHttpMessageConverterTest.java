@@ -0,0 +1,165 @@
+package me.selim.mesh.web.rest.binary;
+
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.web.rest.model.ConnectionDto;
+import me.selim.mesh.web.rest.model.NodeDto;
+import me.selim.mesh.web.rest.model.RouteDto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeshBinaryHttpMessageConverterTest {
+
+    private final MeshBinaryHttpMessageConverter converter = new MeshBinaryHttpMessageConverter();
+
+    @Test
+    @DisplayName("Nodes are written with delta encoded ids, without links")
+    void writeNodes() throws IOException {
+        //given
+        Connection c1_2 = new Connection(1L, 2L, 300);
+        Node n1 = new Node(1L, "N1", Set.of(c1_2));
+        Node n2 = new Node(2L, "Ünïcode", Set.of(c1_2));
+        List<EntityModel<Node>> body = List.of(EntityModel.of(n1, Link.of("http://localhost/api/nodes/1")),
+                EntityModel.of(n2, Link.of("http://localhost/api/nodes/2")));
+
+        //when
+        Reader reader = write(body);
+
+        //then
+        assertEquals(MeshBinaryWriter.KIND_NODES, reader.header());
+        assertEquals(2, reader.unsigned());
+        assertEquals(1, reader.signed());
+        assertEquals("N1", reader.string());
+        assertEquals(1, reader.unsigned());
+        assertEquals(1, reader.signed()); // other node 2 = 1 + 1
+        assertEquals(300, reader.unsigned());
+        assertEquals(1, reader.signed()); // node 2 = 1 + 1
+        assertEquals("Ünïcode", reader.string());
+        assertEquals(1, reader.unsigned());
+        assertEquals(-1, reader.signed()); // other node 1 = 2 - 1
+        assertEquals(300, reader.unsigned());
+        assertTrue(reader.isFinished());
+    }
+
+    @Test
+    @DisplayName("Connections are written as lower id delta, id gap and distance")
+    void writeConnections() throws IOException {
+        //given
+        List<ConnectionDto> body = List.of(
+                new ConnectionDto(List.of(new NodeDto(1000L, "A"), new NodeDto(1003L, "B")), 5),
+                new ConnectionDto(List.of(new NodeDto(1001L, "C"), new NodeDto(998L, "D")), 7));
+
+        //when
+        Reader reader = write(body);
+
+        //then
+        assertEquals(MeshBinaryWriter.KIND_CONNECTIONS, reader.header());
+        assertEquals(2, reader.unsigned());
+        assertEquals(1000, reader.signed());
+        assertEquals(3, reader.unsigned());
+        assertEquals(5, reader.unsigned());
+        assertEquals(-2, reader.signed());
+        assertEquals(3, reader.unsigned());
+        assertEquals(7, reader.unsigned());
+        assertTrue(reader.isFinished());
+        // 2 header bytes, the count, then 4 and 3 bytes for the connections, the first id takes 2 bytes
+        assertEquals(10, reader.length());
+    }
+
+    @Test
+    @DisplayName("Single connections, routes and empty lists are written with their own kind")
+    void writeConnectionRouteAndEmptyList() throws IOException {
+        Reader connection = write(EntityModel.of(new Connection(4L, 2L, 9)));
+        assertEquals(MeshBinaryWriter.KIND_CONNECTION, connection.header());
+        assertEquals(2, connection.signed());
+        assertEquals(2, connection.unsigned());
+        assertEquals(9, connection.unsigned());
+
+        Reader route = write(new RouteDto(List.of(new NodeDto(3L, "N3"), new NodeDto(1L, "N1")), 12));
+        assertEquals(MeshBinaryWriter.KIND_ROUTE, route.header());
+        assertEquals(12, route.unsigned());
+        assertEquals(2, route.unsigned());
+        assertEquals(3, route.signed());
+        assertEquals("N3", route.string());
+        assertEquals(-2, route.signed());
+        assertEquals("N1", route.string());
+        assertTrue(route.isFinished());
+
+        Reader empty = write(List.of());
+        assertEquals(MeshBinaryHttpMessageConverter.KIND_EMPTY_LIST, empty.header());
+        assertTrue(empty.isFinished());
+    }
+
+    @Test
+    @DisplayName("Other types are not written")
+    void writeUnsupported() {
+        assertFalse(converter.canWrite(String.class, MeshBinaryHttpMessageConverter.MEDIA_TYPE));
+        assertFalse(converter.canRead(Node.class, MeshBinaryHttpMessageConverter.MEDIA_TYPE));
+        assertThrows(HttpMessageNotWritableException.class, () -> write(List.of("text")));
+    }
+
+    private Reader write(Object body) throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(body, MeshBinaryHttpMessageConverter.MEDIA_TYPE, message);
+        assertEquals(MeshBinaryHttpMessageConverter.MEDIA_TYPE, message.getHeaders().getContentType());
+        return new Reader(message.getBodyAsBytes());
+    }
+
+    private static class Reader {
+        private final byte[] bytes;
+        private final ByteArrayInputStream in;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+            this.in = new ByteArrayInputStream(bytes);
+        }
+
+        int header() {
+            assertEquals(MeshBinaryWriter.FORMAT_VERSION, in.read());
+            return in.read();
+        }
+
+        long unsigned() {
+            long value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = in.read();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        long signed() {
+            long value = unsigned();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        String string() {
+            byte[] value = new byte[(int) unsigned()];
+            in.readNBytes(value, 0, value.length);
+            return new String(value, StandardCharsets.UTF_8);
+        }
+
+        boolean isFinished() {
+            return in.available() == 0;
+        }
+
+        int length() {
+            return bytes.length;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package me.selim.mesh.web.rest.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private final ResponseCache cache = new ResponseCache(new ObjectMapper());
+
+    @Test
+    @DisplayName("Body is serialized once per version and the same bytes are returned")
+    void get_sameVersion() {
+        //given
+        AtomicInteger serializations = new AtomicInteger();
+
+        //when
+        ResponseCache.CachedBody first = cache.get("nodes", 1, () -> {
+            serializations.incrementAndGet();
+            return List.of("a", "b");
+        }, false);
+        ResponseCache.CachedBody second = cache.get("nodes", 1, () -> {
+            serializations.incrementAndGet();
+            return List.of("changed");
+        }, false);
+
+        //then
+        assertEquals("[\"a\",\"b\"]", new String(first.body()));
+        assertSame(first.body(), second.body());
+        assertNull(first.gzipBody());
+        assertEquals(1, serializations.get());
+        assertEquals(first.body().length, cache.footprint());
+    }
+
+    @Test
+    @DisplayName("A newer version rebuilds the body and drops the entries of older versions")
+    void get_newerVersion() {
+        cache.get("nodes", 1, () -> List.of("a"), false);
+        cache.get("connections", 1, () -> List.of("b"), false);
+
+        ResponseCache.CachedBody body = cache.get("nodes", 2, () -> List.of("a", "c"), false);
+
+        assertEquals("[\"a\",\"c\"]", new String(body.body()));
+        // the connections of version 1 can not be served anymore
+        assertEquals(body.body().length, cache.footprint());
+        // an older request is served by the newer entry
+        assertSame(body.body(), cache.get("nodes", 1, () -> List.of("a"), false).body());
+    }
+
+    @Test
+    @DisplayName("Gzip compressed copy is built on the first request accepting gzip")
+    void get_gzip() throws IOException {
+        ResponseCache.CachedBody plain = cache.get("nodes", 1, () -> List.of("a"), false);
+        ResponseCache.CachedBody compressed = cache.get("nodes", 1, () -> List.of("a"), true);
+
+        assertSame(plain.body(), compressed.body());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.gzipBody()))) {
+            assertArrayEquals(plain.body(), in.readAllBytes());
+        }
+        assertSame(compressed.gzipBody(), cache.get("nodes", 1, () -> List.of("a"), true).gzipBody());
+        assertEquals(plain.body().length + compressed.gzipBody().length, cache.footprint());
+    }
+
+    @Test
+    @DisplayName("Bodies over the bound are returned but not cached, a disabled cache returns null")
+    void get_boundAndDisabled() {
+        cache.setMaxBytes(4);
+        AtomicInteger serializations = new AtomicInteger();
+
+        assertEquals("[\"a\"]", new String(cache.get("nodes", 1, () -> {
+            serializations.incrementAndGet();
+            return List.of("a");
+        }, false).body()));
+        cache.get("nodes", 1, () -> {
+            serializations.incrementAndGet();
+            return List.of("a");
+        }, false);
+        assertEquals(2, serializations.get());
+        assertEquals(0, cache.footprint());
+
+        cache.setEnabled(false);
+        assertNull(cache.get("nodes", 1, () -> List.of("a"), false));
+    }
+
+    @Test
+    @DisplayName("Concurrent requests of a new version wait for a single serialization")
+    void get_concurrent() throws Exception {
+        //given
+        int threads = 8;
+        AtomicInteger serializations = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        //when
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get("nodes", 7, () -> {
+                        serializations.incrementAndGet();
+                        sleep();
+                        return List.of("a");
+                    }, false).body();
+                }));
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+            //then
+            assertEquals(1, serializations.get());
+            for (Future<byte[]> result : results) {
+                assertEquals("[\"a\"]", new String(result.get()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Footprint and hits are reported as meters")
+    void bindTo() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.get("nodes", 1, () -> List.of("a"), false);
+        cache.get("nodes", 1, () -> List.of("a"), false);
+
+        assertEquals(5.0, registry.get("mesh.response.cache.footprint").gauge().value());
+        assertEquals(1.0, registry.get("mesh.response.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("mesh.response.cache.requests").tag("result", "miss").functionCounter().count());
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    @DisplayName("Listings with links are cached for the configured base URIs only")
+    void cachesBaseUri() {
+        //given
+        cache.setBaseUris(List.of("http://localhost:8080", " https://mesh.example/app/ "));
+
+        //when //then
+        assertTrue(cache.cachesBaseUri("http://localhost:8080"));
+        assertTrue(cache.cachesBaseUri("https://mesh.example/app"));
+        assertFalse(cache.cachesBaseUri("http://localhost:8081"));
+        assertFalse(cache.cachesBaseUri("http://other.example"));
+        assertThrows(IllegalArgumentException.class, () -> cache.setBaseUris(List.of("localhost:8080")));
+    }
+}
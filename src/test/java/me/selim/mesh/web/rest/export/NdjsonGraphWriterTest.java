@@ -0,0 +1,160 @@
+package me.selim.mesh.web.rest.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.selim.mesh.domain.Connection;
+import me.selim.mesh.domain.Node;
+import me.selim.mesh.infrastructure.GraphChangelog;
+import me.selim.mesh.infrastructure.GraphEventBus;
+import me.selim.mesh.infrastructure.GraphEventHandler;
+import me.selim.mesh.infrastructure.GraphProjection;
+import me.selim.mesh.infrastructure.GraphVersion;
+import me.selim.mesh.infrastructure.InMemoryNodeRepository;
+import me.selim.mesh.infrastructure.NodeRepository;
+import me.selim.mesh.service.InMemoryNodeIdGenerator;
+import me.selim.mesh.service.LockContention;
+import me.selim.mesh.service.NodeServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NdjsonGraphWriterTest {
+
+    private final DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+    private final GraphEventBus eventBus = new GraphEventBus(beans.getBeanProvider(GraphProjection.class),
+            beans.getBeanProvider(GraphEventHandler.class));
+    private final InMemoryNodeRepository repository = new InMemoryNodeRepository(new InMemoryNodeIdGenerator(), eventBus);
+    private final GraphVersion graphVersion = new GraphVersion();
+    private final GraphChangelog changelog = new GraphChangelog(graphVersion);
+    private final NodeServiceImpl nodeService = new NodeServiceImpl(repository, eventBus, new LockContention());
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        changelog.setCapacity(1024);
+        changelog.setMaxSpillBytes(0);
+        changelog.afterPropertiesSet();
+        beans.registerSingleton("graphChangelog", changelog);
+        eventBus.afterSingletonsInstantiated();
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventBus.destroy();
+    }
+
+    @Test
+    @DisplayName("An export written while the graph changes becomes consistent by replaying the changes after its version")
+    void write_replayChanges() throws IOException {
+        //given
+        for (int i = 1; i <= 6; i++) {
+            repository.save(new Node("N" + i));
+        }
+        for (long id = 1; id < 6; id++) {
+            nodeService.connectNodes(id, id + 1, (int) id);
+        }
+        NdjsonGraphWriter.ExportCutoff cutoff = new NdjsonGraphWriter.ExportCutoff(graphVersion.current(),
+                repository.findMaxId().orElseThrow(), Instant.now());
+        // the graph changes while the export reads the node 3, after it wrote the node 2
+        NodeRepository exported = mock(NodeRepository.class);
+        boolean[] changed = {false};
+        when(exported.streamAll()).thenAnswer(invocation -> repository.streamAll().peek(node -> {
+            if (node.getId() == 3L && !changed[0]) {
+                changed[0] = true;
+                nodeService.deleteNodeWithConnections(2L);
+                nodeService.dropConnection(5L, 6L);
+                Node created = repository.save(new Node("N7"));
+                nodeService.connectNodes(6L, created.getId(), 7);
+                nodeService.connectNodes(1L, 3L, 9);
+            }
+        }));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        //when
+        new NdjsonGraphWriter(exported, objectMapper.getFactory()).write(cutoff, out);
+        ClientGraph client = new ClientGraph();
+        List<JsonNode> lines = lines(out.toByteArray());
+        lines.subList(1, lines.size()).forEach(client::apply);
+
+        //then
+        assertEquals("fuzzy", lines.get(0).get("snapshot").asText());
+        // the node 2 was written before its deletion dropped its connections, the drop of 5-6 is already there
+        assertTrue(client.nodes.containsKey(2L));
+        assertEquals(Map.of(List.of(3L, 4L), 3, List.of(4L, 5L), 4), client.connections);
+        assertNotEquals(ClientGraph.of(repository), client);
+
+        //when
+        byte[] changes = new GraphChangeWriter(objectMapper.getFactory()).toNdjson(changelog.read(cutoff.version(), 1000));
+        lines(changes).forEach(client::apply);
+
+        //then
+        assertEquals(ClientGraph.of(repository), client);
+    }
+
+    private List<JsonNode> lines(byte[] ndjson) throws IOException {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : new String(ndjson, StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    /**
+     * The graph of a client applying the export and the changes: a line replaces what the client has, a deletion or
+     * a drop removes it if it is there.
+     */
+    private record ClientGraph(Map<Long, String> nodes, Map<List<Long>, Integer> connections) {
+
+        ClientGraph() {
+            this(new HashMap<>(), new HashMap<>());
+        }
+
+        static ClientGraph of(NodeRepository repository) {
+            ClientGraph graph = new ClientGraph();
+            repository.streamAll().forEach(node -> {
+                graph.nodes.put(node.getId(), node.getName());
+                for (Connection connection : node.getConnections()) {
+                    Long other = connection.getOtherNodeId(node.getId());
+                    graph.connections.put(List.of(Math.min(node.getId(), other), Math.max(node.getId(), other)),
+                            connection.getDistance());
+                }
+            });
+            return graph;
+        }
+
+        void apply(JsonNode line) {
+            switch (line.get("type").asText()) {
+                case "node" -> nodes.put(line.get("id").asLong(), line.get("name").asText());
+                case "node-deleted" -> {
+                    long id = line.get("id").asLong();
+                    nodes.remove(id);
+                    connections.keySet().removeIf(pair -> pair.contains(id));
+                }
+                case "connection" -> connections.put(pair(line), line.get("distance").asInt());
+                case "connection-dropped" -> connections.remove(pair(line));
+                default -> throw new IllegalArgumentException("Unknown line " + line);
+            }
+        }
+
+        private static List<Long> pair(JsonNode line) {
+            return List.of(line.get("nodes").get(0).asLong(), line.get("nodes").get(1).asLong());
+        }
+    }
+}
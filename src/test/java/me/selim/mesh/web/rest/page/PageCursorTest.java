@@ -0,0 +1,35 @@
+package me.selim.mesh.web.rest.page;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageCursorTest {
+
+    @Test
+    @DisplayName("Cursors can be decoded after encoding")
+    void encodeDecode() {
+        PageCursor byId = new PageCursor.NodeId(42L);
+        PageCursor byName = new PageCursor.NodeName("Node: with colon", 7L);
+        PageCursor byDistance = new PageCursor.ConnectionDistance(5, 1L, 2L);
+        PageCursor byNode = new PageCursor.ConnectionNode("A:B", 1L, 5, 2L);
+
+        assertEquals(byId, PageCursor.decode(byId.encode()));
+        assertEquals(byName, PageCursor.decode(byName.encode()));
+        assertEquals(byDistance, PageCursor.decode(byDistance.encode(), PageCursor.ConnectionDistance.class));
+        assertEquals(byNode, PageCursor.decode(byNode.encode()));
+        assertNull(PageCursor.decode(null, PageCursor.NodeId.class));
+    }
+
+    @Test
+    @DisplayName("Invalid cursors or cursors of another order are rejected")
+    void decodeInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("WDox"));
+        String byId = new PageCursor.NodeId(42L).encode();
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(byId, PageCursor.NodeName.class));
+    }
+}